@@ -31,6 +31,7 @@ import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -51,6 +52,10 @@ import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
  * Consumers wanting to add and/or replace the default encoder/decoder should override {@link #initChannel} and insert
  * the desired {@link ChannelHandler}s into the pipeline.
  * <p>
+ * Connections don't own their threads, the {@link EventLoopGroup} of {@link #getWorkerGroup} is shared by all
+ * connections and is never shut down by the processor. The processor counts received and sent bytes and messages,
+ * reconnection attempts, and the backlog of messages written but not yet flushed to the channel.
+ * <p>
  * <b>NOTE: Care must be taken when working with Netty {@link ByteBuf} as Netty uses reference counting to manage their
  * lifecycle. Refer to the Netty documentation for more information.</b>
  */
@@ -59,10 +64,19 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
     protected class MessageDecoder extends ByteToMessageDecoder {
         protected List<T> messages = new ArrayList<>(1);
 
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof ByteBuf) {
+                bytesReceived.addAndGet(((ByteBuf) msg).readableBytes());
+            }
+            super.channelRead(ctx, msg);
+        }
+
         @Override
         protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
             AbstractNettyMessageProcessor.this.decode(in, messages);
             if (!messages.isEmpty()) {
+                messagesReceived.addAndGet(messages.size());
                 // Don't pass them along the channel pipeline just consume them
                 messages.forEach(
                     AbstractNettyMessageProcessor.this::onMessageReceived
@@ -97,7 +111,9 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
 
         @Override
         protected void encode(ChannelHandlerContext ctx, T msg, ByteBuf out) throws Exception {
+            int writerIndex = out.writerIndex();
             AbstractNettyMessageProcessor.this.encode(msg, out);
+            bytesSent.addAndGet(out.writerIndex() - writerIndex);
         }
     }
 
@@ -116,6 +132,12 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
     protected ProtocolExecutorService executorService;
     protected ScheduledFuture reconnectTask;
     protected int reconnectDelayMilliseconds = INITIAL_RECONNECT_DELAY_MILLIS;
+    protected final AtomicLong bytesReceived = new AtomicLong();
+    protected final AtomicLong bytesSent = new AtomicLong();
+    protected final AtomicLong messagesReceived = new AtomicLong();
+    protected final AtomicLong messagesSent = new AtomicLong();
+    protected final AtomicLong reconnects = new AtomicLong();
+    protected final AtomicLong backlog = new AtomicLong();
 
     public AbstractNettyMessageProcessor(ProtocolExecutorService executorService) {
         this.executorService = executorService;
@@ -127,6 +149,9 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
 
     protected abstract String getSocketAddressString();
 
+    /**
+     * @return The shared event loop group of the connection, it is not shut down on disconnect.
+     */
     protected abstract EventLoopGroup getWorkerGroup();
 
     protected void configureChannel() {
@@ -144,7 +169,6 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
         onConnectionStatusChanged(ConnectionStatus.CONNECTING);
 
         if (workerGroup == null) {
-            // TODO: In Netty 5 you can pass in an executor service; can only pass in thread factory for now
             workerGroup = getWorkerGroup();
         }
 
@@ -229,10 +253,6 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
         } catch (InterruptedException ignored) {
 
         } finally {
-            if (workerGroup != null) {
-                workerGroup.shutdownGracefully();
-                workerGroup = null;
-            }
             onConnectionStatusChanged(ConnectionStatus.DISCONNECTED);
         }
     }
@@ -245,7 +265,13 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
         }
 
         try {
-            channel.writeAndFlush(message);
+            backlog.incrementAndGet();
+            channel.writeAndFlush(message).addListener(future -> {
+                backlog.decrementAndGet();
+                if (future.isSuccess()) {
+                    messagesSent.incrementAndGet();
+                }
+            });
             LOG.finest("Message sent");
             // Don't block here as it can cause deadlock
 //            ChannelFuture future = channel.writeAndFlush(message).sync();
@@ -294,6 +320,33 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
         messageConsumers.remove(messageConsumer);
     }
 
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * @return The number of messages written to the channel but not yet flushed.
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+
     /**
      * Inserts the decoders and encoders into the channel pipeline
      */
@@ -333,6 +386,7 @@ public abstract class AbstractNettyMessageProcessor<T> implements MessageProcess
         }
 
         LOG.finest("Scheduling reconnection in '" + reconnectDelayMilliseconds + "' milliseconds");
+        reconnects.incrementAndGet();
 
         reconnectTask = executorService.schedule(() -> {
             synchronized (AbstractNettyMessageProcessor.this) {
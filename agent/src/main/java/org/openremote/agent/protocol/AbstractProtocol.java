@@ -19,9 +19,12 @@
  */
 package org.openremote.agent.protocol;
 
+import org.apache.camel.Exchange;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.seda.SedaEndpoint;
 import org.openremote.agent.protocol.filter.MessageFilter;
+import org.openremote.agent.protocol.filter.SuppressionFilter;
 import org.openremote.container.Container;
 import org.openremote.container.message.MessageBrokerContext;
 import org.openremote.container.message.MessageBrokerService;
@@ -41,6 +44,8 @@ import org.openremote.model.value.ValueType;
 import org.openremote.model.value.Values;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -82,14 +87,22 @@ public abstract class AbstractProtocol implements Protocol {
 
     private static final Logger LOG = Logger.getLogger(AbstractProtocol.class.getName());
 
-    protected final Map<AttributeRef, AssetAttribute> linkedAttributes = new HashMap<>();
+    protected final Map<AttributeRef, AssetAttribute> linkedAttributes = new ConcurrentHashMap<>();
+    // Incremented after attributes have been linked or unlinked, while holding the linked attributes monitor
+    protected volatile long linkedAttributesVersion;
     protected final Map<AttributeRef, LinkedProtocolInfo> linkedProtocolConfigurations = new HashMap<>();
     protected final Map<AttributeRef, List<MessageFilter>> linkedAttributeFilters = new HashMap<>();
+    protected final Map<AttributeRef, List<SuppressionFilter<?>>> linkedAttributeSuppressionFilters = new HashMap<>();
+    protected final Map<AttributeRef, AtomicLong> suppressedUpdates = new ConcurrentHashMap<>();
     protected MessageBrokerContext messageBrokerContext;
     protected ProducerTemplate producerTemplate;
     protected TimerService timerService;
     protected ProtocolExecutorService executorService;
     protected ProtocolAssetService assetService;
+    protected SedaEndpoint actuatorEndpoint;
+    protected final AtomicLong actuatorWrites = new AtomicLong();
+    protected final AtomicLong actuatorWriteLatencyMillis = new AtomicLong();
+    protected final AtomicLong maxActuatorWriteLatencyMillis = new AtomicLong();
 
     @Override
     public void init(Container container) throws Exception {
@@ -104,28 +117,39 @@ public abstract class AbstractProtocol implements Protocol {
         LOG.fine("Starting protocol: " + getProtocolName());
         this.messageBrokerContext = container.getService(MessageBrokerSetupService.class).getContext();
         this.producerTemplate = container.getService(MessageBrokerService.class).getProducerTemplate();
+        this.actuatorEndpoint = messageBrokerContext.getEndpoint(
+            Protocol.getActuatorQueue(getProtocolName()), SedaEndpoint.class
+        );
 
         synchronized (linkedAttributes) {
             messageBrokerContext.addRoutes(new RouteBuilder() {
                 @Override
                 public void configure() throws Exception {
-                    from(ACTUATOR_TOPIC)
+                    from(actuatorEndpoint)
                         .routeId("Actuator-" + getProtocolName())
                         .process(exchange -> {
-                            String protocolName = exchange.getIn().getHeader(ACTUATOR_TOPIC_TARGET_PROTOCOL, String.class);
-                            if (getProtocolName().equals(protocolName)) {
-                                // TODO Use read/write lock for link/unlink attributes synchronization and additional optional exclusive lock for single-threaded implementors
+                            AttributeEvent event = exchange.getIn().getBody(AttributeEvent.class);
+                            long version = linkedAttributesVersion;
+                            AssetAttribute attribute = linkedAttributes.get(event.getAttributeRef());
+                            if (attribute != null) {
+                                // The monitor isn't needed for the lookup, it's held so writes don't interleave
+                                // with linking and unlinking of attributes, which protocol implementations rely on
                                 synchronized (linkedAttributes) {
-                                    AttributeEvent event = exchange.getIn().getBody(AttributeEvent.class);
-                                    AssetAttribute attribute = linkedAttributes.get(event.getAttributeRef());
-                                    if (attribute == null) {
-                                        LOG.warning("Attribute doesn't exist on this protocol: " + event.getAttributeRef());
-                                    } else {
+                                    if (version != linkedAttributesVersion) {
+                                        // Attributes have been linked or unlinked in the meantime
+                                        attribute = linkedAttributes.get(event.getAttributeRef());
+                                    }
+                                    if (attribute != null) {
                                         AssetAttribute protocolConfiguration = getLinkedProtocolConfiguration(attribute);
                                         processLinkedAttributeWrite(event, protocolConfiguration);
                                     }
                                 }
                             }
+                            if (attribute == null) {
+                                LOG.warning("Attribute doesn't exist on this protocol: " + event.getAttributeRef());
+                                return;
+                            }
+                            onActuatorWriteProcessed(exchange);
                         });
                 }
             });
@@ -136,6 +160,7 @@ public abstract class AbstractProtocol implements Protocol {
     public void stop(Container container) throws Exception {
         synchronized (linkedAttributes) {
             linkedAttributes.clear();
+            linkedAttributesVersion++;
             messageBrokerContext.stopRoute("Actuator-" + getProtocolName());
             messageBrokerContext.removeRoute("Actuator-" + getProtocolName());
         }
@@ -173,10 +198,10 @@ public abstract class AbstractProtocol implements Protocol {
                 // linking process and without entry in the map any update would be blocked
                 linkedAttributes.put(attributeRef, attribute);
                 Optional<List<MessageFilter>> messageFilters = Protocol.getLinkedAttributeMessageFilters(attribute);
-                if (messageFilters.isPresent()) {
-                    synchronized (linkedAttributeFilters) {
-                        linkedAttributeFilters.put(attributeRef, messageFilters.get());
-                    }
+                Optional<List<SuppressionFilter<?>>> suppressionFilters = Protocol.getLinkedAttributeSuppressionFilters(attribute);
+                synchronized (linkedAttributeFilters) {
+                    messageFilters.ifPresent(filters -> linkedAttributeFilters.put(attributeRef, filters));
+                    suppressionFilters.ifPresent(filters -> linkedAttributeSuppressionFilters.put(attributeRef, filters));
                 }
                 try {
                     doLinkAttribute(attribute, protocolConfiguration);
@@ -185,9 +210,11 @@ public abstract class AbstractProtocol implements Protocol {
                     linkedAttributes.remove(attributeRef);
                     synchronized (linkedAttributeFilters) {
                         linkedAttributeFilters.remove(attributeRef);
+                        linkedAttributeSuppressionFilters.remove(attributeRef);
                     }
                 }
             });
+            linkedAttributesVersion++;
         }
     }
 
@@ -200,9 +227,12 @@ public abstract class AbstractProtocol implements Protocol {
                 linkedAttributes.remove(attributeRef);
                 synchronized (linkedAttributeFilters) {
                     linkedAttributeFilters.remove(attributeRef);
+                    linkedAttributeSuppressionFilters.remove(attributeRef);
                 }
+                suppressedUpdates.remove(attributeRef);
                 doUnlinkAttribute(attribute, protocolConfiguration);
             });
+            linkedAttributesVersion++;
         }
     }
 
@@ -210,9 +240,7 @@ public abstract class AbstractProtocol implements Protocol {
      * Gets a linked attribute by its attribute ref
      */
     protected AssetAttribute getLinkedAttribute(AttributeRef attributeRef) {
-        synchronized (linkedAttributes) {
-            return linkedAttributes.get(attributeRef);
-        }
+        return linkedAttributes.get(attributeRef);
     }
 
     /**
@@ -247,13 +275,7 @@ public abstract class AbstractProtocol implements Protocol {
      */
     protected void sendAttributeEvent(AttributeEvent event) {
         // Don't allow updating linked attributes with this mechanism as it could cause an infinite loop
-        boolean isForLinkedAttribute;
-
-        synchronized (linkedAttributes) {
-            isForLinkedAttribute = linkedAttributes.containsKey(event.getAttributeRef());
-        }
-
-        if (isForLinkedAttribute) {
+        if (linkedAttributes.containsKey(event.getAttributeRef())) {
             LOG.warning("Cannot update an attribute linked to the same protocol; use updateLinkedAttribute for that: " + event);
             return;
         }
@@ -263,33 +285,37 @@ public abstract class AbstractProtocol implements Protocol {
     /**
      * Update the value of a linked attribute. Call this to publish new sensor values. This will apply any
      * {@link MessageFilter}s that have been set for the {@link Attribute} against the {@link AttributeState#value}
-     * before sending on the sensor queue.
+     * before sending on the sensor queue. The value is dropped if a {@link SuppressionFilter} of the message filters
+     * or of the converted value suppresses it, see {@link #getSuppressedUpdates}. The suppression filters only
+     * remember the value once it has been sent.
      */
     protected void updateLinkedAttribute(AttributeState state, long timestamp) {
-        AssetAttribute attribute;
-        synchronized (linkedAttributes) {
-            attribute = linkedAttributes.get(state.getAttributeRef());
-        }
+        AssetAttribute attribute = linkedAttributes.get(state.getAttributeRef());
 
         if (attribute == null) {
             LOG.severe("Update linked attribute called for un-linked attribute: " + state);
             return;
         }
 
+        List<Runnable> passedSuppressionFilters = new ArrayList<>();
+
         if (state.getCurrentValue().isPresent()) {
             List<MessageFilter> filters;
+            List<SuppressionFilter<?>> suppressionFilters;
             Value value = state.getCurrentValue().get();
 
             synchronized (linkedAttributeFilters) {
                 filters = linkedAttributeFilters.get(state.getAttributeRef());
+                suppressionFilters = linkedAttributeSuppressionFilters.get(state.getAttributeRef());
             }
 
             if (filters != null) {
                 LOG.fine("Applying message filters to sensor value...");
 
                 for (MessageFilter filter : filters) {
-                    if (filter.getMessageType() != value.getType().getModelType()) {
-                        LOG.fine("Message filter type '" + filter.getMessageType().getName()
+                    Class<?> messageType = filter.getMessageType();
+                    if (!messageType.isAssignableFrom(value.getType().getModelType())) {
+                        LOG.fine("Message filter type '" + messageType.getName()
                             + "' is not compatible with actual message type '" + value.getType().getModelType().getName()
                             + "': " + filter.getClass().getName());
                         value = null;
@@ -298,6 +324,11 @@ public abstract class AbstractProtocol implements Protocol {
                             LOG.finest("Applying message filter: " + filter.getClass().getName());
                             //noinspection unchecked
                             value = filter.process(value);
+                            if (filter instanceof SuppressionFilter
+                                && !checkSuppressionFilter((SuppressionFilter) filter, value, timestamp, passedSuppressionFilters)) {
+                                suppressUpdate(state.getAttributeRef());
+                                return;
+                            }
                         } catch (Exception e) {
                             LOG.log(
                                 Level.SEVERE,
@@ -329,11 +360,83 @@ public abstract class AbstractProtocol implements Protocol {
                 }
             }
 
+            if (value != null && suppressionFilters != null) {
+                for (SuppressionFilter<?> filter : suppressionFilters) {
+                    Class<?> messageType = filter.getMessageType();
+                    if (messageType.isAssignableFrom(value.getType().getModelType())
+                        && !checkSuppressionFilter(filter, value, timestamp, passedSuppressionFilters)) {
+                        suppressUpdate(state.getAttributeRef());
+                        return;
+                    }
+                }
+            }
+
             state = new AttributeState(state.getAttributeRef(), value);
         }
         AttributeEvent attributeEvent = new AttributeEvent(state, timestamp);
         LOG.fine("Sending on sensor queue: " + attributeEvent);
         producerTemplate.sendBodyAndHeader(SENSOR_QUEUE, attributeEvent, Protocol.SENSOR_QUEUE_SOURCE_PROTOCOL, getProtocolName());
+        passedSuppressionFilters.forEach(Runnable::run);
+    }
+
+    /**
+     * @return <code>true</code> if the filter doesn't suppress the value, the filter will then remember the value
+     * when <code>passedSuppressionFilters</code> are run after the update has been sent.
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean checkSuppressionFilter(SuppressionFilter filter, Value value, long timestamp, List<Runnable> passedSuppressionFilters) {
+        if (filter.isSuppressed(value, timestamp)) {
+            return false;
+        }
+        passedSuppressionFilters.add(() -> filter.passed(value, timestamp));
+        return true;
+    }
+
+    /**
+     * The latency of an actuator write is the time between sending it on the actuator queue and the end of
+     * {@link #processLinkedAttributeWrite}.
+     */
+    protected void onActuatorWriteProcessed(Exchange exchange) {
+        Date created = exchange.getProperty(Exchange.CREATED_TIMESTAMP, Date.class);
+        if (created == null)
+            return;
+        long latencyMillis = Math.max(0, System.currentTimeMillis() - created.getTime());
+        actuatorWrites.incrementAndGet();
+        actuatorWriteLatencyMillis.addAndGet(latencyMillis);
+        maxActuatorWriteLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    /**
+     * Get the number of actuator writes waiting in the actuator queue of this protocol.
+     */
+    public int getActuatorQueueDepth() {
+        return actuatorEndpoint != null ? actuatorEndpoint.getCurrentQueueSize() : 0;
+    }
+
+    public long getActuatorWrites() {
+        return actuatorWrites.get();
+    }
+
+    public long getAverageActuatorWriteLatencyMillis() {
+        long writes = actuatorWrites.get();
+        return writes > 0 ? actuatorWriteLatencyMillis.get() / writes : 0;
+    }
+
+    public long getMaxActuatorWriteLatencyMillis() {
+        return maxActuatorWriteLatencyMillis.get();
+    }
+
+    protected void suppressUpdate(AttributeRef attributeRef) {
+        LOG.finest("Suppressed sensor value of: " + attributeRef);
+        suppressedUpdates.computeIfAbsent(attributeRef, ref -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Get the number of sensor values of a linked attribute that have been dropped by a {@link SuppressionFilter}.
+     */
+    public long getSuppressedUpdates(AttributeRef attributeRef) {
+        AtomicLong count = suppressedUpdates.get(attributeRef);
+        return count != null ? count.get() : 0;
     }
 
     /**
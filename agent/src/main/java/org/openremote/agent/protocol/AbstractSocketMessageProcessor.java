@@ -22,7 +22,6 @@ package org.openremote.agent.protocol;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import org.openremote.model.syslog.SyslogCategory;
 import org.openremote.model.util.TextUtil;
@@ -66,7 +65,7 @@ public abstract class AbstractSocketMessageProcessor<T> extends AbstractNettyMes
 
     @Override
     protected EventLoopGroup getWorkerGroup() {
-        return new NioEventLoopGroup(1);
+        return executorService.getEventLoopGroup();
     }
 
     @Override
@@ -19,7 +19,11 @@
  */
 package org.openremote.agent.protocol;
 
+import org.openremote.agent.protocol.filter.ChangeOnlyFilter;
+import org.openremote.agent.protocol.filter.DeadbandFilter;
 import org.openremote.agent.protocol.filter.MessageFilter;
+import org.openremote.agent.protocol.filter.MinIntervalFilter;
+import org.openremote.agent.protocol.filter.SuppressionFilter;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
 import org.openremote.model.AbstractValueHolder;
@@ -82,7 +86,7 @@ import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
  * <p>
  * If the user writes a new value into the linked attribute, the protocol translates this value
  * change into a device (or service) action. Write operations on attributes linked to a protocol
- * configuration can be consumed by the protocol on the {@link #ACTUATOR_TOPIC} where the message
+ * configuration can be consumed by the protocol on its own {@link #getActuatorQueue} where the message
  * body will be an {@link AttributeEvent}. Each message also contains the target protocol name in
  * header {@link #ACTUATOR_TOPIC_TARGET_PROTOCOL}.
  * <p>
@@ -92,7 +96,9 @@ import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
  * <p>
  * Generic protocols should implement support for filtering state messages from devices (or services) before the
  * protocol updates the linked attribute, to implement this protocols should use the {@link #META_PROTOCOL_FILTERS}
- * {@link MetaItem}.
+ * {@link MetaItem}. Redundant sensor values can be dropped before they are sent on the {@link #SENSOR_QUEUE} with
+ * the {@link #META_PROTOCOL_DEADBAND}, {@link #META_PROTOCOL_DEADBAND_PERCENT},
+ * {@link #META_PROTOCOL_MIN_INTERVAL_MILLIS} and {@link #META_PROTOCOL_CHANGE_ONLY} {@link MetaItem}s.
  * <p>
  * NOTE: That {@link #linkProtocolConfiguration} will always be called
  * before {@link #linkAttributes} and {@link #unlinkAttributes} will always be called before
@@ -151,14 +157,54 @@ public interface Protocol extends ContainerService {
      */
     String META_PROTOCOL_FILTERS = PROTOCOL_NAMESPACE + ":filters";
 
+    /**
+     * {@link MetaItem} for suppressing number sensor values which differ less than this absolute amount from the
+     * last value sent on the {@link #SENSOR_QUEUE}, see {@link DeadbandFilter}.
+     */
+    String META_PROTOCOL_DEADBAND = PROTOCOL_NAMESPACE + ":deadband";
+
+    /**
+     * {@link MetaItem} for suppressing number sensor values which differ less than this percentage from the last
+     * value sent on the {@link #SENSOR_QUEUE}, see {@link DeadbandFilter}.
+     */
+    String META_PROTOCOL_DEADBAND_PERCENT = PROTOCOL_NAMESPACE + ":deadbandPercent";
+
+    /**
+     * {@link MetaItem} for suppressing sensor values received within this number of milliseconds after the last
+     * value sent on the {@link #SENSOR_QUEUE}, see {@link MinIntervalFilter}.
+     */
+    String META_PROTOCOL_MIN_INTERVAL_MILLIS = PROTOCOL_NAMESPACE + ":minIntervalMillis";
+
+    /**
+     * {@link MetaItem} for suppressing sensor values equal to the last value sent on the {@link #SENSOR_QUEUE},
+     * see {@link ChangeOnlyFilter}.
+     */
+    String META_PROTOCOL_CHANGE_ONLY = PROTOCOL_NAMESPACE + ":changeOnly";
+
     // TODO: Some of these options should be configurable depending on expected load etc.
 
-    // Message topic for communicating from asset/thing to protocol layer (asset attribute changed, trigger actuator)
-    String ACTUATOR_TOPIC = "seda://ActuatorTopic?multipleConsumers=true&concurrentConsumers=1&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&limitConcurrentConsumers=false&size=1000";
+    // Message queue for communicating from asset/thing to protocol layer (asset attribute changed, trigger actuator)
+    String ACTUATOR_QUEUE_PREFIX = "seda://ActuatorQueue-";
+    String ACTUATOR_QUEUE_OPTIONS = "?waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&size=1000";
 
     // Message queue for communicating from protocol to asset/thing layer (sensor changed, trigger asset attribute update)
     String SENSOR_QUEUE = "seda://SensorQueue?waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=false&size=25000";
 
+    /**
+     * Get the actuator queue of a protocol, each protocol consumes its own queue so an actuator write is only
+     * received by its target protocol. Callers sending many messages should keep the result.
+     */
+    static String getActuatorQueue(String protocolName) {
+        StringBuilder sb = new StringBuilder(ACTUATOR_QUEUE_PREFIX.length() + protocolName.length() + ACTUATOR_QUEUE_OPTIONS.length());
+        sb.append(ACTUATOR_QUEUE_PREFIX);
+        for (int i = 0; i < protocolName.length(); i++) {
+            char c = protocolName.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+            sb.append(valid ? c : '_');
+        }
+        return sb.append(ACTUATOR_QUEUE_OPTIONS).toString();
+    }
+
     /**
      * Get the name for this protocol
      */
@@ -256,6 +302,36 @@ public interface Protocol extends ContainerService {
         return Optional.empty();
     }
 
+    /**
+     * Create the {@link SuppressionFilter}s configured with meta items on the specified {@link Attribute}, these
+     * should be applied to the value after it has been converted to the attribute's value type.
+     */
+    static Optional<List<SuppressionFilter<?>>> getLinkedAttributeSuppressionFilters(Attribute attribute) {
+        if (attribute == null) {
+            return Optional.empty();
+        }
+
+        List<SuppressionFilter<?>> suppressionFilters = new ArrayList<>();
+        attribute.getMetaItem(META_PROTOCOL_CHANGE_ONLY)
+            .flatMap(AbstractValueHolder::getValueAsBoolean)
+            .filter(changeOnly -> changeOnly)
+            .ifPresent(changeOnly -> suppressionFilters.add(new ChangeOnlyFilter()));
+        attribute.getMetaItem(META_PROTOCOL_DEADBAND)
+            .flatMap(AbstractValueHolder::getValueAsNumber)
+            .filter(deadband -> deadband > 0)
+            .ifPresent(deadband -> suppressionFilters.add(new DeadbandFilter(deadband, false)));
+        attribute.getMetaItem(META_PROTOCOL_DEADBAND_PERCENT)
+            .flatMap(AbstractValueHolder::getValueAsNumber)
+            .filter(deadband -> deadband > 0)
+            .ifPresent(deadband -> suppressionFilters.add(new DeadbandFilter(deadband, true)));
+        attribute.getMetaItem(META_PROTOCOL_MIN_INTERVAL_MILLIS)
+            .flatMap(AbstractValueHolder::getValueAsInteger)
+            .filter(intervalMillis -> intervalMillis > 0)
+            .ifPresent(intervalMillis -> suppressionFilters.add(new MinIntervalFilter(intervalMillis)));
+
+        return suppressionFilters.isEmpty() ? Optional.empty() : Optional.of(suppressionFilters);
+    }
+
     /**
      * Deserialise a {@link MessageFilter} from an {@link ObjectValue}
      */
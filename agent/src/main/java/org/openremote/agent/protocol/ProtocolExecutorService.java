@@ -19,6 +19,7 @@
  */
 package org.openremote.agent.protocol;
 
+import io.netty.channel.EventLoopGroup;
 import org.openremote.container.ContainerService;
 
 import java.util.concurrent.ScheduledExecutorService;
@@ -45,4 +46,20 @@ public interface ProtocolExecutorService extends ScheduledExecutorService, Conta
      * @see java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay
      */
     ScheduledFuture scheduleWithFixedDelay(Runnable runnable, long initialDelayMillis, long periodMillis);
+
+    /**
+     * @return The event loop group shared by all non-blocking (NIO) protocol connections, don't shut it down.
+     */
+    EventLoopGroup getEventLoopGroup();
+
+    /**
+     * @return The event loop group shared by all blocking (OIO) protocol connections such as serial ports, each
+     * connected channel occupies one of its threads, don't shut it down.
+     */
+    EventLoopGroup getBlockingEventLoopGroup();
+
+    /**
+     * @return The timer shared by all protocols for delayed and cron scheduled tasks, don't stop it.
+     */
+    ProtocolTimer getTimer();
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.openremote.model.syslog.SyslogCategory;
+import org.quartz.CronExpression;
+
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
+
+/**
+ * A hashed timing wheel shared by protocols for delayed and cron scheduled tasks. Scheduling and cancelling a task
+ * is O(1) and doesn't create any threads or jobs, so many thousands of timers are cheap. The wheel only has
+ * millisecond resolution of its tick duration; when a task expires it is executed on the dispatch executor, never on
+ * the tick thread.
+ */
+public class ProtocolTimer {
+
+    /**
+     * A task scheduled with a cron expression, it is rescheduled on the timer after each execution.
+     */
+    public class CronTimeout {
+
+        final protected CronExpression cronExpression;
+        final protected Runnable task;
+        protected Timeout timeout;
+        protected Date nextFireTime;
+        protected volatile boolean cancelled;
+
+        protected CronTimeout(CronExpression cronExpression, Runnable task) {
+            this.cronExpression = cronExpression;
+            this.task = task;
+        }
+
+        public CronExpression getCronExpression() {
+            return cronExpression;
+        }
+
+        /**
+         * @return <code>null</code> if the cron expression has no future fire time.
+         */
+        public synchronized Date getNextFireTime() {
+            return nextFireTime;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public synchronized void cancel() {
+            cancelled = true;
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+
+        protected synchronized void scheduleNext(Date after) {
+            if (cancelled) {
+                return;
+            }
+            nextFireTime = cronExpression.getNextValidTimeAfter(after);
+            if (nextFireTime == null) {
+                LOG.fine("Cron expression has no future fire time: " + cronExpression);
+                timeout = null;
+                return;
+            }
+            timeout = wheel.newTimeout(
+                expired -> fire(),
+                Math.max(nextFireTime.getTime() - System.currentTimeMillis(), 0),
+                TimeUnit.MILLISECONDS
+            );
+        }
+
+        protected void fire() {
+            Date fireTime;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                fireTime = nextFireTime;
+                if (System.currentTimeMillis() < fireTime.getTime()) {
+                    // The wall clock was adjusted while waiting, wait for the rest
+                    timeout = wheel.newTimeout(
+                        expired -> fire(),
+                        fireTime.getTime() - System.currentTimeMillis(),
+                        TimeUnit.MILLISECONDS
+                    );
+                    return;
+                }
+                scheduleNext(fireTime);
+            }
+            dispatch(task);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{" +
+                "cronExpression=" + cronExpression +
+                ", nextFireTime=" + nextFireTime +
+                ", cancelled=" + cancelled +
+                '}';
+        }
+    }
+
+    private static final Logger LOG = SyslogCategory.getLogger(PROTOCOL, ProtocolTimer.class);
+
+    final protected HashedWheelTimer wheel;
+    final protected Executor dispatchExecutor;
+    final protected AtomicLong executedTasks = new AtomicLong();
+
+    public ProtocolTimer(ThreadFactory threadFactory, long tickMillis, int ticksPerWheel, Executor dispatchExecutor) {
+        this.wheel = new HashedWheelTimer(threadFactory, tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel, false);
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * Execute the task once after the delay, cancel the returned {@link Timeout} to prevent execution.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return wheel.newTimeout(timeout -> dispatch(task), Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Execute the task at each fire time of the cron expression, evaluated in the default time zone.
+     */
+    public CronTimeout schedule(Runnable task, CronExpression cronExpression) {
+        CronTimeout cronTimeout = new CronTimeout(cronExpression, task);
+        cronTimeout.scheduleNext(new Date());
+        return cronTimeout;
+    }
+
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * @return The number of scheduled tasks which didn't expire yet.
+     */
+    public long getPendingTasks() {
+        return wheel.pendingTimeouts();
+    }
+
+    public long getExecutedTasks() {
+        return executedTasks.get();
+    }
+
+    protected void dispatch(Runnable task) {
+        try {
+            dispatchExecutor.execute(() -> {
+                executedTasks.incrementAndGet();
+                task.run();
+            });
+        } catch (Exception ex) {
+            LOG.log(Level.WARNING, "Can't dispatch expired timer task", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "pendingTasks=" + getPendingTasks() +
+            ", executedTasks=" + getExecutedTasks() +
+            '}';
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol.filter;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.openremote.model.value.Value;
+
+import java.util.Objects;
+
+import static org.openremote.agent.protocol.filter.ChangeOnlyFilter.NAME;
+
+/**
+ * Suppresses updates of any type that are equal to the last passed update.
+ */
+@JsonTypeName(NAME)
+public class ChangeOnlyFilter extends SuppressionFilter<Value> {
+
+    public static final String NAME = "changeOnly";
+
+    @JsonIgnore
+    protected Value lastValue;
+
+    @JsonCreator
+    public ChangeOnlyFilter() {
+    }
+
+    @Override
+    public Class<Value> getMessageType() {
+        return Value.class;
+    }
+
+    @Override
+    public synchronized boolean isSuppressed(Value message, long timestamp) {
+        return Objects.equals(lastValue, message);
+    }
+
+    @Override
+    public synchronized void passed(Value message, long timestamp) {
+        lastValue = message;
+    }
+}
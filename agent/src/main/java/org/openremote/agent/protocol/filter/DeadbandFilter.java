@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol.filter;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.openremote.model.value.NumberValue;
+
+import static org.openremote.agent.protocol.filter.DeadbandFilter.NAME;
+
+/**
+ * Suppresses number updates that differ less than the deadband from the last passed update; the deadband is either
+ * absolute or a percentage of the last passed update.
+ */
+@JsonTypeName(NAME)
+public class DeadbandFilter extends SuppressionFilter<NumberValue> {
+
+    public static final String NAME = "deadband";
+
+    @JsonProperty
+    protected double deadband;
+    @JsonProperty
+    protected boolean percent;
+    @JsonIgnore
+    protected Double lastNumber;
+
+    @JsonCreator
+    public DeadbandFilter(@JsonProperty("deadband") double deadband, @JsonProperty("percent") boolean percent) {
+        this.deadband = deadband;
+        this.percent = percent;
+    }
+
+    @Override
+    public Class<NumberValue> getMessageType() {
+        return NumberValue.class;
+    }
+
+    @Override
+    public synchronized boolean isSuppressed(NumberValue message, long timestamp) {
+        if (lastNumber == null) {
+            return false;
+        }
+        double band = percent ? Math.abs(lastNumber) * deadband / 100 : deadband;
+        return Math.abs(message.getNumber() - lastNumber) < band;
+    }
+
+    @Override
+    public synchronized void passed(NumberValue message, long timestamp) {
+        lastNumber = message.getNumber();
+    }
+}
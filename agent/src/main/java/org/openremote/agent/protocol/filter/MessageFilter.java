@@ -36,14 +36,18 @@ import java.util.Optional;
  * filters should be applied using the following logic:
  * <ul>
  * <li>If message is null then do not pass through filter</li>
- * <li>If message type doesn't match the filter's message type then treat as if filter returned null</li>
+ * <li>If message type isn't assignable to the filter's message type then treat as if filter returned null</li>
  * <li>If filter throws an exception then handle and treat as if filter returned null</li>
  * </ul>
+ * A {@link SuppressionFilter} doesn't convert messages, it drops redundant messages.
  */
 @JsonTypeInfo(use=JsonTypeInfo.Id.NAME, include=JsonTypeInfo.As.PROPERTY, property = "type")
 @JsonSubTypes({
     @JsonSubTypes.Type(name = RegexFilter.NAME, value = RegexFilter.class),
-    @JsonSubTypes.Type(name = SubStringFilter.NAME, value = SubStringFilter.class)
+    @JsonSubTypes.Type(name = SubStringFilter.NAME, value = SubStringFilter.class),
+    @JsonSubTypes.Type(name = DeadbandFilter.NAME, value = DeadbandFilter.class),
+    @JsonSubTypes.Type(name = MinIntervalFilter.NAME, value = MinIntervalFilter.class),
+    @JsonSubTypes.Type(name = ChangeOnlyFilter.NAME, value = ChangeOnlyFilter.class)
 })
 public abstract class MessageFilter<T extends Value> {
 
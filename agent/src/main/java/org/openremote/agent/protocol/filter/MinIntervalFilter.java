@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol.filter;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import org.openremote.model.value.Value;
+
+import static org.openremote.agent.protocol.filter.MinIntervalFilter.NAME;
+
+/**
+ * Suppresses updates of any type received within the minimum interval after the last passed update.
+ */
+@JsonTypeName(NAME)
+public class MinIntervalFilter extends SuppressionFilter<Value> {
+
+    public static final String NAME = "minInterval";
+
+    @JsonProperty
+    protected long intervalMillis;
+    @JsonIgnore
+    protected Long lastTimestamp;
+
+    @JsonCreator
+    public MinIntervalFilter(@JsonProperty("intervalMillis") long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public Class<Value> getMessageType() {
+        return Value.class;
+    }
+
+    @Override
+    public synchronized boolean isSuppressed(Value message, long timestamp) {
+        return lastTimestamp != null && timestamp >= lastTimestamp && timestamp - lastTimestamp < intervalMillis;
+    }
+
+    @Override
+    public synchronized void passed(Value message, long timestamp) {
+        lastTimestamp = timestamp;
+    }
+}
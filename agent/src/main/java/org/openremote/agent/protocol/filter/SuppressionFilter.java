@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.agent.protocol.filter;
+
+import org.openremote.model.value.Value;
+
+/**
+ * A stateful {@link MessageFilter} that drops redundant sensor updates instead of converting them. A suppression
+ * filter instance belongs to a single linked attribute and remembers the last update it passed, this is compared
+ * with the next update to decide if it should be suppressed. If a suppression filter is part of a filter chain and
+ * suppresses an update then no update is sent for the attribute at all (a filter returning <code>null</code> results
+ * in an update with a <code>null</code> value).
+ * <p>
+ * Checking an update and remembering it are separate steps: all filters of an attribute are checked first, and
+ * only if none suppresses the update and it has been sent is {@link #passed} called on each of them. Otherwise a
+ * filter would remember an update that a later filter in the chain dropped.
+ */
+public abstract class SuppressionFilter<T extends Value> extends MessageFilter<T> {
+
+    @Override
+    public Value process(T message) {
+        return message;
+    }
+
+    /**
+     * @return <code>true</code> if the update should not be sent, this does not change the state of the filter.
+     */
+    public abstract boolean isSuppressed(T message, long timestamp);
+
+    /**
+     * Remember the update as the last update that has been sent.
+     */
+    public abstract void passed(T message, long timestamp);
+}
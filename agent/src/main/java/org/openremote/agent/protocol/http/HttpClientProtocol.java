@@ -22,6 +22,7 @@ package org.openremote.agent.protocol.http;
 import org.jboss.resteasy.client.jaxrs.ResteasyWebTarget;
 import org.openremote.agent.protocol.AbstractProtocol;
 import org.openremote.container.Container;
+import org.openremote.container.concurrent.ContainerExecutor;
 import org.openremote.model.AbstractValueHolder;
 import org.openremote.model.asset.AssetAttribute;
 import org.openremote.model.asset.AssetMeta;
@@ -41,17 +42,18 @@ import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
 
 /**
@@ -99,6 +101,12 @@ import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
  * <p>
  * <b>NOTE: if an exception is thrown during the request that means no response is returned then this is treated as if
  * a 500 response has been received</b>
+ * <h1>Polling</h1>
+ * Polling requests are sent on a separate, bounded thread pool so slow servers don't delay other scheduled tasks. At
+ * most {@link #HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS} requests are in flight, further polls are skipped until a request
+ * completes. Requests time out after {@link #HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS}. Linked {@link Attribute}s and pings
+ * of the same protocol configuration with the same path, method, headers, query parameters and body share a single
+ * request while it is in flight.
  * <h1>Dynamic value injection</h1>
  * This allows the {@link #META_ATTRIBUTE_PATH} and/or {@link #META_ATTRIBUTE_BODY} to contain the linked
  * {@link Attribute} value when sending requests. To dynamically inject the attribute value use
@@ -153,6 +161,7 @@ public class HttpClientProtocol extends AbstractProtocol {
         protected boolean dynamicQueryParameters;
         protected boolean dynamicBody;
         protected boolean updateConnectionStatus;
+        protected List<Object> pollingKey;
 
         protected HttpClientRequest(WebTarget client,
                                     String path,
@@ -197,6 +206,9 @@ public class HttpClientProtocol extends AbstractProtocol {
             if (!dynamicPath) {
                 requestTarget = createRequestTarget(path);
             }
+
+            // Requests of the same client (protocol configuration) with this key send the same HTTP request
+            pollingKey = Arrays.asList(client, path, method, headers, queryParameters, body, this.contentType);
         }
 
         protected WebTarget createRequestTarget(String path) {
@@ -264,8 +276,41 @@ public class HttpClientProtocol extends AbstractProtocol {
         }
     }
 
+    /**
+     * The status and body of a response, the body is only read if the request was successful. Identical polling
+     * requests share a single response, so the body can't be read by each of them.
+     */
+    protected static class HttpClientResponse {
+
+        final protected int status;
+        final protected String body;
+
+        protected HttpClientResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        protected boolean isSuccessful() {
+            return Response.Status.Family.familyOf(status) == Response.Status.Family.SUCCESSFUL;
+        }
+    }
+
     public static final String PROTOCOL_NAME = PROTOCOL_NAMESPACE + ":httpClient";
 
+    /**
+     * Maximum number of polling requests in flight, each blocks a thread of the HTTP client while it waits for the
+     * response. A polling request is skipped when this limit has been reached.
+     */
+    public static final String HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS = "HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS";
+    public static final int HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS_DEFAULT = WebTargetBuilder.CONNECTION_POOL_SIZE;
+
+    /**
+     * Time after which a polling request is treated as failed, the thread of the request is released when the
+     * connection times out.
+     */
+    public static final String HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS = "HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS";
+    public static final int HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS_DEFAULT = 15000;
+
     /*--------------- META ITEMS TO BE USED ON PROTOCOL CONFIGURATIONS ---------------*/
     /**
      * Base URI for all requests to this server
@@ -382,11 +427,33 @@ public class HttpClientProtocol extends AbstractProtocol {
     protected final Map<AttributeRef, Pair<ResteasyWebTarget, List<Integer>>> clientMap = new HashMap<>();
     protected final Map<AttributeRef, HttpClientRequest> requestMap = new HashMap<>();
     protected final Map<AttributeRef, ScheduledFuture> pollingMap = new HashMap<>();
+    protected final Map<List<Object>, CompletableFuture<HttpClientResponse>> inFlightPolls = new HashMap<>();
+    protected final AtomicLong coalescedPolls = new AtomicLong();
+    protected final AtomicLong skippedPolls = new AtomicLong();
+    protected final AtomicLong timedOutPolls = new AtomicLong();
+    protected ExecutorService pollingExecutor;
+    protected Semaphore inFlightPermits;
+    protected int requestTimeoutMillis;
 
     @Override
     public void init(Container container) throws Exception {
         super.init(container);
         WebTargetBuilder.setExecutorService(executorService);
+
+        int maxInFlightRequests = getInteger(
+            container.getConfig(), HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS, HTTP_CLIENT_MAX_IN_FLIGHT_REQUESTS_DEFAULT
+        );
+        inFlightPermits = new Semaphore(maxInFlightRequests);
+        // A permit is released before its thread is idle again, the queue holds a task submitted in that gap (at most
+        // one per permit); with a synchronous hand-off the task would be discarded and the permit never released
+        ContainerExecutor pollingExecutor = new ContainerExecutor(
+            "HTTP client polling", maxInFlightRequests, maxInFlightRequests, 60, maxInFlightRequests
+        );
+        pollingExecutor.allowCoreThreadTimeOut(true);
+        this.pollingExecutor = pollingExecutor;
+        requestTimeoutMillis = getInteger(
+            container.getConfig(), HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS, HTTP_CLIENT_REQUEST_TIMEOUT_MILLIS_DEFAULT
+        );
     }
 
     @Override
@@ -396,6 +463,14 @@ public class HttpClientProtocol extends AbstractProtocol {
         pollingMap.clear();
         requestMap.clear();
         clientMap.clear();
+        synchronized (inFlightPolls) {
+            inFlightPolls.values().forEach(poll -> poll.cancel(false));
+            inFlightPolls.clear();
+        }
+        if (pollingExecutor != null) {
+            pollingExecutor.shutdownNow();
+        }
+        LOG.info("Polls coalesced: " + coalescedPolls.get() + ", skipped: " + skippedPolls.get() + ", timed out: " + timedOutPolls.get());
         WebTargetBuilder.close();
     }
 
@@ -843,16 +918,89 @@ public class HttpClientProtocol extends AbstractProtocol {
             ), 0, pollingSeconds, POLLING_TIME_UNIT);
     }
 
-    protected void executePollingRequest(HttpClientRequest clientRequest, Consumer<Response> responseConsumer) {
-        Response response = null;
+    /**
+     * Sends the polling request on the polling executor, the calling (scheduled task) thread is never blocked. If an
+     * identical request is already in flight, its response is shared instead of sending another request. The
+     * consumer is called with <code>null</code> if the request failed or timed out, and not at all if the request
+     * was skipped because too many requests are in flight.
+     */
+    protected void executePollingRequest(HttpClientRequest clientRequest, Consumer<HttpClientResponse> responseConsumer) {
+        List<Object> key = clientRequest.pollingKey;
+        CompletableFuture<HttpClientResponse> poll;
+        boolean send = false;
+
+        synchronized (inFlightPolls) {
+            poll = inFlightPolls.get(key);
+            if (poll == null) {
+                poll = new CompletableFuture<>();
+                inFlightPolls.put(key, poll);
+                send = true;
+            } else {
+                coalescedPolls.incrementAndGet();
+            }
+        }
+
+        poll.thenAccept(responseConsumer);
 
+        if (send) {
+            sendPollingRequest(clientRequest, poll);
+        }
+    }
+
+    protected void sendPollingRequest(HttpClientRequest clientRequest, CompletableFuture<HttpClientResponse> poll) {
+        if (!inFlightPermits.tryAcquire()) {
+            skippedPolls.incrementAndGet();
+            LOG.fine("Too many polling requests in flight, skipping: " + clientRequest.pollingKey);
+            synchronized (inFlightPolls) {
+                inFlightPolls.remove(clientRequest.pollingKey, poll);
+            }
+            // Consumers aren't called, the poll is retried next time
+            poll.cancel(false);
+            return;
+        }
+
+        ScheduledFuture timeout = executorService.schedule(() -> {
+            if (!poll.isDone()) {
+                timedOutPolls.incrementAndGet();
+                LOG.info("Polling request timed out after " + requestTimeoutMillis + "ms: " + clientRequest.pollingKey);
+                completePoll(clientRequest, poll, null);
+            }
+        }, requestTimeoutMillis);
+
+        pollingExecutor.execute(() -> {
+            HttpClientResponse response = null;
+            try {
+                response = readPollingResponse(clientRequest);
+            } catch (Exception e) {
+                LOG.log(Level.SEVERE, "Exception thrown whilst doing polling request", e);
+            } finally {
+                inFlightPermits.release();
+                timeout.cancel(false);
+            }
+            completePoll(clientRequest, poll, response);
+        });
+    }
+
+    protected HttpClientResponse readPollingResponse(HttpClientRequest clientRequest) {
+        Response response = clientRequest.invoke(null);
         try {
-            response = clientRequest.invoke(null);
-        } catch (Exception e) {
-            LOG.log(Level.SEVERE, "Exception thrown whilst doing polling request", e);
+            String body = null;
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL && response.hasEntity()) {
+                body = response.readEntity(String.class);
+            }
+            return new HttpClientResponse(response.getStatus(), body);
+        } finally {
+            response.close();
         }
+    }
 
-        responseConsumer.accept(response);
+    protected void completePoll(HttpClientRequest clientRequest,
+                                CompletableFuture<HttpClientResponse> poll,
+                                HttpClientResponse response) {
+        synchronized (inFlightPolls) {
+            inFlightPolls.remove(clientRequest.pollingKey, poll);
+        }
+        poll.complete(response);
     }
 
     protected void executeAttributeWriteRequest(HttpClientRequest clientRequest,
@@ -871,11 +1019,11 @@ public class HttpClientProtocol extends AbstractProtocol {
     }
 
     protected void onPollingResponse(HttpClientRequest request,
-                                     Response response,
+                                     HttpClientResponse response,
                                      AttributeRef attributeRef,
                                      AttributeRef protocolConfigurationRef) {
 
-        int responseCode = response != null ? response.getStatus() : 500;
+        int responseCode = response != null ? response.status : 500;
 
         if (request.updateConnectionStatus) {
             updateConnectionStatus(protocolConfigurationRef, responseCode);
@@ -883,15 +1031,8 @@ public class HttpClientProtocol extends AbstractProtocol {
 
         Value value = null;
 
-        if (response != null && response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
-            try {
-                value = response.getEntity() != null ? Values.create(response.readEntity(String.class)) : null;
-            } catch (Exception e) {
-                LOG.log(Level.SEVERE, "Error occurred whilst trying to read response body", e);
-                if (request.updateConnectionStatus) {
-                    updateConnectionStatus(protocolConfigurationRef, 500);
-                }
-            }
+        if (response != null && response.isSuccessful()) {
+            value = response.body != null ? Values.create(response.body) : null;
         } else if (isPermanentFailure(responseCode, request.failureCodes)) {
             doPermanentFailure(protocolConfigurationRef);
             cancelPolling(attributeRef != null ? attributeRef : protocolConfigurationRef);
@@ -918,6 +1059,18 @@ public class HttpClientProtocol extends AbstractProtocol {
         }
     }
 
+    public long getCoalescedPolls() {
+        return coalescedPolls.get();
+    }
+
+    public long getSkippedPolls() {
+        return skippedPolls.get();
+    }
+
+    public long getTimedOutPolls() {
+        return timedOutPolls.get();
+    }
+
     protected void cancelPolling(AttributeRef attributeRef) {
         synchronized (pollingMap) {
             ScheduledFuture pingPoll = pollingMap.remove(attributeRef);
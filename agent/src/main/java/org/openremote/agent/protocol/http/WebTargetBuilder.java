@@ -53,6 +53,10 @@ import java.util.stream.Collectors;
 public class WebTargetBuilder {
 
     public static final int CONNECTION_POOL_SIZE = 200;
+    /**
+     * Limits the pooled connections of a single host, so a slow server can't exhaust the whole pool.
+     */
+    public static final int CONNECTION_POOL_SIZE_PER_HOST = 20;
     public static final long CONNECTION_CHECKOUT_TIMEOUT_MILLISECONDS = 5000;
     public static final long CONNECTION_TIMEOUT_MILLISECONDS = 10000;
     protected static ResteasyClient client;
@@ -199,6 +203,7 @@ public class WebTargetBuilder {
         }
         ResteasyClientBuilder clientBuilder = new ResteasyClientBuilder()
             .connectionPoolSize(CONNECTION_POOL_SIZE)
+            .maxPooledPerRoute(CONNECTION_POOL_SIZE_PER_HOST)
             .connectionCheckoutTimeout(CONNECTION_CHECKOUT_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
             .socketTimeout(CONNECTION_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
             .establishConnectionTimeout(CONNECTION_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS)
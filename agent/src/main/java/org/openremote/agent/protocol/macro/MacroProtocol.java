@@ -19,6 +19,7 @@
  */
 package org.openremote.agent.protocol.macro;
 
+import io.netty.util.Timeout;
 import org.openremote.agent.protocol.AbstractProtocol;
 import org.openremote.model.asset.agent.ConnectionStatus;
 import org.openremote.model.asset.AssetAttribute;
@@ -29,7 +30,6 @@ import org.openremote.model.value.ValueType;
 import org.openremote.model.value.Values;
 
 import java.util.*;
-import java.util.concurrent.ScheduledFuture;
 import java.util.logging.Logger;
 
 import static org.openremote.agent.protocol.macro.MacroConfiguration.getMacroActionIndex;
@@ -71,7 +71,7 @@ public class MacroProtocol extends AbstractProtocol {
         List<MacroAction> actions;
         boolean repeat;
         boolean cancelled;
-        ScheduledFuture scheduledFuture;
+        Timeout scheduledTimeout;
         int iteration = -1;
 
         public MacroExecutionTask(AttributeRef attributeRef, List<MacroAction> actions, boolean repeat) {
@@ -98,7 +98,7 @@ public class MacroProtocol extends AbstractProtocol {
 
         void cancel() {
             LOG.fine("Macro Execution cancel");
-            scheduledFuture.cancel(false);
+            scheduledTimeout.cancel();
             cancelled = true;
             synchronized (executions) {
                 executions.remove(attributeRef);
@@ -145,7 +145,7 @@ public class MacroProtocol extends AbstractProtocol {
             Integer delayMillis = actions.get(iteration).getDelayMilliseconds();
 
             // Schedule the next iteration
-            scheduledFuture = executorService.schedule(this::run, delayMillis > 0 ? delayMillis: 0);
+            scheduledTimeout = executorService.getTimer().schedule(this::run, delayMillis > 0 ? delayMillis: 0);
         }
     }
 
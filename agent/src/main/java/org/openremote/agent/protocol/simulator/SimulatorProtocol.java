@@ -356,7 +356,7 @@ public class SimulatorProtocol extends AbstractProtocol {
         if (updateSensorDelayMilliseconds <= 0) {
             updateLinkedAttribute(state);
         } else {
-            executorService.schedule(() -> updateLinkedAttribute(state), updateSensorDelayMilliseconds);
+            executorService.getTimer().schedule(() -> updateLinkedAttribute(state), updateSensorDelayMilliseconds);
         }
     }
 
@@ -19,122 +19,57 @@
  */
 package org.openremote.agent.protocol.timer;
 
+import org.openremote.agent.protocol.ProtocolTimer;
 import org.openremote.model.syslog.SyslogCategory;
-import org.openremote.model.util.Pair;
-import org.quartz.*;
-import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.CronExpression;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Properties;
-import java.util.logging.Level;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import static org.openremote.model.syslog.SyslogCategory.PROTOCOL;
 
+/**
+ * Schedules cron jobs on the shared {@link ProtocolTimer}, the expressions are only evaluated to find their next
+ * fire time.
+ */
 class CronScheduler {
 
     private static final Logger LOG = SyslogCategory.getLogger(PROTOCOL, CronScheduler.class);
 
-    protected static final int ALARM_UPDATE_DELAY_MS = 10000;
-    protected final List<String> jobIds = new ArrayList<>();
-    protected final org.quartz.Scheduler scheduler;
-
-    public CronScheduler() {
-        org.quartz.Scheduler tempScheduler;
-
-        // Set properties for cronScheduler factory
-        Properties schedulerProperties = new Properties();
-        schedulerProperties.setProperty("org.quartz.threadPool.threadCount", "1");
-        // Use default thread pool for now
-        //schedulerProperties.setProperty("org.quartz.threadPool.class", null);
-
-        try {
-            // Initialise Quartz CronScheduler
-            SchedulerFactory factory = new StdSchedulerFactory(schedulerProperties);
-            tempScheduler = factory.getScheduler();
-        } catch (SchedulerException e) {
-            tempScheduler = null;
-            LOG.log(Level.WARNING, "Failed to create quartz cronScheduler", e);
-        }
+    protected final Map<String, ProtocolTimer.CronTimeout> jobs = new HashMap<>();
+    protected final ProtocolTimer timer;
 
-        scheduler = tempScheduler;
+    public CronScheduler(ProtocolTimer timer) {
+        this.timer = timer;
     }
 
-    protected boolean isValid() {
-        return scheduler != null;
+    protected synchronized void shutdown() {
+        jobs.values().forEach(ProtocolTimer.CronTimeout::cancel);
+        jobs.clear();
     }
 
-    protected void shutdown() {
-        if (scheduler != null) {
-            try {
-                scheduler.shutdown(false);
-            } catch (SchedulerException e) {
-                LOG.log(Level.FINE, "Exception has occurred during force shutdown of quartz cronScheduler", e);
-            }
-        }
-    }
+    protected synchronized void addOrReplaceJob(String id, CronExpression expression, Runnable executeHandler) {
+        removeJob(id);
 
-    protected void addOrReplaceJob(String id, CronExpression expression, Runnable executeHandler) {
-        if (jobIds.contains(id)) {
-            removeJob(id);
+        if (expression == null) {
+            LOG.info("Cron expression is null so cannot schedule job: " + id);
+            return;
         }
 
-        Pair<JobDetail, CronTrigger> cronTrigger = createCronTrigger(id, expression, executeHandler);
-
-        try {
-            LOG.fine("Scheduling job: " + id);
-            scheduler.scheduleJob(cronTrigger.key, cronTrigger.value);
-
-            if (!scheduler.isStarted()) {
-                LOG.info("Starting the cron scheduler");
-                scheduler.start();
-            }
-
-            jobIds.add(id);
-        } catch (SchedulerException e) {
-            LOG.log(Level.WARNING, "Unable to start cron job: " + id, e);
-        }
+        LOG.fine("Scheduling job: " + id);
+        jobs.put(id, timer.schedule(executeHandler, expression));
     }
 
-    protected void removeJob(String id) {
-        try {
+    protected synchronized void removeJob(String id) {
+        ProtocolTimer.CronTimeout job = jobs.remove(id);
+        if (job != null) {
             LOG.fine("Unscheduling job: " + id);
-            scheduler.unscheduleJob(TriggerKey.triggerKey(id));
-            scheduler.deleteJob(JobKey.jobKey("cronJob1", id));
-        } catch (SchedulerException e) {
-            LOG.log(Level.FINE, "Exception thrown whilst trying to unschedule cron job: " + id, e);
-        } finally {
-            jobIds.remove(id);
+            job.cancel();
         }
     }
 
-    protected static Pair<JobDetail, CronTrigger> createCronTrigger(String id, CronExpression cronExpression, Runnable executeHandler) {
-        if (cronExpression == null) {
-            LOG.info("Cron expression is null so cannot create trigger: " + id);
-            return null;
-        }
-
-        // Create the cron schedule
-        CronScheduleBuilder cronSchedule = CronScheduleBuilder.cronSchedule(cronExpression);
-
-        // Create the job data with just the execute handler
-        JobDataMap jobData = new JobDataMap();
-        jobData.put("ACTION", executeHandler);
-
-        // Create the execution job
-        JobDetail cronJob = JobBuilder.newJob(CronJob.class)
-            .withIdentity("cronJob1", id)
-            .setJobData(jobData)
-            .build();
-
-        // Create the cron trigger for this alarm
-        CronTrigger trigger = TriggerBuilder.newTrigger()
-            .withIdentity(TriggerKey.triggerKey(id))
-            .withSchedule(cronSchedule)
-            .forJob(cronJob)
-            .build();
-
-        return new Pair<>(cronJob, trigger);
+    protected synchronized ProtocolTimer.CronTimeout getJob(String id) {
+        return jobs.get(id);
     }
-}
\ No newline at end of file
+}
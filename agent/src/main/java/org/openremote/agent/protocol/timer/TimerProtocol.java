@@ -20,6 +20,7 @@
 package org.openremote.agent.protocol.timer;
 
 import org.openremote.agent.protocol.AbstractProtocol;
+import org.openremote.container.Container;
 import org.openremote.model.asset.agent.ConnectionStatus;
 import org.openremote.model.asset.AssetAttribute;
 import org.openremote.model.asset.AssetMeta;
@@ -344,10 +345,18 @@ public class TimerProtocol extends AbstractProtocol {
         );
     }
 
+    @Override
+    public void stop(Container container) throws Exception {
+        super.stop(container);
+        if (cronScheduler != null) {
+            cronScheduler.shutdown();
+        }
+    }
+
     protected CronScheduler getCronScheduler() {
         if (cronScheduler == null) {
             LOG.fine("Create cron scheduler");
-            cronScheduler = new CronScheduler();
+            cronScheduler = new CronScheduler(executorService.getTimer());
         }
 
         return cronScheduler;
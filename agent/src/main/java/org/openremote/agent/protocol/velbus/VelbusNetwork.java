@@ -19,6 +19,7 @@
  */
 package org.openremote.agent.protocol.velbus;
 
+import io.netty.util.Timeout;
 import org.openremote.agent.protocol.*;
 import org.openremote.agent.protocol.velbus.device.*;
 import org.openremote.model.asset.agent.ConnectionStatus;
@@ -26,17 +27,60 @@ import org.openremote.model.value.*;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.*;
 
 import static org.openremote.agent.protocol.velbus.AbstractVelbusProtocol.*;
 
+/**
+ * Packets are sent to the bus in order of their {@link SendPriority}, so user commands aren't delayed by the status
+ * requests of a (re)connect. Writes to a device property replace any of its writes that are still queued, status and
+ * time injection packets are only queued once. Sending is paced with a token bucket: on average one packet every
+ * {@link #DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS}, with bursts of up to {@link #MAX_PACKET_BURST} packets after
+ * the bus has been idle.
+ */
 public class VelbusNetwork {
 
+    /**
+     * Ordered from highest to lowest priority.
+     */
+    public enum SendPriority {
+        WRITE,
+        STATUS,
+        TIME_INJECTION
+    }
+
+    protected static class QueuedPacket {
+        final protected VelbusPacket packet;
+        final protected String writeKey;
+        final protected long queuedMillis;
+
+        protected QueuedPacket(VelbusPacket packet, String writeKey, long queuedMillis) {
+            this.packet = packet;
+            this.writeKey = writeKey;
+            this.queuedMillis = queuedMillis;
+        }
+    }
+
     protected static int DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS = 100; // Need to throttle bus writes
+    protected static int MAX_PACKET_BURST = 3;
+    // Events which must not be replaced by later writes of the same property
+    protected static final Set<VelbusPacket.OutboundCommand> NON_COALESCED_COMMANDS = EnumSet.of(
+        VelbusPacket.OutboundCommand.BUTTON_STATUS,
+        VelbusPacket.OutboundCommand.COUNTER_RESET
+    );
     protected final Integer timeInjectionIntervalSeconds;
     protected MessageProcessor<VelbusPacket> messageProcessor;
-    protected final Queue<VelbusPacket> messageQueue = new ArrayDeque<>();
-    protected List<ScheduledFuture> scheduledTasks = new ArrayList<>();
+    protected final Map<SendPriority, Deque<QueuedPacket>> sendQueues = new EnumMap<>(SendPriority.class);
+    protected final Set<VelbusPacket> queuedReadPackets = new HashSet<>();
+    protected final Object sendLock = new Object();
+    protected double sendTokens = MAX_PACKET_BURST;
+    protected long sendTokensRefillMillis;
+    protected final AtomicLong packetsSent = new AtomicLong();
+    protected final AtomicLong packetsCoalesced = new AtomicLong();
+    protected final AtomicLong totalWaitMillis = new AtomicLong();
+    protected final AtomicLong maxWaitMillis = new AtomicLong();
+    protected List<Timeout> scheduledTasks = new ArrayList<>();
     protected ScheduledFuture timeInjector;
     protected VelbusDevice[] devices = new VelbusDevice[254];
     protected VelbusDevice[] subAddressDevices = new VelbusDevice[254];
@@ -48,6 +92,9 @@ public class VelbusNetwork {
         this.messageProcessor = messageProcessor;
         this.executorService = executorService;
         this.timeInjectionIntervalSeconds = timeInjectionIntervalSeconds;
+        for (SendPriority priority : SendPriority.values()) {
+            sendQueues.put(priority, new ArrayDeque<>());
+        }
         messageProcessor.addConnectionStatusConsumer(this::onConnectionStatusChanged);
         messageProcessor.addMessageConsumer(this::onPacketReceived);
         onConnectionStatusChanged(getConnectionStatus());
@@ -72,14 +119,42 @@ public class VelbusNetwork {
         return this.executorService;
     }
 
-    public synchronized void sendPackets(VelbusPacket... packets) {
-        if (getConnectionStatus() == ConnectionStatus.CONNECTED) {
-            messageQueue.addAll(Arrays.asList(packets));
+    public void sendPackets(VelbusPacket... packets) {
+        sendPackets(SendPriority.WRITE, null, packets);
+    }
+
+    /**
+     * @param writeKey Identifies the written device property, queued packets of the same property are replaced by
+     *                 these packets. Set to <code>null</code> if packets shouldn't be replaced.
+     */
+    public synchronized void sendPackets(SendPriority priority, String writeKey, VelbusPacket... packets) {
+        if (getConnectionStatus() != ConnectionStatus.CONNECTED) {
+            return;
+        }
 
-            if (queueProcessingTask == null) {
-                startSendingPackets();
+        Deque<QueuedPacket> queue = sendQueues.get(priority);
+        long now = System.currentTimeMillis();
+
+        if (priority == SendPriority.WRITE) {
+            if (writeKey != null && isCoalescable(packets)) {
+                int queued = queue.size();
+                queue.removeIf(queuedPacket -> writeKey.equals(queuedPacket.writeKey) && isCoalescable(queuedPacket.packet));
+                packetsCoalesced.addAndGet(queued - queue.size());
+            }
+            for (VelbusPacket packet : packets) {
+                queue.add(new QueuedPacket(packet, writeKey, now));
+            }
+        } else {
+            for (VelbusPacket packet : packets) {
+                if (queuedReadPackets.add(packet)) {
+                    queue.add(new QueuedPacket(packet, null, now));
+                } else {
+                    packetsCoalesced.incrementAndGet();
+                }
             }
         }
+
+        startSendingPackets();
     }
 
     public void connect() {
@@ -91,7 +166,7 @@ public class VelbusNetwork {
     }
 
     public void disconnect() {
-        scheduledTasks.forEach(task -> task.cancel(true));
+        scheduledTasks.forEach(Timeout::cancel);
         scheduledTasks.clear();
 
         if (messageProcessor != null) {
@@ -100,6 +175,13 @@ public class VelbusNetwork {
     }
 
     public void close() {
+        synchronized (this) {
+            if (queueProcessingTask != null) {
+                queueProcessingTask.cancel(false);
+                queueProcessingTask = null;
+            }
+        }
+
         if (timeInjector != null) {
             timeInjector.cancel(true);
             timeInjector = null;
@@ -129,7 +211,7 @@ public class VelbusNetwork {
 
         if (status == ConnectionStatus.CONNECTED) {
             // Don't process stale messages
-            messageQueue.clear();
+            clearSendQueues();
 
             // Initialise the devices
             for (int i=0; i<devices.length; i++) {
@@ -253,46 +335,147 @@ public class VelbusNetwork {
         return devices[address-1];
     }
 
+    protected static boolean isCoalescable(VelbusPacket... packets) {
+        for (VelbusPacket packet : packets) {
+            if (NON_COALESCED_COMMANDS.contains(VelbusPacket.OutboundCommand.fromCode(packet.getCommand()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected synchronized void clearSendQueues() {
+        sendQueues.values().forEach(Collection::clear);
+        queuedReadPackets.clear();
+    }
+
     protected synchronized void startSendingPackets() {
         if (queueProcessingTask != null) {
             return;
         }
 
-        queueProcessingTask = getExecutorService().scheduleWithFixedDelay(
-            this::doSendPacket,
-            0,
-            DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS
-        );
+        queueProcessingTask = getExecutorService().schedule(this::doSendPackets, getSendDelayMillis());
     }
 
-    protected void doSendPacket() {
-        if (getConnectionStatus() == ConnectionStatus.CONNECTED) {
-            VelbusPacket packet = messageQueue.poll();
-            if (packet != null) {
+    /**
+     * Sends as many queued packets as there are tokens, then schedules itself for when the next token is available.
+     * Packets are sent without holding the lock of the network, responses can be received on the sending thread.
+     */
+    protected void doSendPackets() {
+        synchronized (sendLock) {
+            List<VelbusPacket> packets = new ArrayList<>();
+            MessageProcessor<VelbusPacket> messageProcessor;
+
+            synchronized (this) {
+                queueProcessingTask = null;
+                messageProcessor = this.messageProcessor;
+
+                if (messageProcessor == null || messageProcessor.getConnectionStatus() != ConnectionStatus.CONNECTED) {
+                    return;
+                }
+
+                refillSendTokens();
+                QueuedPacket queuedPacket;
+                while (sendTokens >= 1 && (queuedPacket = pollQueuedPacket()) != null) {
+                    sendTokens--;
+                    long waitMillis = System.currentTimeMillis() - queuedPacket.queuedMillis;
+                    packetsSent.incrementAndGet();
+                    totalWaitMillis.addAndGet(waitMillis);
+                    maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+                    packets.add(queuedPacket.packet);
+                }
+
+                if (getQueueDepth() > 0) {
+                    startSendingPackets();
+                }
+            }
+
+            for (VelbusPacket packet : packets) {
                 VelbusPacket.OutboundCommand command = VelbusPacket.OutboundCommand.fromCode(packet.getCommand());
                 LOG.finest("Sending packet " + command + " : " + packet);
                 messageProcessor.sendMessage(packet);
-            } else {
-                queueProcessingTask.cancel(false);
-                queueProcessingTask = null;
             }
         }
     }
 
-    public ScheduledFuture scheduleTask(Runnable runnable, int delayMillis) {
+    protected QueuedPacket pollQueuedPacket() {
+        for (SendPriority priority : SendPriority.values()) {
+            QueuedPacket queuedPacket = sendQueues.get(priority).poll();
+            if (queuedPacket != null) {
+                if (priority != SendPriority.WRITE) {
+                    queuedReadPackets.remove(queuedPacket.packet);
+                }
+                return queuedPacket;
+            }
+        }
+        return null;
+    }
+
+    protected void refillSendTokens() {
+        long now = System.currentTimeMillis();
+        if (sendTokensRefillMillis > 0) {
+            sendTokens = Math.min(
+                MAX_PACKET_BURST,
+                sendTokens + (double) (now - sendTokensRefillMillis) / DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS
+            );
+        }
+        sendTokensRefillMillis = now;
+    }
+
+    protected long getSendDelayMillis() {
+        refillSendTokens();
+        return sendTokens >= 1 ? 0 : (long) Math.ceil((1 - sendTokens) * DELAY_BETWEEN_PACKET_WRITES_MILLISECONDS);
+    }
+
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (Deque<QueuedPacket> queue : sendQueues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public synchronized int getQueueDepth(SendPriority priority) {
+        return sendQueues.get(priority).size();
+    }
+
+    public long getPacketsSent() {
+        return packetsSent.get();
+    }
+
+    /**
+     * @return The number of queued packets which were replaced or dropped as duplicates.
+     */
+    public long getPacketsCoalesced() {
+        return packetsCoalesced.get();
+    }
+
+    /**
+     * @return The average time sent packets waited in the queue.
+     */
+    public long getAverageWaitMillis() {
+        long sent = packetsSent.get();
+        return sent == 0 ? 0 : totalWaitMillis.get() / sent;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    public Timeout scheduleTask(Runnable runnable, int delayMillis) {
         // Remove old completed tasks
-        scheduledTasks.removeIf(Future::isDone);
+        scheduledTasks.removeIf(Timeout::isExpired);
 
         if (getConnectionStatus() == ConnectionStatus.CONNECTED) {
-            ScheduledFuture future = getExecutorService().schedule(runnable, delayMillis);
-            scheduledTasks.add(future);
-            return future;
+            Timeout timeout = getExecutorService().getTimer().schedule(runnable, delayMillis);
+            scheduledTasks.add(timeout);
+            return timeout;
         }
 
         return null;
     }
 
     protected void doTimeInjection() {
-        sendPackets(VelbusDevice.createTimeInjectionPackets());
+        sendPackets(SendPriority.TIME_INJECTION, null, VelbusDevice.createTimeInjectionPackets());
     }
 }
@@ -19,6 +19,7 @@
  */
 package org.openremote.agent.protocol.velbus.device;
 
+import org.openremote.agent.protocol.velbus.VelbusNetwork;
 import org.openremote.agent.protocol.velbus.VelbusPacket;
 import org.openremote.model.attribute.AttributeType;
 import org.openremote.model.util.EnumUtil;
@@ -283,7 +284,11 @@ public class ProgramsProcessor extends ChannelProcessor {
 
                     device.velbusNetwork.scheduleTask(() -> {
                         List<VelbusPacket> packets = getStatusRequestPackets(device);
-                        device.velbusNetwork.sendPackets(packets.toArray(new VelbusPacket[packets.size()]));
+                        device.velbusNetwork.sendPackets(
+                            VelbusNetwork.SendPriority.STATUS,
+                            null,
+                            packets.toArray(new VelbusPacket[packets.size()])
+                        );
                     }, 500);
 
                     return Collections.singletonList(
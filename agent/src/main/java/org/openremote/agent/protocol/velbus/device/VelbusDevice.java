@@ -126,7 +126,7 @@ public class VelbusDevice {
             initialisationAttempts++;
 
             // Send/Resend the packets needed to initialise the device
-            velbusNetwork.sendPackets(createModuleTypePacket(baseAddress));
+            velbusNetwork.sendPackets(VelbusNetwork.SendPriority.STATUS, null, createModuleTypePacket(baseAddress));
         }
     }
 
@@ -161,7 +161,11 @@ public class VelbusDevice {
                     .collect(Collectors.toList());
 
                 LOG.fine("Sending module status request packets");
-                velbusNetwork.sendPackets(statusPackets.toArray(new VelbusPacket[statusPackets.size()]));
+                velbusNetwork.sendPackets(
+                    VelbusNetwork.SendPriority.STATUS,
+                    null,
+                    statusPackets.toArray(new VelbusPacket[statusPackets.size()])
+                );
             }
         }
     }
@@ -218,7 +222,11 @@ public class VelbusDevice {
             for (FeatureProcessor processor : featureProcessors) {
                 List<VelbusPacket> packets = processor.getPropertyWritePackets(this, property, value);
                 if (packets != null) {
-                    velbusNetwork.sendPackets(packets.toArray(new VelbusPacket[packets.size()]));
+                    velbusNetwork.sendPackets(
+                        VelbusNetwork.SendPriority.WRITE,
+                        baseAddress + ":" + property,
+                        packets.toArray(new VelbusPacket[packets.size()])
+                    );
                     break;
                 }
             }
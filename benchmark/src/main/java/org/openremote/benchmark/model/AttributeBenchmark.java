@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.benchmark.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openremote.model.asset.Asset;
+import org.openremote.model.asset.AssetAttribute;
+import org.openremote.model.attribute.MetaItem;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.openremote.model.asset.AssetMeta.AGENT_LINK;
+
+/**
+ * Looking up the attributes of the demo assets and their meta items, run with
+ * <code>./gradlew :benchmark:jmh -Pjmh="AttributeBenchmark"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeBenchmark {
+
+    protected Asset thing;
+    protected Asset livingRoom;
+    protected AssetAttribute light1Dimmer;
+    protected AssetAttribute co2Level;
+
+    @Setup
+    public void setup() {
+        thing = DemoAssetDocuments.createDemoThing();
+        livingRoom = DemoAssetDocuments.createDemoLivingRoom();
+        light1Dimmer = thing.getAttribute("light1Dimmer").orElseThrow(IllegalStateException::new);
+        co2Level = livingRoom.getAttribute("co2Level").orElseThrow(IllegalStateException::new);
+    }
+
+    @Benchmark
+    public Optional<AssetAttribute> attributeLookup() {
+        return livingRoom.getAttribute("windowOpen");
+    }
+
+    @Benchmark
+    public long attributesLookup() {
+        return thing.getAttributesStream().count();
+    }
+
+    @Benchmark
+    public void metaFlagLookup(Blackhole blackhole) {
+        blackhole.consume(co2Level.isRuleState());
+        blackhole.consume(co2Level.isRuleEvent());
+        blackhole.consume(co2Level.isStoreDatapoints());
+        blackhole.consume(co2Level.isReadOnly());
+        blackhole.consume(co2Level.isAccessRestrictedRead());
+    }
+
+    @Benchmark
+    public void metaItemLookup(Blackhole blackhole) {
+        blackhole.consume(light1Dimmer.getLabel());
+        blackhole.consume(light1Dimmer.getDescription());
+        blackhole.consume(light1Dimmer.getMetaItem(AGENT_LINK));
+        blackhole.consume(light1Dimmer.getMetaItem(DemoAssetDocuments.SIMULATOR_MODE));
+    }
+
+    @Benchmark
+    public Optional<MetaItem> metaItemMissing() {
+        return co2Level.getMetaItem(AGENT_LINK);
+    }
+
+    @Benchmark
+    public AssetAttribute attributeDeepCopy() {
+        return light1Dimmer.deepCopy();
+    }
+}
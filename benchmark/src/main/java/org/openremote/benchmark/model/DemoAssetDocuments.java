@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.benchmark.model;
+
+import org.openremote.model.asset.Asset;
+import org.openremote.model.asset.AssetAttribute;
+import org.openremote.model.asset.AssetType;
+import org.openremote.model.attribute.AttributeRef;
+import org.openremote.model.attribute.AttributeType;
+import org.openremote.model.attribute.ColorRGB;
+import org.openremote.model.attribute.Meta;
+import org.openremote.model.attribute.MetaItem;
+import org.openremote.model.value.Values;
+
+import static org.openremote.model.Constants.PROTOCOL_NAMESPACE;
+import static org.openremote.model.asset.AssetMeta.*;
+import static org.openremote.model.attribute.AttributeType.*;
+
+/**
+ * Assets with the same attributes and meta items as the demo assets of <code>ManagerDemoSetup</code>, the
+ * benchmarks only depend on the model so they are built here.
+ */
+public class DemoAssetDocuments {
+
+    public static final String AGENT_ID = "2Kc6tqnD8xWuvcS2RhXJRn";
+    public static final String AGENT_PROTOCOL_CONFIG_NAME = "inputSimulator";
+    public static final String SIMULATOR_ELEMENT = PROTOCOL_NAMESPACE + ":simulator:element";
+    public static final String SIMULATOR_MODE = PROTOCOL_NAMESPACE + ":simulator:mode";
+
+    /**
+     * The "Demo Thing" with simulator linked light attributes.
+     */
+    public static Asset createDemoThing() {
+        Asset thing = new Asset("Demo Thing", AssetType.THING);
+        thing.setId("4C4y5ZzRfaXNEqBSyYBqbZ");
+        thing.setAttributes(
+            new AssetAttribute("light1Toggle", BOOLEAN, Values.create(true), 1512000000000L)
+                .setMeta(new Meta(
+                    new MetaItem(LABEL, Values.create("Light 1 Toggle")),
+                    new MetaItem(DESCRIPTION, Values.create("Switch for living room light")),
+                    new MetaItem(STORE_DATA_POINTS, Values.create(true)),
+                    new MetaItem(AGENT_LINK, new AttributeRef(AGENT_ID, AGENT_PROTOCOL_CONFIG_NAME).toArrayValue()),
+                    new MetaItem(SIMULATOR_ELEMENT, Values.create("switch"))
+                )),
+            new AssetAttribute("light1Dimmer", PERCENTAGE)
+                .setMeta(new Meta(
+                    new MetaItem(LABEL, Values.create("Light 1 Dimmer")),
+                    new MetaItem(DESCRIPTION, Values.create("Dimmer for living room light")),
+                    new MetaItem(RANGE_MIN, Values.create(0)),
+                    new MetaItem(RANGE_MAX, Values.create(100)),
+                    new MetaItem(AGENT_LINK, new AttributeRef(AGENT_ID, AGENT_PROTOCOL_CONFIG_NAME).toArrayValue()),
+                    new MetaItem(SIMULATOR_ELEMENT, Values.create("range")),
+                    new MetaItem(SIMULATOR_MODE, Values.create("WRITE_THROUGH_DELAYED"))
+                )),
+            new AssetAttribute("light1Color", COLOR_RGB, new ColorRGB(88, 123, 88).asArrayValue(), 1512000000000L)
+                .setMeta(new Meta(
+                    new MetaItem(LABEL, Values.create("Light 1 Color")),
+                    new MetaItem(DESCRIPTION, Values.create("Color of living room light")),
+                    new MetaItem(AGENT_LINK, new AttributeRef(AGENT_ID, AGENT_PROTOCOL_CONFIG_NAME).toArrayValue()),
+                    new MetaItem(SIMULATOR_ELEMENT, Values.create("color"))
+                )),
+            new AssetAttribute("light1PowerConsumption", ENERGY_KWH, Values.create(12.345), 1512000000000L)
+                .setMeta(new Meta(
+                    new MetaItem(LABEL, Values.create("Light 1 Usage")),
+                    new MetaItem(DESCRIPTION, Values.create("Total energy consumption of living room light")),
+                    new MetaItem(READ_ONLY, Values.create(true)),
+                    new MetaItem(FORMAT, Values.create("%3d kWh")),
+                    new MetaItem(AGENT_LINK, new AttributeRef(AGENT_ID, AGENT_PROTOCOL_CONFIG_NAME).toArrayValue()),
+                    new MetaItem(SIMULATOR_ELEMENT, Values.create("number")),
+                    new MetaItem(STORE_DATA_POINTS, Values.create(true))
+                ))
+        );
+        return thing;
+    }
+
+    /**
+     * The "Living Room" of "Apartment 2" with rule state attributes.
+     */
+    public static Asset createDemoLivingRoom() {
+        Asset livingRoom = new Asset("Living Room", AssetType.ROOM);
+        livingRoom.setId("6tYfHgn6Qh1xLprULRu9D5");
+        livingRoom.setAttributes(
+            new AssetAttribute("motionSensor", AttributeType.BOOLEAN, Values.create(false), 1512000000000L)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("Motion Sensor")),
+                    new MetaItem(DESCRIPTION, Values.create("PIR sensor that sends 'true' when motion is sensed")),
+                    new MetaItem(RULE_STATE, Values.create(true)),
+                    new MetaItem(RULE_EVENT, Values.create(true))
+                ),
+            new AssetAttribute("presenceDetected", AttributeType.BOOLEAN, Values.create(false), 1512000000000L)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("Presence Detected")),
+                    new MetaItem(DESCRIPTION, Values.create("Someone is currently present in the room")),
+                    new MetaItem(RULE_STATE, Values.create(true))
+                ),
+            new AssetAttribute("firstPresenceDetected", AttributeType.TIMESTAMP_MILLIS)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("First Presence Timestamp")),
+                    new MetaItem(DESCRIPTION, Values.create("Timestamp of the first detected presence")),
+                    new MetaItem(RULE_STATE, Values.create(true))
+                ),
+            new AssetAttribute("lastPresenceDetected", AttributeType.TIMESTAMP_MILLIS)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("Last Presence Timestamp")),
+                    new MetaItem(DESCRIPTION, Values.create("Timestamp of last detected presence")),
+                    new MetaItem(RULE_STATE, Values.create(true))
+                ),
+            new AssetAttribute("co2Level", AttributeType.CO2_PPM, Values.create(350), 1512000000000L)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("CO2 Level")),
+                    new MetaItem(RULE_STATE, Values.create(true))
+                ),
+            new AssetAttribute("lightSwitch", AttributeType.BOOLEAN, Values.create(true), 1512000000000L)
+                .setMeta(
+                    new MetaItem(LABEL, Values.create("Light Switch")),
+                    new MetaItem(RULE_STATE, Values.create(false))
+                ),
+            new AssetAttribute("windowOpen", AttributeType.BOOLEAN, Values.create(false), 1512000000000L)
+                .setMeta(
+                    new MetaItem(ACCESS_RESTRICTED_READ, Values.create(true))
+                )
+        );
+        return livingRoom;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.benchmark.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openremote.model.value.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, serializing, copying and converting the attributes of the demo assets, run with
+ * <code>./gradlew :benchmark:jmh -Pjmh="ValueBenchmark"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+
+    @Param({"thing", "room"})
+    public String asset;
+
+    protected ObjectValue attributes;
+    protected String attributesJson;
+    protected Value numberValue;
+    protected Value stringValue;
+
+    @Setup
+    public void setup() {
+        attributes = "thing".equals(asset)
+            ? DemoAssetDocuments.createDemoThing().getAttributes()
+            : DemoAssetDocuments.createDemoLivingRoom().getAttributes();
+        attributesJson = attributes.toJson();
+        numberValue = Values.create(12.345);
+        stringValue = Values.create("12.345");
+    }
+
+    @Benchmark
+    public Optional<ObjectValue> parse() {
+        return Values.parse(attributesJson);
+    }
+
+    @Benchmark
+    public String stringify() {
+        return attributes.toJson();
+    }
+
+    @Benchmark
+    public ObjectValue deepCopy() {
+        return attributes.deepCopy();
+    }
+
+    @Benchmark
+    public Optional<StringValue> convertNumberToString() {
+        return Values.convert(numberValue, StringValue.class);
+    }
+
+    @Benchmark
+    public Optional<NumberValue> convertStringToNumber() {
+        return Values.convert(stringValue, NumberValue.class);
+    }
+}
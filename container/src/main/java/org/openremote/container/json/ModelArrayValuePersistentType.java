@@ -21,7 +21,6 @@ package org.openremote.container.json;
 
 import org.hibernate.HibernateException;
 import org.openremote.model.value.ArrayValue;
-import org.openremote.model.value.Values;
 
 import java.io.Serializable;
 
@@ -29,12 +28,12 @@ public class ModelArrayValuePersistentType extends PostgreSQLJsonType {
 
     @Override
     public Serializable disassemble(Object value) throws HibernateException {
-        return value == null ? null : ((ArrayValue) value).toJson();
+        return value == null ? null : ValueJsonWriter.toJson((ArrayValue) value);
     }
 
     @Override
     public ArrayValue assemble(Serializable cached, Object owner) throws HibernateException {
-        return cached == null ? null : Values.<ArrayValue>parse(cached.toString()).orElseThrow(() -> new HibernateException("Empty JSON data"));
+        return cached == null ? null : ValueJsonReader.<ArrayValue>parse(cached.toString()).orElseThrow(() -> new HibernateException("Empty JSON data"));
     }
 
     @Override
@@ -21,7 +21,6 @@ package org.openremote.container.json;
 
 import org.jboss.resteasy.plugins.providers.ProviderHelper;
 import org.openremote.model.value.Value;
-import org.openremote.model.value.Values;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -34,6 +33,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 
 @Provider
 public class ModelValueMessageBodyConverter implements MessageBodyReader<Value>, MessageBodyWriter<Value> {
@@ -45,8 +45,12 @@ public class ModelValueMessageBodyConverter implements MessageBodyReader<Value>,
 
     @Override
     public Value readFrom(Class<Value> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        String charset = mediaType.getParameters().get("charset");
+        if (charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset)) {
+            return ValueJsonReader.parse(entityStream).orElseThrow(() -> new IOException("Empty JSON data"));
+        }
         String str = ProviderHelper.readString(entityStream, mediaType);
-        return Values.parse(str).orElseThrow(() -> new IOException("Empty JSON data"));
+        return ValueJsonReader.parse(str).orElseThrow(() -> new IOException("Empty JSON data"));
     }
 
     @Override
@@ -61,9 +65,11 @@ public class ModelValueMessageBodyConverter implements MessageBodyReader<Value>,
 
     @Override
     public void writeTo(Value value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
-        String str = value.toJson();
         String charset = mediaType.getParameters().get("charset");
-        if (charset == null) entityStream.write(str.getBytes("UTF-8"));
-        else entityStream.write(str.getBytes(charset));
+        if (charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset)) {
+            ValueJsonWriter.write(value, entityStream);
+        } else {
+            entityStream.write(ValueJsonWriter.toJson(value).getBytes(charset));
+        }
     }
 }
@@ -43,7 +43,7 @@ public class ModelValueModule extends SimpleModule {
         @Override
         public T deserialize(JsonParser jsonParser, DeserializationContext context) throws IOException {
             try {
-                return (T) Values.instance().parse(jsonParser.getCodec().readTree(jsonParser).toString()).
+                return (T) ValueJsonReader.parse(jsonParser.getCodec().readTree(jsonParser).toString()).
                     orElseThrow(() -> new IOException("Empty JSON data"));
             } catch (ValueException ex) {
                 throw new IOException(ex);
@@ -56,7 +56,7 @@ public class ModelValueModule extends SimpleModule {
         public void serialize(Value value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
             if (value != null) {
                 try {
-                    gen.writeRawValue(value.toJson());
+                    gen.writeRawValue(ValueJsonWriter.toJson(value));
                 } catch (ValueException ex) {
                     throw new IOException(ex);
                 }
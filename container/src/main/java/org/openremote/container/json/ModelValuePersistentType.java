@@ -21,7 +21,6 @@ package org.openremote.container.json;
 
 import org.hibernate.HibernateException;
 import org.openremote.model.value.Value;
-import org.openremote.model.value.Values;
 
 import java.io.Serializable;
 
@@ -29,12 +28,12 @@ public class ModelValuePersistentType extends PostgreSQLJsonType {
 
     @Override
     public Serializable disassemble(Object value) throws HibernateException {
-        return value == null ? null : ((Value) value).toJson();
+        return value == null ? null : ValueJsonWriter.toJson((Value) value);
     }
 
     @Override
     public Value assemble(Serializable cached, Object owner) throws HibernateException {
-        return cached == null ? null : Values.parse(cached.toString()).orElseThrow(() -> new HibernateException("Empty JSON data"));
+        return cached == null ? null : ValueJsonReader.parse(cached.toString()).orElseThrow(() -> new HibernateException("Empty JSON data"));
     }
 
     @Override
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.json;
+
+import org.openremote.model.value.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Parses UTF-8 encoded JSON bytes or characters into {@link Value}s, accepting the same (lenient) documents as
+ * {@link Values#parse}. Bytes are decoded while parsing, streams are read through a fixed size buffer. Short
+ * strings such as object keys and meta item names are interned in a bounded, shared table, so repeated keys of
+ * many documents share the same instance and are not allocated again.
+ */
+public class ValueJsonReader {
+
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Strings up to this length are interned.
+     */
+    public static final int MAX_INTERNED_LENGTH = 64;
+
+    /**
+     * Slots of the shared interned strings table, a slot is overwritten when another string has the same hash.
+     */
+    protected static final int INTERNED_SLOTS = 4096;
+    protected static final String[] INTERNED = new String[INTERNED_SLOTS];
+
+    protected static final int EOF = -1;
+    protected static final char REPLACEMENT_CHAR = '\uFFFD';
+    protected static final String STOP_CHARS = ",:]}/\\\"[{;=#";
+
+    protected final ValueFactory valueFactory = Values.instance();
+    protected final InputStream in;
+    protected final CharSequence chars;
+    protected byte[] bytes;
+    protected int position;
+    protected int limit;
+    protected int current = EOF;
+    protected int pendingLowSurrogate = EOF;
+    protected char[] text = new char[MAX_INTERNED_LENGTH];
+    protected int textLength;
+    protected int textHash;
+
+    public ValueJsonReader(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public ValueJsonReader(byte[] bytes, int offset, int length) {
+        this.in = null;
+        this.chars = null;
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Reads the remaining bytes of the buffer, the buffer position is not changed.
+     */
+    public ValueJsonReader(ByteBuffer buffer) {
+        this.in = null;
+        this.chars = null;
+        if (buffer.hasArray()) {
+            this.bytes = buffer.array();
+            this.position = buffer.arrayOffset() + buffer.position();
+            this.limit = buffer.arrayOffset() + buffer.limit();
+        } else {
+            this.bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            this.position = 0;
+            this.limit = bytes.length;
+        }
+    }
+
+    public ValueJsonReader(InputStream in) {
+        this.in = in;
+        this.chars = null;
+        this.bytes = new byte[BUFFER_SIZE];
+    }
+
+    public ValueJsonReader(CharSequence chars) {
+        this.in = null;
+        this.chars = chars;
+        this.limit = chars.length();
+    }
+
+    public static <T extends Value> Optional<T> parse(String json) throws ValueException {
+        if (json.startsWith("(") && json.endsWith(")")) {
+            // Same as ValueFactoryImpl, some clients send in (json) expecting an eval is required
+            json = json.substring(1, json.length() - 1);
+        }
+        try {
+            return new ValueJsonReader(json).read();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static <T extends Value> Optional<T> parse(byte[] json) throws ValueException {
+        try {
+            return new ValueJsonReader(json).read();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static <T extends Value> Optional<T> parse(InputStream json) throws IOException, ValueException {
+        return new ValueJsonReader(json).read();
+    }
+
+    /**
+     * Reads the first value, anything after it is ignored.
+     *
+     * @return Empty if the value is JSON <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Value> Optional<T> read() throws IOException, ValueException {
+        advance();
+        return Optional.ofNullable((T) nextValue());
+    }
+
+    protected Value nextValue() throws IOException {
+        skipWhitespace();
+        switch (current) {
+            case '"':
+            case '\'':
+                return valueFactory.create(nextString());
+            case '{':
+                return nextObject();
+            case '[':
+                return nextArray();
+            case EOF:
+                throw new ValueException("Missing value");
+            default:
+                return nextLiteral();
+        }
+    }
+
+    protected ObjectValue nextObject() throws IOException {
+        ObjectValue object = valueFactory.createObject();
+        advance();
+        while (true) {
+            skipWhitespace();
+            if (current == '}') {
+                advance();
+                return object;
+            }
+            if (current == ',') {
+                advance();
+                continue;
+            }
+            String key = nextKey();
+            skipWhitespace();
+            if (current != ':') {
+                throw new ValueException("Invalid object: expecting \":\"");
+            }
+            advance();
+            object.put(key, nextValue());
+            skipWhitespace();
+            if (current == '}') {
+                advance();
+                return object;
+            }
+            if (current != ',') {
+                throw new ValueException("Invalid object: expecting } or ,");
+            }
+            advance();
+        }
+    }
+
+    protected ArrayValue nextArray() throws IOException {
+        ArrayValue array = valueFactory.createArray();
+        advance();
+        while (true) {
+            skipWhitespace();
+            if (current == ']') {
+                advance();
+                return array;
+            }
+            array.set(array.length(), nextValue());
+            skipWhitespace();
+            if (current == ']') {
+                advance();
+                return array;
+            }
+            if (current != ',') {
+                throw new ValueException("Invalid array: expected , or ]");
+            }
+            advance();
+        }
+    }
+
+    protected String nextKey() throws IOException {
+        if (current == '"' || current == '\'')
+            return nextString();
+        if (current == EOF || !Character.isLetterOrDigit((char) current))
+            throw new ValueException("Invalid object: expecting key");
+        // Lenient unquoted key
+        resetText();
+        while (current != EOF && Character.isLetterOrDigit((char) current)) {
+            appendText((char) current);
+            advance();
+        }
+        return getText();
+    }
+
+    protected String nextString() throws IOException {
+        int quote = current;
+        resetText();
+        advance();
+        while (true) {
+            switch (current) {
+                case EOF:
+                    throw new ValueException("Invalid string: closing " + (char) quote + " is not found");
+                case '\r':
+                case '\n':
+                    throw new ValueException("Invalid string: line break");
+                case '\\':
+                    advance();
+                    switch (current) {
+                        case 'b':
+                            appendText('\b');
+                            break;
+                        case 't':
+                            appendText('\t');
+                            break;
+                        case 'n':
+                            appendText('\n');
+                            break;
+                        case 'f':
+                            appendText('\f');
+                            break;
+                        case 'r':
+                            appendText('\r');
+                            break;
+                        case 'u':
+                            appendText(nextUnicodeEscaped());
+                            break;
+                        case EOF:
+                            throw new ValueException("Invalid string: closing " + (char) quote + " is not found");
+                        default:
+                            appendText((char) current);
+                    }
+                    break;
+                default:
+                    if (current == quote) {
+                        advance();
+                        return getText();
+                    }
+                    appendText((char) current);
+            }
+            advance();
+        }
+    }
+
+    protected char nextUnicodeEscaped() throws IOException {
+        int c = 0;
+        for (int i = 0; i < 4; i++) {
+            advance();
+            int digit = current == EOF ? -1 : Character.digit((char) current, 16);
+            if (digit < 0) {
+                throw new ValueException("Invalid string: unicode escape needs four hex digits");
+            }
+            c = (c << 4) | digit;
+        }
+        return (char) c;
+    }
+
+    protected Value nextLiteral() throws IOException {
+        resetText();
+        while (current != EOF && !Character.isWhitespace((char) current) && STOP_CHARS.indexOf(current) < 0) {
+            appendText((char) current);
+            advance();
+        }
+        if (textLength == 0) {
+            throw new ValueException("Missing value");
+        }
+        if (textEquals("null") || textEquals("undefined")) {
+            return null;
+        }
+        if (textEquals("true")) {
+            return valueFactory.create(true);
+        }
+        if (textEquals("false")) {
+            return valueFactory.create(false);
+        }
+        char first = text[0];
+        if (first == '-' || Character.isDigit(first)) {
+            return valueFactory.create(getTextNumber());
+        }
+        throw new ValueException("Invalid literal: \"" + new String(text, 0, textLength) + "\"");
+    }
+
+    protected double getTextNumber() {
+        // Integers with up to 15 digits are exact doubles, no need to parse a string
+        boolean negative = text[0] == '-';
+        int start = negative ? 1 : 0;
+        int digits = textLength - start;
+        if (digits > 0 && digits <= 15) {
+            long value = 0;
+            int i = start;
+            for (; i < textLength; i++) {
+                char c = text[i];
+                if (c < '0' || c > '9')
+                    break;
+                value = value * 10 + (c - '0');
+            }
+            if (i == textLength) {
+                return negative ? -(double) value : (double) value;
+            }
+        }
+        String literal = new String(text, 0, textLength);
+        try {
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException ex) {
+            throw new ValueException("Invalid number literal: " + literal);
+        }
+    }
+
+    protected void skipWhitespace() throws IOException {
+        while (current != EOF && Character.isWhitespace((char) current)) {
+            advance();
+        }
+    }
+
+    protected void advance() throws IOException {
+        current = nextChar();
+    }
+
+    /**
+     * @return The next UTF-16 code unit or {@link #EOF}.
+     */
+    protected int nextChar() throws IOException {
+        if (chars != null) {
+            return position < limit ? chars.charAt(position++) : EOF;
+        }
+        if (pendingLowSurrogate != EOF) {
+            int c = pendingLowSurrogate;
+            pendingLowSurrogate = EOF;
+            return c;
+        }
+        int b = nextByte();
+        return b < 0x80 ? b : decodeUtf8(b);
+    }
+
+    protected int decodeUtf8(int b) throws IOException {
+        int count;
+        int codePoint;
+        if ((b & 0xe0) == 0xc0) {
+            count = 1;
+            codePoint = b & 0x1f;
+        } else if ((b & 0xf0) == 0xe0) {
+            count = 2;
+            codePoint = b & 0x0f;
+        } else if ((b & 0xf8) == 0xf0) {
+            count = 3;
+            codePoint = b & 0x07;
+        } else {
+            return REPLACEMENT_CHAR;
+        }
+        for (int i = 0; i < count; i++) {
+            int continuation = nextByte();
+            if (continuation == EOF)
+                return REPLACEMENT_CHAR;
+            if ((continuation & 0xc0) != 0x80) {
+                // Not part of this sequence, decode it next
+                position--;
+                return REPLACEMENT_CHAR;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3f);
+        }
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            if (codePoint > Character.MAX_CODE_POINT)
+                return REPLACEMENT_CHAR;
+            pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return codePoint;
+    }
+
+    protected int nextByte() throws IOException {
+        if (position == limit && !fill())
+            return EOF;
+        return bytes[position++] & 0xff;
+    }
+
+    protected boolean fill() throws IOException {
+        if (in == null)
+            return false;
+        int read = in.read(bytes, 0, bytes.length);
+        if (read <= 0)
+            return false;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    protected void resetText() {
+        textLength = 0;
+        textHash = 0;
+    }
+
+    protected void appendText(char c) {
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, text.length * 2);
+        }
+        text[textLength++] = c;
+        textHash = 31 * textHash + c;
+    }
+
+    protected boolean textEquals(String string) {
+        if (textLength != string.length())
+            return false;
+        for (int i = 0; i < textLength; i++) {
+            if (text[i] != string.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The interned string if it's short, the hash is the same as {@link String#hashCode()}.
+     */
+    protected String getText() {
+        if (textLength > MAX_INTERNED_LENGTH)
+            return new String(text, 0, textLength);
+        int slot = (textHash ^ (textHash >>> 16)) & (INTERNED_SLOTS - 1);
+        String interned = INTERNED[slot];
+        if (interned != null && interned.hashCode() == textHash && textEquals(interned))
+            return interned;
+        interned = new String(text, 0, textLength);
+        // Racy but safe, strings are immutable and a lost update only costs a future allocation
+        INTERNED[slot] = interned;
+        return interned;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "position=" + position +
+            ", limit=" + limit +
+            ", stream=" + (in != null) +
+            '}';
+    }
+}
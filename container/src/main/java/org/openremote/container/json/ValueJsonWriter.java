@@ -0,0 +1,358 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.json;
+
+import org.openremote.model.value.*;
+import org.openremote.model.value.impl.ObjectValueImpl;
+import org.openremote.model.value.impl.ValueUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes {@link Value}s as UTF-8 encoded JSON bytes, into a growing buffer or through a fixed size buffer
+ * into an {@link OutputStream}. The output is identical to {@link Value#toJson()}, the GWT client parses the
+ * same documents, but no visitor, intermediate strings, or regular expressions are used.
+ */
+public class ValueJsonWriter {
+
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Reused buffers of the static methods are discarded when they grow beyond this size.
+     */
+    protected static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Nesting depth at which a cycle is assumed.
+     */
+    protected static final int MAX_DEPTH = 1000;
+
+    protected static final byte[] NULL_LITERAL = "null".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] TRUE_LITERAL = "true".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] FALSE_LITERAL = "false".getBytes(StandardCharsets.US_ASCII);
+    protected static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    protected static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0d);
+
+    // Properties injected by GWT runtime on JSOs, skipped like in ValueUtil
+    protected static final String GWT_HASH_KEY = "$H";
+    protected static final String GWT_OBJECT_ID_KEY = "__gwt_ObjectId";
+
+    protected static final ThreadLocal<ValueJsonWriter> REUSED_WRITER = ThreadLocal.withInitial(ValueJsonWriter::new);
+
+    protected final OutputStream out;
+    protected byte[] buffer;
+    protected int position;
+
+    /**
+     * Writes into a growing buffer, use {@link #toByteArray()} or {@link #toJson()} to get the result.
+     */
+    public ValueJsonWriter() {
+        this(null);
+    }
+
+    /**
+     * Writes into the given stream whenever the buffer is full, call {@link #flush()} when done.
+     */
+    public ValueJsonWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    public static String toJson(Value value) throws ValueException {
+        ValueJsonWriter writer = REUSED_WRITER.get();
+        try {
+            return writer.write(value).toJson();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    public static byte[] toBytes(Value value) throws ValueException {
+        ValueJsonWriter writer = REUSED_WRITER.get();
+        try {
+            return writer.write(value).toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    public static void write(Value value, OutputStream out) throws IOException, ValueException {
+        new ValueJsonWriter(out).write(value).flush();
+    }
+
+    public ValueJsonWriter write(Value value) throws IOException, ValueException {
+        writeValue(value, 0);
+        return this;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.write(buffer, 0, position);
+            out.flush();
+            position = 0;
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public String toJson() {
+        return new String(buffer, 0, position, StandardCharsets.UTF_8);
+    }
+
+    protected void reset() {
+        position = 0;
+        if (buffer.length > MAX_REUSED_BUFFER_SIZE) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    protected void writeValue(Value value, int depth) throws IOException {
+        if (value == null) {
+            writeBytes(NULL_LITERAL);
+            return;
+        }
+        switch (value.getType()) {
+            case OBJECT:
+                writeObject((ObjectValue) value, depth);
+                break;
+            case ARRAY:
+                writeArray((ArrayValue) value, depth);
+                break;
+            case STRING:
+                writeString(((StringValue) value).getString());
+                break;
+            case NUMBER:
+                // Like NumberValue#toJson(), only nested numbers are written without ".0"
+                writeNumber(((NumberValue) value).getNumber(), depth > 0);
+                break;
+            case BOOLEAN:
+                writeBytes(((BooleanValue) value).getBoolean() ? TRUE_LITERAL : FALSE_LITERAL);
+                break;
+        }
+    }
+
+    protected void writeObject(ObjectValue object, int depth) throws IOException {
+        checkDepth(depth);
+        writeByte('{');
+        boolean first = true;
+        for (String key : stringifyOrder(object.keys())) {
+            if (GWT_HASH_KEY.equals(key) || GWT_OBJECT_ID_KEY.equals(key))
+                continue;
+            // Like ValueUtil, an empty key writes only the value, without separator
+            if (!key.isEmpty()) {
+                if (!first) {
+                    writeByte(',');
+                }
+                writeString(key);
+                writeByte(':');
+            }
+            writeValue(object.get(key).orElse(null), depth + 1);
+            first = false;
+        }
+        writeByte('}');
+    }
+
+    protected void writeArray(ArrayValue array, int depth) throws IOException {
+        checkDepth(depth);
+        writeByte('[');
+        for (int i = 0; i < array.length(); i++) {
+            if (i > 0) {
+                writeByte(',');
+            }
+            writeValue(array.get(i).orElse(null), depth + 1);
+        }
+        writeByte(']');
+    }
+
+    protected void writeString(String string) throws IOException {
+        writeByte('"');
+        int length = string.length();
+        for (int i = 0; i < length; i++) {
+            // Longest output of a single character is an escaped unicode literal
+            if (position + 6 > buffer.length) {
+                ensureCapacity(6);
+            }
+            char c = string.charAt(i);
+            if (c < 0x80 && c >= 0x20 && c != '"' && c != '\\' && c != 0x7f) {
+                buffer[position++] = (byte) c;
+                continue;
+            }
+            switch (c) {
+                case '\b':
+                    writeEscaped('b');
+                    break;
+                case '\t':
+                    writeEscaped('t');
+                    break;
+                case '\n':
+                    writeEscaped('n');
+                    break;
+                case '\f':
+                    writeEscaped('f');
+                    break;
+                case '\r':
+                    writeEscaped('r');
+                    break;
+                case '"':
+                    writeEscaped('"');
+                    break;
+                case '\\':
+                    writeEscaped('\\');
+                    break;
+                default:
+                    if (ValueUtil.isControlChar(c)) {
+                        writeUnicodeEscaped(c);
+                    } else if (c < 0x800) {
+                        buffer[position++] = (byte) (0xc0 | (c >> 6));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                    } else if (Character.isHighSurrogate(c)
+                        && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                        buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                        buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+                    } else if (Character.isSurrogate(c)) {
+                        // Same replacement as String#getBytes for a malformed surrogate pair
+                        buffer[position++] = '?';
+                    } else {
+                        buffer[position++] = (byte) (0xe0 | (c >> 12));
+                        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3f));
+                    }
+            }
+        }
+        writeByte('"');
+    }
+
+    protected void writeEscaped(char c) {
+        buffer[position++] = '\\';
+        buffer[position++] = (byte) c;
+    }
+
+    protected void writeUnicodeEscaped(char c) {
+        buffer[position++] = '\\';
+        buffer[position++] = 'u';
+        buffer[position++] = HEX_DIGITS[(c >> 12) & 0xf];
+        buffer[position++] = HEX_DIGITS[(c >> 8) & 0xf];
+        buffer[position++] = HEX_DIGITS[(c >> 4) & 0xf];
+        buffer[position++] = HEX_DIGITS[c & 0xf];
+    }
+
+    protected void writeNumber(double number, boolean stripZeroFraction) throws IOException {
+        if (Double.isInfinite(number) || Double.isNaN(number)) {
+            writeBytes(NULL_LITERAL);
+        } else if (stripZeroFraction
+            && number == (long) number
+            && Math.abs(number) < 1e7
+            && Double.doubleToRawLongBits(number) != NEGATIVE_ZERO_BITS) {
+            // Double#toString() uses plain notation below 10^7, without the ".0" it's the integer
+            writeLong((long) number);
+        } else {
+            String formatted = String.valueOf(number);
+            int length = stripZeroFraction && formatted.endsWith(".0") ? formatted.length() - 2 : formatted.length();
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) formatted.charAt(i);
+            }
+        }
+    }
+
+    protected void writeLong(long value) throws IOException {
+        // Less than 10^7 so at most 7 digits and sign
+        ensureCapacity(8);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value; remaining >= 10; remaining /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        int i = end;
+        do {
+            buffer[--i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        position = end;
+    }
+
+    protected void writeByte(char c) throws IOException {
+        if (position == buffer.length) {
+            ensureCapacity(1);
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    protected void writeBytes(byte[] bytes) throws IOException {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    protected void ensureCapacity(int length) throws IOException {
+        if (position + length <= buffer.length)
+            return;
+        if (out != null) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+
+    protected static void checkDepth(int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new ValueException("Cycle detected during stringify, nested deeper than " + MAX_DEPTH);
+        }
+    }
+
+    protected static String[] stringifyOrder(String[] keys) {
+        for (String key : keys) {
+            if (ObjectValueImpl.isNumericKey(key)) {
+                List<String> ordered = ObjectValueImpl.stringifyOrder(keys);
+                return ordered.toArray(new String[ordered.size()]);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "out=" + out +
+            ", position=" + position +
+            ", bufferSize=" + buffer.length +
+            '}';
+    }
+}
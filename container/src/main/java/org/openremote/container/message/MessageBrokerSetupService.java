@@ -32,11 +32,13 @@ import org.openremote.container.security.IdentityService;
 import org.openremote.container.web.DefaultWebsocketComponent;
 import org.openremote.container.web.WebService;
 import org.openremote.container.web.socket.WebsocketComponent;
+import org.openremote.container.web.socket.WebsocketSessionSender;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.container.util.MapAccess.getString;
 
 @SuppressWarnings("deprecation")
@@ -47,6 +49,20 @@ public class MessageBrokerSetupService implements ContainerService {
     public static final String MESSAGE_SESSION_ALLOWED_ORIGIN = "MESSAGE_SESSION_ALLOWED_ORIGIN";
     public static final String MESSAGE_SESSION_ALLOWED_ORIGIN_DEFAULT = null;
 
+    /**
+     * Size of the outbound message queue of each websocket session, messages are then sent asynchronously and
+     * a slow client can't block sending to other clients. Set to 0 to send messages synchronously.
+     */
+    public static final String MESSAGE_SESSION_SEND_QUEUE_SIZE = "MESSAGE_SESSION_SEND_QUEUE_SIZE";
+    public static final int MESSAGE_SESSION_SEND_QUEUE_SIZE_DEFAULT = 0;
+
+    /**
+     * What happens when the outbound message queue of a websocket session is full, see
+     * {@link WebsocketSessionSender.OverflowPolicy}.
+     */
+    public static final String MESSAGE_SESSION_SEND_OVERFLOW_POLICY = "MESSAGE_SESSION_SEND_OVERFLOW_POLICY";
+    public static final String MESSAGE_SESSION_SEND_OVERFLOW_POLICY_DEFAULT = WebsocketSessionSender.OverflowPolicy.DROP_OLDEST.name();
+
     protected MessageBrokerContext context;
 
     @Override
@@ -128,6 +144,12 @@ public class MessageBrokerSetupService implements ContainerService {
             container.getService(WebService.class),
             allowedOrigin
         );
+        websocketComponent.setSendQueueSize(
+            getInteger(container.getConfig(), MESSAGE_SESSION_SEND_QUEUE_SIZE, MESSAGE_SESSION_SEND_QUEUE_SIZE_DEFAULT)
+        );
+        websocketComponent.setSendOverflowPolicy(WebsocketSessionSender.OverflowPolicy.valueOf(
+            getString(container.getConfig(), MESSAGE_SESSION_SEND_OVERFLOW_POLICY, MESSAGE_SESSION_SEND_OVERFLOW_POLICY_DEFAULT)
+        ));
 
         context.addComponent(WebsocketComponent.NAME, websocketComponent);
     }
@@ -66,6 +66,9 @@ public interface Database {
                 hikariConfig.setDataSourceClassName("org.postgresql.ds.PGSimpleDataSource");
                 hikariConfig.addDataSourceProperty("url", connectionUrl);
                 hikariConfig.addDataSourceProperty("currentSchema", "persistence");
+                // Statements executed repeatedly are prepared once per connection on the server, keep enough of them
+                // for all distinct (cached) query shapes
+                hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", 1024);
                 hikariConfig.setUsername(username);
                 hikariConfig.setPassword(password);
                 hikariConfig.setConnectionTimeout(connectionTimeoutSeconds * 1000);
@@ -19,10 +19,17 @@
  */
 package org.openremote.container.persistence;
 
+import org.apache.camel.Exchange;
+
 import java.util.Arrays;
+import java.util.List;
 
 public class PersistenceEvent<T> {
 
+    /**
+     * The body of a message on this topic is a list of the coalesced events of one entity type (the value of header
+     * {@link #HEADER_ENTITY_TYPE}) committed in one transaction, use {@link #getPersistenceEvents} to read it.
+     */
     // TODO: Make configurable
     public static final String PERSISTENCE_TOPIC =
         "seda://PersistenceTopic?multipleConsumers=true&concurrentConsumers=1&waitForTaskToComplete=NEVER&purgeWhenStopping=true&discardIfNoConsumers=true&limitConcurrentConsumers=false&size=25000";
@@ -51,6 +58,14 @@ public class PersistenceEvent<T> {
         this(cause, entity, propertyNames, currentState, null);
     }
 
+    /**
+     * Get the events of a message received on the {@link #PERSISTENCE_TOPIC}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<PersistenceEvent<T>> getPersistenceEvents(Exchange exchange) {
+        return exchange.getIn().getBody(List.class);
+    }
+
     public Cause getCause() {
         return cause;
     }
@@ -19,34 +19,29 @@
  */
 package org.openremote.container.persistence;
 
-import org.apache.camel.CamelExecutionException;
-import org.apache.camel.ExchangePattern;
 import org.hibernate.CallbackException;
 import org.hibernate.EmptyInterceptor;
 import org.hibernate.Transaction;
 import org.hibernate.type.Type;
-import org.openremote.container.message.MessageBrokerService;
 
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.*;
 
 /**
- * Intercept Hibernate lifecycle events and publish a message.
+ * Intercept Hibernate lifecycle events and publish a message. Repeated changes of an entity in a transaction are
+ * coalesced into a single event, the events of a transaction are published after commit with
+ * {@link PersistenceEventPublisher}.
  */
 public class PersistenceEventInterceptor extends EmptyInterceptor {
 
-    private static final Logger LOG = Logger.getLogger(PersistenceEventInterceptor.class.getName());
+    protected PersistenceEventPublisher eventPublisher;
+    protected List<PersistenceEvent> persistenceEvents = new ArrayList<>();
+    protected Map<Object, Integer> persistenceEventIndex = new HashMap<>();
 
-    protected MessageBrokerService messageBrokerService;
-    protected Set<PersistenceEvent> persistenceEvents = new HashSet<>();
-
-    public void setMessageBrokerService(MessageBrokerService messageBrokerService) {
-        this.messageBrokerService = messageBrokerService;
+    public void setEventPublisher(PersistenceEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -54,7 +49,7 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
     public boolean onSave(Object entity, Serializable id,
                           Object[] state, String[] propertyNames, Type[] types)
         throws CallbackException {
-        persistenceEvents.add(new PersistenceEvent(
+        addPersistenceEvent(id, new PersistenceEvent(
             PersistenceEvent.Cause.INSERT,
             entity,
             propertyNames,
@@ -69,7 +64,7 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
                                 Object[] currentState, Object[] previousState,
                                 String[] propertyNames, Type[] types)
         throws CallbackException {
-        persistenceEvents.add(new PersistenceEvent(
+        addPersistenceEvent(id, new PersistenceEvent(
             PersistenceEvent.Cause.UPDATE,
             entity,
             propertyNames,
@@ -85,7 +80,7 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
                          Object[] state,
                          String[] propertyNames,
                          Type[] types) {
-        persistenceEvents.add(new PersistenceEvent(
+        addPersistenceEvent(id, new PersistenceEvent(
             PersistenceEvent.Cause.DELETE,
             entity,
             propertyNames,
@@ -93,6 +88,60 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
         ));
     }
 
+    /**
+     * Coalesce the event with the last event of the same entity in this transaction: an update after an insert is
+     * an insert of the current state, an update after an update is an update from the first previous state, a delete
+     * after an update is a delete, a delete after an insert cancels the insert. Other sequences are kept as is.
+     */
+    @SuppressWarnings("unchecked")
+    protected void addPersistenceEvent(Serializable id, PersistenceEvent persistenceEvent) {
+        Object key = id != null ? Arrays.asList(persistenceEvent.getEntity().getClass(), id) : null;
+        Integer index = key != null ? persistenceEventIndex.get(key) : null;
+        PersistenceEvent last = index != null ? persistenceEvents.get(index) : null;
+
+        if (last != null) {
+            PersistenceEvent coalesced = null;
+            switch (persistenceEvent.getCause()) {
+                case UPDATE:
+                    if (last.getCause() == PersistenceEvent.Cause.INSERT) {
+                        coalesced = new PersistenceEvent(
+                            PersistenceEvent.Cause.INSERT,
+                            persistenceEvent.getEntity(),
+                            persistenceEvent.getPropertyNames(),
+                            persistenceEvent.getCurrentState()
+                        );
+                    } else if (last.getCause() == PersistenceEvent.Cause.UPDATE) {
+                        coalesced = new PersistenceEvent(
+                            PersistenceEvent.Cause.UPDATE,
+                            persistenceEvent.getEntity(),
+                            persistenceEvent.getPropertyNames(),
+                            persistenceEvent.getCurrentState(),
+                            last.getPreviousState()
+                        );
+                    }
+                    break;
+                case DELETE:
+                    if (last.getCause() == PersistenceEvent.Cause.INSERT) {
+                        persistenceEvents.set(index, null);
+                        persistenceEventIndex.remove(key);
+                        return;
+                    } else if (last.getCause() == PersistenceEvent.Cause.UPDATE) {
+                        coalesced = persistenceEvent;
+                    }
+                    break;
+            }
+            if (coalesced != null) {
+                persistenceEvents.set(index, coalesced);
+                return;
+            }
+        }
+
+        persistenceEvents.add(persistenceEvent);
+        if (key != null) {
+            persistenceEventIndex.put(key, persistenceEvents.size() - 1);
+        }
+    }
+
     @Override
     public void afterTransactionBegin(Transaction tx) {
         tx.registerSynchronization(new Synchronization() {
@@ -103,25 +152,19 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
             @Override
             public void afterCompletion(int status) {
                 try {
-                    if (status != Status.STATUS_COMMITTED)
+                    if (status != Status.STATUS_COMMITTED || eventPublisher == null)
                         return;
 
+                    List<PersistenceEvent> committedEvents = new ArrayList<>(persistenceEvents.size());
                     for (PersistenceEvent persistenceEvent : persistenceEvents) {
-                        try {
-                            messageBrokerService.getProducerTemplate().sendBodyAndHeader(
-                                PersistenceEvent.PERSISTENCE_TOPIC,
-                                ExchangePattern.InOnly,
-                                persistenceEvent,
-                                PersistenceEvent.HEADER_ENTITY_TYPE,
-                                persistenceEvent.getEntity().getClass()
-                            );
-                        } catch (CamelExecutionException ex) {
-                            // TODO Better error handling?
-                            LOG.log(Level.SEVERE, "Error dispatching: " + persistenceEvent + " - " + ex, ex);
+                        if (persistenceEvent != null) {
+                            committedEvents.add(persistenceEvent);
                         }
                     }
+                    eventPublisher.publish(committedEvents);
                 } finally {
-                    persistenceEvents.clear();
+                    persistenceEvents = new ArrayList<>();
+                    persistenceEventIndex.clear();
                 }
             }
         });
@@ -130,4 +173,4 @@ public class PersistenceEventInterceptor extends EmptyInterceptor {
     @Override
     public void afterTransactionCompletion(Transaction tx) {
     }
-}
\ No newline at end of file
+}
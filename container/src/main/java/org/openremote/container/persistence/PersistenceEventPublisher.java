@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.persistence;
+
+import org.apache.camel.CamelExecutionException;
+import org.apache.camel.ExchangePattern;
+import org.openremote.container.concurrent.ContainerExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
+import org.openremote.container.message.MessageBrokerService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.openremote.container.concurrent.ContainerThreads.DEFAULT_REJECTED_EXECUTION_HANDLER;
+
+/**
+ * Publishes the {@link PersistenceEvent}s of committed transactions on the {@link PersistenceEvent#PERSISTENCE_TOPIC},
+ * on a single thread so the committing thread isn't blocked and the order of transactions is preserved. The events
+ * of a transaction are sent as one message per entity type, see {@link PersistenceEvent#getPersistenceEvents}.
+ */
+public class PersistenceEventPublisher {
+
+    private static final Logger LOG = Logger.getLogger(PersistenceEventPublisher.class.getName());
+
+    final protected MessageBrokerService messageBrokerService;
+    final protected ContainerExecutor executor;
+    final protected AtomicLong publishedEvents = new AtomicLong();
+    final protected AtomicLong publishedMessages = new AtomicLong();
+
+    public PersistenceEventPublisher(MessageBrokerService messageBrokerService) {
+        this.messageBrokerService = messageBrokerService;
+        this.executor = new ContainerExecutor(
+            new ContainerThreadFactory("Persistence event publisher"),
+            DEFAULT_REJECTED_EXECUTION_HANDLER,
+            1,
+            1,
+            60,
+            new LinkedBlockingQueue<>()
+        );
+    }
+
+    /**
+     * Publish the events of a transaction asynchronously.
+     */
+    public void publish(List<PersistenceEvent> persistenceEvents) {
+        if (persistenceEvents.isEmpty())
+            return;
+        executor.execute(() -> send(persistenceEvents));
+    }
+
+    protected void send(List<PersistenceEvent> persistenceEvents) {
+        Map<Class<?>, List<PersistenceEvent>> eventsByEntityType = new LinkedHashMap<>();
+        for (PersistenceEvent persistenceEvent : persistenceEvents) {
+            eventsByEntityType
+                .computeIfAbsent(persistenceEvent.getEntity().getClass(), entityType -> new ArrayList<>())
+                .add(persistenceEvent);
+        }
+        eventsByEntityType.forEach((entityType, events) -> {
+            try {
+                messageBrokerService.getProducerTemplate().sendBodyAndHeader(
+                    PersistenceEvent.PERSISTENCE_TOPIC,
+                    ExchangePattern.InOnly,
+                    events,
+                    PersistenceEvent.HEADER_ENTITY_TYPE,
+                    entityType
+                );
+                publishedEvents.addAndGet(events.size());
+                publishedMessages.incrementAndGet();
+            } catch (CamelExecutionException ex) {
+                // TODO Better error handling?
+                LOG.log(Level.SEVERE, "Error dispatching " + events.size() + " events of: " + entityType + " - " + ex, ex);
+            }
+        });
+    }
+
+    /**
+     * Publish the events still pending and stop.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warning("Pending persistence events not published in time, dropping them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    public long getPublishedMessages() {
+        return publishedMessages.get();
+    }
+
+    public int getPendingTransactions() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "publishedEvents=" + publishedEvents +
+            ", publishedMessages=" + publishedMessages +
+            ", pendingTransactions=" + getPendingTransactions() +
+            '}';
+    }
+}
@@ -77,6 +77,7 @@ public class PersistenceService implements ContainerService {
     public static final int DATABASE_CONNECTION_TIMEOUT_SECONDS_DEFAULT = 300;
 
     protected MessageBrokerService messageBrokerService;
+    protected PersistenceEventPublisher eventPublisher;
     protected Database database;
     protected String persistenceUnitName;
     protected Map<String, Object> persistenceUnitProperties;
@@ -99,6 +100,7 @@ public class PersistenceService implements ContainerService {
         persistenceUnitProperties = database.createProperties();
 
         if (messageBrokerService != null) {
+            eventPublisher = new PersistenceEventPublisher(messageBrokerService);
             persistenceUnitProperties.put(
                 org.hibernate.cfg.AvailableSettings.SESSION_SCOPED_INTERCEPTOR,
                 PersistenceEventInterceptor.class.getName()
@@ -135,6 +137,9 @@ public class PersistenceService implements ContainerService {
         if (entityManagerFactory != null) {
             entityManagerFactory.close();
         }
+        if (eventPublisher != null) {
+            eventPublisher.close();
+        }
         if (database != null) {
             database.close();
         }
@@ -151,13 +156,13 @@ public class PersistenceService implements ContainerService {
     public EntityManager createEntityManager() {
         EntityManager entityManager = getEntityManagerFactory().createEntityManager();
 
-        if (messageBrokerService != null) {
+        if (eventPublisher != null) {
             // The persistence event interceptor is scoped to an EntityManager, so each new EM needs
             // access to the dependencies of the interceptor
             Session session = entityManager.unwrap(Session.class);
             PersistenceEventInterceptor persistenceEventInterceptor =
                 (PersistenceEventInterceptor) ((SharedSessionContractImplementor) session).getInterceptor();
-            persistenceEventInterceptor.setMessageBrokerService(messageBrokerService);
+            persistenceEventInterceptor.setEventPublisher(eventPublisher);
         }
 
         return entityManager;
@@ -194,6 +199,13 @@ public class PersistenceService implements ContainerService {
         }
     }
 
+    /**
+     * @return <code>null</code> if there is no {@link MessageBrokerService} to publish persistence events.
+     */
+    public PersistenceEventPublisher getEventPublisher() {
+        return eventPublisher;
+    }
+
     public EntityManagerFactory getEntityManagerFactory() {
         return entityManagerFactory;
     }
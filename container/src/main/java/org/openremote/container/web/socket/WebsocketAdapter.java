@@ -67,6 +67,7 @@ public class WebsocketAdapter extends Endpoint {
             exchange.getIn().setHeader(WebsocketConstants.SESSION_CLOSE, true);
         });
         consumer.getEndpoint().getWebsocketSessions().remove(session);
+        consumer.getEndpoint().getComponent().removeSessionSender(session);
     }
 
     @Override
@@ -83,6 +84,7 @@ public class WebsocketAdapter extends Endpoint {
             exchange.getIn().setHeader(WebsocketConstants.SESSION_CLOSE_ERROR, true);
         });
         consumer.getEndpoint().getWebsocketSessions().remove(session);
+        consumer.getEndpoint().getComponent().removeSessionSender(session);
     }
 
     protected AuthContext getHandshakeAuth(Session session) {
@@ -23,8 +23,11 @@ import org.apache.camel.Endpoint;
 import org.apache.camel.impl.DefaultComponent;
 import org.apache.camel.util.ServiceHelper;
 
+import javax.websocket.Session;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 public abstract class WebsocketComponent extends DefaultComponent {
@@ -35,6 +38,9 @@ public abstract class WebsocketComponent extends DefaultComponent {
 
     final protected Map<String, WebsocketConsumer> consumers = new HashMap<>();
     final protected WebsocketSessions websocketSessions;
+    final protected Map<String, WebsocketSessionSender> sessionSenders = new ConcurrentHashMap<>();
+    protected int sendQueueSize;
+    protected WebsocketSessionSender.OverflowPolicy sendOverflowPolicy = WebsocketSessionSender.OverflowPolicy.DROP_OLDEST;
 
     public WebsocketComponent() {
         this.websocketSessions = new MemoryWebsocketSessions();
@@ -57,6 +63,8 @@ public abstract class WebsocketComponent extends DefaultComponent {
     protected void doStop() throws Exception {
         super.doStop();
         ServiceHelper.stopService(getWebsocketSessions());
+        sessionSenders.values().forEach(WebsocketSessionSender::close);
+        sessionSenders.clear();
         undeploy();
     }
 
@@ -64,6 +72,53 @@ public abstract class WebsocketComponent extends DefaultComponent {
         return websocketSessions;
     }
 
+    /**
+     * @return <code>true</code> if messages are sent asynchronously through a queue of each session.
+     */
+    public boolean isAsyncSend() {
+        return sendQueueSize > 0;
+    }
+
+    public int getSendQueueSize() {
+        return sendQueueSize;
+    }
+
+    /**
+     * Set to a value greater than 0 to send messages asynchronously, each session has its own queue of
+     * outbound messages with this size. A slow client can then not block sending to other clients.
+     */
+    public void setSendQueueSize(int sendQueueSize) {
+        this.sendQueueSize = sendQueueSize;
+    }
+
+    public WebsocketSessionSender.OverflowPolicy getSendOverflowPolicy() {
+        return sendOverflowPolicy;
+    }
+
+    public void setSendOverflowPolicy(WebsocketSessionSender.OverflowPolicy sendOverflowPolicy) {
+        this.sendOverflowPolicy = sendOverflowPolicy;
+    }
+
+    public WebsocketSessionSender getSessionSender(Session session) {
+        return sessionSenders.computeIfAbsent(
+            session.getId(), id -> new WebsocketSessionSender(session, sendQueueSize, sendOverflowPolicy)
+        );
+    }
+
+    public void removeSessionSender(Session session) {
+        WebsocketSessionSender sessionSender = sessionSenders.remove(session.getId());
+        if (sessionSender != null) {
+            sessionSender.close();
+        }
+    }
+
+    /**
+     * @return The senders of all sessions, for monitoring their queues.
+     */
+    public Collection<WebsocketSessionSender> getSessionSenders() {
+        return sessionSenders.values();
+    }
+
     public Map<String, WebsocketConsumer> getConsumers() {
         return consumers;
     }
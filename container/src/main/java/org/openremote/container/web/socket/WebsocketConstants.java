@@ -24,6 +24,15 @@ public interface WebsocketConstants {
     int SESSION_MAX_IDLE_TIMEOUT_SECONDS = 300;
     String SESSION = "websocket.session";
     String SESSION_KEY = "websocket.sessionKey";
+    /**
+     * A collection of session keys, the same message is sent to all of these sessions.
+     */
+    String SESSION_KEYS = "websocket.sessionKeys";
+    /**
+     * Messages with the same key replace each other in a full send queue, see
+     * {@link WebsocketSessionSender.OverflowPolicy#CONFLATE}.
+     */
+    String CONFLATION_KEY = "websocket.conflationKey";
     String SEND_TO_ALL = "websocket.sendToAll";
     String HANDSHAKE_AUTH = "websocket.auth";
     String SESSION_OPEN = "websocket.sessionOpen";
@@ -52,11 +52,13 @@ public class WebsocketProducer extends DefaultProducer {
         }
         if (isSendToAllSet(in)) {
             sendToAll(message, exchange);
+        } else if (in.getHeader(WebsocketConstants.SESSION_KEYS) != null) {
+            sendToSessions(in.getHeader(WebsocketConstants.SESSION_KEYS, Collection.class), message, exchange);
         } else {
             String sessionKey = in.getHeader(WebsocketConstants.SESSION_KEY, String.class);
             if (sessionKey != null) {
                 Session websocket = getEndpoint().getComponent().getWebsocketSessions().get(sessionKey);
-                sendMessage(websocket, message);
+                sendMessage(websocket, message, exchange);
             } else {
                 throw new IllegalArgumentException("Failed to send message to Websocket session; session key not set.");
             }
@@ -80,7 +82,7 @@ public class WebsocketProducer extends DefaultProducer {
         Exception exception = null;
         for (Session session : sessions) {
             try {
-                sendMessage(session, message);
+                sendMessage(session, message, exchange);
             } catch (Exception e) {
                 if (exception == null) {
                     exception = new CamelExchangeException("Failed to deliver message to one or more recipients.", exchange, e);
@@ -92,9 +94,32 @@ public class WebsocketProducer extends DefaultProducer {
         }
     }
 
-    protected void sendMessage(Session session, Object message) throws IOException {
+    protected void sendToSessions(Collection<?> sessionKeys, Object message, Exchange exchange) throws Exception {
+        if (LOG.isLoggable(Level.FINE))
+            LOG.fine("Sending to sessions (" + sessionKeys.size() + "): " + message);
+
+        Exception exception = null;
+        for (Object sessionKey : sessionKeys) {
+            try {
+                sendMessage(getEndpoint().getComponent().getWebsocketSessions().get(sessionKey.toString()), message, exchange);
+            } catch (Exception e) {
+                if (exception == null) {
+                    exception = new CamelExchangeException("Failed to deliver message to one or more recipients.", exchange, e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    protected void sendMessage(Session session, Object message, Exchange exchange) throws IOException {
         if (session != null && session.isOpen()) {
-            if (message instanceof String) {
+            if (message instanceof String && getEndpoint().getComponent().isAsyncSend()) {
+                getEndpoint().getComponent().getSessionSender(session).send(
+                    (String) message, exchange.getIn().getHeader(WebsocketConstants.CONFLATION_KEY)
+                );
+            } else if (message instanceof String) {
                 if (LOG.isLoggable(Level.FINE))
                     LOG.fine("Sending to session " + session.getId() + ": " + message);
                 session.getBasicRemote().sendText((String) message);
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.container.web.socket;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends messages to a websocket session asynchronously, one message at a time, without blocking the caller.
+ * <p>
+ * Messages wait in a bounded queue while the previous message is written. A slow client only fills its own
+ * queue, when it is full the {@link OverflowPolicy} decides which message is lost.
+ */
+public class WebsocketSessionSender implements SendHandler {
+
+    private static final Logger LOG = Logger.getLogger(WebsocketSessionSender.class.getName());
+
+    public enum OverflowPolicy {
+        /**
+         * Drop the oldest queued message.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Replace the queued message with the same conflation key (e.g. the last value of an attribute), or
+         * drop the oldest queued message if there is none.
+         */
+        CONFLATE,
+
+        /**
+         * Close the session, the client has to reconnect.
+         */
+        DISCONNECT
+    }
+
+    protected static class OutboundMessage {
+        final String text;
+        final Object conflationKey;
+
+        OutboundMessage(String text, Object conflationKey) {
+            this.text = text;
+            this.conflationKey = conflationKey;
+        }
+    }
+
+    final protected Session session;
+    final protected int queueSize;
+    final protected OverflowPolicy overflowPolicy;
+
+    // Guarded by queue
+    final protected Deque<OutboundMessage> queue = new ArrayDeque<>();
+    protected boolean sending;
+    protected boolean closed;
+    protected int maxQueueDepth;
+
+    final protected AtomicLong sentMessages = new AtomicLong();
+    final protected AtomicLong failedMessages = new AtomicLong();
+    final protected AtomicLong droppedMessages = new AtomicLong();
+    final protected AtomicLong conflatedMessages = new AtomicLong();
+
+    public WebsocketSessionSender(Session session, int queueSize, OverflowPolicy overflowPolicy) {
+        this.session = session;
+        this.queueSize = queueSize;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Send the message when all previously queued messages have been sent.
+     *
+     * @param conflationKey Optional key for the {@link OverflowPolicy#CONFLATE} policy.
+     */
+    public void send(String text, Object conflationKey) {
+        OutboundMessage next = null;
+        boolean overflow = false;
+        synchronized (queue) {
+            if (closed || !session.isOpen()) {
+                droppedMessages.incrementAndGet();
+                return;
+            }
+            OutboundMessage message = new OutboundMessage(text, conflationKey);
+            if (!sending) {
+                sending = true;
+                next = message;
+            } else if (queue.size() < queueSize) {
+                queue.add(message);
+            } else {
+                switch (overflowPolicy) {
+                    case CONFLATE:
+                        if (conflationKey != null && replaceQueued(message)) {
+                            conflatedMessages.incrementAndGet();
+                            break;
+                        }
+                        // Nothing to conflate, fall through
+                    case DROP_OLDEST:
+                        queue.poll();
+                        queue.add(message);
+                        droppedMessages.incrementAndGet();
+                        break;
+                    case DISCONNECT:
+                        closed = true;
+                        droppedMessages.addAndGet(queue.size() + 1);
+                        queue.clear();
+                        overflow = true;
+                        break;
+                }
+            }
+            maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+        }
+
+        if (overflow) {
+            LOG.info("Closing websocket session with full send queue: " + this);
+            try {
+                session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Send queue overflow"));
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "Error closing websocket session: " + session.getId(), ex);
+            }
+        } else if (next != null) {
+            sendAsync(next);
+        }
+    }
+
+    /**
+     * Stop sending, queued messages are dropped.
+     */
+    public void close() {
+        synchronized (queue) {
+            closed = true;
+            droppedMessages.addAndGet(queue.size());
+            queue.clear();
+        }
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        if (result.isOK()) {
+            sentMessages.incrementAndGet();
+        } else {
+            failedMessages.incrementAndGet();
+            if (LOG.isLoggable(Level.FINE))
+                LOG.log(Level.FINE, "Failed to send message to websocket session: " + session.getId(), result.getException());
+        }
+        OutboundMessage next;
+        synchronized (queue) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                sending = false;
+            }
+        }
+        if (next != null) {
+            sendAsync(next);
+        }
+    }
+
+    protected void sendAsync(OutboundMessage message) {
+        if (LOG.isLoggable(Level.FINE))
+            LOG.fine("Sending to session " + session.getId() + ": " + message.text);
+        try {
+            session.getAsyncRemote().sendText(message.text, this);
+        } catch (Exception ex) {
+            // Session closed while sending, drop the rest of the queue
+            close();
+            onResult(new SendResult(ex));
+        }
+    }
+
+    protected boolean replaceQueued(OutboundMessage message) {
+        Iterator<OutboundMessage> it = queue.iterator();
+        while (it.hasNext()) {
+            if (Objects.equals(it.next().conflationKey, message.conflationKey)) {
+                it.remove();
+                queue.add(message);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getSessionId() {
+        return session.getId();
+    }
+
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int getMaxQueueDepth() {
+        synchronized (queue) {
+            return maxQueueDepth;
+        }
+    }
+
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    public long getConflatedMessages() {
+        return conflatedMessages.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "sessionId='" + getSessionId() + '\'' +
+            ", overflowPolicy=" + overflowPolicy +
+            ", queueSize=" + queueSize +
+            ", queueDepth=" + getQueueDepth() +
+            ", maxQueueDepth=" + getMaxQueueDepth() +
+            ", sentMessages=" + getSentMessages() +
+            ", failedMessages=" + getFailedMessages() +
+            ", droppedMessages=" + getDroppedMessages() +
+            ", conflatedMessages=" + getConflatedMessages() +
+            '}';
+    }
+}
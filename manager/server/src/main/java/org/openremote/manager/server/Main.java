@@ -31,6 +31,7 @@ import org.openremote.manager.server.asset.AssetAttributeLinkingService;
 import org.openremote.manager.server.asset.AssetProcessingService;
 import org.openremote.manager.server.asset.AssetStorageService;
 import org.openremote.manager.server.concurrent.ManagerExecutorService;
+import org.openremote.manager.server.datapoint.AssetDatapointLifecycleService;
 import org.openremote.manager.server.datapoint.AssetDatapointService;
 import org.openremote.manager.server.event.ClientEventService;
 import org.openremote.manager.server.i18n.I18NService;
@@ -67,6 +68,7 @@ public class Main {
                     new RulesService(),
                     new AssetStorageService(),
                     new AssetDatapointService(),
+                    new AssetDatapointLifecycleService(),
                     new AssetAttributeLinkingService(),
                     new AssetProcessingService()
                 ));
@@ -51,11 +51,9 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.openremote.agent.protocol.Protocol.ACTUATOR_TOPIC;
 import static org.openremote.agent.protocol.Protocol.SENSOR_QUEUE;
 import static org.openremote.container.persistence.PersistenceEvent.PERSISTENCE_TOPIC;
 import static org.openremote.manager.server.asset.AssetProcessingService.ASSET_QUEUE;
-import static org.openremote.manager.server.asset.AssetRoute.isPersistenceEventForAssetType;
 import static org.openremote.manager.server.asset.AssetRoute.isPersistenceEventForEntityType;
 import static org.openremote.model.AbstractValueTimestampHolder.VALUE_TIMESTAMP_FIELD_NAME;
 import static org.openremote.model.asset.AssetAttribute.attributesFromJson;
@@ -76,6 +74,11 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
 
     private static final Logger LOG = Logger.getLogger(AgentService.class.getName());
 
+    /**
+     * Number of assets loaded at once when attributes of a protocol configuration are linked or unlinked.
+     */
+    public static final int LINKED_ASSETS_PAGE_SIZE = 100;
+
     protected TimerService timerService;
     protected ManagerIdentityService identityService;
     protected AssetProcessingService assetProcessingService;
@@ -84,6 +87,7 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
     protected ClientEventService clientEventService;
     protected final Map<AttributeRef, Pair<AssetAttribute, ConnectionStatus>> protocolConfigurations = new HashMap<>();
     protected final Map<String, Protocol> protocols = new HashMap<>();
+    protected final Map<String, String> actuatorQueues = new HashMap<>();
     protected final List<AttributeRef> linkedAttributes = new ArrayList<>();
     protected LocalAgentConnector localAgentConnector;
     protected Map<String, Asset> agentMap;
@@ -135,6 +139,10 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
                                 + "' has already been loaded: " + discoveredProtocol.getClass()
                         );
                     protocols.put(discoveredProtocol.getProtocolName(), discoveredProtocol);
+                    actuatorQueues.put(
+                        discoveredProtocol.getProtocolName(),
+                        Protocol.getActuatorQueue(discoveredProtocol.getProtocolName())
+                    );
                 }
             );
 
@@ -166,12 +174,14 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
             .routeId("AgentPersistenceChanges")
             .filter(isPersistenceEventForEntityType(Asset.class))
             .process(exchange -> {
-                PersistenceEvent persistenceEvent = exchange.getIn().getBody(PersistenceEvent.class);
-                Asset asset = (Asset) persistenceEvent.getEntity();
-                if (isPersistenceEventForAssetType(AGENT).matches(exchange)) {
-                    processAgentChange(asset, persistenceEvent);
-                } else {
-                    processAssetChange(asset, persistenceEvent);
+                List<PersistenceEvent<Asset>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                for (PersistenceEvent<Asset> persistenceEvent : persistenceEvents) {
+                    Asset asset = persistenceEvent.getEntity();
+                    if (asset.getWellKnownType() == AGENT) {
+                        processAgentChange(asset, persistenceEvent);
+                    } else {
+                        processAssetChange(asset, persistenceEvent);
+                    }
                 }
             });
 
@@ -464,21 +474,9 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
             }
         }
 
-        // Get all assets that have attributes that use this protocol configuration
-        List<ServerAsset> assets = assetStorageService.findAll(
-            new AssetQuery()
-                .select(new AssetQuery.Select(AssetQuery.Include.ALL))
-                .attributeMeta(
-                    new AssetQuery.AttributeRefPredicate(
-                        AssetMeta.AGENT_LINK,
-                        protocolAttributeRef.getEntityId(),
-                        protocolAttributeRef.getAttributeName()
-                    )
-                )
-        );
-
-        assets.forEach(
-            asset ->
+        // Page through all assets that have attributes that use this protocol configuration
+        forEachLinkedAssetPage(protocolAttributeRef, assets ->
+            assets.forEach(asset ->
                 getGroupedAgentLinkAttributes(
                     asset.getAttributesStream(),
                     assetAttribute -> getAgentLink(assetAttribute)
@@ -486,33 +484,56 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
                         .orElse(false),
                     attribute -> LOG.warning("Linked protocol configuration not found: " + attribute)
                 ).forEach(this::linkAttributes)
+            )
         );
     }
 
+    /**
+     * Loads the assets with attributes linked to the protocol configuration in pages of
+     * {@link #LINKED_ASSETS_PAGE_SIZE}. Each page is loaded in its own transaction and passed to the consumer after
+     * the transaction completed, so protocols can link or unlink attributes without holding a database connection.
+     */
+    protected void forEachLinkedAssetPage(AttributeRef protocolAttributeRef, Consumer<List<ServerAsset>> pageConsumer) {
+        AssetQuery.Cursor cursor = null;
+        List<ServerAsset> page;
+        do {
+            page = assetStorageService.findAll(
+                new AssetQuery()
+                    .select(new AssetQuery.Select(AssetQuery.Include.ALL))
+                    .attributeMeta(
+                        new AssetQuery.AttributeRefPredicate(
+                            AssetMeta.AGENT_LINK,
+                            protocolAttributeRef.getEntityId(),
+                            protocolAttributeRef.getAttributeName()
+                        )
+                    )
+                    .orderBy(new AssetQuery.OrderBy(AssetQuery.OrderBy.Property.CREATED_ON))
+                    .limit(LINKED_ASSETS_PAGE_SIZE)
+                    .cursor(cursor)
+            );
+            if (page.isEmpty())
+                return;
+            ServerAsset last = page.get(page.size() - 1);
+            cursor = last.getCreatedOn() != null
+                ? new AssetQuery.Cursor(last.getId(), Long.toString(last.getCreatedOn().getTime()))
+                : new AssetQuery.Cursor(last.getId());
+            pageConsumer.accept(page);
+        } while (page.size() == LINKED_ASSETS_PAGE_SIZE);
+    }
+
     protected void unlinkProtocolConfiguration(AssetAttribute protocolConfiguration) {
         AttributeRef protocolAttributeRef = protocolConfiguration.getReferenceOrThrow();
 
-        // Get all assets that have attributes that use this protocol configuration
-        List<ServerAsset> assets = assetStorageService.findAll(
-            new AssetQuery()
-                .select(new AssetQuery.Select(AssetQuery.Include.ALL))
-                .attributeMeta(
-                    new AssetQuery.AttributeRefPredicate(
-                        AssetMeta.AGENT_LINK,
-                        protocolAttributeRef.getEntityId(),
-                        protocolAttributeRef.getAttributeName()
-                    )
-                )
-        );
-
-        assets.forEach(
-            asset ->
+        // Page through all assets that have attributes that use this protocol configuration
+        forEachLinkedAssetPage(protocolAttributeRef, assets ->
+            assets.forEach(asset ->
                 getGroupedAgentLinkAttributes(
                     asset.getAttributesStream(),
                     assetAttribute -> getAgentLink(assetAttribute)
                         .map(attributeRef -> attributeRef.equals(protocolAttributeRef))
                         .orElse(false)
                 ).forEach(this::unlinkAttributes)
+            )
         );
 
         synchronized (protocolConfigurations) {
@@ -637,12 +658,14 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
             .map(protocolConfiguration -> {
                 // Its' a send to actuator - push the update to the protocol
                 assetState.getAttribute().getStateEvent().ifPresent(attributeEvent -> {
-                    LOG.fine("Sending to actuator topic: " + attributeEvent);
+                    String protocolName = protocolConfiguration.getValueAsString().orElse("");
+                    LOG.fine("Sending to actuator queue of protocol '" + protocolName + "': " + attributeEvent);
+                    String actuatorQueue = actuatorQueues.get(protocolName);
                     messageBrokerService.getProducerTemplate().sendBodyAndHeader(
-                        ACTUATOR_TOPIC,
+                        actuatorQueue != null ? actuatorQueue : Protocol.getActuatorQueue(protocolName),
                         attributeEvent,
                         Protocol.ACTUATOR_TOPIC_TARGET_PROTOCOL,
-                        protocolConfiguration.getValueAsString().orElse("")
+                        protocolName
                     );
                 });
                 assetState.setProcessingStatus(AssetState.ProcessingStatus.COMPLETED);
@@ -719,11 +742,12 @@ public class AgentService extends RouteBuilder implements ContainerService, Cons
 
     public synchronized Map<String, Asset> getAgents() {
         if (agentMap == null) {
-            agentMap = assetStorageService.findAll(new AssetQuery()
-                .select(new AssetQuery.Select(AssetQuery.Include.ALL))
-                .type(AssetType.AGENT))
-                .stream()
-                .collect(Collectors.toMap(Asset::getId, agent -> agent));
+            Map<String, Asset> agents = new HashMap<>();
+            assetStorageService.streamAll(new AssetQuery()
+                    .select(new AssetQuery.Select(AssetQuery.Include.ALL))
+                    .type(AssetType.AGENT),
+                agent -> agents.put(agent.getId(), agent));
+            agentMap = agents;
         }
 
         return agentMap;
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.server.asset;
+
+import org.hibernate.Session;
+import org.openremote.container.concurrent.ContainerScheduledExecutor;
+import org.openremote.container.json.ValueJsonWriter;
+import org.openremote.container.persistence.PersistenceService;
+import org.openremote.model.asset.AssetAttribute;
+import org.openremote.model.value.Value;
+import org.postgresql.util.PGobject;
+
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind storage of attribute values and timestamps.
+ * <p>
+ * Writes are buffered for a short delay, repeated writes of the same asset attribute are coalesced (the value
+ * with the latest timestamp wins, for equal timestamps the last write wins). All buffered writes are then
+ * stored in a single transaction, with one row update per asset in a single JDBC batch. Batches are flushed
+ * sequentially by a single thread, so they are committed in the order they were buffered. A stored value never
+ * replaces a value in the database with a newer timestamp.
+ * <p>
+ * When the maximum batch size is buffered, the buffer is flushed immediately and writers of further attributes
+ * block until the flush thread has taken the buffered writes. After {@link #close}, writes are not accepted and
+ * the caller has to store the value directly.
+ * <p>
+ * If a batch can't be stored, the error is logged and the affected assets are invalidated in the
+ * {@link AssetStateCache}, the values are not retried.
+ */
+public class AssetAttributeValueWriter {
+
+    private static final Logger LOG = Logger.getLogger(AssetAttributeValueWriter.class.getName());
+
+    /**
+     * Merges the attribute value and timestamp of a patch object into the existing attributes, ignoring
+     * any attribute of the patch that doesn't exist (never erase the column if nothing matches!) and any
+     * attribute with a newer value timestamp in the database.
+     */
+    protected static final String UPDATE_ATTRIBUTE_VALUES =
+        "update ASSET set ATTRIBUTES = ATTRIBUTES || coalesce((" +
+            "select jsonb_object_agg(P.KEY, (ATTRIBUTES -> P.KEY) || P.VALUE) from jsonb_each(?) as P" +
+            " where ATTRIBUTES -> P.KEY is not null" +
+            " and (case when jsonb_typeof(ATTRIBUTES -> P.KEY -> 'valueTimestamp') = 'number'" +
+            " then (ATTRIBUTES -> P.KEY ->> 'valueTimestamp') :: numeric else -1 end)" +
+            " <= (P.VALUE ->> 'valueTimestamp') :: numeric" +
+            "), '{}'::jsonb) where ID = ?";
+
+    protected static class PendingValue {
+        final protected Value value;
+        final protected long timestamp;
+
+        public PendingValue(Value value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    final protected PersistenceService persistenceService;
+    final protected AssetStateCache assetStateCache;
+    final protected long delayMillis;
+    final protected int maxBatchSize;
+    final protected ContainerScheduledExecutor executor;
+
+    protected Map<String, Map<String, PendingValue>> pending = new LinkedHashMap<>();
+    protected Map<String, Map<String, PendingValue>> storing = Collections.emptyMap();
+    protected int pendingCount;
+    protected boolean flushScheduled;
+    protected boolean flushRequested;
+    protected boolean closed;
+
+    final protected AtomicLong written = new AtomicLong();
+    final protected AtomicLong coalesced = new AtomicLong();
+    final protected AtomicLong stored = new AtomicLong();
+    final protected AtomicLong batches = new AtomicLong();
+    final protected AtomicLong failures = new AtomicLong();
+
+    public AssetAttributeValueWriter(PersistenceService persistenceService,
+                                     AssetStateCache assetStateCache,
+                                     long delayMillis,
+                                     int maxBatchSize) {
+        this.persistenceService = persistenceService;
+        this.assetStateCache = assetStateCache;
+        this.delayMillis = delayMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = new ContainerScheduledExecutor("Asset attribute writer", 1);
+        // Don't wait for delayed flushes when closing, the buffer is flushed after shutdown anyway
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Buffer a copy of an attribute value write, blocks while the buffer is full.
+     *
+     * @return <code>false</code> if the writer has been closed and the value has not been buffered.
+     */
+    public boolean write(String assetId, String attributeName, Value value, long timestamp) {
+        PendingValue pendingValue = new PendingValue(AssetStateCache.copyOf(value), timestamp);
+        synchronized (this) {
+            Map<String, PendingValue> attributes;
+            PendingValue existing;
+            while (true) {
+                if (closed)
+                    return false;
+                attributes = pending.get(assetId);
+                existing = attributes != null ? attributes.get(attributeName) : null;
+                if (existing != null || pendingCount < maxBatchSize)
+                    break;
+                // Wait until the flush thread has taken the full buffer
+                requestFlush();
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            written.incrementAndGet();
+            if (existing != null) {
+                coalesced.incrementAndGet();
+                if (existing.timestamp > timestamp)
+                    return true;
+            } else {
+                if (attributes == null) {
+                    attributes = new LinkedHashMap<>();
+                    pending.put(assetId, attributes);
+                }
+                pendingCount++;
+            }
+            attributes.put(attributeName, pendingValue);
+
+            if (pendingCount >= maxBatchSize) {
+                requestFlush();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of this writer.
+     */
+    protected void requestFlush() {
+        if (!flushRequested) {
+            flushRequested = true;
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Store all buffered writes and stop accepting new writes.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            // Blocked writers must store their values directly
+            notifyAll();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warning("Timeout waiting for scheduled attribute value batches");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        LOG.info("Attribute value writer statistics: " + this);
+    }
+
+    protected void flush() {
+        Map<String, Map<String, PendingValue>> batch;
+        synchronized (this) {
+            batch = pending;
+            storing = batch;
+            pending = new LinkedHashMap<>();
+            pendingCount = 0;
+            flushScheduled = false;
+            flushRequested = false;
+            notifyAll();
+        }
+        if (batch.isEmpty())
+            return;
+
+        try {
+            store(batch);
+            batches.incrementAndGet();
+            stored.addAndGet(batch.values().stream().mapToInt(Map::size).sum());
+            LOG.fine("Stored attribute values of " + batch.size() + " asset(s)");
+        } catch (Exception ex) {
+            failures.incrementAndGet();
+            LOG.log(Level.SEVERE, "Error storing attribute values of " + batch.size() + " asset(s)", ex);
+            batch.keySet().forEach(assetStateCache::invalidate);
+        } finally {
+            synchronized (this) {
+                storing = Collections.emptyMap();
+            }
+        }
+    }
+
+    protected void store(Map<String, Map<String, PendingValue>> batch) {
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_ATTRIBUTE_VALUES)) {
+                for (Map.Entry<String, Map<String, PendingValue>> assetEntry : batch.entrySet()) {
+                    PGobject pgJsonPatch = new PGobject();
+                    pgJsonPatch.setType("jsonb");
+                    pgJsonPatch.setValue(buildPatch(assetEntry.getValue()));
+                    statement.setObject(1, pgJsonPatch);
+                    statement.setString(2, assetEntry.getKey());
+                    statement.addBatch();
+                }
+                int[] updatedRows = statement.executeBatch();
+                int count = 0;
+                for (String assetId : batch.keySet()) {
+                    if (updatedRows[count++] == 0) {
+                        LOG.fine("Asset not found, can't store attribute values: " + assetId);
+                    }
+                }
+            }
+        }));
+    }
+
+    /**
+     * Apply buffered writes which have not been committed yet to an asset loaded from the database.
+     */
+    public void applyPending(ServerAsset asset) {
+        synchronized (this) {
+            applyPending(asset, storing.get(asset.getId()));
+            applyPending(asset, pending.get(asset.getId()));
+        }
+    }
+
+    protected void applyPending(ServerAsset asset, Map<String, PendingValue> attributes) {
+        if (attributes == null)
+            return;
+        attributes.forEach((attributeName, pendingValue) ->
+            asset.getAttribute(attributeName).ifPresent(attribute -> {
+                if (attribute.getValueTimestamp().orElse(-1L) <= pendingValue.timestamp) {
+                    attribute.setValue(AssetStateCache.copyOf(pendingValue.value), pendingValue.timestamp);
+                }
+            })
+        );
+    }
+
+    /**
+     * Attribute names are validated (word characters only) so they don't have to be escaped. The value
+     * timestamp is written as a plain integer, as it would be in the original attribute JSON.
+     */
+    protected String buildPatch(Map<String, PendingValue> attributes) {
+        StringBuilder sb = new StringBuilder("{");
+        attributes.forEach((attributeName, pendingValue) -> {
+            if (!AssetAttribute.ATTRIBUTE_NAME_VALIDATOR.test(attributeName)) {
+                LOG.fine(
+                    "Invalid attribute name (must match '" + AssetAttribute.ATTRIBUTE_NAME_PATTERN + "'): " + attributeName
+                );
+                return;
+            }
+            if (sb.length() > 1)
+                sb.append(",");
+            // Careful, JSON null is required to clear a value, a missing key would keep the existing value
+            sb.append("\"").append(attributeName).append("\":{\"value\":")
+                .append(pendingValue.value == null ? "null" : ValueJsonWriter.toJson(pendingValue.value))
+                .append(",\"valueTimestamp\":").append(pendingValue.timestamp)
+                .append("}");
+        });
+        return sb.append("}").toString();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getStored() {
+        return stored.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "delayMillis=" + delayMillis +
+            ", maxBatchSize=" + maxBatchSize +
+            ", written=" + written +
+            ", coalesced=" + coalesced +
+            ", stored=" + stored +
+            ", batches=" + batches +
+            ", failures=" + failures +
+            '}';
+    }
+}
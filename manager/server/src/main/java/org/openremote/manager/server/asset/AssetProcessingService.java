@@ -20,7 +20,11 @@
 package org.openremote.manager.server.asset;
 
 import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.seda.SedaEndpoint;
+import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.model.RouteDefinition;
 import org.openremote.agent.protocol.Protocol;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
@@ -43,10 +47,13 @@ import org.openremote.model.attribute.AttributeEvent.Source;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.manager.server.asset.AssetRoute.*;
 import static org.openremote.manager.server.event.ClientEventService.CLIENT_EVENT_TOPIC;
 import static org.openremote.model.attribute.AttributeEvent.HEADER_SOURCE;
@@ -72,9 +79,20 @@ import static org.openremote.model.attribute.AttributeEvent.Source.INTERNAL;
  * at any point then an {@link AssetProcessingException} will be logged as a warning with an
  * {@link AssetProcessingException.Reason}.
  * <p>
+ * The asset state required for validation is read through the {@link AssetStateCache} of the
+ * {@link AssetStorageService}, so the complete asset doesn't have to be loaded from the database for every event.
+ * <p>
  * Once successfully validated the event is converted into an {@link AssetState} message which is then passed through
  * the processing chain of consumers.
  * <p>
+ * By default all events are processed sequentially by a single consumer of the {@link #ASSET_QUEUE}. With
+ * {@link #ASSET_PROCESSING_LANES} greater than 1, events are instead dispatched to a number of lanes, each a queue with
+ * its own consumer thread. The lane is selected by hashing the asset identifier, so events of an asset are still
+ * processed in order, while events of different assets are processed in parallel. All consumers in the processing
+ * chain must then be able to handle events of different assets concurrently. Dispatching doesn't wait for the lane,
+ * so the result of processing is not the reply of an InOut exchange, senders waiting for the result have to register
+ * a completion callback on an InOnly exchange instead.
+ * <p>
  * The regular processing chain is:
  * <ul>
  * <li>{@link AgentService}</li>
@@ -90,7 +108,7 @@ import static org.openremote.model.attribute.AttributeEvent.Source.INTERNAL;
  * <p>
  * If the updated attribute has an invalid agent link, the message status is set to {@link AssetState.ProcessingStatus#ERROR}.
  * <p>
- * If the updated attribute has a valid agent link, an {@link AttributeEvent} is sent on the {@link Protocol#ACTUATOR_TOPIC},
+ * If the updated attribute has a valid agent link, an {@link AttributeEvent} is sent on the {@link Protocol#getActuatorQueue} of the linked protocol,
  * for execution on an actual device or service 'things'. The update is then marked as
  * {@link AssetState.ProcessingStatus#COMPLETED} and no further processing is necessary. The update will not reach the
  * rules engine or the database processors.
@@ -118,7 +136,9 @@ import static org.openremote.model.attribute.AttributeEvent.Source.INTERNAL;
  * <h2>Asset Storage Service processing logic</h2>
  * <p>
  * Always tries to persist the attribute value in the database and allows the message to continue if the commit was
- * successful.
+ * successful. The stored value is written through to the {@link AssetStateCache}. If write-behind is enabled with
+ * {@link AssetStorageService#ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS}, the value is buffered and stored in a batch by
+ * the {@link AssetAttributeValueWriter} and the message continues immediately.
  * <h2>Asset Datapoint Service processing logic</h2>
  * <p>
  * Checks if attribute is {@link AssetAttribute#isStoreDatapoints()}, and if so the {@link AttributeEvent} is stored
@@ -132,6 +152,82 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
     // Message topic for communicating individual asset attribute changes
     public static final String ASSET_QUEUE = "seda://AssetQueue?waitForTaskToComplete=IfReplyExpected&timeout=10000&purgeWhenStopping=true&discardIfNoConsumers=false&size=25000";
 
+    /**
+     * Number of parallel processing lanes, events are assigned to a lane by asset identifier. Set to 1 to process
+     * all events sequentially.
+     */
+    public static final String ASSET_PROCESSING_LANES = "ASSET_PROCESSING_LANES";
+    public static final int ASSET_PROCESSING_LANES_DEFAULT = 1;
+
+    /**
+     * Maximum number of events waiting in each processing lane, dispatching blocks when a lane is full.
+     */
+    public static final String ASSET_PROCESSING_LANE_QUEUE_SIZE = "ASSET_PROCESSING_LANE_QUEUE_SIZE";
+    public static final int ASSET_PROCESSING_LANE_QUEUE_SIZE_DEFAULT = 10000;
+
+    public static final String HEADER_LANE_URI = AssetProcessingService.class.getName() + ".LANE_URI";
+    public static final String HEADER_LANE_QUEUED_NANOS = AssetProcessingService.class.getName() + ".LANE_QUEUED_NANOS";
+
+    /**
+     * Metrics of a processing lane, latency is measured from dispatch to the lane until processing is complete.
+     */
+    public static class ProcessingLane {
+
+        final protected int index;
+        final protected String queueUri;
+        final protected AtomicLong processed = new AtomicLong();
+        final protected AtomicLong totalLatencyNanos = new AtomicLong();
+        final protected AtomicLong maxLatencyNanos = new AtomicLong();
+        protected SedaEndpoint endpoint;
+
+        public ProcessingLane(int index, int queueSize) {
+            this.index = index;
+            this.queueUri = "seda://AssetQueueLane" + index + "?waitForTaskToComplete=Never&purgeWhenStopping=true&discardIfNoConsumers=false&blockWhenFull=true&size=" + queueSize;
+        }
+
+        protected void completed(Exchange exchange) {
+            Long queuedNanos = exchange.getIn().getHeader(HEADER_LANE_QUEUED_NANOS, Long.class);
+            if (queuedNanos == null)
+                return;
+            long latencyNanos = System.nanoTime() - queuedNanos;
+            processed.incrementAndGet();
+            totalLatencyNanos.addAndGet(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getQueueDepth() {
+            return endpoint != null ? endpoint.getCurrentQueueSize() : 0;
+        }
+
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        public long getAverageLatencyMillis() {
+            long count = processed.get();
+            return count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / count) : 0;
+        }
+
+        public long getMaxLatencyMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{" +
+                "index=" + index +
+                ", queueDepth=" + getQueueDepth() +
+                ", processed=" + processed +
+                ", averageLatencyMillis=" + getAverageLatencyMillis() +
+                ", maxLatencyMillis=" + getMaxLatencyMillis() +
+                '}';
+        }
+    }
+
     protected TimerService timerService;
     protected ManagerIdentityService identityService;
     protected RulesService rulesService;
@@ -142,9 +238,10 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
     protected MessageBrokerService messageBrokerService;
     protected ClientEventService clientEventService;
     // Used in testing to detect if initial/startup processing has completed
-    protected long lastProcessedEventTimestamp = System.currentTimeMillis();
+    protected volatile long lastProcessedEventTimestamp = System.currentTimeMillis();
 
     final protected List<Consumer<AssetState>> processors = new ArrayList<>();
+    final protected List<ProcessingLane> lanes = new ArrayList<>();
 
     @Override
     public void init(Container container) throws Exception {
@@ -205,6 +302,16 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
         processors.add(assetDatapointService);
         processors.add(assetAttributeLinkingService);
 
+        int laneCount = getInteger(container.getConfig(), ASSET_PROCESSING_LANES, ASSET_PROCESSING_LANES_DEFAULT);
+        if (laneCount > 1) {
+            int laneQueueSize =
+                getInteger(container.getConfig(), ASSET_PROCESSING_LANE_QUEUE_SIZE, ASSET_PROCESSING_LANE_QUEUE_SIZE_DEFAULT);
+            for (int i = 0; i < laneCount; i++) {
+                lanes.add(new ProcessingLane(i, laneQueueSize));
+            }
+            LOG.info("Processing asset events in parallel lanes: " + laneCount);
+        }
+
         container.getService(MessageBrokerSetupService.class).getContext().addRoutes(this);
     }
 
@@ -215,7 +322,9 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
 
     @Override
     public void stop(Container container) throws Exception {
-
+        if (!lanes.isEmpty()) {
+            LOG.info("Processing lane statistics: " + lanes);
+        }
     }
 
     @Override
@@ -253,8 +362,35 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
 
           - Do we want JMS/AMQP/WSS or SOME_API/MQTT/WSS? ActiveMQ or Moquette?
         */
-        from(ASSET_QUEUE)
-            .routeId("AssetUpdates")
+        if (lanes.isEmpty()) {
+            processAttributeEvents(from(ASSET_QUEUE).routeId("AssetUpdates"));
+        } else {
+            // Preserve the order of events of an asset by always dispatching them to the same lane
+            from(ASSET_QUEUE)
+                .routeId("AssetUpdates")
+                .filter(body().isInstanceOf(AttributeEvent.class))
+                .process(exchange -> {
+                    String assetId = exchange.getIn().getBody(AttributeEvent.class).getEntityId();
+                    ProcessingLane lane = lanes.get(Math.floorMod(assetId != null ? assetId.hashCode() : 0, lanes.size()));
+                    exchange.getIn().setHeader(HEADER_LANE_URI, lane.queueUri);
+                    exchange.getIn().setHeader(HEADER_LANE_QUEUED_NANOS, System.nanoTime());
+                    // Never block the dispatcher waiting for a lane, only the completion callbacks of the
+                    // exchange are handed over to the lane
+                    exchange.setPattern(ExchangePattern.InOnly);
+                })
+                // The lane queues a copy of the exchange and hands the completion callbacks over to it, they are
+                // called when the lane has processed the event
+                .toD("${header[" + HEADER_LANE_URI + "]}");
+        }
+        for (ProcessingLane lane : lanes) {
+            lane.endpoint = getContext().getEndpoint(lane.queueUri, SedaEndpoint.class);
+            processAttributeEvents(from(lane.endpoint).routeId("AssetUpdatesLane" + lane.index))
+                .process(lane::completed);
+        }
+    }
+
+    protected ProcessorDefinition<?> processAttributeEvents(RouteDefinition route) {
+        return route
             .filter(body().isInstanceOf(AttributeEvent.class))
             .doTry()
             .process(extractAttributeEventDetails(assetStorageService))
@@ -269,7 +405,9 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
             .process(this::processAssetState)
             .endDoTry()
             .doCatch(AssetProcessingException.class)
-            .process(handleAssetProcessingException(LOG));
+            .process(handleAssetProcessingException(LOG))
+            .end()
+            .end();
     }
 
     /**
@@ -329,9 +467,14 @@ public class AssetProcessingService extends RouteBuilder implements ContainerSer
         LOG.fine("<<< Processing complete: " + assetState);
     }
 
+    public List<ProcessingLane> getLanes() {
+        return lanes;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
+            "lanes=" + lanes.size() +
             '}';
     }
 }
@@ -19,12 +19,16 @@
  */
 package org.openremote.manager.server.asset;
 
+import org.apache.camel.Exchange;
+import org.apache.camel.support.SynchronizationAdapter;
 import org.openremote.container.message.MessageBrokerService;
+import org.openremote.container.security.AuthContext;
 import org.openremote.container.timer.TimerService;
 import org.openremote.manager.server.security.ManagerIdentityService;
 import org.openremote.manager.server.web.ManagerWebResource;
 import org.openremote.manager.shared.asset.AssetProcessingException;
 import org.openremote.manager.shared.asset.AssetResource;
+import org.openremote.manager.shared.asset.AttributeWriteResult;
 import org.openremote.manager.shared.http.RequestParams;
 import org.openremote.manager.shared.security.Tenant;
 import org.openremote.model.Constants;
@@ -42,6 +46,11 @@ import org.openremote.model.value.Values;
 import javax.ws.rs.WebApplicationException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static javax.ws.rs.core.Response.Status.*;
@@ -56,6 +65,16 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
 
     private static final Logger LOG = Logger.getLogger(AssetResourceImpl.class.getName());
 
+    /**
+     * Maximum number of events accepted by {@link #writeAttributeValues}.
+     */
+    public static final int MAX_ATTRIBUTE_WRITE_EVENTS = 1000;
+
+    /**
+     * How long {@link #writeAttributeValue} and {@link #writeAttributeValues} wait for processing of events.
+     */
+    public static final int ATTRIBUTE_WRITE_TIMEOUT_MILLIS = 10000;
+
     protected final static Asset[] EMPTY_ASSETS = new Asset[0];
     protected final AssetStorageService assetStorageService;
     protected final MessageBrokerService messageBrokerService;
@@ -330,12 +349,18 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
                 );
 
                 // Process asynchronously but block for a little while waiting for the result
-                Map<String, Object> headers = new HashMap<>();
-                headers.put(AttributeEvent.HEADER_SOURCE, CLIENT);
-                headers.put(Constants.AUTH_CONTEXT, getAuthContext());
-                Object result = messageBrokerService.getProducerTemplate().requestBodyAndHeaders(
-                    AssetProcessingService.ASSET_QUEUE, event, headers
-                );
+                Object result;
+                try {
+                    result = submitAttributeEvent(event, getAuthContext())
+                        .get(ATTRIBUTE_WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ex) {
+                    throw new WebApplicationException(ex, SERVICE_UNAVAILABLE);
+                } catch (ExecutionException ex) {
+                    throw new WebApplicationException(ex.getCause(), INTERNAL_SERVER_ERROR);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new WebApplicationException(ex, SERVICE_UNAVAILABLE);
+                }
 
                 if (result instanceof AssetProcessingException) {
                     AssetProcessingException processingException = (AssetProcessingException) result;
@@ -365,6 +390,59 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
         }
     }
 
+    @Override
+    public AttributeWriteResult[] writeAttributeValues(RequestParams requestParams, AttributeEvent[] events) {
+        if (events == null || events.length == 0 || events.length > MAX_ATTRIBUTE_WRITE_EVENTS)
+            throw new WebApplicationException(BAD_REQUEST);
+
+        AuthContext authContext = getAuthContext();
+        long currentTimeMillis = timerService.getCurrentTimeMillis();
+
+        // Submit all events without waiting, each event is processed as if it was written with writeAttributeValue()
+        List<CompletableFuture<Object>> results = new ArrayList<>(events.length);
+        for (AttributeEvent event : events) {
+            if (event == null
+                || event.getAttributeState() == null
+                || event.getAttributeRef() == null
+                || isNullOrEmpty(event.getEntityId())
+                || isNullOrEmpty(event.getAttributeName())) {
+                results.add(null);
+                continue;
+            }
+            if (event.getTimestamp() <= 0) {
+                event.setTimestamp(currentTimeMillis);
+            }
+            results.add(submitAttributeEvent(event, authContext));
+        }
+
+        // Block only once for the whole batch
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ATTRIBUTE_WRITE_TIMEOUT_MILLIS);
+        AttributeWriteResult[] writeResults = new AttributeWriteResult[events.length];
+        for (int i = 0; i < events.length; i++) {
+            CompletableFuture<Object> result = results.get(i);
+            if (result == null) {
+                writeResults[i] = new AttributeWriteResult(null, "Missing attribute reference");
+                continue;
+            }
+            AttributeRef attributeRef = events[i].getAttributeRef();
+            try {
+                Object body = result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                writeResults[i] = body instanceof AssetProcessingException
+                    ? new AttributeWriteResult(attributeRef, ((AssetProcessingException) body).getReason())
+                    : new AttributeWriteResult(attributeRef);
+            } catch (TimeoutException ex) {
+                writeResults[i] = new AttributeWriteResult(attributeRef, "Processing timeout");
+            } catch (ExecutionException ex) {
+                LOG.log(Level.WARNING, "Error processing attribute write of user '" + getUsername() + "': " + events[i], ex.getCause());
+                writeResults[i] = new AttributeWriteResult(attributeRef, "Processing error");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new WebApplicationException(ex, SERVICE_UNAVAILABLE);
+            }
+        }
+        return writeResults;
+    }
+
     @Override
     public Asset create(RequestParams requestParams, Asset asset) {
         try {
@@ -512,4 +590,38 @@ public class AssetResourceImpl extends ManagerWebResource implements AssetResour
         }
         return queryPublicAssets(requestParams, assetQuery);
     }
+
+    /**
+     * Sends the event into the {@link AssetProcessingService#ASSET_QUEUE} without waiting. The returned future
+     * completes with the result of processing, an {@link AssetProcessingException} if the event was rejected.
+     */
+    protected CompletableFuture<Object> submitAttributeEvent(AttributeEvent event, AuthContext authContext) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            messageBrokerService.getProducerTemplate().send(AssetProcessingService.ASSET_QUEUE, exchange -> {
+                exchange.getIn().setBody(event);
+                exchange.getIn().setHeader(AttributeEvent.HEADER_SOURCE, CLIENT);
+                exchange.getIn().setHeader(Constants.AUTH_CONTEXT, authContext);
+                // Handed over to the queued copy of the exchange, called when processing of the event is done
+                exchange.addOnCompletion(new SynchronizationAdapter() {
+                    @Override
+                    public void onComplete(Exchange exchange) {
+                        result.complete(exchange.hasOut() ? exchange.getOut().getBody() : exchange.getIn().getBody());
+                    }
+
+                    @Override
+                    public void onFailure(Exchange exchange) {
+                        result.completeExceptionally(
+                            exchange.getException() != null
+                                ? exchange.getException()
+                                : new IllegalStateException("Processing failed: " + event)
+                        );
+                    }
+                });
+            });
+        } catch (Exception ex) {
+            result.completeExceptionally(ex);
+        }
+        return result;
+    }
 }
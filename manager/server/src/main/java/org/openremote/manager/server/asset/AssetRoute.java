@@ -33,7 +33,6 @@ import org.openremote.manager.shared.asset.AssetProcessingException.Reason;
 import org.openremote.manager.shared.security.ClientRole;
 import org.openremote.model.Constants;
 import org.openremote.model.ValidationFailure;
-import org.openremote.model.asset.Asset;
 import org.openremote.model.asset.AssetAttribute;
 import org.openremote.model.asset.AssetState;
 import org.openremote.model.asset.AssetType;
@@ -65,16 +64,6 @@ public final class AssetRoute {
         };
     }
 
-    public static Predicate isPersistenceEventForAssetType(AssetType assetType) {
-        return exchange -> {
-            if (!(exchange.getIn().getBody() instanceof PersistenceEvent))
-                return false;
-            PersistenceEvent persistenceEvent = exchange.getIn().getBody(PersistenceEvent.class);
-            Asset asset = (Asset) persistenceEvent.getEntity();
-            return asset.getWellKnownType() == assetType;
-        };
-    }
-
     public static Processor extractAttributeEventDetails(AssetStorageService assetStorageService) {
         return exchange -> {
             AttributeEvent event = exchange.getIn().getBody(AttributeEvent.class);
@@ -85,7 +74,7 @@ public final class AssetRoute {
 
             ServerAsset asset;
             if (exchange.getIn().getHeader(HEADER_ASSET) == null) {
-                asset = assetStorageService.find(event.getEntityId(), true);
+                asset = assetStorageService.findCached(event.getEntityId());
                 if (asset == null)
                     return;
                 exchange.getIn().setHeader(HEADER_ASSET, asset);
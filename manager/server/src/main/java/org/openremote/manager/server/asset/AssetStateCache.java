@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.server.asset;
+
+import org.openremote.model.asset.AssetAttribute;
+import org.openremote.model.value.ArrayValue;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Value;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * A bounded, least-recently-used cache of complete {@link ServerAsset} state, used by the asset processing
+ * chain to avoid loading the whole asset (including all attributes) from the database for every attribute event.
+ * <p>
+ * Cached instances are never handed out, callers always receive a copy they can modify. The cache is kept
+ * consistent by {@link AssetStorageService}: attribute value writes are applied write-through, and any other
+ * modification of an asset (merge, delete, persistence events) invalidates the cached state.
+ * <p>
+ * Every invalidation or write of an asset which is currently being loaded increments a generation counter; a value
+ * loaded from the database is only added to the cache if the generation didn't change during the load, so a
+ * concurrent modification can't be overwritten by the stale result of a slow load. Modifications of other assets
+ * don't affect loads.
+ */
+public class AssetStateCache {
+
+    private static final Logger LOG = Logger.getLogger(AssetStateCache.class.getName());
+
+    final protected int maxSize;
+    final protected Map<String, ServerAsset> assets;
+    // Number of loads in progress by asset identifier
+    final protected Map<String, Integer> loading = new HashMap<>();
+    protected long generation;
+
+    final protected AtomicLong hits = new AtomicLong();
+    final protected AtomicLong misses = new AtomicLong();
+    final protected AtomicLong evictions = new AtomicLong();
+    final protected AtomicLong invalidations = new AtomicLong();
+
+    public AssetStateCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.assets = new LinkedHashMap<String, ServerAsset>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ServerAsset> eldest) {
+                if (size() > AssetStateCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * @return A copy of the cached asset state, or the result of the loader function (which is then cached).
+     */
+    public ServerAsset get(String assetId, Function<String, ServerAsset> loader) {
+        if (!isEnabled())
+            return loader.apply(assetId);
+
+        ServerAsset cached;
+        long loadGeneration;
+        synchronized (assets) {
+            cached = assets.get(assetId);
+            loadGeneration = generation;
+            if (cached == null) {
+                loading.merge(assetId, 1, Integer::sum);
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            // Cached instances are never modified, copying outside of the lock is safe
+            return ServerAsset.copyOf(cached);
+        }
+        misses.incrementAndGet();
+
+        ServerAsset loaded = null;
+        try {
+            loaded = loader.apply(assetId);
+            return loaded;
+        } finally {
+            ServerAsset copy = loaded != null ? ServerAsset.copyOf(loaded) : null;
+            synchronized (assets) {
+                loading.computeIfPresent(assetId, (id, count) -> count > 1 ? count - 1 : null);
+                if (copy != null && generation == loadGeneration && !assets.containsKey(assetId)) {
+                    assets.put(assetId, copy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write-through of a stored attribute value, applied only if it's not older than the cached value (last
+     * timestamp wins). If the asset is not cached but currently being loaded, the load is prevented from caching
+     * stale state.
+     */
+    public void updateAttributeValue(String assetId, String attributeName, Value value, long timestamp) {
+        if (!isEnabled())
+            return;
+        synchronized (assets) {
+            ServerAsset cached = assets.get(assetId);
+            if (cached == null) {
+                if (loading.containsKey(assetId)) {
+                    generation++;
+                }
+                return;
+            }
+            Optional<Long> cachedTimestamp = cached.getAttribute(attributeName).flatMap(AssetAttribute::getValueTimestamp);
+            if (!cachedTimestamp.isPresent()) {
+                // Attribute missing in cached state or never had a value, don't guess
+                invalidate(assetId);
+                return;
+            }
+            if (cachedTimestamp.get() > timestamp)
+                return;
+
+            // Replace the cached instance, it might be copied concurrently by readers
+            ServerAsset updated = ServerAsset.copyOf(cached);
+            AssetAttribute attribute = updated.getAttribute(attributeName).orElseThrow(IllegalStateException::new);
+            attribute.setValue(copyOf(value), timestamp);
+            assets.put(assetId, updated);
+        }
+    }
+
+    protected static Value copyOf(Value value) {
+        if (value instanceof ObjectValue)
+            return ((ObjectValue) value).deepCopy();
+        if (value instanceof ArrayValue)
+            return ((ArrayValue) value).deepCopy();
+        // Primitive values are immutable
+        return value;
+    }
+
+    public void invalidate(String assetId) {
+        if (!isEnabled())
+            return;
+        synchronized (assets) {
+            if (loading.containsKey(assetId)) {
+                generation++;
+            }
+            if (assets.remove(assetId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        if (!isEnabled())
+            return;
+        synchronized (assets) {
+            generation++;
+            invalidations.addAndGet(assets.size());
+            assets.clear();
+        }
+        LOG.fine("Invalidated all cached asset state");
+    }
+
+    public int getSize() {
+        synchronized (assets) {
+            return assets.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "size=" + getSize() +
+            ", maxSize=" + maxSize +
+            ", hits=" + hits +
+            ", misses=" + misses +
+            ", evictions=" + evictions +
+            ", invalidations=" + invalidations +
+            '}';
+    }
+}
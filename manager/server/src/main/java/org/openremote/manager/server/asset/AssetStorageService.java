@@ -21,9 +21,9 @@ package org.openremote.manager.server.asset;
 
 import org.apache.camel.builder.RouteBuilder;
 import org.hibernate.Session;
-import org.hibernate.jdbc.AbstractReturningWork;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
+import org.openremote.container.json.ValueJsonWriter;
 import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.message.MessageBrokerSetupService;
 import org.openremote.container.persistence.PersistenceEvent;
@@ -35,6 +35,7 @@ import org.openremote.manager.server.event.ClientEventService;
 import org.openremote.manager.server.security.ManagerIdentityService;
 import org.openremote.manager.server.security.UserConfiguration;
 import org.openremote.manager.shared.security.ClientRole;
+import org.openremote.manager.shared.security.Tenant;
 import org.openremote.manager.shared.security.User;
 import org.openremote.model.Constants;
 import org.openremote.model.ValidationFailure;
@@ -54,7 +55,11 @@ import javax.persistence.NoResultException;
 import java.sql.*;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -66,32 +71,76 @@ import static org.openremote.model.asset.AbstractAssetQuery.Access.PRIVATE_READ;
 import static org.openremote.model.asset.AbstractAssetQuery.Access.RESTRICTED_READ;
 import static org.openremote.model.asset.AbstractAssetQuery.Include.ALL;
 import static org.openremote.model.asset.AbstractAssetQuery.Include.ALL_EXCEPT_PATH_AND_ATTRIBUTES;
+import static org.openremote.container.util.MapAccess.getInteger;
 import static org.openremote.model.util.TextUtil.isNullOrEmpty;
 
 public class AssetStorageService extends RouteBuilder implements ContainerService, Consumer<AssetState> {
 
-    protected class PreparedAssetQuery {
-        protected String querySql;
-        protected List<ParameterBinder> binders;
+    /**
+     * The SQL of a query and how to bind its parameters, can be applied to all queries of the same shape (see
+     * {@link #buildQueryShape}).
+     */
+    protected static class PreparedAssetQuery {
+        final protected String querySql;
+        final protected List<ParameterBinder> binders;
 
         public PreparedAssetQuery(String querySql, List<ParameterBinder> binders) {
             this.querySql = querySql;
             this.binders = binders;
         }
 
-        protected void apply(PreparedStatement preparedStatement) {
+        protected void apply(PreparedStatement preparedStatement, AbstractAssetQuery query) throws SQLException {
             for (ParameterBinder binder : binders) {
-                binder.accept(preparedStatement);
+                binder.bind(preparedStatement, query);
             }
         }
     }
 
     private static final Logger LOG = Logger.getLogger(AssetStorageService.class.getName());
 
+    /**
+     * Maximum number of complete assets held in memory for attribute event processing, set to 0 to disable
+     * the cache and always load asset state from the database.
+     */
+    public static final String ASSET_STATE_CACHE_MAX_SIZE = "ASSET_STATE_CACHE_MAX_SIZE";
+    public static final int ASSET_STATE_CACHE_MAX_SIZE_DEFAULT = 10000;
+
+    /**
+     * Delay attribute value writes of the processing chain and store them in batches (write-behind), repeated
+     * writes of the same attribute within the delay are coalesced. Set to 0 to store each value immediately in
+     * its own transaction.
+     */
+    public static final String ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS = "ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS";
+    public static final int ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS_DEFAULT = 0;
+
+    /**
+     * Maximum number of buffered attribute value writes, a batch is stored immediately when it is reached.
+     */
+    public static final String ASSET_ATTRIBUTE_WRITE_BATCH_SIZE = "ASSET_ATTRIBUTE_WRITE_BATCH_SIZE";
+    public static final int ASSET_ATTRIBUTE_WRITE_BATCH_SIZE_DEFAULT = 1000;
+
+    /**
+     * Number of rows fetched from the database at once by {@link #streamAll}.
+     */
+    public static final int QUERY_STREAM_FETCH_SIZE = 200;
+
+    /**
+     * Maximum number of cached SQL statements of asset queries, one for each distinct query shape. Set to 0 to build
+     * the SQL of every query.
+     */
+    public static final String ASSET_QUERY_CACHE_MAX_SIZE = "ASSET_QUERY_CACHE_MAX_SIZE";
+    public static final int ASSET_QUERY_CACHE_MAX_SIZE_DEFAULT = 1000;
+
     protected TimerService timerService;
     protected PersistenceService persistenceService;
     protected ManagerIdentityService identityService;
     protected ClientEventService clientEventService;
+    protected AssetStateCache assetStateCache;
+    protected AssetAttributeValueWriter attributeValueWriter;
+    protected final Map<String, PreparedAssetQuery> queryCache = new ConcurrentHashMap<>();
+    protected final AtomicLong queryCacheHits = new AtomicLong();
+    protected final AtomicLong queryCacheMisses = new AtomicLong();
+    protected int queryCacheMaxSize;
 
     @Override
     public void init(Container container) throws Exception {
@@ -99,6 +148,20 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         persistenceService = container.getService(PersistenceService.class);
         identityService = container.getService(ManagerIdentityService.class);
         clientEventService = container.getService(ClientEventService.class);
+        assetStateCache = new AssetStateCache(
+            getInteger(container.getConfig(), ASSET_STATE_CACHE_MAX_SIZE, ASSET_STATE_CACHE_MAX_SIZE_DEFAULT)
+        );
+        queryCacheMaxSize = getInteger(container.getConfig(), ASSET_QUERY_CACHE_MAX_SIZE, ASSET_QUERY_CACHE_MAX_SIZE_DEFAULT);
+        int writeDelayMillis =
+            getInteger(container.getConfig(), ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS, ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS_DEFAULT);
+        if (writeDelayMillis > 0) {
+            attributeValueWriter = new AssetAttributeValueWriter(
+                persistenceService,
+                assetStateCache,
+                writeDelayMillis,
+                getInteger(container.getConfig(), ASSET_ATTRIBUTE_WRITE_BATCH_SIZE, ASSET_ATTRIBUTE_WRITE_BATCH_SIZE_DEFAULT)
+            );
+        }
 
         clientEventService.addSubscriptionAuthorizer((auth, subscription) -> {
             if (!subscription.isEventType(AssetTreeModifiedEvent.class))
@@ -128,7 +191,14 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
     @Override
     public void stop(Container container) throws Exception {
-
+        if (attributeValueWriter != null) {
+            attributeValueWriter.close();
+        }
+        LOG.info("Asset state cache statistics: " + assetStateCache);
+        assetStateCache.invalidateAll();
+        LOG.info("Asset query cache statistics: shapes=" + queryCache.size()
+            + ", hits=" + queryCacheHits.get() + ", misses=" + queryCacheMisses.get());
+        queryCache.clear();
     }
 
     @Override
@@ -139,13 +209,14 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         Value value = assetState.getAttribute().getValue().orElse(null);
         // If there is no timestamp, use system time (0 or -1 are "no timestamp")
         Optional<Long> timestamp = assetState.getAttribute().getValueTimestamp();
-        String valueTimestamp = Long.toString(
-            timestamp.map(ts -> ts > 0 ? ts : timerService.getCurrentTimeMillis())
-                .orElseGet(() -> timerService.getCurrentTimeMillis())
-        );
-        if (!storeAttributeValue(assetId, attributeName, value, valueTimestamp)) {
+        long valueTimestamp = timestamp.map(ts -> ts > 0 ? ts : timerService.getCurrentTimeMillis())
+            .orElseGet(() -> timerService.getCurrentTimeMillis());
+        // Store directly if write-behind is disabled or the writer has already been closed
+        if ((attributeValueWriter == null || !attributeValueWriter.write(assetId, attributeName, value, valueTimestamp))
+            && !storeAttributeValue(assetId, attributeName, value, Long.toString(valueTimestamp))) {
             throw new RuntimeException("Database update failed, no rows updated");
         }
+        assetStateCache.updateAttributeValue(assetId, attributeName, value, valueTimestamp);
     }
 
     @SuppressWarnings("unchecked")
@@ -155,7 +226,17 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         from(PERSISTENCE_TOPIC)
             .routeId("AssetPersistenceChanges")
             .filter(isPersistenceEventForEntityType(ServerAsset.class))
-            .process(exchange -> publishModificationEvents(exchange.getIn().getBody(PersistenceEvent.class)));
+            .process(exchange -> {
+                List<PersistenceEvent<ServerAsset>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                persistenceEvents.forEach(this::invalidateAssetState);
+                publishModificationEvents(persistenceEvents);
+            });
+
+        // Cached asset state includes tenant details
+        from(PERSISTENCE_TOPIC)
+            .routeId("AssetStateTenantChanges")
+            .filter(isPersistenceEventForEntityType(Tenant.class))
+            .process(exchange -> assetStateCache.invalidateAll());
 
         // React if a client wants to read attribute state
         from(CLIENT_EVENT_TOPIC)
@@ -225,10 +306,47 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return persistenceService.doReturningTransaction(em -> find(em, query));
     }
 
+    /**
+     * Same as {@link #find(String, boolean)} with complete asset data but the asset state is read from the
+     * {@link AssetStateCache} if possible. The returned asset is a copy and can be modified.
+     */
+    public ServerAsset findCached(String assetId) {
+        if (assetId == null)
+            throw new IllegalArgumentException("Can't query null asset identifier");
+        return assetStateCache.get(assetId, id -> {
+            ServerAsset asset = find(id, true);
+            // The database might not have the latest values yet
+            if (asset != null && attributeValueWriter != null) {
+                attributeValueWriter.applyPending(asset);
+            }
+            return asset;
+        });
+    }
+
+    public AssetStateCache getAssetStateCache() {
+        return assetStateCache;
+    }
+
+    /**
+     * @return <code>null</code> if attribute values are stored immediately.
+     */
+    public AssetAttributeValueWriter getAttributeValueWriter() {
+        return attributeValueWriter;
+    }
+
     public List<ServerAsset> findAll(AbstractAssetQuery query) {
         return persistenceService.doReturningTransaction(em -> findAll(em, query));
     }
 
+    /**
+     * Calls the consumer with each asset of the query result, in order. Rows are fetched from the database in
+     * batches and mapped when they are consumed, the whole result is never held in memory. The consumer is called
+     * within the database transaction and should not block.
+     */
+    public void streamAll(AbstractAssetQuery query, Consumer<ServerAsset> consumer) {
+        persistenceService.doTransaction(em -> findAll(em, query, QUERY_STREAM_FETCH_SIZE, consumer));
+    }
+
     public List<String> findNames(String... ids) {
         if (ids == null || ids.length == 0)
             return new ArrayList<>();
@@ -284,7 +402,8 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
      * @throws IllegalArgumentException if the realm or parent is illegal, or other asset constraint is violated.
      */
     public ServerAsset merge(ServerAsset asset, boolean overrideVersion, String userName) {
-        return persistenceService.doReturningTransaction(em -> {
+        AtomicReference<String> linkedUserId = new AtomicReference<>();
+        ServerAsset mergedAsset = persistenceService.doReturningTransaction(em -> {
 
             // Update all empty attribute timestamps with server-time (a caller which doesn't have a
             // reliable time source such as a browser should clear the timestamp when setting an attribute
@@ -359,17 +478,24 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
             if (user != null) {
                 storeUserAsset(em, new UserAsset(user.getRealmId(), user.getId(), updatedAsset.getId()));
+                linkedUserId.set(user.getId());
             }
 
             return updatedAsset;
         });
+        // Don't wait for the persistence event, the caller might immediately process attribute events
+        assetStateCache.invalidate(mergedAsset.getId());
+        if (linkedUserId.get() != null) {
+            invalidateUserAuthorization(linkedUserId.get());
+        }
+        return mergedAsset;
     }
 
     /**
      * @return <code>true</code> if the asset was deleted, false if the asset still has children and can't be deleted.
      */
     public boolean delete(String assetId) {
-        return persistenceService.doReturningTransaction(em -> {
+        boolean deleted = persistenceService.doReturningTransaction(em -> {
             Asset asset = em.find(ServerAsset.class, assetId);
             if (asset != null) {
                 List<ServerAsset> children = findAll(em, new AssetQuery()
@@ -382,9 +508,18 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             }
             return true;
         });
+        if (deleted) {
+            assetStateCache.invalidate(assetId);
+            identityService.getAuthorizationCache().invalidateAsset(assetId);
+        }
+        return deleted;
     }
 
     public boolean isUserAsset(String userId, String assetId) {
+        return identityService.getAuthorizationCache().isUserAsset(userId, assetId, this::findIsUserAsset);
+    }
+
+    protected boolean findIsUserAsset(String userId, String assetId) {
         return persistenceService.doReturningTransaction(entityManager -> {
             try {
                 return entityManager.createQuery(
@@ -427,6 +562,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
      */
     public void storeUserAsset(UserAsset userAsset) {
         persistenceService.doTransaction(entityManager -> storeUserAsset(entityManager, userAsset));
+        invalidateUserAuthorization(userAsset.getId().getUserId());
     }
 
     /**
@@ -449,6 +585,16 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 mergeUserConfiguration(entityManager, userConfiguration);
             }
         });
+        invalidateUserAuthorization(userId);
+    }
+
+    /**
+     * Persistence events also invalidate the cached decisions, but asynchronously; the caller of a modification
+     * must see its result.
+     */
+    protected void invalidateUserAuthorization(String userId) {
+        identityService.getAuthorizationCache().invalidateRestrictedUser(userId);
+        identityService.getAuthorizationCache().invalidateUserAssets(userId);
     }
 
     protected void storeUserAsset(EntityManager entityManager, UserAsset userAsset) {
@@ -479,17 +625,11 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
     /* ####################################################################################### */
 
-    protected interface ParameterBinder extends Consumer<PreparedStatement> {
-        @Override
-        default void accept(PreparedStatement st) {
-            try {
-                acceptStatement(st);
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
-            }
-        }
-
-        void acceptStatement(PreparedStatement st) throws SQLException;
+    /**
+     * Binds a parameter value of the given query, the position of the parameter is fixed when the SQL is built.
+     */
+    protected interface ParameterBinder {
+        void bind(PreparedStatement st, AbstractAssetQuery query) throws SQLException;
     }
 
     protected ServerAsset find(EntityManager em, String assetId, boolean loadComplete) {
@@ -519,6 +659,15 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
     }
 
     protected List<ServerAsset> findAll(EntityManager em, AbstractAssetQuery query) {
+        List<ServerAsset> result = new ArrayList<>();
+        findAll(em, query, 0, result::add);
+        return result;
+    }
+
+    /**
+     * @param fetchSize The number of rows fetched from the database at once, 0 to fetch all rows.
+     */
+    protected void findAll(EntityManager em, AbstractAssetQuery query, int fetchSize, Consumer<ServerAsset> consumer) {
 
         // Use a default projection if it's missing
         if (query.select == null)
@@ -532,26 +681,138 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         if (query.orderBy == null && query.id == null)
             query.orderBy = new OrderBy(OrderBy.Property.CREATED_ON);
 
-        PreparedAssetQuery querySql = buildQuery(query);
+        if (query.cursor != null && isNullOrEmpty(query.cursor.id))
+            throw new IllegalStateException("Missing asset identifier of cursor: " + query.cursor);
 
-        return em.unwrap(Session.class).doReturningWork(new AbstractReturningWork<List<ServerAsset>>() {
-            @Override
-            public List<ServerAsset> execute(Connection connection) throws SQLException {
-                LOG.fine("Executing: " + querySql.querySql);
-                PreparedStatement st = connection.prepareStatement(querySql.querySql);
-                querySql.apply(st);
+        PreparedAssetQuery querySql = getPreparedQuery(query);
 
+        em.unwrap(Session.class).doWork(connection -> {
+            LOG.fine("Executing: " + querySql.querySql);
+            try (PreparedStatement st = connection.prepareStatement(querySql.querySql)) {
+                querySql.apply(st, query);
+                // The driver only fetches in batches within a transaction (no auto-commit)
+                st.setFetchSize(fetchSize);
                 try (ResultSet rs = st.executeQuery()) {
-                    List<ServerAsset> result = new ArrayList<>();
                     while (rs.next()) {
-                        result.add(mapResultTuple(query, rs));
+                        consumer.accept(mapResultTuple(query, rs));
                     }
-                    return result;
                 }
             }
         });
     }
 
+    public long getQueryCacheHits() {
+        return queryCacheHits.get();
+    }
+
+    public long getQueryCacheMisses() {
+        return queryCacheMisses.get();
+    }
+
+    /**
+     * @return The SQL of the query from the cache if a query of the same shape was built before.
+     */
+    protected PreparedAssetQuery getPreparedQuery(AbstractAssetQuery query) {
+        if (queryCacheMaxSize <= 0)
+            return buildQuery(query);
+
+        String queryShape = buildQueryShape(query);
+        PreparedAssetQuery preparedQuery = queryCache.get(queryShape);
+        if (preparedQuery != null) {
+            queryCacheHits.incrementAndGet();
+            return preparedQuery;
+        }
+        queryCacheMisses.incrementAndGet();
+        preparedQuery = buildQuery(query);
+        // There are only a few distinct shapes, if the cache is full something unusual is going on, start over
+        if (queryCache.size() >= queryCacheMaxSize) {
+            LOG.fine("Asset query cache is full, clearing: " + queryCache.size());
+            queryCache.clear();
+        }
+        queryCache.put(queryShape, preparedQuery);
+        return preparedQuery;
+    }
+
+    /**
+     * The structure of the query which determines the SQL built by {@link #buildQuery}, without the values which are
+     * bound as parameters. Any query option that changes the SQL must be part of the shape.
+     */
+    protected static String buildQueryShape(AbstractAssetQuery query) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(query.select.include).append(',')
+            .append(query.select.recursive).append(',')
+            .append(query.select.access).append(',')
+            .append(query.select.attributeNames != null ? query.select.attributeNames.length : -1).append(',')
+            .append(query.id != null).append(',');
+        appendPredicateShape(sb, query.namePredicate);
+        if (query.parentPredicate != null) {
+            sb.append("P(")
+                .append(query.parentPredicate.id != null).append(',')
+                .append(query.parentPredicate.type != null).append(',')
+                .append(query.parentPredicate.noParent).append(')');
+        }
+        sb.append(',').append(query.pathPredicate != null && query.pathPredicate.hasPath()).append(',');
+        if (query.tenantPredicate != null) {
+            sb.append("T(")
+                .append(query.tenantPredicate.realmId != null).append(',')
+                .append(query.tenantPredicate.realm != null).append(')');
+        }
+        sb.append(',').append(query.userId != null).append(',');
+        appendPredicateShape(sb, query.type);
+        if (query.attributeMetaPredicates != null) {
+            sb.append("M(");
+            for (AbstractAssetQuery.AttributeMetaPredicate attributeMetaPredicate : query.attributeMetaPredicates) {
+                appendPredicateShape(sb, attributeMetaPredicate.itemNamePredicate);
+                appendPredicateShape(sb, attributeMetaPredicate.itemValuePredicate);
+            }
+            sb.append(')');
+        }
+        if (query.attributePredicates != null) {
+            sb.append("A(");
+            for (AbstractAssetQuery.AttributePredicate attributePredicate : query.attributePredicates) {
+                appendPredicateShape(sb, attributePredicate.name);
+                appendPredicateShape(sb, attributePredicate.value);
+            }
+            sb.append(')');
+        }
+        if (query.orderBy != null) {
+            sb.append("O(").append(query.orderBy.property).append(',').append(query.orderBy.descending).append(')');
+        }
+        sb.append(',').append(query.limit > 0).append(',');
+        if (query.cursor != null) {
+            sb.append("C(").append(query.cursor.value != null).append(')');
+        }
+        return sb.toString();
+    }
+
+    protected static void appendPredicateShape(StringBuilder sb, AbstractAssetQuery.ValuePredicate predicate) {
+        if (predicate == null) {
+            sb.append("-;");
+        } else if (predicate instanceof AbstractAssetQuery.StringPredicate) {
+            AbstractAssetQuery.StringPredicate stringPredicate = (AbstractAssetQuery.StringPredicate) predicate;
+            sb.append("S(").append(stringPredicate.match).append(',').append(stringPredicate.caseSensitive).append(");");
+        } else if (predicate instanceof AbstractAssetQuery.BooleanPredicate) {
+            // The value is part of the SQL
+            sb.append("B(").append(((AbstractAssetQuery.BooleanPredicate) predicate).predicate).append(");");
+        } else if (predicate instanceof AbstractAssetQuery.StringArrayPredicate) {
+            sb.append("SA(");
+            AbstractAssetQuery.StringPredicate[] predicates = ((AbstractAssetQuery.StringArrayPredicate) predicate).predicates;
+            if (predicates != null) {
+                for (AbstractAssetQuery.StringPredicate stringPredicate : predicates) {
+                    appendPredicateShape(sb, stringPredicate);
+                }
+            }
+            sb.append(");");
+        } else if (predicate instanceof AbstractAssetQuery.DateTimePredicate) {
+            sb.append("D(").append(((AbstractAssetQuery.DateTimePredicate) predicate).operatorMatch).append(");");
+        } else if (predicate instanceof AbstractAssetQuery.NumberPredicate) {
+            AbstractAssetQuery.NumberPredicate numberPredicate = (AbstractAssetQuery.NumberPredicate) predicate;
+            sb.append("N(").append(numberPredicate.operatorMatch).append(',').append(numberPredicate.numberType).append(");");
+        } else {
+            sb.append(predicate.getClass().getName()).append(';');
+        }
+    }
+
     protected PreparedAssetQuery buildQuery(AbstractAssetQuery query) {
         LOG.fine("Building: " + query);
         StringBuilder sb = new StringBuilder();
@@ -574,6 +835,11 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         }
 
         sb.append(buildOrderByString(query));
+        if (query.limit > 0 && (query.id == null || query.select.recursive)) {
+            sb.append(" limit ?");
+            final int pos = binders.size() + 1;
+            binders.add((st, q) -> st.setInt(pos, q.limit));
+        }
         return new PreparedAssetQuery(sb.toString(), binders);
     }
 
@@ -673,9 +939,9 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             sb.append(" AND AX.key IN (");
             for (int i = 0; i < attributeNames.length; i++) {
                 sb.append(i == attributeNames.length - 1 ? "?" : "?,");
-                final String attributeName = attributeNames[i];
+                final int index = i;
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, attributeName));
+                binders.add((st, q) -> st.setString(pos, q.select.attributeNames[index]));
             }
             sb.append(") ");
         }
@@ -686,7 +952,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 new AssetQuery.AttributeMetaPredicate()
                     .itemName(access == RESTRICTED_READ ? AssetMeta.ACCESS_RESTRICTED_READ: AssetMeta.ACCESS_PUBLIC_READ)
                     .itemValue(new AssetQuery.BooleanPredicate(true));
-            sb.append(buildAttributeMetaFilter(accessPredicate, binders));
+            sb.append(buildAttributeMetaFilter(accessPredicate, q -> accessPredicate, binders));
         }
 
         sb.append(") AS ATTRIBUTES");
@@ -742,30 +1008,78 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
         if (query.orderBy != null && query.orderBy.property != null) {
             sb.append(" order by ");
-
-            switch (query.orderBy.property) {
-                case CREATED_ON:
-                    sb.append(" A.CREATED_ON ");
-                    break;
-                case ASSET_TYPE:
-                    sb.append(" A.ASSET_TYPE ");
-                    break;
-                case NAME:
-                    sb.append(" A.NAME ");
-                    break;
-                case PARENT_ID:
-                    sb.append(" A.PARENT_ID ");
-                    break;
-                case REALM_ID:
-                    sb.append(" A.REALM_ID ");
-                    break;
+            sb.append(buildOrderByColumn(query, "A"));
+            sb.append(query.orderBy.descending ? " desc" : " asc");
+            if (isPaginated(query)) {
+                // Unique order of pages
+                sb.append(", A.ID");
+                sb.append(query.orderBy.descending ? " desc " : " asc ");
+            } else {
+                sb.append(" ");
             }
-            sb.append(query.orderBy.descending ? "desc " : "asc ");
         }
 
         return sb.toString();
     }
 
+    protected static boolean isPaginated(AbstractAssetQuery query) {
+        return query.limit > 0 || query.cursor != null;
+    }
+
+    protected static String buildOrderByColumn(AbstractAssetQuery query, String alias) {
+        switch (query.orderBy.property) {
+            case CREATED_ON:
+                return alias + ".CREATED_ON";
+            case ASSET_TYPE:
+                return alias + ".ASSET_TYPE";
+            case NAME:
+                return alias + ".NAME";
+            case PARENT_ID:
+                // Root assets have no parent, a null value can't be compared in the keyset condition
+                return isPaginated(query) ? "coalesce(" + alias + ".PARENT_ID, '')" : alias + ".PARENT_ID";
+            case REALM_ID:
+                return alias + ".REALM_ID";
+            default:
+                throw new IllegalStateException("Unsupported order: " + query.orderBy.property);
+        }
+    }
+
+    /**
+     * Only rows after the {@link AbstractAssetQuery#cursor} in order of {@link #buildOrderByString}.
+     */
+    protected String buildCursorFilter(AbstractAssetQuery query, List<ParameterBinder> binders) {
+        AbstractAssetQuery.Cursor cursor = query.cursor;
+        if (cursor == null || query.orderBy == null || query.orderBy.property == null)
+            return "";
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(" and (").append(buildOrderByColumn(query, "A")).append(", A.ID)");
+        sb.append(query.orderBy.descending ? " < (" : " > (");
+        if (cursor.value == null) {
+            sb.append("(select ").append(buildOrderByColumn(query, "CA")).append(" from ASSET CA where CA.ID = ?)");
+            final int pos = binders.size() + 1;
+            binders.add((st, q) -> st.setString(pos, q.cursor.id));
+        } else if (query.orderBy.property == OrderBy.Property.CREATED_ON) {
+            sb.append("?");
+            final int pos = binders.size() + 1;
+            binders.add((st, q) -> {
+                try {
+                    st.setTimestamp(pos, new Timestamp(Long.parseLong(q.cursor.value)));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalStateException("Invalid creation time of cursor: " + q.cursor);
+                }
+            });
+        } else {
+            sb.append("?");
+            final int pos = binders.size() + 1;
+            binders.add((st, q) -> st.setString(pos, q.cursor.value));
+        }
+        sb.append(", ?)");
+        final int pos = binders.size() + 1;
+        binders.add((st, q) -> st.setString(pos, q.cursor.id));
+        return sb.toString();
+    }
+
     protected String buildWhereClause(AbstractAssetQuery query, int level, List<ParameterBinder> binders) {
         // level = 1 is main query
         // level = 2 is union
@@ -781,14 +1095,14 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         if (level == 1 && query.id != null) {
             sb.append(" and A.ID = ?");
             final int pos = binders.size() + 1;
-            binders.add(st -> st.setString(pos, query.id));
+            binders.add((st, q) -> st.setString(pos, q.id));
         }
 
         if (level == 1 && query.namePredicate != null) {
             sb.append(query.namePredicate.caseSensitive ? " and A.NAME " : " and upper(A.NAME)");
             sb.append(query.namePredicate.match == AssetQuery.Match.EXACT ? " = ?" : " like ?");
             final int pos = binders.size() + 1;
-            binders.add(st -> st.setString(pos, query.namePredicate.prepareValue()));
+            binders.add((st, q) -> st.setString(pos, q.namePredicate.prepareValue()));
         }
 
         if (query.parentPredicate != null) {
@@ -797,12 +1111,12 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 sb.append(" and p.ID = a.PARENT_ID");
                 sb.append(" and A.PARENT_ID = ?");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.parentPredicate.id));
+                binders.add((st, q) -> st.setString(pos, q.parentPredicate.id));
             } else if (query.parentPredicate.type != null) {
                 sb.append(" and p.ID = a.PARENT_ID");
                 sb.append(" and P.ASSET_TYPE = ?");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.parentPredicate.type));
+                binders.add((st, q) -> st.setString(pos, q.parentPredicate.type));
             } else if (level == 1 && query.parentPredicate.noParent) {
                 sb.append(" and A.PARENT_ID is null");
             }
@@ -811,40 +1125,47 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         if (level == 1 && query.pathPredicate != null && query.pathPredicate.hasPath()) {
             sb.append(" and ? <@ get_asset_tree_path(A.ID)");
             final int pos = binders.size() + 1;
-            binders.add(st -> st.setArray(pos, st.getConnection().createArrayOf("text", query.pathPredicate.path)));
+            binders.add((st, q) -> st.setArray(pos, st.getConnection().createArrayOf("text", q.pathPredicate.path)));
         }
 
         if (!recursive || level == 3) {
             if (query.tenantPredicate != null && query.tenantPredicate.realmId != null) {
                 sb.append(" and R.ID = ?");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.tenantPredicate.realmId));
+                binders.add((st, q) -> st.setString(pos, q.tenantPredicate.realmId));
             } else if (query.tenantPredicate != null && query.tenantPredicate.realm != null) {
                 sb.append(" and R.NAME = ?");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.tenantPredicate.realm));
+                binders.add((st, q) -> st.setString(pos, q.tenantPredicate.realm));
             }
 
             if (query.userId != null) {
                 sb.append(" and ua.ASSET_ID = a.ID and ua.USER_ID = ?");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.userId));
+                binders.add((st, q) -> st.setString(pos, q.userId));
             }
 
             if (level == 1 && query.select.access == AbstractAssetQuery.Access.PUBLIC_READ) {
                 sb.append(" and A.ACCESS_PUBLIC_READ is true");
             }
 
+            if (query.id == null || recursive) {
+                sb.append(buildCursorFilter(query, binders));
+            }
+
             if (query.type != null) {
                 sb.append(query.type.caseSensitive ? " and A.ASSET_TYPE" : " and upper(A.ASSET_TYPE)");
                 sb.append(query.type.match == AssetQuery.Match.EXACT ? " = ? " : " like ? ");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, query.type.prepareValue()));
+                binders.add((st, q) -> st.setString(pos, q.type.prepareValue()));
             }
 
             if (query.attributeMetaPredicates != null) {
-                for (AbstractAssetQuery.AttributeMetaPredicate attributeMetaPredicate : query.attributeMetaPredicates) {
-                    String attributeMetaFilter = buildAttributeMetaFilter(attributeMetaPredicate, binders);
+                for (int i = 0; i < query.attributeMetaPredicates.length; i++) {
+                    final int index = i;
+                    String attributeMetaFilter = buildAttributeMetaFilter(
+                        query.attributeMetaPredicates[i], q -> q.attributeMetaPredicates[index], binders
+                    );
 
                     if (attributeMetaFilter.length() > 0) {
                         sb.append(" and A.ID in (select A.ID from");
@@ -858,9 +1179,12 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             }
 
             if (query.attributePredicates != null) {
-                for (AssetQuery.AttributePredicate attributePredicate : query.attributePredicates) {
+                for (int i = 0; i < query.attributePredicates.length; i++) {
+                    final int index = i;
                     StringBuilder attributeFilterBuilder = new StringBuilder();
-                    attributeFilterBuilder.append(buildAttributeFilter(attributePredicate, binders));
+                    attributeFilterBuilder.append(buildAttributeFilter(
+                        query.attributePredicates[i], q -> q.attributePredicates[index], binders
+                    ));
 
                     if (attributeFilterBuilder.length() > 0) {
                         sb.append(" and A.ID in (select A.ID from");
@@ -875,7 +1199,13 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return sb.toString();
     }
 
-    protected String buildAttributeMetaFilter(AssetQuery.AttributeMetaPredicate attributeMetaPredicate, List<ParameterBinder> binders) {
+    /**
+     * @param attributeMetaPredicate Determines the filter, the bound values are read from the executed query with the
+     *                               accessor (the same predicate in a query of the same shape).
+     */
+    protected String buildAttributeMetaFilter(AssetQuery.AttributeMetaPredicate attributeMetaPredicate,
+                                              Function<AbstractAssetQuery, AssetQuery.AttributeMetaPredicate> accessor,
+                                              List<ParameterBinder> binders) {
         StringBuilder attributeMetaBuilder = new StringBuilder();
 
         if (attributeMetaPredicate.itemNamePredicate != null) {
@@ -885,7 +1215,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             );
             attributeMetaBuilder.append(attributeMetaPredicate.itemNamePredicate.match == AssetQuery.Match.EXACT ? " = ? " : " like ? ");
             final int pos = binders.size() + 1;
-            binders.add(st -> st.setString(pos, attributeMetaPredicate.itemNamePredicate.prepareValue()));
+            binders.add((st, q) -> st.setString(pos, accessor.apply(q).itemNamePredicate.prepareValue()));
         }
         if (attributeMetaPredicate.itemValuePredicate != null) {
             if (attributeMetaPredicate.itemValuePredicate instanceof AssetQuery.StringPredicate) {
@@ -896,7 +1226,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 );
                 attributeMetaBuilder.append(stringPredicate.match == AssetQuery.Match.EXACT ? " = ? " : " like ? ");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, stringPredicate.prepareValue()));
+                binders.add((st, q) -> st.setString(pos, ((AssetQuery.StringPredicate) accessor.apply(q).itemValuePredicate).prepareValue()));
             } else if (attributeMetaPredicate.itemValuePredicate instanceof AssetQuery.BooleanPredicate) {
                 AssetQuery.BooleanPredicate booleanPredicate = (AssetQuery.BooleanPredicate) attributeMetaPredicate.itemValuePredicate;
                 attributeMetaBuilder.append(" and AM.VALUE #> '{value}' = to_jsonb(")
@@ -911,8 +1241,11 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                         : " and upper(AM.VALUE #> '{value}' ->> " + i + ")"
                     );
                     attributeMetaBuilder.append(stringPredicate.match == AssetQuery.Match.EXACT ? " = ?" : " like ?");
+                    final int index = i;
                     final int pos = binders.size() + 1;
-                    binders.add(st -> st.setString(pos, stringPredicate.prepareValue()));
+                    binders.add((st, q) -> st.setString(pos,
+                        ((AssetQuery.StringArrayPredicate) accessor.apply(q).itemValuePredicate).predicates[index].prepareValue()
+                    ));
                 }
             }
         }
@@ -920,7 +1253,13 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         return attributeMetaBuilder.toString();
     }
 
-    protected String buildAttributeFilter(AssetQuery.AttributePredicate attributePredicate, List<ParameterBinder> binders) {
+    /**
+     * @param attributePredicate Determines the filter, the bound values are read from the executed query with the
+     *                           accessor (the same predicate in a query of the same shape).
+     */
+    protected String buildAttributeFilter(AssetQuery.AttributePredicate attributePredicate,
+                                          Function<AbstractAssetQuery, AssetQuery.AttributePredicate> accessor,
+                                          List<ParameterBinder> binders) {
         StringBuilder attributeBuilder = new StringBuilder();
 
         if (attributePredicate.name != null) {
@@ -930,7 +1269,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
             );
             attributeBuilder.append(attributePredicate.name.match == AssetQuery.Match.EXACT ? " = ? " : " like ? ");
             final int pos = binders.size() + 1;
-            binders.add(st -> st.setString(pos, attributePredicate.name.prepareValue()));
+            binders.add((st, q) -> st.setString(pos, accessor.apply(q).name.prepareValue()));
         }
         if (attributePredicate.value != null) {
             if (attributePredicate.value instanceof AssetQuery.StringPredicate) {
@@ -941,7 +1280,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 );
                 attributeBuilder.append(stringPredicate.match == AssetQuery.Match.EXACT ? " = ? " : " like ? ");
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, stringPredicate.prepareValue()));
+                binders.add((st, q) -> st.setString(pos, ((AssetQuery.StringPredicate) accessor.apply(q).value).prepareValue()));
             } else if (attributePredicate.value instanceof AssetQuery.BooleanPredicate) {
                 AssetQuery.BooleanPredicate booleanPredicate = (AssetQuery.BooleanPredicate) attributePredicate.value;
                 attributeBuilder.append(" and AX.VALUE #> '{value}' = to_jsonb(")
@@ -956,19 +1295,24 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                         : " and upper(AX.VALUE #> '{value}' ->> " + i + ")"
                     );
                     attributeBuilder.append(stringPredicate.match == AssetQuery.Match.EXACT ? " = ?" : " like ?");
+                    final int index = i;
                     final int pos = binders.size() + 1;
-                    binders.add(st -> st.setString(pos, stringPredicate.prepareValue()));
+                    binders.add((st, q) -> st.setString(pos,
+                        ((AssetQuery.StringArrayPredicate) accessor.apply(q).value).predicates[index].prepareValue()
+                    ));
                 }
             } else if (attributePredicate.value instanceof AssetQuery.DateTimePredicate) {
                 AssetQuery.DateTimePredicate dateTimePredicate = (AssetQuery.DateTimePredicate) attributePredicate.value;
+                Function<AbstractAssetQuery, AssetQuery.DateTimePredicate> dateTimeAccessor =
+                    q -> (AssetQuery.DateTimePredicate) accessor.apply(q).value;
                 attributeBuilder.append(" and to_timestamp(AX.VALUE #>> '{value}', ?)");
                 final int keyFormatPos = binders.size() + 1;
-                binders.add(st -> st.setString(keyFormatPos, dateTimePredicate.dateFormat));
+                binders.add((st, q) -> st.setString(keyFormatPos, dateTimeAccessor.apply(q).dateFormat));
 
                 final int pos = binders.size() + 1;
-                binders.add(st -> st.setString(pos, dateTimePredicate.value));
+                binders.add((st, q) -> st.setString(pos, dateTimeAccessor.apply(q).value));
                 final int formatPos = binders.size() + 1;
-                binders.add(st -> st.setString(formatPos, dateTimePredicate.dateFormat));
+                binders.add((st, q) -> st.setString(formatPos, dateTimeAccessor.apply(q).dateFormat));
 
                 switch (dateTimePredicate.operatorMatch) {
                     case EXACT:
@@ -989,13 +1333,15 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                     case BETWEEN:
                         attributeBuilder.append(" BETWEEN to_timestamp(?, ?) AND to_timestamp(?, ?)");
                         final int pos2 = binders.size() + 1;
-                        binders.add(st -> st.setString(pos2, dateTimePredicate.rangeValue));
+                        binders.add((st, q) -> st.setString(pos2, dateTimeAccessor.apply(q).rangeValue));
                         final int formatPos2 = binders.size() + 1;
-                        binders.add(st -> st.setString(formatPos2, dateTimePredicate.dateFormat));
+                        binders.add((st, q) -> st.setString(formatPos2, dateTimeAccessor.apply(q).dateFormat));
                         break;
                 }
             } else if (attributePredicate.value instanceof AssetQuery.NumberPredicate) {
                 AssetQuery.NumberPredicate numberPredicate = (AssetQuery.NumberPredicate) attributePredicate.value;
+                Function<AbstractAssetQuery, AssetQuery.NumberPredicate> numberAccessor =
+                    q -> (AssetQuery.NumberPredicate) accessor.apply(q).value;
                 attributeBuilder.append(" and (AX.VALUE #>> '{value}')::numeric");
                 switch (numberPredicate.operatorMatch) {
                     case EXACT:
@@ -1023,17 +1369,17 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 switch (numberPredicate.numberType) {
                     case DOUBLE:
                     default:
-                        binders.add(st -> st.setDouble(pos, numberPredicate.value));
+                        binders.add((st, q) -> st.setDouble(pos, numberAccessor.apply(q).value));
                         if (numberPredicate.operatorMatch == AbstractAssetQuery.OperatorMatch.BETWEEN) {
                             final int pos2 = binders.size() + 1;
-                            binders.add(st -> st.setDouble(pos, numberPredicate.rangeValue));
+                            binders.add((st, q) -> st.setDouble(pos2, numberAccessor.apply(q).rangeValue));
                         }
                         break;
                     case INTEGER:
-                        binders.add(st -> st.setInt(pos, (int) numberPredicate.value));
+                        binders.add((st, q) -> st.setInt(pos, (int) numberAccessor.apply(q).value));
                         if (numberPredicate.operatorMatch == AbstractAssetQuery.OperatorMatch.BETWEEN) {
                             final int pos2 = binders.size() + 1;
-                            binders.add(st -> st.setInt(pos2, (int) numberPredicate.rangeValue));
+                            binders.add((st, q) -> st.setInt(pos2, (int) numberAccessor.apply(q).rangeValue));
                         }
                         break;
                 }
@@ -1099,7 +1445,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                     PGobject pgJsonValue = new PGobject();
                     pgJsonValue.setType("jsonb");
                     // Careful, do not set Java null (as returned by value.toJson()) here! It will erase your whole SQL column!
-                    pgJsonValue.setValue(value == null ? "null" : value.toJson());
+                    pgJsonValue.setValue(value == null ? "null" : ValueJsonWriter.toJson(value));
                     statement.setObject(2, pgJsonValue);
 
                     // Bind the value timestamp
@@ -1125,21 +1471,56 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
         );
     }
 
-    protected void publishModificationEvents(PersistenceEvent<ServerAsset> persistenceEvent) {
+    protected void invalidateAssetState(PersistenceEvent<ServerAsset> persistenceEvent) {
+        ServerAsset asset = persistenceEvent.getEntity();
+        switch (persistenceEvent.getCause()) {
+            case UPDATE:
+                // Cached descendants hold the parent name and the asset tree path
+                for (String propertyName : new String[]{"name", "parentId", "realmId"}) {
+                    if (!Objects.equals(persistenceEvent.getPreviousState(propertyName), persistenceEvent.getCurrentState(propertyName))) {
+                        assetStateCache.invalidateAll();
+                        return;
+                    }
+                }
+                assetStateCache.invalidate(asset.getId());
+                break;
+            case DELETE:
+                assetStateCache.invalidate(asset.getId());
+                break;
+        }
+    }
+
+    /**
+     * Publish the modification events of a batch of persistence events, an event is only published once even if
+     * several assets of the batch caused it (e.g. new children of the same parent asset).
+     */
+    protected void publishModificationEvents(List<PersistenceEvent<ServerAsset>> persistenceEvents) {
+        Map<List<Object>, AssetTreeModifiedEvent> modificationEvents = new LinkedHashMap<>();
+        for (PersistenceEvent<ServerAsset> persistenceEvent : persistenceEvents) {
+            collectModificationEvents(persistenceEvent, event -> modificationEvents.putIfAbsent(
+                Arrays.asList(event.getRealmId(), event.getAssetId(), event.isTenantModified(), event.isNewAssetChildren()),
+                event
+            ));
+        }
+        modificationEvents.values().forEach(clientEventService::publishEvent);
+    }
+
+    protected void collectModificationEvents(PersistenceEvent<ServerAsset> persistenceEvent,
+                                             Consumer<AssetTreeModifiedEvent> modificationEvents) {
         ServerAsset asset = persistenceEvent.getEntity();
         switch (persistenceEvent.getCause()) {
             case INSERT:
-                clientEventService.publishEvent(
+                modificationEvents.accept(
                     new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getId())
                 );
                 if (asset.getParentId() != null) {
                     // Child asset created
-                    clientEventService.publishEvent(
+                    modificationEvents.accept(
                         new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getParentId(), true)
                     );
                 } else {
                     // Child asset created (root asset)
-                    clientEventService.publishEvent(
+                    modificationEvents.accept(
                         new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), true)
                     );
                 }
@@ -1150,7 +1531,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 String previousName = persistenceEvent.getPreviousState("name");
                 String currentName = persistenceEvent.getCurrentState("name");
                 if (!Objects.equals(previousName, currentName)) {
-                    clientEventService.publishEvent(
+                    modificationEvents.accept(
                         new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getId())
                     );
                     break;
@@ -1160,7 +1541,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 String previousParentId = persistenceEvent.getPreviousState("parentId");
                 String currentParentId = persistenceEvent.getCurrentState("parentId");
                 if (!Objects.equals(previousParentId, currentParentId)) {
-                    clientEventService.publishEvent(
+                    modificationEvents.accept(
                         new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getId())
                     );
                     break;
@@ -1170,7 +1551,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
                 String previousRealmId = persistenceEvent.getPreviousState("realmId");
                 String currentRealmId = persistenceEvent.getCurrentState("realmId");
                 if (!Objects.equals(previousRealmId, currentRealmId)) {
-                    clientEventService.publishEvent(
+                    modificationEvents.accept(
                         new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getId())
                     );
                     break;
@@ -1178,7 +1559,7 @@ public class AssetStorageService extends RouteBuilder implements ContainerServic
 
                 break;
             case DELETE:
-                clientEventService.publishEvent(
+                modificationEvents.accept(
                     new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), asset.getRealmId(), asset.getId())
                 );
                 break;
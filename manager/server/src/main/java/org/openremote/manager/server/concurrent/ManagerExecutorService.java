@@ -19,10 +19,15 @@
  */
 package org.openremote.manager.server.concurrent;
 
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.oio.OioEventLoopGroup;
 import org.openremote.agent.protocol.ProtocolExecutorService;
+import org.openremote.agent.protocol.ProtocolTimer;
 import org.openremote.container.Container;
 import org.openremote.container.concurrent.ContainerExecutor;
 import org.openremote.container.concurrent.ContainerScheduledExecutor;
+import org.openremote.container.concurrent.ContainerThreadFactory;
 
 import java.util.Collection;
 import java.util.List;
@@ -47,8 +52,25 @@ public class ManagerExecutorService implements ProtocolExecutorService {
     public static final String SCHEDULED_TASKS_THREADS_MAX = "SCHEDULED_TASKS_THREADS_MAX";
     public static final int SCHEDULED_TASKS_THREADS_MAX_DEFAULT = Math.max(Runtime.getRuntime().availableProcessors(), 2);
 
+    /**
+     * Threads of the event loop shared by all non-blocking protocol connections (e.g. sockets), each thread
+     * multiplexes many connections.
+     */
+    public static final String PROTOCOL_EVENT_LOOP_THREADS = "PROTOCOL_EVENT_LOOP_THREADS";
+    public static final int PROTOCOL_EVENT_LOOP_THREADS_DEFAULT = Math.max(Runtime.getRuntime().availableProcessors(), 2);
+
+    /**
+     * Resolution of the protocol timer, delayed and cron scheduled tasks expire within one tick of their time.
+     */
+    public static final String PROTOCOL_TIMER_TICK_MILLIS = "PROTOCOL_TIMER_TICK_MILLIS";
+    public static final int PROTOCOL_TIMER_TICK_MILLIS_DEFAULT = 10;
+    public static final int PROTOCOL_TIMER_TICKS_PER_WHEEL = 1024;
+
     protected ExecutorService rulesExecutor;
     protected ScheduledExecutorService scheduledTasksExecutor;
+    protected EventLoopGroup eventLoopGroup;
+    protected EventLoopGroup blockingEventLoopGroup;
+    protected ProtocolTimer timer;
 
     @Override
     public void init(Container container) throws Exception {
@@ -59,6 +81,24 @@ public class ManagerExecutorService implements ProtocolExecutorService {
         int scheduledTasksThreadsMax =
             getInteger(container.getConfig(), SCHEDULED_TASKS_THREADS_MAX, SCHEDULED_TASKS_THREADS_MAX_DEFAULT);
         scheduledTasksExecutor = new ContainerScheduledExecutor("Scheduled task", scheduledTasksThreadsMax);
+
+        int eventLoopThreads =
+            getInteger(container.getConfig(), PROTOCOL_EVENT_LOOP_THREADS, PROTOCOL_EVENT_LOOP_THREADS_DEFAULT);
+        eventLoopGroup = new NioEventLoopGroup(eventLoopThreads, new ContainerThreadFactory("Protocol event loop"));
+        blockingEventLoopGroup = createBlockingEventLoopGroup();
+
+        timer = new ProtocolTimer(
+            new ContainerThreadFactory("Protocol timer"),
+            getInteger(container.getConfig(), PROTOCOL_TIMER_TICK_MILLIS, PROTOCOL_TIMER_TICK_MILLIS_DEFAULT),
+            PROTOCOL_TIMER_TICKS_PER_WHEEL,
+            scheduledTasksExecutor
+        );
+    }
+
+    @SuppressWarnings("deprecation")
+    protected EventLoopGroup createBlockingEventLoopGroup() {
+        // Blocking channels can't be multiplexed, the group reuses the thread of a closed channel
+        return new OioEventLoopGroup(0, new ContainerThreadFactory("Protocol blocking event loop"));
     }
 
     @Override
@@ -67,14 +107,32 @@ public class ManagerExecutorService implements ProtocolExecutorService {
 
     @Override
     public void stop(Container container) throws Exception {
+        timer.stop();
         rulesExecutor.shutdownNow();
         scheduledTasksExecutor.shutdown();
+        eventLoopGroup.shutdownGracefully();
+        blockingEventLoopGroup.shutdownGracefully();
     }
 
     public ExecutorService getRulesExecutor() {
         return rulesExecutor;
     }
 
+    @Override
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    @Override
+    public EventLoopGroup getBlockingEventLoopGroup() {
+        return blockingEventLoopGroup;
+    }
+
+    @Override
+    public ProtocolTimer getTimer() {
+        return timer;
+    }
+
     @Override
     public ScheduledFuture schedule(Runnable runnable, long delayMillis) {
         return scheduledTasksExecutor.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
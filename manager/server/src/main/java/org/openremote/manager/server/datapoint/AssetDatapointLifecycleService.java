@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.server.datapoint;
+
+import org.hibernate.Session;
+import org.openremote.container.Container;
+import org.openremote.container.ContainerService;
+import org.openremote.container.persistence.PersistenceService;
+import org.openremote.container.timer.TimerService;
+import org.openremote.manager.server.concurrent.ManagerExecutorService;
+import org.openremote.model.asset.AssetMeta;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.openremote.container.util.MapAccess.getInteger;
+
+/**
+ * Manages the storage of datapoints over time.
+ * <p>
+ * Datapoints are stored in monthly (UTC) partitions of the ASSET_DATAPOINT table, and aggregated into
+ * minute, hour and day rollups by the database when they are inserted. This service periodically:
+ * <ul>
+ * <li>creates the partitions of the current and next month, so inserts don't have to create them and are
+ * routed with a static insert by the partition trigger</li>
+ * <li>deletes datapoints older than the {@link AssetMeta#DATA_POINTS_MAX_AGE_DAYS} of their attribute</li>
+ * <li>drops partitions with only expired datapoints, this is how old raw data is downsampled: its rollups
+ * are kept, charts are always drawn from rollups</li>
+ * <li>deletes expired minute rollups, hour and day rollups are kept</li>
+ * </ul>
+ */
+public class AssetDatapointLifecycleService implements ContainerService {
+
+    private static final Logger LOG = Logger.getLogger(AssetDatapointLifecycleService.class.getName());
+
+    /**
+     * Maximum age of stored datapoints, partitions with only older datapoints are dropped. Attributes can
+     * keep their datapoints longer with {@link AssetMeta#DATA_POINTS_MAX_AGE_DAYS}, the longest wins. Set to 0
+     * to keep datapoints forever.
+     */
+    public static final String DATAPOINT_MAX_AGE_DAYS = "DATAPOINT_MAX_AGE_DAYS";
+    public static final int DATAPOINT_MAX_AGE_DAYS_DEFAULT = 0;
+
+    /**
+     * Maximum age of minute rollups, set to 0 to keep them forever.
+     */
+    public static final String DATAPOINT_MINUTE_ROLLUP_MAX_AGE_DAYS = "DATAPOINT_MINUTE_ROLLUP_MAX_AGE_DAYS";
+    public static final int DATAPOINT_MINUTE_ROLLUP_MAX_AGE_DAYS_DEFAULT = 0;
+
+    public static final String DATAPOINT_LIFECYCLE_INTERVAL_MINUTES = "DATAPOINT_LIFECYCLE_INTERVAL_MINUTES";
+    public static final int DATAPOINT_LIFECYCLE_INTERVAL_MINUTES_DEFAULT = 60;
+
+    protected static final Pattern PARTITION_NAME_PATTERN = Pattern.compile("^asset_datapoint_p(\\d{6})$");
+    protected static final DateTimeFormatter PARTITION_MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    protected TimerService timerService;
+    protected PersistenceService persistenceService;
+    protected ManagerExecutorService executorService;
+    protected int maxAgeDays;
+    protected int minuteRollupMaxAgeDays;
+    protected int intervalMinutes;
+    protected ScheduledFuture lifecycleFuture;
+
+    @Override
+    public void init(Container container) throws Exception {
+        timerService = container.getService(TimerService.class);
+        persistenceService = container.getService(PersistenceService.class);
+        executorService = container.getService(ManagerExecutorService.class);
+
+        maxAgeDays = getInteger(container.getConfig(), DATAPOINT_MAX_AGE_DAYS, DATAPOINT_MAX_AGE_DAYS_DEFAULT);
+        minuteRollupMaxAgeDays = getInteger(
+            container.getConfig(), DATAPOINT_MINUTE_ROLLUP_MAX_AGE_DAYS, DATAPOINT_MINUTE_ROLLUP_MAX_AGE_DAYS_DEFAULT
+        );
+        intervalMinutes = getInteger(
+            container.getConfig(), DATAPOINT_LIFECYCLE_INTERVAL_MINUTES, DATAPOINT_LIFECYCLE_INTERVAL_MINUTES_DEFAULT
+        );
+    }
+
+    @Override
+    public void start(Container container) throws Exception {
+        // Wait 10 seconds for database (schema) to be ready in dev mode
+        lifecycleFuture = executorService.scheduleWithFixedDelay(
+            this::manageDatapoints, 10 * 1000, TimeUnit.MINUTES.toMillis(intervalMinutes)
+        );
+    }
+
+    @Override
+    public void stop(Container container) throws Exception {
+        if (lifecycleFuture != null) {
+            lifecycleFuture.cancel(true);
+        }
+    }
+
+    public void manageDatapoints() {
+        // Not ready on startup
+        if (persistenceService.getEntityManagerFactory() == null)
+            return;
+        try {
+            long now = timerService.getCurrentTimeMillis();
+            createPartitions(now);
+            int longestAttributeMaxAgeDays = deleteExpiredAttributeDatapoints(now);
+            if (maxAgeDays > 0) {
+                dropExpiredPartitions(now, Math.max(maxAgeDays, longestAttributeMaxAgeDays));
+            }
+            if (minuteRollupMaxAgeDays > 0) {
+                deleteExpiredMinuteRollups(now);
+            }
+        } catch (Exception ex) {
+            // Don't cancel the scheduled task, try again next time
+            LOG.log(Level.WARNING, "Error managing stored datapoints", ex);
+        }
+    }
+
+    protected void createPartitions(long now) {
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("select CREATE_DATAPOINT_PARTITION(?)")) {
+                for (YearMonth month : new YearMonth[]{monthOf(now), monthOf(now).plusMonths(1)}) {
+                    statement.setLong(1, month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+                    statement.executeQuery().close();
+                }
+            }
+        }));
+    }
+
+    /**
+     * @return The longest maximum age of datapoints configured on any attribute.
+     */
+    protected int deleteExpiredAttributeDatapoints(long now) {
+        return persistenceService.doReturningTransaction(em -> em.unwrap(Session.class).doReturningWork(connection -> {
+            int longestMaxAgeDays = 0;
+            int deleted = 0;
+            try (PreparedStatement query = connection.prepareStatement(
+                "select A.ID, AX.KEY, case when jsonb_typeof(M -> 'value') = 'number' then (M ->> 'value') :: numeric end " +
+                    "from ASSET A " +
+                    "cross join jsonb_each(A.ATTRIBUTES) as AX " +
+                    "cross join jsonb_array_elements(case when jsonb_typeof(AX.VALUE -> 'meta') = 'array' then AX.VALUE -> 'meta' else '[]' end) as M " +
+                    "where M ->> 'name' = ? and jsonb_typeof(M -> 'value') = 'number'"
+            ); PreparedStatement delete = connection.prepareStatement(
+                "delete from ASSET_DATAPOINT where ENTITY_ID = ? and ATTRIBUTE_NAME = ? and TIMESTAMP < ?"
+            )) {
+                query.setString(1, AssetMeta.DATA_POINTS_MAX_AGE_DAYS.getUrn());
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        // Any number is accepted, fractions are truncated
+                        double days = rs.getDouble(3);
+                        if (rs.wasNull() || days < 1)
+                            continue;
+                        int attributeMaxAgeDays = (int) Math.min(days, Integer.MAX_VALUE);
+                        longestMaxAgeDays = Math.max(longestMaxAgeDays, attributeMaxAgeDays);
+                        delete.setString(1, rs.getString(1));
+                        delete.setString(2, rs.getString(2));
+                        delete.setLong(3, now - TimeUnit.DAYS.toMillis(attributeMaxAgeDays));
+                        deleted += delete.executeUpdate();
+                    }
+                }
+            }
+            if (deleted > 0) {
+                LOG.fine("Deleted expired datapoints of attributes: " + deleted);
+            }
+            return longestMaxAgeDays;
+        }));
+    }
+
+    protected void dropExpiredPartitions(long now, int partitionMaxAgeDays) {
+        long expiredBefore = now - TimeUnit.DAYS.toMillis(partitionMaxAgeDays);
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            List<String> expiredPartitions = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(
+                     "select C.RELNAME from PG_INHERITS I join PG_CLASS C on C.OID = I.INHRELID " +
+                         "where I.INHPARENT = 'asset_datapoint' :: regclass"
+                 )) {
+                while (rs.next()) {
+                    String partitionName = rs.getString(1);
+                    Matcher matcher = PARTITION_NAME_PATTERN.matcher(partitionName);
+                    if (!matcher.matches())
+                        continue;
+                    long partitionEnd = YearMonth.parse(matcher.group(1), PARTITION_MONTH_FORMAT)
+                        .plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                    if (partitionEnd <= expiredBefore) {
+                        expiredPartitions.add(partitionName);
+                    }
+                }
+            }
+            if (expiredPartitions.isEmpty())
+                return;
+            try (Statement statement = connection.createStatement()) {
+                for (String partitionName : expiredPartitions) {
+                    LOG.info("Dropping expired datapoint partition: " + partitionName);
+                    // Name was validated with pattern
+                    statement.execute("drop table " + partitionName);
+                }
+                // Remove the dropped partitions from the partition trigger
+                statement.execute("select UPDATE_DATAPOINT_PARTITION_ROUTING()");
+            }
+        }));
+    }
+
+    protected void deleteExpiredMinuteRollups(long now) {
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                "delete from ASSET_DATAPOINT_MINUTE where BUCKET < to_timestamp(?)"
+            )) {
+                statement.setLong(1, (now - TimeUnit.DAYS.toMillis(minuteRollupMaxAgeDays)) / 1000);
+                int deleted = statement.executeUpdate();
+                if (deleted > 0) {
+                    LOG.fine("Deleted expired minute rollups: " + deleted);
+                }
+            }
+        }));
+    }
+
+    protected static YearMonth monthOf(long timestamp) {
+        return YearMonth.from(Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "maxAgeDays=" + maxAgeDays +
+            ", minuteRollupMaxAgeDays=" + minuteRollupMaxAgeDays +
+            ", intervalMinutes=" + intervalMinutes +
+            '}';
+    }
+}
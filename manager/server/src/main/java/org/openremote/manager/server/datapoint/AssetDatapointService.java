@@ -4,6 +4,7 @@ import org.hibernate.Session;
 import org.hibernate.jdbc.AbstractReturningWork;
 import org.openremote.container.Container;
 import org.openremote.container.ContainerService;
+import org.openremote.container.json.ValueJsonWriter;
 import org.openremote.container.persistence.PersistenceService;
 import org.openremote.container.timer.TimerService;
 import org.openremote.container.web.WebService;
@@ -17,15 +18,19 @@ import org.openremote.model.datapoint.Datapoint;
 import org.openremote.model.datapoint.DatapointInterval;
 import org.openremote.model.datapoint.NumberDatapoint;
 import org.postgresql.util.PGInterval;
+import org.postgresql.util.PGobject;
 
 import java.sql.*;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
+import static org.openremote.container.util.MapAccess.getInteger;
+
 /**
  * Store and retrieve datapoints for asset attributes.
  */
@@ -33,12 +38,50 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
 
     private static final Logger LOG = Logger.getLogger(AssetDatapointService.class.getName());
 
+    /**
+     * Store datapoints asynchronously in batches, a batch is stored when the flush size has been reached or
+     * after this interval. Set to 0 to store each datapoint immediately in its own transaction.
+     */
+    public static final String DATAPOINT_WRITE_INTERVAL_MILLIS = "DATAPOINT_WRITE_INTERVAL_MILLIS";
+    public static final int DATAPOINT_WRITE_INTERVAL_MILLIS_DEFAULT = 0;
+
+    /**
+     * Maximum number of datapoints stored with a single INSERT.
+     */
+    public static final String DATAPOINT_WRITE_BATCH_SIZE = "DATAPOINT_WRITE_BATCH_SIZE";
+    public static final int DATAPOINT_WRITE_BATCH_SIZE_DEFAULT = 500;
+
+    /**
+     * Maximum number of datapoints waiting to be stored, when reached the asset processing chain is blocked.
+     */
+    public static final String DATAPOINT_WRITE_QUEUE_SIZE = "DATAPOINT_WRITE_QUEUE_SIZE";
+    public static final int DATAPOINT_WRITE_QUEUE_SIZE_DEFAULT = 10000;
+
+    /**
+     * How long the asset processing chain is blocked when the queue is full, the datapoint is dropped afterwards.
+     */
+    public static final String DATAPOINT_WRITE_QUEUE_TIMEOUT_MILLIS = "DATAPOINT_WRITE_QUEUE_TIMEOUT_MILLIS";
+    public static final int DATAPOINT_WRITE_QUEUE_TIMEOUT_MILLIS_DEFAULT = 1000;
+
     protected PersistenceService persistenceService;
+    protected AssetDatapointWriter datapointWriter;
 
     @Override
     public void init(Container container) throws Exception {
         persistenceService = container.getService(PersistenceService.class);
 
+        int writeIntervalMillis =
+            getInteger(container.getConfig(), DATAPOINT_WRITE_INTERVAL_MILLIS, DATAPOINT_WRITE_INTERVAL_MILLIS_DEFAULT);
+        if (writeIntervalMillis > 0) {
+            datapointWriter = new AssetDatapointWriter(
+                this::storeDatapoints,
+                getInteger(container.getConfig(), DATAPOINT_WRITE_QUEUE_SIZE, DATAPOINT_WRITE_QUEUE_SIZE_DEFAULT),
+                getInteger(container.getConfig(), DATAPOINT_WRITE_BATCH_SIZE, DATAPOINT_WRITE_BATCH_SIZE_DEFAULT),
+                writeIntervalMillis,
+                getInteger(container.getConfig(), DATAPOINT_WRITE_QUEUE_TIMEOUT_MILLIS, DATAPOINT_WRITE_QUEUE_TIMEOUT_MILLIS_DEFAULT)
+            );
+        }
+
         container.getService(WebService.class).getApiSingletons().add(
             new AssetDatapointResourceImpl(
                 container.getService(TimerService.class),
@@ -56,6 +99,9 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
 
     @Override
     public void stop(Container container) throws Exception {
+        if (datapointWriter != null) {
+            datapointWriter.close();
+        }
     }
 
     @Override
@@ -65,10 +111,54 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
             && assetState.getAttribute().getStateEvent().isPresent()) {
             LOG.finest("Storing datapoint for: " + assetState);
             AssetDatapoint assetDatapoint = new AssetDatapoint(assetState.getAttribute().getStateEvent().get());
-            persistenceService.doTransaction(entityManager -> entityManager.persist(assetDatapoint));
+            if (datapointWriter != null) {
+                datapointWriter.write(assetDatapoint);
+            } else {
+                storeDatapoints(Collections.singletonList(assetDatapoint));
+            }
         }
     }
 
+    /**
+     * Store datapoints with a single multi-row INSERT in one transaction. The database routes rows to their
+     * time partition and updates the rollups, so this can't be done with JPA (no rows are inserted into the
+     * ASSET_DATAPOINT table itself).
+     * <p>
+     * Datapoints which already exist (same attribute and timestamp) are ignored, the first stored value is
+     * kept. This is deliberate and differs from storing a single datapoint with JPA, which failed with a
+     * constraint violation: A duplicate, e.g. a redelivered sensor value, must not fail the whole batch of
+     * unrelated datapoints. Stored datapoints (and their rollups) are never replaced.
+     */
+    public void storeDatapoints(List<AssetDatapoint> datapoints) {
+        if (datapoints.isEmpty())
+            return;
+        StringBuilder insert = new StringBuilder("insert into ASSET_DATAPOINT (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP, VALUE) values ");
+        for (int i = 0; i < datapoints.size(); i++) {
+            insert.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        insert.append(" on conflict do nothing");
+
+        persistenceService.doTransaction(em -> em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(insert.toString())) {
+                int index = 1;
+                for (AssetDatapoint datapoint : datapoints) {
+                    statement.setString(index++, datapoint.getEntityId());
+                    statement.setString(index++, datapoint.getAttributeName());
+                    statement.setLong(index++, datapoint.getTimestamp());
+                    PGobject pgJsonValue = new PGobject();
+                    pgJsonValue.setType("jsonb");
+                    pgJsonValue.setValue(datapoint.getValue() == null ? "null" : ValueJsonWriter.toJson(datapoint.getValue()));
+                    statement.setObject(index++, pgJsonValue);
+                }
+                statement.executeUpdate();
+            }
+        }));
+    }
+
+    public AssetDatapointWriter getDatapointWriter() {
+        return datapointWriter;
+    }
+
     public List<AssetDatapoint> getDatapoints(AttributeRef attributeRef) {
         return persistenceService.doReturningTransaction(entityManager -> entityManager.createQuery(
             "select dp from AssetDatapoint dp " +
@@ -96,6 +186,7 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
                     String truncateX;
                     String step;
                     String interval;
+                    String rollupTable;
                     Function<Timestamp, String> labelFunction;
 
                     SimpleDateFormat dayFormat = new SimpleDateFormat("dd. MMM yyyy");
@@ -105,71 +196,72 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
                             truncateX = "minute";
                             step = "1 minute";
                             interval = "1 hour";
+                            rollupTable = "ASSET_DATAPOINT_MINUTE";
                             labelFunction = timeFormat::format;
                             break;
                         case DAY:
                             truncateX = "hour";
                             step = "1 hour";
                             interval = "1 day";
+                            rollupTable = "ASSET_DATAPOINT_HOUR";
                             labelFunction = timeFormat::format;
                             break;
                         case WEEK:
                             truncateX = "day";
                             step = "1 day";
                             interval = "7 day";
+                            rollupTable = "ASSET_DATAPOINT_DAY";
                             labelFunction = dayFormat::format;
                             break;
                         case MONTH:
                             truncateX = "day";
                             step = "1 day";
                             interval = "1 month";
+                            rollupTable = "ASSET_DATAPOINT_DAY";
                             labelFunction = dayFormat::format;
                             break;
                         case YEAR:
                             truncateX = "month";
                             step = "1 month";
                             interval = "1 year";
+                            rollupTable = "ASSET_DATAPOINT_DAY";
                             labelFunction = dayFormat::format;
                             break;
                         default:
                             throw new IllegalArgumentException("Can't handle interval: " + datapointInterval);
                     }
 
-                    StringBuilder query = new StringBuilder();
-
-                    query.append("select TS as X, coalesce(AVG_VALUE, null) as Y " +
-                        " from ( " +
-                        "       select date_trunc(?, GS)::timestamp TS " +
-                        "       from generate_series(to_timestamp(?) - ?, to_timestamp(?), ?) GS " +
-                        "       ) TS " +
-                        "  left join ( " +
-                        "       select " +
-                        "           date_trunc(?, to_timestamp(TIMESTAMP / 1000))::timestamp as TS, ");
-
                     switch (attribute.getTypeOrThrow().getValueType()) {
                         case NUMBER:
-                            query.append(" AVG(VALUE::text::numeric) as AVG_VALUE ");
-                            break;
                         case BOOLEAN:
-                            query.append(" AVG(case when VALUE::text::boolean is true then 1 else 0 end) as AVG_VALUE ");
+                            // Booleans are stored as 1 and 0 in the rollup tables
                             break;
                         default:
                             throw new IllegalArgumentException("Can't aggregate number datapoints for type of: " + attribute);
                     }
 
-                    query.append(" from ASSET_DATAPOINT " +
+                    // Read the coarsest rollup that fits the step, combining rollup buckets if they are smaller
+                    String query = "select TS as X, AVG_VALUE as Y " +
+                        " from ( " +
+                        "       select date_trunc(?, GS)::timestamp TS " +
+                        "       from generate_series(to_timestamp(?) - ?, to_timestamp(?), ?) GS " +
+                        "       ) TS " +
+                        "  left join ( " +
+                        "       select " +
+                        "           date_trunc(?, BUCKET)::timestamp as TS, " +
+                        "           sum(SUM_VALUE) / sum(VALUE_COUNT) as AVG_VALUE " +
+                        "         from " + rollupTable +
                         "         where " +
-                        "           to_timestamp(TIMESTAMP / 1000) >= to_timestamp(?) - ? " +
+                        "           ENTITY_ID = ? and ATTRIBUTE_NAME = ? " +
                         "           and " +
-                        "           to_timestamp(TIMESTAMP / 1000) <= to_timestamp(?) " +
+                        "           BUCKET >= date_trunc(?, to_timestamp(?) - ?) " +
                         "           and " +
-                        "           ENTITY_ID = ? and ATTRIBUTE_NAME = ? " +
+                        "           BUCKET <= to_timestamp(?) " +
                         "         group by TS " +
                         "  ) DP using (TS) " +
-                        " order by TS asc "
-                    );
+                        " order by TS asc ";
 
-                    PreparedStatement st = connection.prepareStatement(query.toString());
+                    PreparedStatement st = connection.prepareStatement(query);
 
                     long timestampSeconds = timestamp / 1000;
                     st.setString(1, truncateX);
@@ -178,11 +270,12 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
                     st.setLong(4, timestampSeconds);
                     st.setObject(5, new PGInterval(step));
                     st.setString(6, truncateX);
-                    st.setLong(7, timestampSeconds);
-                    st.setObject(8, new PGInterval(interval));
-                    st.setLong(9, timestampSeconds);
-                    st.setString(10, attributeRef.getEntityId());
-                    st.setString(11, attributeRef.getAttributeName());
+                    st.setString(7, attributeRef.getEntityId());
+                    st.setString(8, attributeRef.getAttributeName());
+                    st.setString(9, truncateX);
+                    st.setLong(10, timestampSeconds);
+                    st.setObject(11, new PGInterval(interval));
+                    st.setLong(12, timestampSeconds);
 
                     try (ResultSet rs = st.executeQuery()) {
                         List<NumberDatapoint> result = new ArrayList<>();
@@ -201,6 +294,7 @@ public class AssetDatapointService implements ContainerService, Consumer<AssetSt
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
+            "datapointWriter=" + datapointWriter +
             '}';
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.server.datapoint;
+
+import org.openremote.container.concurrent.ContainerThreadFactory;
+import org.openremote.model.datapoint.AssetDatapoint;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous storage of {@link AssetDatapoint}s with multi-row inserts.
+ * <p>
+ * Datapoints are added to a bounded queue, a single thread takes them from the queue and stores them when
+ * the flush size has been reached or the flush interval has passed, whichever comes first. All datapoints
+ * of a flush are stored together, see {@link AssetDatapointService#storeDatapoints}.
+ * <p>
+ * When the queue is full, callers are blocked for the configured timeout, slowing down the asset processing
+ * chain. If there is still no capacity after the timeout, the datapoint is dropped. Datapoints of a flush that
+ * can't be stored are logged and dropped as well.
+ */
+public class AssetDatapointWriter {
+
+    private static final Logger LOG = Logger.getLogger(AssetDatapointWriter.class.getName());
+
+    final protected Consumer<List<AssetDatapoint>> store;
+    final protected BlockingQueue<AssetDatapoint> queue;
+    final protected int flushSize;
+    final protected long flushIntervalMillis;
+    final protected long queueTimeoutMillis;
+    final protected ExecutorService executor;
+    protected volatile boolean running = true;
+
+    final protected AtomicLong queued = new AtomicLong();
+    final protected AtomicLong flushed = new AtomicLong();
+    final protected AtomicLong dropped = new AtomicLong();
+    final protected AtomicLong batches = new AtomicLong();
+
+    public AssetDatapointWriter(Consumer<List<AssetDatapoint>> store,
+                                int queueSize,
+                                int flushSize,
+                                long flushIntervalMillis,
+                                long queueTimeoutMillis) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.executor = Executors.newSingleThreadExecutor(new ContainerThreadFactory("Asset datapoint writer"));
+        this.executor.execute(this::drainQueue);
+    }
+
+    /**
+     * @return <code>false</code> if the datapoint was dropped because the queue is full.
+     */
+    public boolean write(AssetDatapoint datapoint) {
+        try {
+            if (queue.offer(datapoint, queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                queued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.incrementAndGet();
+        LOG.warning("Datapoint queue is full, dropping: " + datapoint);
+        return false;
+    }
+
+    /**
+     * Stop accepting datapoints and store all queued datapoints.
+     */
+    public void close() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warning("Timeout waiting for datapoint writer to store queued datapoints");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.info("Datapoint writer statistics: " + this);
+    }
+
+    protected void drainQueue() {
+        List<AssetDatapoint> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < flushSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0)
+                        break;
+                    AssetDatapoint datapoint = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (datapoint == null)
+                        break;
+                    batch.add(datapoint);
+                    queue.drainTo(batch, flushSize - batch.size());
+                }
+            } catch (InterruptedException ex) {
+                queue.drainTo(batch);
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    protected void flush(List<AssetDatapoint> batch) {
+        try {
+            store.accept(batch);
+            batches.incrementAndGet();
+            flushed.addAndGet(batch.size());
+            LOG.finest("Stored datapoints: " + batch.size());
+        } catch (Exception ex) {
+            dropped.addAndGet(batch.size());
+            LOG.log(Level.SEVERE, "Error storing datapoints, dropping: " + batch.size(), ex);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getFlushed() {
+        return flushed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "queueSize=" + getQueueSize() +
+            ", flushSize=" + flushSize +
+            ", flushIntervalMillis=" + flushIntervalMillis +
+            ", queued=" + queued +
+            ", flushed=" + flushed +
+            ", dropped=" + dropped +
+            ", batches=" + batches +
+            '}';
+    }
+}
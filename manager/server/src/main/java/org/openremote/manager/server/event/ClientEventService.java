@@ -30,6 +30,7 @@ import org.openremote.container.timer.TimerService;
 import org.openremote.container.web.socket.WebsocketConstants;
 import org.openremote.manager.server.concurrent.ManagerExecutorService;
 import org.openremote.model.Constants;
+import org.openremote.model.attribute.AttributeEvent;
 import org.openremote.model.event.shared.CancelEventSubscription;
 import org.openremote.model.event.shared.EventSubscription;
 import org.openremote.model.event.shared.SharedEvent;
@@ -37,7 +38,9 @@ import org.openremote.model.event.shared.UnauthorizedEventSubscription;
 import org.openremote.model.syslog.SyslogEvent;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import static org.apache.camel.builder.PredicateBuilder.or;
@@ -107,6 +110,12 @@ public class ClientEventService implements ContainerService {
 
     protected boolean stopped;
 
+    // Fan-out metrics
+    protected final AtomicLong fanOutEvents = new AtomicLong();
+    protected final AtomicLong fanOutRecipients = new AtomicLong();
+    protected final AtomicLong fanOutMaxRecipients = new AtomicLong();
+    protected final AtomicLong fanOutSerializationNanos = new AtomicLong();
+
     @Override
     public void init(Container container) throws Exception {
         timerService = container.getService(TimerService.class);
@@ -186,7 +195,8 @@ public class ClientEventService implements ContainerService {
                     .routeId("ToClientWebsocketEvents")
                     .choice()
                     .when(body().isInstanceOf(SharedEvent.class))
-                    .split(method(eventSubscriptions, "splitForSubscribers"))
+                    .process(ClientEventService.this::prepareFanOut)
+                    .filter(header(WebsocketConstants.SESSION_KEYS).isNotNull())
                     .to("websocket://" + WEBSOCKET_EVENTS)
                     .end();
             }
@@ -201,6 +211,7 @@ public class ClientEventService implements ContainerService {
     @Override
     public void stop(Container container) {
         stopped = true;
+        LOG.info("Stopped client event fan-out: " + this);
     }
 
     public void addSubscriptionAuthorizer(EventSubscriptionAuthorizer authorizer) {
@@ -233,6 +244,59 @@ public class ClientEventService implements ContainerService {
         }
     }
 
+    /**
+     * Serializes the event once and sends the same message to all subscribed sessions, instead of
+     * one message per subscribed session. No message is sent if there are no subscribers.
+     */
+    protected void prepareFanOut(Exchange exchange) throws Exception {
+        SharedEvent event = exchange.getIn().getBody(SharedEvent.class);
+        List<String> sessionKeys = eventSubscriptions.getSubscribedSessionKeys(event);
+        if (sessionKeys.isEmpty())
+            return;
+
+        long start = System.nanoTime();
+        String message = exchange.getContext().getTypeConverter().mandatoryConvertTo(String.class, exchange, event);
+        fanOutSerializationNanos.addAndGet(System.nanoTime() - start);
+        fanOutEvents.incrementAndGet();
+        fanOutRecipients.addAndGet(sessionKeys.size());
+        fanOutMaxRecipients.accumulateAndGet(sessionKeys.size(), Math::max);
+
+        exchange.getIn().setBody(message);
+        exchange.getIn().setHeader(WebsocketConstants.SESSION_KEYS, sessionKeys);
+        if (event instanceof AttributeEvent) {
+            // A newer value of the attribute replaces an older one still queued for a slow client
+            exchange.getIn().setHeader(WebsocketConstants.CONFLATION_KEY, ((AttributeEvent) event).getAttributeRef());
+        }
+    }
+
+    /**
+     * @return The number of events sent to at least one session.
+     */
+    public long getFanOutEvents() {
+        return fanOutEvents.get();
+    }
+
+    /**
+     * @return The number of messages sent to sessions, the sum of the fan-out size of all events.
+     */
+    public long getFanOutRecipients() {
+        return fanOutRecipients.get();
+    }
+
+    public long getFanOutMaxRecipients() {
+        return fanOutMaxRecipients.get();
+    }
+
+    public double getFanOutAverageRecipients() {
+        long events = fanOutEvents.get();
+        return events > 0 ? (double) fanOutRecipients.get() / events : 0;
+    }
+
+    public double getFanOutAverageSerializationMillis() {
+        long events = fanOutEvents.get();
+        return events > 0 ? fanOutSerializationNanos.get() / 1000000d / events : 0;
+    }
+
     public static String getSessionKey(Exchange exchange) {
         return exchange.getIn().getHeader(WebsocketConstants.SESSION_KEY, String.class);
     }
@@ -240,6 +304,10 @@ public class ClientEventService implements ContainerService {
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
+            "fanOutEvents=" + getFanOutEvents() +
+            ", fanOutRecipients=" + getFanOutRecipients() +
+            ", fanOutMaxRecipients=" + getFanOutMaxRecipients() +
+            ", fanOutAverageSerializationMillis=" + getFanOutAverageSerializationMillis() +
             '}';
     }
 
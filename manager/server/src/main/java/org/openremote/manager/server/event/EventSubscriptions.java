@@ -19,21 +19,25 @@
  */
 package org.openremote.manager.server.event;
 
-import org.apache.camel.Exchange;
-import org.apache.camel.Message;
-import org.apache.camel.impl.DefaultMessage;
 import org.openremote.container.timer.TimerService;
-import org.openremote.container.web.socket.WebsocketConstants;
 import org.openremote.manager.server.concurrent.ManagerExecutorService;
+import org.openremote.model.attribute.AttributeEvent;
 import org.openremote.model.event.shared.CancelEventSubscription;
 import org.openremote.model.event.shared.EventSubscription;
 import org.openremote.model.event.shared.SharedEvent;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Manages subscriptions to events for WebSocket sessions.
+ * <p>
+ * Subscriptions are modified while holding the lock of {@link #sessionSubscriptions}, each change also adds or
+ * removes the subscription in the {@link SubscriptionIndex} of its event type. Events are matched without locking
+ * against the concurrent maps of the index. Subscriptions with an {@link AttributeEvent.EntityIdFilter} are indexed
+ * by entity identifier, so matching an event only touches the sessions which might be interested in it.
  */
 public class EventSubscriptions {
 
@@ -42,7 +46,16 @@ public class EventSubscriptions {
     final protected TimerService timerService;
     final protected Map<String, SessionSubscriptions> sessionSubscriptions = new HashMap<>();
 
+    // Subscriptions by event type, modified while holding the lock
+    final protected Map<String, SubscriptionIndex> subscriptionIndex = new ConcurrentHashMap<>();
+
     class SessionSubscriptions extends HashSet<SessionSubscription> {
+        final String sessionKey;
+
+        public SessionSubscriptions(String sessionKey) {
+            this.sessionKey = sessionKey;
+        }
+
         public void removeExpired() {
             removeIf(sessionSubscription -> {
                     boolean expired =
@@ -51,6 +64,7 @@ public class EventSubscriptions {
                             < timerService.getCurrentTimeMillis();
                     if (expired) {
                         LOG.fine("Removing expired; " + sessionSubscription.subscription);
+                        removeFromIndex(sessionSubscription.indexedSubscription);
                     }
                     return expired;
                 }
@@ -59,21 +73,38 @@ public class EventSubscriptions {
 
         public void update(EventSubscription eventSubscription) {
             cancel(eventSubscription.getEventType());
-            add(new SessionSubscription(timerService.getCurrentTimeMillis(), eventSubscription));
+            SessionSubscription sessionSubscription =
+                new SessionSubscription(timerService.getCurrentTimeMillis(), sessionKey, eventSubscription);
+            add(sessionSubscription);
+            addToIndex(sessionSubscription.indexedSubscription);
         }
 
         public void cancel(String eventType) {
-            removeIf(sessionSubscription -> sessionSubscription.subscription.getEventType().equals(eventType));
+            removeIf(sessionSubscription -> {
+                if (!sessionSubscription.subscription.getEventType().equals(eventType))
+                    return false;
+                removeFromIndex(sessionSubscription.indexedSubscription);
+                return true;
+            });
+        }
+
+        public void cancelAll() {
+            for (SessionSubscription sessionSubscription : this) {
+                removeFromIndex(sessionSubscription.indexedSubscription);
+            }
+            clear();
         }
     }
 
     class SessionSubscription {
         final long timestamp;
         final EventSubscription subscription;
+        final IndexedSubscription indexedSubscription;
 
-        public SessionSubscription(long timestamp, EventSubscription subscription) {
+        public SessionSubscription(long timestamp, String sessionKey, EventSubscription subscription) {
             this.timestamp = timestamp;
             this.subscription = subscription;
+            this.indexedSubscription = new IndexedSubscription(sessionKey, subscription);
         }
 
         public boolean matches(SharedEvent event) {
@@ -81,6 +112,86 @@ public class EventSubscriptions {
         }
     }
 
+    /**
+     * A subscription of a session, as stored in the index.
+     */
+    static class IndexedSubscription {
+        final String sessionKey;
+        final EventSubscription subscription;
+        // The entities of an entity filter, null if the subscription can't be indexed by entity
+        final Set<String> entityIds;
+
+        IndexedSubscription(String sessionKey, EventSubscription subscription) {
+            this.sessionKey = sessionKey;
+            this.subscription = subscription;
+            this.entityIds = subscription.getFilter() instanceof AttributeEvent.EntityIdFilter
+                ? new HashSet<>(Arrays.asList(((AttributeEvent.EntityIdFilter) subscription.getFilter()).getEntityId()))
+                : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean matches(SharedEvent event) {
+            return subscription.getFilter() == null || subscription.getFilter().apply(event);
+        }
+    }
+
+    /**
+     * Index of all subscriptions of an event type. A session has at most one subscription per event type, so
+     * subscriptions are stored by session key. The maps are only modified while holding the lock of
+     * {@link #sessionSubscriptions} and can be read concurrently.
+     */
+    static class SubscriptionIndex {
+        // Subscriptions which only match events of these entities
+        final Map<String, Map<String, IndexedSubscription>> byEntityId = new ConcurrentHashMap<>();
+        // Subscriptions which have to be tested for every event
+        final Map<String, IndexedSubscription> unindexed = new ConcurrentHashMap<>();
+
+        void add(IndexedSubscription subscription) {
+            if (subscription.entityIds == null) {
+                unindexed.put(subscription.sessionKey, subscription);
+                return;
+            }
+            for (String entityId : subscription.entityIds) {
+                byEntityId.computeIfAbsent(entityId, id -> new ConcurrentHashMap<>())
+                    .put(subscription.sessionKey, subscription);
+            }
+        }
+
+        void remove(IndexedSubscription subscription) {
+            if (subscription.entityIds == null) {
+                unindexed.remove(subscription.sessionKey, subscription);
+                return;
+            }
+            for (String entityId : subscription.entityIds) {
+                Map<String, IndexedSubscription> entitySubscriptions = byEntityId.get(entityId);
+                if (entitySubscriptions != null) {
+                    entitySubscriptions.remove(subscription.sessionKey, subscription);
+                    if (entitySubscriptions.isEmpty()) {
+                        byEntityId.remove(entityId);
+                    }
+                }
+            }
+        }
+
+        void collectSessionKeys(SharedEvent event, List<String> sessionKeys) {
+            if (event instanceof AttributeEvent && !byEntityId.isEmpty()) {
+                Map<String, IndexedSubscription> entitySubscriptions = byEntityId.get(((AttributeEvent) event).getEntityId());
+                if (entitySubscriptions != null) {
+                    sessionKeys.addAll(entitySubscriptions.keySet());
+                }
+            }
+            for (IndexedSubscription subscription : unindexed.values()) {
+                if (subscription.matches(event)) {
+                    sessionKeys.add(subscription.sessionKey);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return byEntityId.isEmpty() && unindexed.isEmpty();
+        }
+    }
+
     public EventSubscriptions(TimerService timerService, ManagerExecutorService executorService) {
         LOG.info("Starting background task checking for expired event subscriptions from clients");
         this.timerService = timerService;
@@ -98,7 +209,7 @@ public class EventSubscriptions {
             // TODO Check if the user can actually subscribe to the events it wants, how do we do that?
             LOG.fine("For session '" + sessionKey + "', updating: " + subscription);
             SessionSubscriptions sessionSubscriptions =
-                this.sessionSubscriptions.computeIfAbsent(sessionKey, k -> new SessionSubscriptions());
+                this.sessionSubscriptions.computeIfAbsent(sessionKey, SessionSubscriptions::new);
             sessionSubscriptions.update(subscription);
         }
     }
@@ -117,42 +228,49 @@ public class EventSubscriptions {
         synchronized (this.sessionSubscriptions) {
             if (this.sessionSubscriptions.containsKey(sessionKey)) {
                 LOG.fine("Cancelling all subscriptions for session: " + sessionKey);
-                this.sessionSubscriptions.remove(sessionKey);
+                SessionSubscriptions sessionSubscriptions = this.sessionSubscriptions.remove(sessionKey);
+                sessionSubscriptions.cancelAll();
             }
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public <T extends SharedEvent> List<Message> splitForSubscribers(Exchange exchange) {
-        List<Message> messageList = new ArrayList<>();
-        SharedEvent event = exchange.getIn().getBody(SharedEvent.class);
+    /**
+     * @return The keys of all sessions with a subscription matching the event, each key only once.
+     */
+    public List<String> getSubscribedSessionKeys(SharedEvent event) {
+        List<String> sessionKeys = new ArrayList<>();
         if (event == null)
-            return messageList;
+            return sessionKeys;
 
-        Set<Map.Entry<String, SessionSubscriptions>> sessionSubscriptionsSet;
-        synchronized (this.sessionSubscriptions) {
-            sessionSubscriptionsSet = new HashSet<>(sessionSubscriptions.entrySet());
+        SubscriptionIndex index = subscriptionIndex.get(event.getEventType());
+        if (index != null) {
+            index.collectSessionKeys(event, sessionKeys);
         }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Event matches subscriptions of sessions " + sessionKeys + ": " + event);
+        }
+        return sessionKeys;
+    }
 
-        for (Map.Entry<String, SessionSubscriptions> entry : sessionSubscriptionsSet) {
-            String sessionKey = entry.getKey();
-            SessionSubscriptions subscriptions = entry.getValue();
-
-            for (SessionSubscription sessionSubscription : subscriptions) {
-                if (!sessionSubscription.matches(event))
-                    continue;
+    /**
+     * Must be called while holding the lock of {@link #sessionSubscriptions}.
+     */
+    protected void addToIndex(IndexedSubscription subscription) {
+        subscriptionIndex.computeIfAbsent(subscription.subscription.getEventType(), eventType -> new SubscriptionIndex())
+            .add(subscription);
+    }
 
-                if (sessionSubscription.subscription.getFilter() == null
-                    || sessionSubscription.subscription.getFilter().apply(event)) {
-                    LOG.fine("Creating message for subscribed session '" + sessionKey + "': " + event);
-                    Message msg = new DefaultMessage();
-                    msg.setBody(event); // Don't copy the event, use same reference
-                    msg.setHeaders(new HashMap<>(exchange.getIn().getHeaders())); // Copy headers
-                    msg.setHeader(WebsocketConstants.SESSION_KEY, sessionKey);
-                    messageList.add(msg);
-                }
-            }
+    /**
+     * Must be called while holding the lock of {@link #sessionSubscriptions}.
+     */
+    protected void removeFromIndex(IndexedSubscription subscription) {
+        String eventType = subscription.subscription.getEventType();
+        SubscriptionIndex index = subscriptionIndex.get(eventType);
+        if (index == null)
+            return;
+        index.remove(subscription);
+        if (index.isEmpty()) {
+            subscriptionIndex.remove(eventType);
         }
-        return messageList;
     }
-}
\ No newline at end of file
+}
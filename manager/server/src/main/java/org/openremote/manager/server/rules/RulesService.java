@@ -37,6 +37,7 @@ import org.openremote.manager.server.security.ManagerIdentityService;
 import org.openremote.manager.shared.security.Tenant;
 import org.openremote.model.asset.*;
 import org.openremote.model.attribute.AttributeEvent;
+import org.openremote.model.attribute.AttributeRef;
 import org.openremote.model.attribute.AttributeType;
 import org.openremote.model.rules.AssetRuleset;
 import org.openremote.model.rules.GlobalRuleset;
@@ -46,6 +47,9 @@ import org.openremote.model.util.Pair;
 import org.openremote.model.value.ObjectValue;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -72,6 +76,11 @@ import static org.openremote.model.asset.AssetAttribute.getAddedOrModifiedAttrib
  * asset rulesets with same parent asset are not guaranteed also processing order of rulesets
  * with the same scope is not guaranteed)</li>
  * </ol>
+ * <p>
+ * Messages can be processed concurrently: Deployment changes (rulesets, tenants) hold the write lock of
+ * {@link #deploymentLock}, fact updates only hold its read lock. Updates of the same asset attribute are
+ * serialized with a lock striped by {@link AttributeRef}, each {@link RulesEngine} synchronizes its own
+ * knowledge session.
  */
 public class RulesService extends RouteBuilder implements ContainerService, Consumer<AssetState> {
 
@@ -90,16 +99,22 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
     protected AssetStorageService assetStorageService;
     protected NotificationService notificationService;
     protected AssetProcessingService assetProcessingService;
-    protected RulesEngine<GlobalRuleset> globalEngine;
-    protected final Map<String, RulesEngine<TenantRuleset>> tenantEngines = new HashMap<>();
-    protected final Map<String, RulesEngine<AssetRuleset>> assetEngines = new HashMap<>();
-    protected String[] activeTenantIds;
+    protected volatile RulesEngine<GlobalRuleset> globalEngine;
+    protected final Map<String, RulesEngine<TenantRuleset>> tenantEngines = new ConcurrentHashMap<>();
+    protected final Map<String, RulesEngine<AssetRuleset>> assetEngines = new ConcurrentHashMap<>();
+    protected volatile String[] activeTenantIds;
     protected Function<RulesEngine, AgendaEventListener> rulesEngineListeners;
 
-    // Keep global list of asset states that have been pushed to any engines
+    protected final ReadWriteLock deploymentLock = new ReentrantReadWriteLock();
+    protected final Object[] attributeLocks = Stream.generate(Object::new).limit(64).toArray();
+
+    // Keep global map of asset states that have been pushed to any engines
     // The objects are already in memory inside the rule engines but keeping them
     // here means we can quickly insert facts into newly started engines
-    protected List<AssetState> assetStates = new ArrayList<>();
+    protected final Map<AttributeRef, AssetState> assetStates = new ConcurrentHashMap<>();
+
+    // Index of asset states by the identifiers of all assets in their path, for asset rulesets in scope
+    protected final Map<String, Set<AttributeRef>> assetStatesByPath = new ConcurrentHashMap<>();
 
     protected String configEventExpires;
 
@@ -125,8 +140,10 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
             .routeId("RulesetPersistenceChanges")
             .filter(isPersistenceEventForEntityType(Ruleset.class))
             .process(exchange -> {
-                PersistenceEvent persistenceEvent = exchange.getIn().getBody(PersistenceEvent.class);
-                processRulesetChange((Ruleset) persistenceEvent.getEntity(), persistenceEvent.getCause());
+                List<PersistenceEvent<Ruleset>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                persistenceEvents.forEach(persistenceEvent ->
+                    processRulesetChange(persistenceEvent.getEntity(), persistenceEvent.getCause())
+                );
             });
 
         // If any tenant was modified in the database then check its' status and undeploy, deploy or update any
@@ -135,9 +152,10 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
             .routeId("RuleEngineTenantChanges")
             .filter(isPersistenceEventForEntityType(Tenant.class))
             .process(exchange -> {
-                PersistenceEvent persistenceEvent = exchange.getIn().getBody(PersistenceEvent.class);
-                Tenant tenant = (Tenant) persistenceEvent.getEntity();
-                processTenantChange(tenant, persistenceEvent.getCause());
+                List<PersistenceEvent<Tenant>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                persistenceEvents.forEach(persistenceEvent ->
+                    processTenantChange(persistenceEvent.getEntity(), persistenceEvent.getCause())
+                );
             });
 
         // If any asset was modified in the database, detect changed attributes
@@ -145,14 +163,37 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
             .routeId("RuleEngineAssetChanges")
             .filter(isPersistenceEventForEntityType(Asset.class))
             .process(exchange -> {
-                PersistenceEvent persistenceEvent = exchange.getIn().getBody(PersistenceEvent.class);
-                final ServerAsset eventAsset = (ServerAsset) persistenceEvent.getEntity();
-                processAssetChange(eventAsset, persistenceEvent);
+                List<PersistenceEvent<ServerAsset>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                persistenceEvents.forEach(persistenceEvent ->
+                    processAssetChange(persistenceEvent.getEntity(), persistenceEvent)
+                );
             });
     }
 
     @Override
     public void start(Container container) throws Exception {
+        deploymentLock.writeLock().lock();
+        try {
+            deployRulesets();
+        } finally {
+            deploymentLock.writeLock().unlock();
+        }
+
+        LOG.info("Loading all assets with fact attributes to initialize state of rules engines");
+        // Push each rule attribute as an asset update through the rule engine chain
+        // that will ensure the insert only happens to the engines in scope
+        findRuleStateAttributes(pair -> {
+            ServerAsset asset = pair.key;
+            pair.value.forEach(ruleAttribute -> {
+                AssetState assetState = new AssetState(asset, ruleAttribute, AttributeEvent.Source.INTERNAL);
+                // Set the status to completed already so rules cannot interfere with this initial insert
+                assetState.setProcessingStatus(AssetState.ProcessingStatus.COMPLETED);
+                updateAssetState(assetState, true);
+            });
+        });
+    }
+
+    protected void deployRulesets() {
         LOG.info("Deploying global rulesets");
         rulesetStorageService.findEnabledGlobalRulesets().forEach(this::deployGlobalRuleset);
 
@@ -168,39 +209,24 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         LOG.info("Deploying asset rulesets");
         // Group by asset ID then tenant and check tenant is enabled
         deployAssetRulesets(rulesetStorageService.findEnabledAssetRulesets());
-
-        LOG.info("Loading all assets with fact attributes to initialize state of rules engines");
-        Stream<Pair<ServerAsset, Stream<AssetAttribute>>> assetRuleAttributes = findRuleStateAttributes();
-
-        // Push each rule attribute as an asset update through the rule engine chain
-        // that will ensure the insert only happens to the engines in scope
-        assetRuleAttributes
-            .forEach(pair -> {
-                ServerAsset asset = pair.key;
-                pair.value.forEach(ruleAttribute -> {
-                    AssetState assetState = new AssetState(asset, ruleAttribute, AttributeEvent.Source.INTERNAL);
-                    // Set the status to completed already so rules cannot interfere with this initial insert
-                    assetState.setProcessingStatus(AssetState.ProcessingStatus.COMPLETED);
-                    updateAssetState(assetState, true);
-                });
-            });
     }
 
     @Override
     public void stop(Container container) throws Exception {
-        synchronized (assetEngines) {
+        deploymentLock.writeLock().lock();
+        try {
             assetEngines.forEach((assetId, deployment) -> deployment.stop());
             assetEngines.clear();
-        }
 
-        synchronized (tenantEngines) {
             tenantEngines.forEach((realm, deployment) -> deployment.stop());
             tenantEngines.clear();
-        }
 
-        if (globalEngine != null) {
-            globalEngine.stop();
-            globalEngine = null;
+            if (globalEngine != null) {
+                globalEngine.stop();
+                globalEngine = null;
+            }
+        } finally {
+            deploymentLock.writeLock().unlock();
         }
     }
 
@@ -215,7 +241,16 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         }
     }
 
-    protected synchronized void processTenantChange(Tenant tenant, PersistenceEvent.Cause cause) {
+    protected void processTenantChange(Tenant tenant, PersistenceEvent.Cause cause) {
+        deploymentLock.writeLock().lock();
+        try {
+            doProcessTenantChange(tenant, cause);
+        } finally {
+            deploymentLock.writeLock().unlock();
+        }
+    }
+
+    protected void doProcessTenantChange(Tenant tenant, PersistenceEvent.Cause cause) {
         // Check if enabled status has changed
         boolean wasEnabled = Arrays.asList(activeTenantIds).contains(tenant.getId());
         boolean isEnabled = tenant.getEnabled() && cause != PersistenceEvent.Cause.DELETE;
@@ -253,7 +288,12 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         }
     }
 
-    protected synchronized void processAssetChange(ServerAsset asset, PersistenceEvent persistenceEvent) {
+    /**
+     * Facts are updated like in {@link #accept}, holding only the read lock of {@link #deploymentLock} and the
+     * lock of each attribute. Templated rulesets are redeployed afterwards with the write lock, so this must
+     * not be called while holding the read lock.
+     */
+    protected void processAssetChange(ServerAsset asset, PersistenceEvent persistenceEvent) {
 
         // We must load the asset from database (only when required), as the
         // persistence event might not contain a completely loaded asset
@@ -278,7 +318,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
                     // Set the status to completed already so rules cannot interfere with this initial insert
                     assetState.setProcessingStatus(AssetState.ProcessingStatus.COMPLETED);
                     LOG.fine("Asset was persisted (" + persistenceEvent.getCause() + "), inserting fact: " + assetState);
-                    updateAssetState(assetState, true);
+                    updatePersistedAssetState(assetState);
                 });
                 break;
 
@@ -309,8 +349,12 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
                         asset.getId()
                     ).filter(AssetAttribute::isRuleState).collect(Collectors.toList());
 
-                // Retract facts for attributes that are obsolete
+                // Retract facts for attributes that are obsolete, a modified attribute is replaced below instead
+                // of being retracted first, so a concurrent update of its fact is never lost in between
                 getAddedOrModifiedAttributes(newRuleStateAttributes, oldRuleStateAttributes, key -> key.equals(VALUE_TIMESTAMP_FIELD_NAME))
+                    .filter(attribute -> newRuleStateAttributes.stream().noneMatch(
+                        newAttribute -> newAttribute.getName().equals(attribute.getName())
+                    ))
                     .forEach(obsoleteFactAttribute -> {
                         AssetState update = buildAssetState.apply(loadedAsset, obsoleteFactAttribute);
                         LOG.fine("Asset was persisted (" + persistenceEvent.getCause() + "), retracting: " + update);
@@ -324,7 +368,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
                         // Set the status to completed already so rules cannot interfere with this initial insert
                         assetState.setProcessingStatus(AssetState.ProcessingStatus.COMPLETED);
                         LOG.fine("Asset was persisted (" + persistenceEvent.getCause() + "), updating: " + assetState);
-                        updateAssetState(assetState, true);
+                        updatePersistedAssetState(assetState);
                     });
                 break;
 
@@ -385,7 +429,16 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         }
     }
 
-    protected synchronized void processRulesetChange(Ruleset ruleset, PersistenceEvent.Cause cause) {
+    protected void processRulesetChange(Ruleset ruleset, PersistenceEvent.Cause cause) {
+        deploymentLock.writeLock().lock();
+        try {
+            doProcessRulesetChange(ruleset, cause);
+        } finally {
+            deploymentLock.writeLock().unlock();
+        }
+    }
+
+    protected void doProcessRulesetChange(Ruleset ruleset, PersistenceEvent.Cause cause) {
         if (cause == PersistenceEvent.Cause.DELETE || !ruleset.isEnabled()) {
             if (ruleset instanceof GlobalRuleset) {
                 undeployGlobalRuleset((GlobalRuleset) ruleset);
@@ -400,7 +453,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
                 RulesEngine newEngine = deployGlobalRuleset((GlobalRuleset) ruleset);
                 if (newEngine != null) {
                     // Push all existing facts into the engine
-                    assetStates.forEach(newEngine::updateAssetState);
+                    assetStates.values().forEach(newEngine::updateAssetState);
                 }
 
             } else if (ruleset instanceof TenantRuleset) {
@@ -408,7 +461,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
                 RulesEngine newEngine = deployTenantRuleset((TenantRuleset) ruleset);
                 if (newEngine != null) {
                     // Push all existing facts for this tenant into the engine
-                    assetStates.forEach(assetState -> {
+                    assetStates.values().forEach(assetState -> {
                         if (assetState.getRealmId().equals(((TenantRuleset) ruleset).getRealmId())) {
                             newEngine.updateAssetState(assetState);
                         }
@@ -434,7 +487,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
      * Deploy the ruleset into the global engine creating the engine if necessary; if the engine was created then it
      * is returned from the method.
      */
-    protected synchronized RulesEngine<GlobalRuleset> deployGlobalRuleset(GlobalRuleset ruleset) {
+    protected RulesEngine<GlobalRuleset> deployGlobalRuleset(GlobalRuleset ruleset) {
         boolean created = globalEngine == null;
 
         // Global rules have access to everything in the system
@@ -456,7 +509,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         return created ? globalEngine : null;
     }
 
-    protected synchronized void undeployGlobalRuleset(GlobalRuleset ruleset) {
+    protected void undeployGlobalRuleset(GlobalRuleset ruleset) {
         if (globalEngine == null) {
             return;
         }
@@ -468,7 +521,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         }
     }
 
-    protected synchronized RulesEngine<TenantRuleset> deployTenantRuleset(TenantRuleset ruleset) {
+    protected RulesEngine<TenantRuleset> deployTenantRuleset(TenantRuleset ruleset) {
         final boolean[] created = {false};
 
         // Look for existing deployment for this tenant
@@ -493,7 +546,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         return created[0] ? deployment : null;
     }
 
-    protected synchronized void undeployTenantRuleset(TenantRuleset ruleset) {
+    protected void undeployTenantRuleset(TenantRuleset ruleset) {
         RulesEngine<TenantRuleset> deployment = tenantEngines.get(ruleset.getRealmId());
         if (deployment == null) {
             return;
@@ -534,7 +587,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
             });
     }
 
-    protected synchronized RulesEngine<AssetRuleset> deployAssetRuleset(AssetRuleset ruleset) {
+    protected RulesEngine<AssetRuleset> deployAssetRuleset(AssetRuleset ruleset) {
         final boolean[] created = {false};
 
         // Look for existing deployment for this asset
@@ -558,7 +611,7 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         return created[0] ? deployment : null;
     }
 
-    protected synchronized void undeployAssetRuleset(AssetRuleset ruleset) {
+    protected void undeployAssetRuleset(AssetRuleset ruleset) {
         RulesEngine<AssetRuleset> deployment = assetEngines.get(ruleset.getAssetId());
         if (deployment == null) {
             return;
@@ -571,54 +624,89 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         }
     }
 
-    protected synchronized void process(AssetEvent assetEvent) {
+    protected void process(AssetEvent assetEvent) {
         // TODO: implement rules processing error state handling
+        deploymentLock.readLock().lock();
+        try {
+            // Get the chain of rule engines that we need to pass through
+            List<RulesEngine> rulesEngines = getEnginesInScope(assetEvent.getRealmId(), assetEvent.getPathFromRoot());
 
-        // Get the chain of rule engines that we need to pass through
-        List<RulesEngine> rulesEngines = getEnginesInScope(assetEvent.getRealmId(), assetEvent.getPathFromRoot());
-
-        // Check that all engines in the scope are not in ERROR state
-        if (rulesEngines.stream().anyMatch(RulesEngine::isError)) {
-            LOG.severe("At least one rule engine is in an error state so cannot process event:" + assetEvent);
-            return;
-        }
+            // Check that all engines in the scope are not in ERROR state
+            if (rulesEngines.stream().anyMatch(RulesEngine::isError)) {
+                LOG.severe("At least one rule engine is in an error state so cannot process event:" + assetEvent);
+                return;
+            }
 
-        // Pass through each engine and try and insert the fact
-        for (RulesEngine deployment : rulesEngines) {
+            // Pass through each engine and try and insert the fact
+            for (RulesEngine deployment : rulesEngines) {
 
-            // Any exceptions in rule RHS will bubble up and the engine would be marked as in ERROR so future
-            // updates will be blocked
-            String eventExpires = assetEvent.getExpires().orElse(configEventExpires);
-            long expirationOffset = TimeIntervalParser.parseSingle(eventExpires);
+                // Any exceptions in rule RHS will bubble up and the engine would be marked as in ERROR so future
+                // updates will be blocked
+                String eventExpires = assetEvent.getExpires().orElse(configEventExpires);
+                long expirationOffset = TimeIntervalParser.parseSingle(eventExpires);
 
-            deployment.insertAssetEvent(expirationOffset, assetEvent);
+                deployment.insertAssetEvent(expirationOffset, assetEvent);
+            }
+        } finally {
+            deploymentLock.readLock().unlock();
         }
     }
 
-    protected synchronized void updateAssetState(AssetState assetState, boolean skipStatusCheck) {
+    protected void updateAssetState(AssetState assetState, boolean skipStatusCheck) {
         // TODO: implement rules processing error state handling
+        deploymentLock.readLock().lock();
+        try {
+            // Get the chain of rule engines that we need to pass through
+            List<RulesEngine> rulesEngines = getEnginesInScope(assetState.getRealmId(), assetState.getPathFromRoot());
+
+            if (!skipStatusCheck) {
+                // Check that all engines in the scope are not in ERROR state
+                for (RulesEngine rulesEngine : rulesEngines) {
+                    if (rulesEngine.isError()) {
+                        assetState.setProcessingStatus(AssetState.ProcessingStatus.ERROR);
+                        assetState.setError(rulesEngine.getError());
+                        return;
+                    }
+                }
+            }
 
-        // Get the chain of rule engines that we need to pass through
-        List<RulesEngine> rulesEngines = getEnginesInScope(assetState.getRealmId(), assetState.getPathFromRoot());
+            synchronized (getAttributeLock(assetState.getAttributeRef())) {
+                doUpdateAssetState(assetState, rulesEngines);
+            }
+        } finally {
+            deploymentLock.readLock().unlock();
+        }
+    }
 
-        if (!skipStatusCheck) {
-            // Check that all engines in the scope are not in ERROR state
-            for (RulesEngine rulesEngine : rulesEngines) {
-                if (rulesEngine.isError()) {
-                    assetState.setProcessingStatus(AssetState.ProcessingStatus.ERROR);
-                    assetState.setError(rulesEngine.getError());
+    /**
+     * Replaces the fact of an attribute with the state loaded from the database, serialized with {@link #accept}
+     * on the lock of the attribute. The persisted state can be older than the fact inserted by a concurrent
+     * {@link #accept}, the fact is only replaced if its value timestamp is not newer than the persisted one.
+     */
+    protected void updatePersistedAssetState(AssetState assetState) {
+        deploymentLock.readLock().lock();
+        try {
+            List<RulesEngine> rulesEngines = getEnginesInScope(assetState.getRealmId(), assetState.getPathFromRoot());
+
+            synchronized (getAttributeLock(assetState.getAttributeRef())) {
+                AssetState currentAssetState = assetStates.get(assetState.getAttributeRef());
+                if (currentAssetState != null && currentAssetState.getValueTimestamp() > assetState.getValueTimestamp()) {
+                    LOG.fine("Ignoring persisted state, current fact has a newer value: " + assetState);
                     return;
                 }
+                doUpdateAssetState(assetState, rulesEngines);
             }
+        } finally {
+            deploymentLock.readLock().unlock();
         }
+    }
 
-        // Remove any stale fact that has equality with this new one or the attribute ref matches
-        // (this is what rules deployment does also)
-        if (!assetStates.remove(assetState)) {
-            assetStates.removeIf(storedAssetState -> storedAssetState.attributeRefsEqual(assetState));
-        }
-        // Insert the new fact
-        assetStates.add(assetState);
+    /**
+     * Must be called while holding the lock of the attribute.
+     */
+    protected void doUpdateAssetState(AssetState assetState, List<RulesEngine> rulesEngines) {
+        // Replace any stale fact of the attribute (this is what rules deployment does also)
+        storeAssetState(assetState);
 
         // Pass through each engine and try and insert the fact
         for (RulesEngine deployment : rulesEngines) {
@@ -628,28 +716,80 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
     }
 
     protected void retractAssetState(AssetState assetState) {
-        // Get the chain of rule engines that we need to pass through
-        List<RulesEngine> rulesEngines = getEnginesInScope(assetState.getRealmId(), assetState.getPathFromRoot());
+        deploymentLock.readLock().lock();
+        try {
+            // Get the chain of rule engines that we need to pass through
+            List<RulesEngine> rulesEngines = getEnginesInScope(assetState.getRealmId(), assetState.getPathFromRoot());
+
+            if (rulesEngines.size() == 0) {
+                LOG.fine("Ignoring as there are no matching rules engines: " + assetState);
+            }
+
+            synchronized (getAttributeLock(assetState.getAttributeRef())) {
+                removeAssetState(assetState.getAttributeRef());
 
-        if (!assetStates.remove(assetState)) {
-            assetStates.removeIf(storedAssetState -> storedAssetState.attributeRefsEqual(assetState));
+                // Pass through each engine and retract this fact
+                for (RulesEngine deployment : rulesEngines) {
+                    LOG.fine("@@@ On " + deployment + ", retracting: " + assetState);
+                    deployment.retractAssetState(assetState);
+                }
+            }
+        } finally {
+            deploymentLock.readLock().unlock();
+        }
+    }
+
+    protected Object getAttributeLock(AttributeRef attributeRef) {
+        return attributeLocks[Math.floorMod(attributeRef.hashCode(), attributeLocks.length)];
+    }
+
+    /**
+     * Must be called while holding the lock of the attribute.
+     */
+    protected void storeAssetState(AssetState assetState) {
+        AttributeRef attributeRef = assetState.getAttributeRef();
+        AssetState previous = assetStates.put(attributeRef, assetState);
+        if (previous != null && !Arrays.equals(previous.getPathFromRoot(), assetState.getPathFromRoot())) {
+            unindexAssetState(attributeRef, previous.getPathFromRoot());
+        }
+        for (String assetId : assetState.getPathFromRoot()) {
+            assetStatesByPath.compute(assetId, (id, attributeRefs) -> {
+                if (attributeRefs == null) {
+                    attributeRefs = ConcurrentHashMap.newKeySet();
+                }
+                attributeRefs.add(attributeRef);
+                return attributeRefs;
+            });
         }
+    }
 
-        if (rulesEngines.size() == 0) {
-            LOG.fine("Ignoring as there are no matching rules engines: " + assetState);
+    /**
+     * Must be called while holding the lock of the attribute.
+     */
+    protected void removeAssetState(AttributeRef attributeRef) {
+        AssetState previous = assetStates.remove(attributeRef);
+        if (previous != null) {
+            unindexAssetState(attributeRef, previous.getPathFromRoot());
         }
+    }
 
-        // Pass through each engine and retract this fact
-        for (RulesEngine deployment : rulesEngines) {
-            LOG.fine("@@@ On " + deployment + ", retracting: " + assetState);
-            deployment.retractAssetState(assetState);
+    protected void unindexAssetState(AttributeRef attributeRef, String[] pathFromRoot) {
+        for (String assetId : pathFromRoot) {
+            assetStatesByPath.computeIfPresent(assetId, (id, attributeRefs) -> {
+                attributeRefs.remove(attributeRef);
+                return attributeRefs.isEmpty() ? null : attributeRefs;
+            });
         }
     }
 
     protected List<AssetState> getAssetStatesInScope(String assetId) {
-        return assetStates
+        Set<AttributeRef> attributeRefs = assetStatesByPath.get(assetId);
+        if (attributeRefs == null)
+            return Collections.emptyList();
+        return attributeRefs
             .stream()
-            .filter(assetState -> Arrays.asList(assetState.getPathFromRoot()).contains(assetId))
+            .map(assetStates::get)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
     }
 
@@ -680,20 +820,17 @@ public class RulesService extends RouteBuilder implements ContainerService, Cons
         return rulesEngines;
     }
 
-    protected Stream<Pair<ServerAsset, Stream<AssetAttribute>>> findRuleStateAttributes() {
-        List<ServerAsset> assets = assetStorageService.findAll(
+    protected void findRuleStateAttributes(Consumer<Pair<ServerAsset, Stream<AssetAttribute>>> consumer) {
+        assetStorageService.streamAll(
             new AssetQuery()
                 .select(new AssetQuery.Select(AssetQuery.Include.ALL))
                 .attributeMeta(
                     new AssetQuery.AttributeMetaPredicate(
                         AssetMeta.RULE_STATE,
                         new AssetQuery.BooleanPredicate(true))
-                ));
-
-        return assets.stream()
-            .map((ServerAsset asset) ->
-                new Pair<>(asset, asset.getAttributesStream().filter(AssetAttribute::isRuleState))
-            );
+                ),
+            asset -> consumer.accept(new Pair<>(asset, asset.getAttributesStream().filter(AssetAttribute::isRuleState)))
+        );
     }
 
     @Override
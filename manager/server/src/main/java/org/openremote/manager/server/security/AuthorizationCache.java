@@ -0,0 +1,291 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.server.security;
+
+import org.openremote.manager.shared.security.Tenant;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Caches the database lookups of per-event authorization checks: whether a user is restricted, whether an asset
+ * is linked to a user, and the tenant of a realm (its activity is evaluated on every check, as it depends on the
+ * current time).
+ * <p>
+ * Entries expire after a bounded time to live, so changes not announced with persistence events (e.g. in the
+ * Keycloak admin console) are eventually visible. Announced changes of {@link UserConfiguration},
+ * {@link org.openremote.model.asset.UserAsset}, and {@link Tenant} invalidate entries immediately. Like in
+ * {@link org.openremote.manager.server.asset.AssetStateCache}, every invalidation increments a generation
+ * counter; a loaded value is only cached if the generation didn't change during the load.
+ * <p>
+ * When a cache reaches its maximum size, expired entries are removed, and if that is not enough, all entries.
+ */
+public class AuthorizationCache {
+
+    private static final Logger LOG = Logger.getLogger(AuthorizationCache.class.getName());
+
+    protected static class Entry<V> {
+        final V value;
+        final long expiresMillis;
+
+        public Entry(V value, long expiresMillis) {
+            this.value = value;
+            this.expiresMillis = expiresMillis;
+        }
+    }
+
+    protected static class UserAssetKey {
+        final String userId;
+        final String assetId;
+
+        public UserAssetKey(String userId, String assetId) {
+            this.userId = userId;
+            this.assetId = assetId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof UserAssetKey))
+                return false;
+            UserAssetKey that = (UserAssetKey) o;
+            return Objects.equals(userId, that.userId) && Objects.equals(assetId, that.assetId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(userId) + Objects.hashCode(assetId);
+        }
+    }
+
+    final protected int maxSize;
+    final protected long timeToLiveMillis;
+    final protected LongSupplier clock;
+    final protected AtomicLong generation = new AtomicLong();
+
+    final protected Map<String, Entry<Boolean>> restrictedUsers = new ConcurrentHashMap<>();
+    final protected Map<UserAssetKey, Entry<Boolean>> userAssets = new ConcurrentHashMap<>();
+    final protected Map<String, Entry<Tenant>> tenants = new ConcurrentHashMap<>();
+
+    final protected AtomicLong restrictedUserHits = new AtomicLong();
+    final protected AtomicLong restrictedUserMisses = new AtomicLong();
+    final protected AtomicLong userAssetHits = new AtomicLong();
+    final protected AtomicLong userAssetMisses = new AtomicLong();
+    final protected AtomicLong tenantHits = new AtomicLong();
+    final protected AtomicLong tenantMisses = new AtomicLong();
+    final protected AtomicLong evictions = new AtomicLong();
+    final protected AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param clock Current time in milliseconds, for expiry and tenant activity.
+     */
+    public AuthorizationCache(int maxSize, long timeToLiveMillis, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && timeToLiveMillis > 0;
+    }
+
+    public boolean isRestrictedUser(String userId, Function<String, Boolean> loader) {
+        return get(restrictedUsers, userId, loader, restrictedUserHits, restrictedUserMisses);
+    }
+
+    public boolean isUserAsset(String userId, String assetId, BiFunction<String, String, Boolean> loader) {
+        return get(
+            userAssets,
+            new UserAssetKey(userId, assetId),
+            key -> loader.apply(key.userId, key.assetId),
+            userAssetHits,
+            userAssetMisses
+        );
+    }
+
+    public boolean isActiveTenant(String realmId, Function<String, Tenant> loader) {
+        Tenant tenant = get(tenants, realmId, loader, tenantHits, tenantMisses);
+        return tenant != null && tenant.isActive(clock.getAsLong());
+    }
+
+    protected <K, V> V get(Map<K, Entry<V>> entries, K key, Function<K, V> loader, AtomicLong hits, AtomicLong misses) {
+        if (!isEnabled())
+            return loader.apply(key);
+
+        long now = clock.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresMillis > now) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        misses.incrementAndGet();
+
+        long loadGeneration = generation.get();
+        V value = loader.apply(key);
+        if (generation.get() == loadGeneration) {
+            if (entries.size() >= maxSize) {
+                evict(entries, now);
+            }
+            Entry<V> loaded = new Entry<>(value, now + timeToLiveMillis);
+            entries.put(key, loaded);
+            // Invalidated while it was added, an invalidation increments the generation before removing entries
+            if (generation.get() != loadGeneration) {
+                entries.remove(key, loaded);
+            }
+        }
+        return value;
+    }
+
+    protected <K, V> void evict(Map<K, Entry<V>> entries, long now) {
+        int size = entries.size();
+        entries.values().removeIf(entry -> entry.expiresMillis <= now);
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        evictions.addAndGet(Math.max(0, size - entries.size()));
+    }
+
+    public void invalidateRestrictedUser(String userId) {
+        generation.incrementAndGet();
+        if (restrictedUsers.remove(userId) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public void invalidateUserAssets(String userId) {
+        generation.incrementAndGet();
+        removeUserAssets(key -> key.userId.equals(userId));
+    }
+
+    /**
+     * Removes the cached links of all users to the asset.
+     */
+    public void invalidateAsset(String assetId) {
+        generation.incrementAndGet();
+        removeUserAssets(key -> key.assetId.equals(assetId));
+    }
+
+    /**
+     * @param realmId Invalidates all tenants if <code>null</code> (e.g. a new tenant without identifier).
+     */
+    public void invalidateTenant(String realmId) {
+        generation.incrementAndGet();
+        if (realmId == null) {
+            invalidations.addAndGet(tenants.size());
+            tenants.clear();
+        } else if (tenants.remove(realmId) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.addAndGet(restrictedUsers.size() + userAssets.size() + tenants.size());
+        restrictedUsers.clear();
+        userAssets.clear();
+        tenants.clear();
+        LOG.fine("Invalidated all cached authorization decisions");
+    }
+
+    protected void removeUserAssets(Predicate<UserAssetKey> predicate) {
+        userAssets.keySet().removeIf(key -> {
+            if (predicate.test(key)) {
+                invalidations.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public int getSize() {
+        return restrictedUsers.size() + userAssets.size() + tenants.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public long getHits() {
+        return restrictedUserHits.get() + userAssetHits.get() + tenantHits.get();
+    }
+
+    public long getMisses() {
+        return restrictedUserMisses.get() + userAssetMisses.get() + tenantMisses.get();
+    }
+
+    /**
+     * @return The ratio of checks answered from the cache, 0 if there were no checks.
+     */
+    public double getHitRate() {
+        return hitRate(getHits(), getMisses());
+    }
+
+    public double getRestrictedUserHitRate() {
+        return hitRate(restrictedUserHits.get(), restrictedUserMisses.get());
+    }
+
+    public double getUserAssetHitRate() {
+        return hitRate(userAssetHits.get(), userAssetMisses.get());
+    }
+
+    public double getTenantHitRate() {
+        return hitRate(tenantHits.get(), tenantMisses.get());
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    protected static double hitRate(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "size=" + getSize() +
+            ", maxSize=" + maxSize +
+            ", timeToLiveMillis=" + timeToLiveMillis +
+            ", restrictedUserHitRate=" + String.format("%.3f", getRestrictedUserHitRate()) +
+            ", userAssetHitRate=" + String.format("%.3f", getUserAssetHitRate()) +
+            ", tenantHitRate=" + String.format("%.3f", getTenantHitRate()) +
+            ", hits=" + getHits() +
+            ", misses=" + getMisses() +
+            ", evictions=" + getEvictions() +
+            ", invalidations=" + getInvalidations() +
+            '}';
+    }
+}
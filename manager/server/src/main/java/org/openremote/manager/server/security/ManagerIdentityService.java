@@ -19,22 +19,54 @@
  */
 package org.openremote.manager.server.security;
 
+import org.apache.camel.builder.RouteBuilder;
 import org.openremote.container.Container;
+import org.openremote.container.message.MessageBrokerSetupService;
+import org.openremote.container.persistence.PersistenceEvent;
 import org.openremote.container.security.IdentityService;
 import org.openremote.container.timer.TimerService;
 import org.openremote.container.web.WebService;
+import org.openremote.manager.server.asset.ServerAsset;
+import org.openremote.manager.shared.security.Tenant;
+import org.openremote.model.asset.UserAsset;
 
+import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
 
+import static org.openremote.container.persistence.PersistenceEvent.PERSISTENCE_TOPIC;
+import static org.openremote.container.util.MapAccess.getInteger;
+
 public class ManagerIdentityService extends IdentityService {
 
     private static final Logger LOG = Logger.getLogger(ManagerIdentityService.class.getName());
 
+    /**
+     * Maximum number of cached restricted user flags, user asset links, and tenants (each), set to 0 to disable
+     * the authorization cache.
+     */
+    public static final String AUTHORIZATION_CACHE_MAX_SIZE = "AUTHORIZATION_CACHE_MAX_SIZE";
+    public static final int AUTHORIZATION_CACHE_MAX_SIZE_DEFAULT = 10000;
+
+    /**
+     * How long cached authorization decisions are used, changes made outside of this service (e.g. in the
+     * Keycloak admin console) are visible after this time.
+     */
+    public static final String AUTHORIZATION_CACHE_TTL_MILLIS = "AUTHORIZATION_CACHE_TTL_MILLIS";
+    public static final int AUTHORIZATION_CACHE_TTL_MILLIS_DEFAULT = 60000;
+
     protected ManagerIdentityProvider identityProvider;
+    protected AuthorizationCache authorizationCache;
 
     @Override
     public void init(Container container) throws Exception {
+        TimerService timerService = container.getService(TimerService.class);
+        authorizationCache = new AuthorizationCache(
+            getInteger(container.getConfig(), AUTHORIZATION_CACHE_MAX_SIZE, AUTHORIZATION_CACHE_MAX_SIZE_DEFAULT),
+            getInteger(container.getConfig(), AUTHORIZATION_CACHE_TTL_MILLIS, AUTHORIZATION_CACHE_TTL_MILLIS_DEFAULT),
+            timerService::getCurrentTimeMillis
+        );
+
         super.init(container);
 
         container.getService(WebService.class).getApiSingletons().add(
@@ -44,19 +76,59 @@ public class ManagerIdentityService extends IdentityService {
             new UserResourceImpl(container.getService(TimerService.class), this)
         );
 
+        container.getService(MessageBrokerSetupService.class).getContext().addRoutes(new RouteBuilder() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void configure() throws Exception {
+                from(PERSISTENCE_TOPIC)
+                    .routeId("AuthorizationCacheChanges")
+                    .process(exchange -> {
+                        Class<?> entityType = exchange.getIn().getHeader(PersistenceEvent.HEADER_ENTITY_TYPE, Class.class);
+                        List<PersistenceEvent<Object>> persistenceEvents = PersistenceEvent.getPersistenceEvents(exchange);
+                        for (PersistenceEvent<Object> persistenceEvent : persistenceEvents) {
+                            if (UserConfiguration.class.isAssignableFrom(entityType)) {
+                                authorizationCache.invalidateRestrictedUser(
+                                    ((UserConfiguration) persistenceEvent.getEntity()).getUserId()
+                                );
+                            } else if (UserAsset.class.isAssignableFrom(entityType)) {
+                                authorizationCache.invalidateUserAssets(
+                                    ((UserAsset) persistenceEvent.getEntity()).getId().getUserId()
+                                );
+                            } else if (Tenant.class.isAssignableFrom(entityType)) {
+                                authorizationCache.invalidateTenant(((Tenant) persistenceEvent.getEntity()).getId());
+                            } else if (ServerAsset.class.isAssignableFrom(entityType)
+                                && persistenceEvent.getCause() == PersistenceEvent.Cause.DELETE) {
+                                // User asset links are deleted by the database
+                                authorizationCache.invalidateAsset(((ServerAsset) persistenceEvent.getEntity()).getId());
+                            }
+                        }
+                    });
+            }
+        });
+    }
+
+    @Override
+    public void stop(Container container) throws Exception {
+        super.stop(container);
+        LOG.info("Authorization cache statistics: " + authorizationCache);
+        authorizationCache.invalidateAll();
     }
 
     public ManagerIdentityProvider getIdentityProvider() {
         return identityProvider;
     }
 
+    public AuthorizationCache getAuthorizationCache() {
+        return authorizationCache;
+    }
+
     @Override
     public ManagerIdentityProvider createIdentityProvider(Container container, String identityProviderType) {
         if (identityProvider == null) {
             switch (identityProviderType.toLowerCase(Locale.ROOT)) {
                 case "keycloak":
                     LOG.info("Enabling Keycloak identity provider");
-                    this.identityProvider = new ManagerKeycloakIdentityProvider(getExternalServerUri(), container);
+                    this.identityProvider = new ManagerKeycloakIdentityProvider(getExternalServerUri(), container, authorizationCache);
                     break;
                 case "basic":
                     LOG.info("Enabling basic identity provider");
@@ -73,6 +145,7 @@ public class ManagerIdentityService extends IdentityService {
     public String toString() {
         return getClass().getSimpleName() + "{" +
             "identityProvider=" + identityProvider +
+            ", authorizationCache=" + authorizationCache +
             '}';
     }
 }
@@ -19,14 +19,12 @@
  */
 package org.openremote.manager.server.security;
 
-import org.apache.camel.ExchangePattern;
 import org.keycloak.admin.client.resource.ClientResource;
 import org.keycloak.admin.client.resource.ClientsResource;
 import org.keycloak.admin.client.resource.RoleMappingResource;
 import org.keycloak.admin.client.resource.RolesResource;
 import org.keycloak.representations.idm.*;
 import org.openremote.container.Container;
-import org.openremote.container.message.MessageBrokerService;
 import org.openremote.container.persistence.PersistenceEvent;
 import org.openremote.container.persistence.PersistenceService;
 import org.openremote.container.security.AuthContext;
@@ -45,6 +43,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -58,17 +57,17 @@ public class ManagerKeycloakIdentityProvider extends KeycloakIdentityProvider im
     final boolean devMode;
     final protected PersistenceService persistenceService;
     final protected TimerService timerService;
-    final protected MessageBrokerService messageBrokerService;
     final protected ClientEventService clientEventService;
+    final protected AuthorizationCache authorizationCache;
 
-    public ManagerKeycloakIdentityProvider(UriBuilder externalServerUri, Container container) {
+    public ManagerKeycloakIdentityProvider(UriBuilder externalServerUri, Container container, AuthorizationCache authorizationCache) {
         super(KEYCLOAK_CLIENT_ID, externalServerUri, container);
 
         this.devMode = container.isDevMode();
         this.timerService = container.getService(TimerService.class);
         this.persistenceService = container.getService(PersistenceService.class);
-        this.messageBrokerService = container.getService(MessageBrokerService.class);
         this.clientEventService = container.getService(ClientEventService.class);
+        this.authorizationCache = authorizationCache;
 
         enableAuthProxy(container.getService(WebService.class));
     }
@@ -336,16 +335,15 @@ public class ManagerKeycloakIdentityProvider extends KeycloakIdentityProvider im
 
     @Override
     public boolean isActiveTenant(String realmId) {
-        return persistenceService.doReturningTransaction(em -> {
-            Tenant tenant = em.find(Tenant.class, realmId);
-            return tenant != null && tenant.isActive(timerService.getCurrentTimeMillis());
-        });
+        return authorizationCache.isActiveTenant(realmId, this::getTenantForRealmId);
     }
 
     @Override
     public boolean isRestrictedUser(String userId) {
-        UserConfiguration userConfiguration = persistenceService.doReturningTransaction(em -> em.find(UserConfiguration.class, userId));
-        return userConfiguration != null && userConfiguration.isRestricted();
+        return authorizationCache.isRestrictedUser(userId, id -> {
+            UserConfiguration userConfiguration = persistenceService.doReturningTransaction(em -> em.find(UserConfiguration.class, id));
+            return userConfiguration != null && userConfiguration.isRestricted();
+        });
     }
 
     @Override
@@ -429,16 +427,15 @@ public class ManagerKeycloakIdentityProvider extends KeycloakIdentityProvider im
     }
 
     protected void publishModification(PersistenceEvent.Cause cause, Tenant tenant) {
+        // Don't wait for the persistence event, the caller might immediately use the tenant
+        authorizationCache.invalidateTenant(tenant.getId());
+
         // Fire persistence event although we don't use database for Tenant CUD but call Keycloak API
         PersistenceEvent persistenceEvent = new PersistenceEvent<>(cause, tenant, new String[0], null);
 
-        messageBrokerService.getProducerTemplate().sendBodyAndHeader(
-            PersistenceEvent.PERSISTENCE_TOPIC,
-            ExchangePattern.InOnly,
-            persistenceEvent,
-            PersistenceEvent.HEADER_ENTITY_TYPE,
-            persistenceEvent.getEntity().getClass()
-        );
+        if (persistenceService.getEventPublisher() != null) {
+            persistenceService.getEventPublisher().publish(Collections.singletonList(persistenceEvent));
+        }
 
         clientEventService.publishEvent(
             new AssetTreeModifiedEvent(timerService.getCurrentTimeMillis(), tenant.getId(), null)
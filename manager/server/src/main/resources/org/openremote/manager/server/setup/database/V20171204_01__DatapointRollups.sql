@@ -0,0 +1,163 @@
+/*
+  ############################# TABLES #############################
+
+  Pre-aggregated datapoints of number and boolean attributes (booleans as 1 and 0), one row
+  per attribute and minute, hour, or day bucket. The average is SUM_VALUE / VALUE_COUNT, so
+  rollups can be combined into coarser buckets without losing precision.
+ */
+
+create table ASSET_DATAPOINT_MINUTE (
+  ENTITY_ID      varchar(36)              not null,
+  ATTRIBUTE_NAME varchar(255)             not null,
+  BUCKET         timestamp with time zone not null,
+  MIN_VALUE      numeric                  not null,
+  MAX_VALUE      numeric                  not null,
+  SUM_VALUE      numeric                  not null,
+  VALUE_COUNT    int8                     not null,
+  LAST_VALUE     numeric                  not null,
+  LAST_TIMESTAMP int8                     not null,
+  primary key (ENTITY_ID, ATTRIBUTE_NAME, BUCKET)
+);
+
+create table ASSET_DATAPOINT_HOUR (like ASSET_DATAPOINT_MINUTE including all);
+
+create table ASSET_DATAPOINT_DAY (like ASSET_DATAPOINT_MINUTE including all);
+
+/*
+  ############################# FUNCTIONS #############################
+ */
+create or replace function DATAPOINT_NUMERIC_VALUE(VALUE jsonb)
+  returns numeric as
+$$
+begin
+  case jsonb_typeof(VALUE)
+    when 'number'
+    then return VALUE :: text :: numeric;
+    when 'boolean'
+    then return case when VALUE :: text :: boolean is true then 1 else 0 end;
+    else return null;
+  end case;
+end;
+$$
+language plpgsql immutable;
+
+create or replace function UPDATE_DATAPOINT_ROLLUPS()
+  returns trigger as
+$$
+declare
+  NUMERIC_VALUE numeric := DATAPOINT_NUMERIC_VALUE(NEW.VALUE);
+  TS            timestamp with time zone := to_timestamp(NEW.TIMESTAMP / 1000);
+begin
+  if NUMERIC_VALUE is null
+  then
+    return null;
+  end if;
+
+  insert into ASSET_DATAPOINT_MINUTE as R values (
+    NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, date_trunc('minute', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, NEW.TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+
+  insert into ASSET_DATAPOINT_HOUR as R values (
+    NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, date_trunc('hour', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, NEW.TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+
+  insert into ASSET_DATAPOINT_DAY as R values (
+    NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, date_trunc('day', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, NEW.TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+
+  return null;
+end;
+$$
+language plpgsql;
+
+/*
+  ############################# TRIGGERS #############################
+ */
+
+create trigger ASSET_DATAPOINT_ROLLUPS
+after insert on ASSET_DATAPOINT
+for each row execute procedure UPDATE_DATAPOINT_ROLLUPS();
+
+/*
+  ############################# CONSTRAINTS #############################
+ */
+
+alter table ASSET_DATAPOINT_MINUTE
+  add foreign key (ENTITY_ID) references ASSET (ID) on delete cascade;
+
+alter table ASSET_DATAPOINT_HOUR
+  add foreign key (ENTITY_ID) references ASSET (ID) on delete cascade;
+
+alter table ASSET_DATAPOINT_DAY
+  add foreign key (ENTITY_ID) references ASSET (ID) on delete cascade;
+
+/*
+  ############################# DATA #############################
+ */
+
+insert into ASSET_DATAPOINT_MINUTE
+  select
+    ENTITY_ID,
+    ATTRIBUTE_NAME,
+    date_trunc('minute', to_timestamp(TIMESTAMP / 1000)) as BUCKET,
+    min(NUMERIC_VALUE),
+    max(NUMERIC_VALUE),
+    sum(NUMERIC_VALUE),
+    count(*),
+    (array_agg(NUMERIC_VALUE order by TIMESTAMP desc))[1],
+    max(TIMESTAMP)
+  from (select *, DATAPOINT_NUMERIC_VALUE(VALUE) as NUMERIC_VALUE from ASSET_DATAPOINT) DP
+  where NUMERIC_VALUE is not null
+  group by ENTITY_ID, ATTRIBUTE_NAME, BUCKET;
+
+insert into ASSET_DATAPOINT_HOUR
+  select
+    ENTITY_ID,
+    ATTRIBUTE_NAME,
+    date_trunc('hour', BUCKET) as HOUR_BUCKET,
+    min(MIN_VALUE),
+    max(MAX_VALUE),
+    sum(SUM_VALUE),
+    sum(VALUE_COUNT),
+    (array_agg(LAST_VALUE order by LAST_TIMESTAMP desc))[1],
+    max(LAST_TIMESTAMP)
+  from ASSET_DATAPOINT_MINUTE
+  group by ENTITY_ID, ATTRIBUTE_NAME, HOUR_BUCKET;
+
+insert into ASSET_DATAPOINT_DAY
+  select
+    ENTITY_ID,
+    ATTRIBUTE_NAME,
+    date_trunc('day', BUCKET) as DAY_BUCKET,
+    min(MIN_VALUE),
+    max(MAX_VALUE),
+    sum(SUM_VALUE),
+    sum(VALUE_COUNT),
+    (array_agg(LAST_VALUE order by LAST_TIMESTAMP desc))[1],
+    max(LAST_TIMESTAMP)
+  from ASSET_DATAPOINT_HOUR
+  group by ENTITY_ID, ATTRIBUTE_NAME, DAY_BUCKET;
@@ -0,0 +1,228 @@
+/*
+  ############################# TABLES #############################
+
+  Datapoints are stored in monthly (UTC) partitions, inheriting the ASSET_DATAPOINT table. Rows
+  are never stored in the parent table, inserts are routed to the partition of their timestamp.
+  Partitions are created ahead of time by the datapoint lifecycle service, missing partitions are
+  created on demand. Expired partitions can be dropped as a whole.
+ */
+
+alter table ASSET_DATAPOINT
+  rename to ASSET_DATAPOINT_V1;
+
+drop trigger ASSET_DATAPOINT_ROLLUPS on ASSET_DATAPOINT_V1;
+
+drop function UPDATE_DATAPOINT_ROLLUPS();
+
+create table ASSET_DATAPOINT (
+  ENTITY_ID      varchar(36)  not null,
+  ATTRIBUTE_NAME varchar(255) not null,
+  TIMESTAMP      int8         not null,
+  VALUE          jsonb        not null
+);
+
+/*
+  ############################# FUNCTIONS #############################
+ */
+create or replace function ROLLUP_DATAPOINT(DP_ENTITY_ID text, DP_ATTRIBUTE_NAME text, DP_TIMESTAMP int8, DP_VALUE jsonb)
+  returns void as
+$$
+declare
+  NUMERIC_VALUE numeric := DATAPOINT_NUMERIC_VALUE(DP_VALUE);
+  TS            timestamp with time zone := to_timestamp(DP_TIMESTAMP / 1000);
+begin
+  if NUMERIC_VALUE is null
+  then
+    return;
+  end if;
+
+  insert into ASSET_DATAPOINT_MINUTE as R values (
+    DP_ENTITY_ID, DP_ATTRIBUTE_NAME, date_trunc('minute', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, DP_TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+
+  insert into ASSET_DATAPOINT_HOUR as R values (
+    DP_ENTITY_ID, DP_ATTRIBUTE_NAME, date_trunc('hour', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, DP_TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+
+  insert into ASSET_DATAPOINT_DAY as R values (
+    DP_ENTITY_ID, DP_ATTRIBUTE_NAME, date_trunc('day', TS),
+    NUMERIC_VALUE, NUMERIC_VALUE, NUMERIC_VALUE, 1, NUMERIC_VALUE, DP_TIMESTAMP
+  )
+  on conflict (ENTITY_ID, ATTRIBUTE_NAME, BUCKET) do update set
+    MIN_VALUE      = least(R.MIN_VALUE, excluded.MIN_VALUE),
+    MAX_VALUE      = greatest(R.MAX_VALUE, excluded.MAX_VALUE),
+    SUM_VALUE      = R.SUM_VALUE + excluded.SUM_VALUE,
+    VALUE_COUNT    = R.VALUE_COUNT + excluded.VALUE_COUNT,
+    LAST_VALUE     = case when excluded.LAST_TIMESTAMP >= R.LAST_TIMESTAMP then excluded.LAST_VALUE else R.LAST_VALUE end,
+    LAST_TIMESTAMP = greatest(R.LAST_TIMESTAMP, excluded.LAST_TIMESTAMP);
+end;
+$$
+language plpgsql;
+
+/*
+  Creates the partition for the month of the given timestamp (if it doesn't exist) and returns its name.
+ */
+create or replace function CREATE_DATAPOINT_PARTITION(DP_TIMESTAMP int8)
+  returns text as
+$$
+declare
+  MONTH_START    timestamp := date_trunc('month', to_timestamp(DP_TIMESTAMP / 1000) at time zone 'UTC');
+  LOWER_BOUND    int8 := (extract(epoch from MONTH_START) * 1000) :: int8;
+  UPPER_BOUND    int8 := (extract(epoch from MONTH_START + interval '1 month') * 1000) :: int8;
+  PARTITION_NAME text := 'asset_datapoint_p' || to_char(MONTH_START, 'YYYYMM');
+begin
+  if to_regclass(PARTITION_NAME) is not null
+  then
+    return PARTITION_NAME;
+  end if;
+
+  -- Serialize concurrent creation of the same partition
+  perform pg_advisory_xact_lock(hashtext(PARTITION_NAME));
+  if to_regclass(PARTITION_NAME) is null
+  then
+    execute format(
+        'create table %I ('
+        || ' check (TIMESTAMP >= %s and TIMESTAMP < %s),'
+        || ' primary key (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP),'
+        || ' foreign key (ENTITY_ID) references ASSET (ID) on delete cascade'
+        || ') inherits (ASSET_DATAPOINT)',
+        PARTITION_NAME, LOWER_BOUND, UPPER_BOUND
+    );
+    perform UPDATE_DATAPOINT_PARTITION_ROUTING();
+  end if;
+  return PARTITION_NAME;
+end;
+$$
+language plpgsql;
+
+/*
+  Inserts a datapoint into the partition of its timestamp, creating the partition if it doesn't exist. This
+  is the slow path of the routing trigger, for timestamps without a partition when the trigger was created.
+ */
+create or replace function INSERT_DATAPOINT_UNROUTED(DP_ENTITY_ID text, DP_ATTRIBUTE_NAME text, DP_TIMESTAMP int8, DP_VALUE jsonb)
+  returns int as
+$$
+declare
+  INSERTED_ROWS int;
+begin
+  execute format(
+      'insert into %I (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP, VALUE) values ($1, $2, $3, $4) on conflict do nothing',
+      CREATE_DATAPOINT_PARTITION(DP_TIMESTAMP)
+  )
+  using DP_ENTITY_ID, DP_ATTRIBUTE_NAME, DP_TIMESTAMP, DP_VALUE;
+
+  get diagnostics INSERTED_ROWS = row_count;
+  return INSERTED_ROWS;
+end;
+$$
+language plpgsql;
+
+/*
+  Replaces the routing trigger function with a static insert for each existing partition, newest first. This
+  must be called whenever partitions are created or dropped. The trigger then only compares the timestamp of
+  a row, it doesn't need catalog lookups, DDL or dynamic SQL unless the partition of the row is missing.
+ */
+create or replace function UPDATE_DATAPOINT_PARTITION_ROUTING()
+  returns void as
+$$
+declare
+  ROUTES text := '';
+  P      record;
+begin
+  -- Serialize concurrent replacement of the trigger function
+  perform pg_advisory_xact_lock(hashtext('asset_datapoint_routing'));
+
+  for P in
+  select
+    C.RELNAME                                             as NAME,
+    to_date(substr(C.RELNAME, 18), 'YYYYMM') :: timestamp as MONTH_START
+  from PG_INHERITS I join PG_CLASS C on C.OID = I.INHRELID
+  where I.INHPARENT = 'asset_datapoint' :: regclass and C.RELNAME ~ '^asset_datapoint_p[0-9]{6}$'
+  order by C.RELNAME desc
+  loop
+    ROUTES := ROUTES || format(
+        ' elsif NEW.TIMESTAMP >= %s and NEW.TIMESTAMP < %s then'
+        || ' insert into %I (ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP, VALUE)'
+        || ' values (NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, NEW.TIMESTAMP, NEW.VALUE) on conflict do nothing;'
+        || ' get diagnostics INSERTED_ROWS = row_count;',
+        (extract(epoch from P.MONTH_START) * 1000) :: int8,
+        (extract(epoch from P.MONTH_START + interval '1 month') * 1000) :: int8,
+        P.NAME
+    );
+  end loop;
+
+  execute
+  'create or replace function INSERT_DATAPOINT_PARTITION() returns trigger as $ROUTING$'
+  || ' declare INSERTED_ROWS int;'
+  || ' begin'
+  || ' if false then null;'
+  || ROUTES
+  || ' else INSERTED_ROWS := INSERT_DATAPOINT_UNROUTED(NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, NEW.TIMESTAMP, NEW.VALUE);'
+  || ' end if;'
+  || ' if INSERTED_ROWS > 0 then'
+  || ' perform ROLLUP_DATAPOINT(NEW.ENTITY_ID, NEW.ATTRIBUTE_NAME, NEW.TIMESTAMP, NEW.VALUE);'
+  || ' end if;'
+  -- Never store the row in the parent table
+  || ' return null;'
+  || ' end; $ROUTING$ language plpgsql';
+end;
+$$
+language plpgsql;
+
+select UPDATE_DATAPOINT_PARTITION_ROUTING();
+
+/*
+  ############################# TRIGGERS #############################
+ */
+
+create trigger ASSET_DATAPOINT_PARTITION
+before insert on ASSET_DATAPOINT
+for each row execute procedure INSERT_DATAPOINT_PARTITION();
+
+/*
+  ############################# DATA #############################
+
+  Move existing datapoints directly into their partitions, bypassing the insert trigger (the
+  rollups of existing datapoints already exist). Duplicate timestamps of an attribute are dropped.
+ */
+
+do
+$$
+declare
+  MONTH_START timestamp;
+begin
+  for MONTH_START in
+  select distinct date_trunc('month', to_timestamp(TIMESTAMP / 1000) at time zone 'UTC')
+  from ASSET_DATAPOINT_V1
+  loop
+    execute format(
+        'insert into %I select ENTITY_ID, ATTRIBUTE_NAME, TIMESTAMP, VALUE from ASSET_DATAPOINT_V1'
+        || ' where TIMESTAMP >= $1 and TIMESTAMP < $2 on conflict do nothing',
+        CREATE_DATAPOINT_PARTITION((extract(epoch from MONTH_START) * 1000) :: int8)
+    )
+    using (extract(epoch from MONTH_START) * 1000) :: int8, (extract(epoch from MONTH_START + interval '1 month') * 1000) :: int8;
+  end loop;
+end
+$$;
+
+drop table ASSET_DATAPOINT_V1;
+
+-- Partitions of the current and next month, the lifecycle service keeps creating them ahead of time
+select CREATE_DATAPOINT_PARTITION((extract(epoch from now()) * 1000) :: int8);
+select CREATE_DATAPOINT_PARTITION((extract(epoch from now() + interval '1 month') * 1000) :: int8);
@@ -26,6 +26,7 @@ import org.openremote.model.asset.AbstractAssetQuery;
 import org.openremote.model.asset.Asset;
 import org.openremote.model.asset.AssetQuery;
 import org.openremote.model.asset.UserAsset;
+import org.openremote.model.attribute.AttributeEvent;
 
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
@@ -50,7 +51,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
  * </li> </ul>
  * <p>
  * The only operations a restricted user is able to perform are {@link #getCurrentUserAssets}, {@link #get}, {@link
- * #update}, and {@link #writeAttributeValue}.
+ * #update}, {@link #writeAttributeValue}, and {@link #writeAttributeValues}.
  */
 @Path("asset")
 @JsType(isNative = true)
@@ -183,6 +184,24 @@ public interface AssetResource {
     @SuppressWarnings("unusable-by-js")
     void writeAttributeValue(@BeanParam RequestParams requestParams, @PathParam("assetId") String assetId, @PathParam("attributeName") String attributeName, String rawJson);
 
+    /**
+     * Updates attributes of assets with several events in one request. The same access rules as for
+     * {@link #writeAttributeValue} apply to each event. Events without timestamp are stamped with the current time.
+     * <p>
+     * All events are submitted to processing at once, events of the same asset are processed in the given order. The
+     * result contains an {@link AttributeWriteResult} for each event, at the same index, with the reason if processing
+     * rejected the event. Events not processed in time are reported with an error, they might still be processed later.
+     * A 400 status is returned if there are no events or more than the allowed maximum.
+     */
+    @PUT
+    @Path("attributes")
+    @Consumes(APPLICATION_JSON)
+    @Produces(APPLICATION_JSON)
+    @SuccessStatusCode(200)
+    @RolesAllowed({"write:assets"})
+    @SuppressWarnings("unusable-by-js")
+    AttributeWriteResult[] writeAttributeValues(@BeanParam RequestParams requestParams, AttributeEvent[] events);
+
     /**
      * Creates an asset. The identifier value of the asset can be provided, it should be a globally unique string value,
      * and must be at least 22 characters long. If no identifier value is provided, a unique value will be generated by
@@ -220,6 +239,10 @@ public interface AssetResource {
      * any realm. Otherwise assets must be in the same realm as the authenticated user. An empty result is returned if
      * the user does not have access to the assets or if the user is restricted. What is populated on the returned assets
      * is determined by the {@link AssetQuery#select} value.
+     * <p>
+     * Large results should be retrieved in pages, with an {@link AssetQuery#limit} and the {@link AssetQuery#cursor}
+     * of the last asset of the previous page (see {@link AssetQuery#after}). A 400 status is returned if the cursor is
+     * invalid.
      */
     @POST
     @Path("query")
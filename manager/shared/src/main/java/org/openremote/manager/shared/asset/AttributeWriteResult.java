@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.manager.shared.asset;
+
+import org.openremote.model.attribute.AttributeRef;
+
+/**
+ * The outcome of a single {@link org.openremote.model.attribute.AttributeEvent} written with
+ * {@link AssetResource#writeAttributeValues}. The write was successful if there is no {@link #failure}
+ * and no {@link #error}.
+ */
+public class AttributeWriteResult {
+
+    protected AttributeRef ref;
+    protected AssetProcessingException.Reason failure;
+    protected String error;
+
+    protected AttributeWriteResult() {
+    }
+
+    public AttributeWriteResult(AttributeRef ref) {
+        this.ref = ref;
+    }
+
+    public AttributeWriteResult(AttributeRef ref, AssetProcessingException.Reason failure) {
+        this.ref = ref;
+        this.failure = failure;
+    }
+
+    public AttributeWriteResult(AttributeRef ref, String error) {
+        this.ref = ref;
+        this.error = error;
+    }
+
+    /**
+     * @return The attribute of the written event, can be <code>null</code> if the event was incomplete.
+     */
+    public AttributeRef getRef() {
+        return ref;
+    }
+
+    /**
+     * @return The reason why the event was rejected by the processing chain.
+     */
+    public AssetProcessingException.Reason getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return The error if the event could not be processed at all, or not in time.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return failure == null && error == null;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+            "ref=" + ref +
+            ", failure=" + failure +
+            ", error='" + error + '\'' +
+            '}';
+    }
+}
@@ -653,6 +653,61 @@ public class AbstractAssetQuery<CHILD extends AbstractAssetQuery<CHILD>> {
         }
     }
 
+    /**
+     * The position after the last asset of a previous result, for keyset pagination. The next result starts after
+     * the asset with the given {@link #id} in {@link OrderBy} order, the order must be the same for all pages. The
+     * {@link #value} is the ordered property of that asset, if it is missing it is read from the stored asset (the
+     * result is empty if that asset no longer exists).
+     */
+    public static class Cursor {
+        public String id;
+        public String value;
+
+        public Cursor() {
+        }
+
+        public Cursor(String id) {
+            this.id = id;
+        }
+
+        public Cursor(String id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        /**
+         * @param orderBy The order of the query, if <code>null</code> the default order by {@link OrderBy.Property#CREATED_ON}.
+         */
+        public Cursor(Asset asset, OrderBy orderBy) {
+            this.id = asset.getId();
+            switch (orderBy != null && orderBy.property != null ? orderBy.property : OrderBy.Property.CREATED_ON) {
+                case CREATED_ON:
+                    this.value = asset.getCreatedOn() != null ? Long.toString(asset.getCreatedOn().getTime()) : null;
+                    break;
+                case NAME:
+                    this.value = asset.getName();
+                    break;
+                case ASSET_TYPE:
+                    this.value = asset.getType();
+                    break;
+                case PARENT_ID:
+                    this.value = asset.getParentId();
+                    break;
+                case REALM_ID:
+                    this.value = asset.getRealmId();
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "{" +
+                "id='" + id + '\'' +
+                ", value='" + value + '\'' +
+                '}';
+        }
+    }
+
     // Projection
     public Select select;
 
@@ -670,6 +725,10 @@ public class AbstractAssetQuery<CHILD extends AbstractAssetQuery<CHILD>> {
     // Ordering
     public OrderBy orderBy;
 
+    // Pagination, no limit if 0
+    public int limit;
+    public Cursor cursor;
+
     protected AbstractAssetQuery() {
     }
 
@@ -748,6 +807,23 @@ public class AbstractAssetQuery<CHILD extends AbstractAssetQuery<CHILD>> {
         return (CHILD) this;
     }
 
+    public CHILD limit(int limit) {
+        this.limit = limit;
+        return (CHILD) this;
+    }
+
+    public CHILD cursor(Cursor cursor) {
+        this.cursor = cursor;
+        return (CHILD) this;
+    }
+
+    /**
+     * Continue after the given asset, the last asset of the previous page.
+     */
+    public CHILD after(Asset asset) {
+        return cursor(new Cursor(asset, orderBy));
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "{" +
@@ -762,6 +838,8 @@ public class AbstractAssetQuery<CHILD extends AbstractAssetQuery<CHILD>> {
             ", attributePredicates=" + Arrays.toString(attributePredicates) +
             ", attributeMetaPredicates=" + Arrays.toString(attributeMetaPredicates) +
             ", orderBy=" + orderBy +
+            ", limit=" + limit +
+            ", cursor=" + cursor +
             '}';
     }
 }
@@ -21,6 +21,7 @@ package org.openremote.model.asset;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.openremote.model.AbstractValueHolder;
+import org.openremote.model.HasUniqueResourceName;
 import org.openremote.model.ValidationFailure;
 import org.openremote.model.attribute.*;
 import org.openremote.model.util.Pair;
@@ -40,6 +41,9 @@ import static org.openremote.model.util.TextUtil.requireNonNullAndNonEmpty;
 
 public class AssetAttribute extends Attribute {
 
+    // All asset meta items can be flags, the flag of an item is its ordinal
+    protected static final AssetMeta[] META_FLAGS = AssetMeta.values();
+
     protected String assetId;
 
     public AssetAttribute() {
@@ -147,14 +151,21 @@ public class AssetAttribute extends Attribute {
         return getState().flatMap(state -> getValueTimestamp().map(ts -> new AttributeEvent(state, ts)));
     }
 
+    @Override
+    protected HasUniqueResourceName[] getMetaFlags() {
+        return META_FLAGS;
+    }
+
+    protected boolean isMetaFlagSet(AssetMeta assetMeta) {
+        return isMetaFlagSet(assetMeta.ordinal());
+    }
+
     public boolean hasLabel() {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(LABEL));
+        return hasMetaItem(LABEL);
     }
 
     public Optional<String> getLabel() {
-        return Optional.ofNullable(getMetaStream()
-            .filter(isMetaNameEqualTo(LABEL))
-            .findFirst()
+        return Optional.ofNullable(getMetaItem(LABEL)
             .flatMap(AbstractValueHolder::getValueAsString)
             .orElseGet(() -> getName().orElse(null)));
     }
@@ -172,11 +183,7 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean isExecutable() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(EXECUTABLE))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(EXECUTABLE);
     }
 
     public void setExecutable(boolean executable) {
@@ -188,23 +195,15 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean hasAgentLink() {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(AGENT_LINK));
+        return hasMetaItem(AGENT_LINK);
     }
 
     public boolean isProtocolConfiguration() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(PROTOCOL_CONFIGURATION))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(PROTOCOL_CONFIGURATION);
     }
 
     public boolean isShowOnDashboard() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(SHOW_ON_DASHBOARD))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(SHOW_ON_DASHBOARD);
     }
 
     public void setShowOnDashboard(boolean show) {
@@ -216,13 +215,11 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean hasFormat() {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(FORMAT));
+        return hasMetaItem(FORMAT);
     }
 
     public Optional<String> getFormat() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(FORMAT))
-            .findFirst()
+        return getMetaItem(FORMAT)
             .flatMap(AbstractValueHolder::getValueAsString);
     }
 
@@ -235,13 +232,11 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean hasDescription() {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(DESCRIPTION));
+        return hasMetaItem(DESCRIPTION);
     }
 
     public Optional<String> getDescription() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(DESCRIPTION))
-            .findFirst()
+        return getMetaItem(DESCRIPTION)
             .flatMap(AbstractValueHolder::getValueAsString);
     }
 
@@ -257,11 +252,7 @@ public class AssetAttribute extends Attribute {
      * Defaults to <code>true</code> if there is no {@link AssetMeta#DISABLED} item.
      */
     public boolean isEnabled() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(DISABLED))
-            .findFirst()
-            .map(metaItem -> !metaItem.getValueAsBoolean().orElse(false))
-            .orElse(true);
+        return !isMetaFlagSet(DISABLED);
     }
 
     public void setDisabled(boolean disabled) {
@@ -273,35 +264,19 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean isAccessRestrictedRead() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(AssetMeta.ACCESS_RESTRICTED_READ))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(ACCESS_RESTRICTED_READ);
     }
 
     public boolean isAccessRestrictedWrite() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(AssetMeta.ACCESS_RESTRICTED_WRITE))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(ACCESS_RESTRICTED_WRITE);
     }
 
     public boolean isAccessPublicRead() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(AssetMeta.ACCESS_PUBLIC_READ))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(ACCESS_PUBLIC_READ);
     }
 
     public boolean isReadOnly() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(READ_ONLY))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(READ_ONLY);
     }
 
     public void setReadOnly(boolean readOnly) {
@@ -313,11 +288,7 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean isStoreDatapoints() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(STORE_DATA_POINTS))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(STORE_DATA_POINTS);
     }
 
     public void setStoreDatapoints(boolean storeDatapoints) {
@@ -328,12 +299,21 @@ public class AssetAttribute extends Attribute {
         }
     }
 
+    public Optional<Integer> getDatapointsMaxAgeDays() {
+        return getMetaItem(DATA_POINTS_MAX_AGE_DAYS)
+            .flatMap(AbstractValueHolder::getValueAsInteger);
+    }
+
+    public void setDatapointsMaxAgeDays(Integer maxAgeDays) {
+        if (maxAgeDays != null) {
+            replaceMetaByName(getMeta(), DATA_POINTS_MAX_AGE_DAYS, Values.create(maxAgeDays));
+        } else {
+            getMeta().removeIf(isMetaNameEqualTo(DATA_POINTS_MAX_AGE_DAYS));
+        }
+    }
+
     public boolean isRuleState() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(RULE_STATE))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(RULE_STATE);
     }
 
     public void setRuleState(boolean ruleState) {
@@ -345,11 +325,7 @@ public class AssetAttribute extends Attribute {
     }
 
     public boolean isRuleEvent() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(RULE_EVENT))
-            .findFirst()
-            .map(metaItem -> metaItem.getValueAsBoolean().orElse(false))
-            .orElse(false);
+        return isMetaFlagSet(RULE_EVENT);
     }
 
     public void setRuleEvent(boolean ruleEvent) {
@@ -361,9 +337,7 @@ public class AssetAttribute extends Attribute {
     }
 
     public Optional<String> getRuleEventExpires() {
-        return getMetaStream()
-            .filter(isMetaNameEqualTo(RULE_EVENT_EXPIRES))
-            .findFirst()
+        return getMetaItem(RULE_EVENT_EXPIRES)
             .flatMap(AbstractValueHolder::getValueAsString);
     }
 
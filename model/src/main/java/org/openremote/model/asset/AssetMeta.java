@@ -32,6 +32,7 @@ import static org.openremote.model.Constants.ASSET_META_NAMESPACE;
 import static org.openremote.model.attribute.MetaItem.MetaItemFailureReason.META_ITEM_VALUE_MISMATCH;
 import static org.openremote.model.attribute.MetaItemDescriptor.Access.ACCESS_PRIVATE;
 import static org.openremote.model.util.TextUtil.REGEXP_PATTERN_DOUBLE;
+import static org.openremote.model.util.TextUtil.REGEXP_PATTERN_INTEGER_POSITIVE_NON_ZERO;
 
 /**
  * Asset attribute meta item name is an arbitrary string. It should be URI. This enum contains
@@ -272,6 +273,19 @@ public enum AssetMeta implements MetaItemDescriptor {
         Values.create(true),
         true),
 
+    /**
+     * Maximum age in days of stored datapoints of the attribute, older datapoints are deleted. The pre-aggregated
+     * datapoints (minute, hour and day rollups) of the attribute are kept.
+     */
+    DATA_POINTS_MAX_AGE_DAYS(
+        ASSET_META_NAMESPACE + ":dataPointsMaxAgeDays",
+        new Access(true, false, true),
+        ValueType.NUMBER,
+        REGEXP_PATTERN_INTEGER_POSITIVE_NON_ZERO,
+        PatternFailure.INTEGER_POSITIVE_NON_ZERO.name(),
+        null,
+        false),
+
     /**
      * Should attribute writes be processed by the rules engines as {@link AssetState} facts in knowledge sessions,
      * with a lifecycle that reflects the state of the asset attribute. The state facts in the rules sessions are kept
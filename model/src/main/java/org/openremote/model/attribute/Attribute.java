@@ -59,9 +59,20 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
     public static final String TYPE_FIELD_NAME = "type";
     public static final String META_FIELD_NAME = "meta";
 
+    protected static final HasUniqueResourceName[] NO_META_FLAGS = new HasUniqueResourceName[0];
+
     @JsonIgnore
     protected Meta meta;
 
+    @JsonIgnore
+    protected transient MetaIndex metaIndex;
+
+    @JsonIgnore
+    protected transient ObjectValue metaIndexCheckedObjectValue;
+
+    @JsonIgnore
+    protected transient long metaIndexCheckedModificationCount = -1;
+
     @JsonProperty
     protected String name;
 
@@ -156,24 +167,60 @@ public abstract class Attribute extends AbstractValueTimestampHolder {
         return getMeta().stream();
     }
 
+    /**
+     * @return The index of the current meta items, it is only rebuilt when the meta items have been modified. As
+     * long as the attribute hasn't been modified at all since the last call, this only compares its modification
+     * count.
+     */
+    protected MetaIndex getMetaIndex() {
+        MetaIndex index = metaIndex;
+        ObjectValue objectValue = getObjectValue();
+        long modificationCount = MetaIndex.getModificationCount(objectValue);
+        if (index != null
+            && objectValue == metaIndexCheckedObjectValue
+            && modificationCount >= 0
+            && modificationCount == metaIndexCheckedModificationCount) {
+            return index;
+        }
+        ArrayValue arrayValue = objectValue.getArray(META_FIELD_NAME).orElse(null);
+        if (index == null || !index.isValidFor(arrayValue)) {
+            index = new MetaIndex(arrayValue, getMetaFlags());
+            metaIndex = index;
+        }
+        metaIndexCheckedObjectValue = objectValue;
+        metaIndexCheckedModificationCount = modificationCount;
+        return index;
+    }
+
+    /**
+     * @return The names of boolean meta items indexed as flags, see {@link #isMetaFlagSet(int)}.
+     */
+    protected HasUniqueResourceName[] getMetaFlags() {
+        return NO_META_FLAGS;
+    }
+
+    /**
+     * @param flag The position of the meta item name in {@link #getMetaFlags()}.
+     * @return <code>true</code> if the (first) meta item with the name has the value <code>true</code>.
+     */
+    protected boolean isMetaFlagSet(int flag) {
+        return getMetaIndex().isFlagSet(flag);
+    }
+
     public boolean hasMetaItem(String metaName) {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(metaName));
+        return getMetaIndex().hasItem(metaName);
     }
 
     public boolean hasMetaItem(HasUniqueResourceName metaName) {
-        return getMetaStream().anyMatch(isMetaNameEqualTo(metaName));
+        return hasMetaItem(metaName.getUrn());
     }
 
     public Optional<MetaItem> getMetaItem(String metaName) {
-        return getMetaStream()
-            .filter(metaItem -> metaItem.getName().filter(s -> s.equals(metaName)).isPresent())
-            .findFirst();
+        return getMetaIndex().getItem(metaName);
     }
 
     public MetaItem[] getMetaItems(String metaName) {
-        return getMetaStream()
-            .filter(metaItem -> metaItem.getName().filter(s -> s.equals(metaName)).isPresent())
-            .toArray(MetaItem[]::new);
+        return getMetaIndex().getItems(metaName);
     }
 
     public Optional<MetaItem> getMetaItem(HasUniqueResourceName hasUniqueResourceName) {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.model.attribute;
+
+import org.openremote.model.HasUniqueResourceName;
+import org.openremote.model.value.ArrayValue;
+import org.openremote.model.value.ObjectValue;
+import org.openremote.model.value.Value;
+import org.openremote.model.value.impl.ValueImpl;
+
+import java.util.*;
+
+/**
+ * An immutable index of the {@link MetaItem}s in an {@link ArrayValue}, so items can be found by name without
+ * scanning the array and wrapping each element.
+ * <p>
+ * Boolean items are also indexed as flags: The bit of a flag is the position of its name in the given array of
+ * flag names, and it is set if the first item with that name has the value <code>true</code>.
+ * <p>
+ * The index is only valid as long as the {@link ValueImpl#getModificationCount} of the array, which includes
+ * modifications of the items, doesn't change.
+ */
+public class MetaIndex {
+
+    protected static final MetaItem[] NO_ITEMS = new MetaItem[0];
+
+    final protected ArrayValue arrayValue;
+    final protected long modificationCount;
+    final protected Map<String, MetaItem[]> itemsByName;
+    final protected long flags;
+
+    public MetaIndex(ArrayValue arrayValue, HasUniqueResourceName[] flagNames) {
+        if (flagNames.length > Long.SIZE)
+            throw new IllegalArgumentException("Too many flags: " + flagNames.length);
+
+        this.arrayValue = arrayValue;
+        this.modificationCount = getModificationCount(arrayValue);
+
+        Map<String, List<MetaItem>> items = new HashMap<>();
+        if (arrayValue != null) {
+            for (int i = 0; i < arrayValue.length(); i++) {
+                ObjectValue objectValue = arrayValue.getObject(i).orElse(null);
+                if (objectValue == null)
+                    continue;
+                MetaItem item = new MetaItem(objectValue);
+                item.getName().ifPresent(name -> items.computeIfAbsent(name, n -> new ArrayList<>()).add(item));
+            }
+        }
+        this.itemsByName = new HashMap<>(items.size());
+        for (Map.Entry<String, List<MetaItem>> entry : items.entrySet()) {
+            itemsByName.put(entry.getKey(), entry.getValue().toArray(new MetaItem[entry.getValue().size()]));
+        }
+
+        long flags = 0;
+        for (int i = 0; i < flagNames.length; i++) {
+            MetaItem[] flagItems = itemsByName.get(flagNames[i].getUrn());
+            if (flagItems != null && flagItems[0].getValueAsBoolean().orElse(false)) {
+                flags |= 1L << i;
+            }
+        }
+        this.flags = flags;
+    }
+
+    /**
+     * @return <code>true</code> if this index was built from the given array and it hasn't been modified since.
+     */
+    public boolean isValidFor(ArrayValue arrayValue) {
+        return this.arrayValue == arrayValue
+            && modificationCount >= 0
+            && modificationCount == getModificationCount(arrayValue);
+    }
+
+    public boolean isFlagSet(int flag) {
+        return (flags & (1L << flag)) != 0;
+    }
+
+    public boolean hasItem(String name) {
+        return itemsByName.containsKey(name);
+    }
+
+    public Optional<MetaItem> getItem(String name) {
+        MetaItem[] items = itemsByName.get(name);
+        return items != null ? Optional.of(items[0]) : Optional.empty();
+    }
+
+    public MetaItem[] getItems(String name) {
+        MetaItem[] items = itemsByName.get(name);
+        return items != null ? Arrays.copyOf(items, items.length) : NO_ITEMS;
+    }
+
+    /**
+     * @return The modification count of the value, or <code>-1</code> if the value doesn't track modifications
+     * (the index is then never valid).
+     */
+    protected static long getModificationCount(Value value) {
+        if (value == null)
+            return 0;
+        return value instanceof ValueImpl ? ((ValueImpl) value).getModificationCount() : -1;
+    }
+}
@@ -69,7 +69,6 @@ public abstract class Datapoint implements Serializable {
     @Column(name = "TIMESTAMP", nullable = false)
     protected long timestamp;
 
-    @Id
     @Column(name = "VALUE", columnDefinition = "jsonb", nullable = false)
     @org.hibernate.annotations.Type(type = PERSISTENCE_JSON_VALUE_TYPE)
     protected Value value;
@@ -137,8 +136,7 @@ public abstract class Datapoint implements Serializable {
 
         return timestamp == datapoint.timestamp
             && entityId.equals(datapoint.entityId)
-            && attributeName.equals(datapoint.attributeName)
-            && value.equals(datapoint.value);
+            && attributeName.equals(datapoint.attributeName);
     }
 
     @Override
@@ -146,7 +144,6 @@ public abstract class Datapoint implements Serializable {
         int result = entityId.hashCode();
         result = 31 * result + attributeName.hashCode();
         result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
-        result = 31 * result + value.hashCode();
         return result;
     }
 
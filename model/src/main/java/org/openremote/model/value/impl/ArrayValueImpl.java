@@ -97,19 +97,24 @@ public class ArrayValueImpl extends ValueImpl implements ArrayValue {
 
     @Override
     public ArrayValue remove(int index) {
-        values.remove(index);
+        release(values.remove(index));
+        modified();
         return this;
     }
 
     @Override
     public ArrayValue set(int index, Value value) {
         if (value == null && index >= 0 && index < values.size()) {
-            values.remove(index);
+            release(values.remove(index));
         } else if (index == values.size()) {
             values.add(value);
+            adopt(value);
         } else {
-            values.set(index, value);
+            Value replaced = values.set(index, value);
+            adopt(value);
+            release(replaced);
         }
+        modified();
         return this;
     }
 
@@ -134,12 +139,16 @@ public class ArrayValueImpl extends ValueImpl implements ArrayValue {
     @Override
     public ArrayValue add(Value value) {
         values.add(value);
+        adopt(value);
+        modified();
         return this;
     }
 
     @Override
     public ArrayValue add(int index, Value value) {
         values.add(index, value);
+        adopt(value);
+        modified();
         return this;
     }
 
@@ -153,9 +162,25 @@ public class ArrayValueImpl extends ValueImpl implements ArrayValue {
         return this;
     }
 
+    @Override
+    protected boolean containsInstance(Value value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) == value)
+                return true;
+        }
+        return false;
+    }
+
     @Override
     public ArrayValue deepCopy() {
-        return Values.<ArrayValue>parse(toJson()).orElseThrow(() -> new IllegalStateException("Error copying array value"));
+        ArrayValueImpl copy = new ArrayValueImpl(factory);
+        copy.values.ensureCapacity(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            Value value = copyOf(values.get(i));
+            copy.values.add(value);
+            copy.adopt(value);
+        }
+        return copy;
     }
 
     @Override
@@ -25,26 +25,59 @@ import java.util.stream.Stream;
 
 public class ObjectValueImpl extends ValueImpl implements ObjectValue {
 
-    private static List<String> stringifyOrder(String[] keys) {
-        List<String> toReturn = new ArrayList<>();
-        List<String> nonNumeric = new ArrayList<>();
+    /**
+     * Numeric keys first in (string) sort order, then all other keys in insertion order.
+     */
+    public static List<String> stringifyOrder(String[] keys) {
+        List<String> toReturn = new ArrayList<>(keys.length);
+        List<String> nonNumeric = null;
         for (String key : keys) {
-            if (key.matches("\\d+")) {
+            if (isNumericKey(key)) {
                 toReturn.add(key);
             } else {
+                if (nonNumeric == null) {
+                    nonNumeric = new ArrayList<>(keys.length);
+                }
                 nonNumeric.add(key);
             }
         }
+        if (toReturn.isEmpty())
+            return nonNumeric != null ? nonNumeric : toReturn;
         Collections.sort(toReturn);
-        toReturn.addAll(nonNumeric);
+        if (nonNumeric != null) {
+            toReturn.addAll(nonNumeric);
+        }
         return toReturn;
     }
 
+    /**
+     * Same as matching <code>\d+</code>, without a regular expression.
+     */
+    public static boolean isNumericKey(String key) {
+        if (key.isEmpty())
+            return false;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
     private transient ValueFactory factory;
-    private transient Map<String, Value> map = new LinkedHashMap<>();
+    private transient Map<String, Value> map;
 
     public ObjectValueImpl(ValueFactory factory) {
         this.factory = factory;
+        this.map = new LinkedHashMap<>();
+    }
+
+    /**
+     * @param expectedSize The number of entries the map can hold without resizing.
+     */
+    protected ObjectValueImpl(ValueFactory factory, int expectedSize) {
+        this.factory = factory;
+        this.map = new LinkedHashMap<>((int) (expectedSize / 0.75f) + 1);
     }
 
     @Override
@@ -104,13 +137,15 @@ public class ObjectValueImpl extends ValueImpl implements ObjectValue {
 
     @Override
     public ObjectValue put(String key, Value value) {
-        map.put(key, value);
+        adopt(value);
+        release(map.put(key, value));
+        modified();
         return this;
     }
 
     @Override
     public ObjectValue put(String key, String value) {
-        map.put(key, factory.create(value));
+        put(key, factory.create(value));
         return this;
     }
 
@@ -128,13 +163,31 @@ public class ObjectValueImpl extends ValueImpl implements ObjectValue {
 
     @Override
     public ObjectValue remove(String key) {
-        map.remove(key);
+        if (map.containsKey(key)) {
+            release(map.remove(key));
+            modified();
+        }
         return this;
     }
 
+    @Override
+    protected boolean containsInstance(Value value) {
+        for (Value mapValue : map.values()) {
+            if (mapValue == value)
+                return true;
+        }
+        return false;
+    }
+
     @Override
     public ObjectValue deepCopy() {
-        return Values.<ObjectValue>parse(toJson()).orElseThrow(() -> new IllegalStateException("Error copying object value"));
+        ObjectValueImpl copy = new ObjectValueImpl(factory, map.size());
+        for (Map.Entry<String, Value> entry : map.entrySet()) {
+            Value value = copyOf(entry.getValue());
+            copy.map.put(entry.getKey(), value);
+            copy.adopt(value);
+        }
+        return copy;
     }
 
     @Override
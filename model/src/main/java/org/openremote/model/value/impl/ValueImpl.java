@@ -18,11 +18,106 @@ package org.openremote.model.value.impl;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsonUtils;
+import org.openremote.model.value.ArrayValue;
+import org.openremote.model.value.ObjectValue;
 import org.openremote.model.value.Value;
 import org.openremote.model.value.ValueException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public abstract class ValueImpl implements Value {
 
+    protected transient long modificationCount;
+
+    /**
+     * The containers of a mutable value, its modifications are counted by them too. A value is usually only
+     * contained in one object or array, any other containers are in {@link #moreParents}.
+     */
+    protected transient ValueImpl parent;
+    protected transient List<ValueImpl> moreParents;
+
+    /**
+     * @return A number which increases with every modification of this value, including modifications of nested
+     * values. Can be used to detect changes of a mutable value without comparing it, this doesn't traverse the
+     * nested values.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Increments the modification count of this value and of all values containing it.
+     */
+    protected void modified() {
+        modificationCount++;
+        if (parent != null) {
+            parent.modified();
+        }
+        if (moreParents != null) {
+            for (int i = 0; i < moreParents.size(); i++) {
+                moreParents.get(i).modified();
+            }
+        }
+    }
+
+    /**
+     * Must be called when a value has been added to this container.
+     */
+    protected void adopt(Value value) {
+        if (!isMutable(value))
+            return;
+        ValueImpl child = (ValueImpl) value;
+        if (child.parent == null) {
+            child.parent = this;
+        } else if (child.parent != this && indexOfInstance(child.moreParents, this) < 0) {
+            if (child.moreParents == null) {
+                child.moreParents = new ArrayList<>(1);
+            }
+            child.moreParents.add(this);
+        }
+    }
+
+    /**
+     * Must be called when a value has been removed from this container, or replaced.
+     */
+    protected void release(Value value) {
+        if (!isMutable(value) || containsInstance(value))
+            return;
+        ValueImpl child = (ValueImpl) value;
+        if (child.parent == this) {
+            child.parent = child.moreParents != null && !child.moreParents.isEmpty()
+                ? child.moreParents.remove(child.moreParents.size() - 1)
+                : null;
+        } else {
+            int index = indexOfInstance(child.moreParents, this);
+            if (index >= 0) {
+                child.moreParents.remove(index);
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if this is a container holding the given instance.
+     */
+    protected boolean containsInstance(Value value) {
+        return false;
+    }
+
+    protected static boolean isMutable(Value value) {
+        return value instanceof ObjectValueImpl || value instanceof ArrayValueImpl;
+    }
+
+    protected static int indexOfInstance(List<ValueImpl> values, ValueImpl value) {
+        if (values != null) {
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i) == value)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public JavaScriptObject asNativeObject() throws ValueException {
         if (GWT.isClient())
@@ -31,6 +126,18 @@ public abstract class ValueImpl implements Value {
             throw new ValueException("Not a GWT/JavaScript runtime environment");
     }
 
+    /**
+     * Copies object and array values structurally, other values are immutable and shared by the copy.
+     */
+    protected static Value copyOf(Value value) {
+        if (value instanceof ObjectValue) {
+            return ((ObjectValue) value).deepCopy();
+        } else if (value instanceof ArrayValue) {
+            return ((ArrayValue) value).deepCopy();
+        }
+        return value;
+    }
+
     public abstract void traverse(ValueVisitor visitor, ValueContext ctx) throws ValueException;
 
 }
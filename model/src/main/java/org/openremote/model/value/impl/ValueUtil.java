@@ -289,7 +289,7 @@ public class ValueUtil {
         return "\\u" + ("0000".substring(0, padding)) + hexValue;
     }
 
-    private static boolean isControlChar(char c) {
+    public static boolean isControlChar(char c) {
         return (c >= 0x00 && c <= 0x1f)
             || (c >= 0x7f && c <= 0x9f)
             || c == '\u00ad' || c == '\u070f' || c == '\u17b4' || c == '\u17b5'
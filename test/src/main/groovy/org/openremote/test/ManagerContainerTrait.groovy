@@ -15,6 +15,7 @@ import org.openremote.manager.server.asset.AssetAttributeLinkingService
 import org.openremote.manager.server.asset.AssetProcessingService
 import org.openremote.manager.server.asset.AssetStorageService
 import org.openremote.manager.server.concurrent.ManagerExecutorService
+import org.openremote.manager.server.datapoint.AssetDatapointLifecycleService
 import org.openremote.manager.server.datapoint.AssetDatapointService
 import org.openremote.manager.server.event.ClientEventService
 import org.openremote.manager.server.i18n.I18NService
@@ -64,6 +65,7 @@ trait ManagerContainerTrait extends ContainerTrait {
                 new RulesService(),
                 new AssetStorageService(),
                 new AssetDatapointService(),
+                new AssetDatapointLifecycleService(),
                 new AssetAttributeLinkingService(),
                 new AssetProcessingService(),
                 *Lists.newArrayList(ServiceLoader.load(Protocol.class)),
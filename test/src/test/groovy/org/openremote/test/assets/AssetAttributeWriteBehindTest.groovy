@@ -0,0 +1,131 @@
+package org.openremote.test.assets
+
+import org.openremote.manager.server.asset.AssetAttributeValueWriter
+import org.openremote.manager.server.asset.AssetProcessingService
+import org.openremote.manager.server.asset.AssetStorageService
+import org.openremote.manager.server.asset.ServerAsset
+import org.openremote.model.Constants
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+import static org.openremote.manager.server.asset.AssetStorageService.ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS
+
+class AssetAttributeWriteBehindTest extends Specification implements ManagerContainerTrait {
+
+    def "Store attribute values in coalesced batches"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 1)
+
+        when: "the container is started with write-behind of attribute values"
+        def serverPort = findEphemeralPort()
+        def container = startContainerNoDemoImport(
+            defaultConfig(serverPort) << [(ASSET_ATTRIBUTE_WRITE_DELAY_MILLIS): "200"],
+            defaultServices()
+        )
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def assetProcessingService = container.getService(AssetProcessingService.class)
+        def attributeValueWriter = assetStorageService.getAttributeValueWriter()
+
+        then: "the container should be running and initialised"
+        attributeValueWriter != null
+        conditions.eventually {
+            assert noEventProcessedIn(assetProcessingService, 500)
+        }
+
+        when: "an asset is created"
+        def asset = new ServerAsset("Write Behind Asset", AssetType.THING, null, Constants.MASTER_REALM)
+        asset.setAttributes(
+            new AssetAttribute("counter", AttributeType.NUMBER, Values.create(0), getClockTimeOf(container)),
+            new AssetAttribute("label", AttributeType.STRING, Values.create("foo"), getClockTimeOf(container))
+        )
+        asset = assetStorageService.merge(asset)
+        def written = attributeValueWriter.getWritten()
+
+        and: "many attribute events are processed"
+        (1..20).each {
+            assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "counter", Values.create(it)))
+        }
+        assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "label", null))
+
+        then: "the last values should be stored and writes should have been coalesced"
+        conditions.eventually {
+            def storedAsset = assetStorageService.find(asset.id, true)
+            assert storedAsset.getAttribute("counter").get().getValueAsNumber().get() == 20d
+            assert !storedAsset.getAttribute("label").get().getValue().isPresent()
+            assert attributeValueWriter.getWritten() == written + 21
+            assert attributeValueWriter.getCoalesced() > 0
+            assert attributeValueWriter.getFailures() == 0
+        }
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+
+    def "Flush full batches and block writers while the buffer is full"() {
+
+        given: "a writer which blocks storing batches until released"
+        def storeLatch = new CountDownLatch(1)
+        def batches = new LinkedBlockingQueue<Map>()
+        def writer = new AssetAttributeValueWriter(null, null, 60000, 2) {
+            @Override
+            protected void store(Map batch) {
+                batches.add(batch)
+                storeLatch.await(10, TimeUnit.SECONDS)
+            }
+        }
+
+        when: "the maximum batch size is buffered"
+        def objectValue = Values.createObject().put("foo", "bar")
+        writer.write("asset1", "a", objectValue, 100)
+        writer.write("asset1", "a", Values.create("older"), 50)
+        writer.write("asset2", "b", Values.create(1), 100)
+        objectValue.put("foo", "baz")
+        def batch = batches.poll(10, TimeUnit.SECONDS)
+
+        then: "the buffer should be flushed immediately with copies of the latest values"
+        batch.size() == 2
+        batch["asset1"]["a"].value.getString("foo").get() == "bar"
+        batch["asset1"]["a"].timestamp == 100
+        batch["asset2"]["b"].value.getNumber() == 1d
+        writer.getCoalesced() == 1
+
+        when: "the buffer is full again while the first batch is stored"
+        writer.write("asset1", "a", Values.create(2), 200)
+        writer.write("asset2", "b", Values.create(2), 200)
+        def blockedWrite = Thread.start {
+            writer.write("asset3", "c", Values.create(3), 300)
+        }
+        blockedWrite.join(500)
+
+        then: "the writer of another attribute should be blocked"
+        blockedWrite.isAlive()
+
+        when: "the first batch has been stored"
+        storeLatch.countDown()
+        blockedWrite.join(10000)
+        batch = batches.poll(10, TimeUnit.SECONDS)
+
+        then: "the blocked writer should continue after the full buffer has been taken"
+        !blockedWrite.isAlive()
+        batch.keySet() == ["asset1", "asset2"] as Set
+
+        when: "the writer is closed"
+        writer.close()
+        batch = batches.poll(10, TimeUnit.SECONDS)
+
+        then: "the remaining value should be stored and further writes should not be accepted"
+        batch.keySet() == ["asset3"] as Set
+        !writer.write("asset1", "a", Values.create(4), 400)
+    }
+}
@@ -17,6 +17,7 @@ import org.openremote.manager.client.service.RequestServiceImpl
 import org.openremote.manager.client.style.WidgetStyle
 import org.openremote.manager.server.asset.AssetStorageService
 import org.openremote.manager.server.asset.ServerAsset
+import org.openremote.manager.server.event.ClientEventService as ServerClientEventService
 import org.openremote.manager.server.security.ManagerIdentityService
 import org.openremote.manager.server.setup.AbstractKeycloakSetup
 import org.openremote.manager.server.setup.SetupService
@@ -535,4 +536,66 @@ class AssetBrowserPresenterTest extends Specification implements ManagerContaine
         and: "the server should be stopped"
         stopContainer(container)
     }
+
+    def "Serialize tree modified events once for all subscribed sessions"() {
+
+        given: "The server container is started"
+        def serverPort = findEphemeralPort()
+        def container = startContainer(defaultConfig(serverPort), defaultServices())
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def serverClientEventService = container.getService(ServerClientEventService.class)
+        def managerDemoSetup = container.getService(SetupService.class).getTaskOfType(ManagerDemoSetup.class)
+        def keycloakDemoSetup = container.getService(SetupService.class).getTaskOfType(KeycloakDemoSetup.class)
+        def accessToken = {
+            authenticate(
+                    container,
+                    MASTER_REALM,
+                    KEYCLOAK_CLIENT_ID,
+                    MASTER_REALM_ADMIN_USER,
+                    getString(container.getConfig(), SETUP_ADMIN_PASSWORD, SETUP_ADMIN_PASSWORD_DEFAULT)
+            ).token
+        }
+        def conditions = new PollingConditions(initialDelay: 1, timeout: 10)
+
+        and: "two client websocket connections subscribed to tree modified events of the master tenant"
+        List<SharedEvent> collectedSharedEvents1 = []
+        def clientEventService1 = new ClientEventService(createEventBus(collectedSharedEvents1), container.JSON)
+        connect(createWebsocketClient(), clientEventService1.endpoint, serverUri(serverPort), WEBSOCKET_EVENTS, MASTER_REALM, accessToken.call())
+        List<SharedEvent> collectedSharedEvents2 = []
+        def clientEventService2 = new ClientEventService(createEventBus(collectedSharedEvents2), container.JSON)
+        connect(createWebsocketClient(), clientEventService2.endpoint, serverUri(serverPort), WEBSOCKET_EVENTS, MASTER_REALM, accessToken.call())
+        [clientEventService1, clientEventService2].each {
+            it.subscribe(AssetTreeModifiedEvent.class, new TenantFilter<AssetTreeModifiedEvent>(keycloakDemoSetup.masterTenant.id))
+        }
+        conditions.eventually {
+            assert serverClientEventService.eventSubscriptions.getSubscribedSessionKeys(
+                    new AssetTreeModifiedEvent(0, keycloakDemoSetup.masterTenant.id, managerDemoSetup.smartOfficeId)
+            ).size() == 2
+        }
+        def fanOutEvents = serverClientEventService.fanOutEvents
+
+        when: "an asset is modified in the database"
+        def asset = assetStorageService.find(managerDemoSetup.smartOfficeId)
+        asset.setName("Testname123")
+        assetStorageService.merge(asset)
+
+        then: "both clients should receive the event"
+        conditions.eventually {
+            assert collectedSharedEvents1.size() == 1
+            assert collectedSharedEvents1[0] instanceof AssetTreeModifiedEvent
+            assert collectedSharedEvents2.size() == 1
+            assert collectedSharedEvents2[0] instanceof AssetTreeModifiedEvent
+        }
+
+        and: "the event should have been serialized once for both sessions"
+        serverClientEventService.fanOutEvents == fanOutEvents + 1
+        serverClientEventService.fanOutMaxRecipients >= 2
+
+        cleanup: "the clients should be stopped"
+        if (clientEventService1 != null) clientEventService1.close()
+        if (clientEventService2 != null) clientEventService2.close()
+
+        and: "the server should be stopped"
+        stopContainer(container)
+    }
 }
@@ -0,0 +1,88 @@
+package org.openremote.test.assets
+
+import org.openremote.manager.server.asset.AssetProcessingService
+import org.openremote.manager.server.asset.AssetStorageService
+import org.openremote.manager.server.asset.ServerAsset
+import org.openremote.manager.server.datapoint.AssetDatapointLifecycleService
+import org.openremote.manager.server.datapoint.AssetDatapointService
+import org.openremote.model.Constants
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeRef
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.datapoint.DatapointInterval
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import static java.util.concurrent.TimeUnit.DAYS
+import static java.util.concurrent.TimeUnit.HOURS
+import static org.openremote.container.timer.TimerService.Clock.PSEUDO
+import static org.openremote.container.timer.TimerService.TIMER_CLOCK_TYPE
+
+class AssetDatapointLifecycleTest extends Specification implements ManagerContainerTrait {
+
+    def "Delete expired datapoints and keep rollups"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 1)
+
+        when: "the container is started with a pseudo clock"
+        def serverPort = findEphemeralPort()
+        def container = startContainerNoDemoImport(
+            defaultConfig(serverPort) << [(TIMER_CLOCK_TYPE): PSEUDO.name()],
+            defaultServices()
+        )
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def assetProcessingService = container.getService(AssetProcessingService.class)
+        def assetDatapointService = container.getService(AssetDatapointService.class)
+        def assetDatapointLifecycleService = container.getService(AssetDatapointLifecycleService.class)
+
+        and: "an asset with an attribute storing datapoints for one day is created"
+        def asset = new ServerAsset("Datapoint Asset", AssetType.THING, null, Constants.MASTER_REALM)
+        def attribute = new AssetAttribute("temperature", AttributeType.NUMBER, Values.create(0), getClockTimeOf(container))
+        attribute.setStoreDatapoints(true)
+        attribute.setDatapointsMaxAgeDays(1)
+        asset.setAttributes(attribute)
+        asset = assetStorageService.merge(asset)
+        def attributeRef = new AttributeRef(asset.id, "temperature")
+
+        and: "a value is received"
+        assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "temperature", Values.create(10)))
+
+        then: "the datapoint should be stored"
+        conditions.eventually {
+            assert assetDatapointService.getDatapoints(attributeRef).size() == 1
+        }
+
+        when: "two days pass and another value is received"
+        advancePseudoClocks(2, DAYS, container)
+        assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "temperature", Values.create(20)))
+
+        then: "both datapoints should be stored"
+        conditions.eventually {
+            assert assetDatapointService.getDatapoints(attributeRef).size() == 2
+        }
+
+        when: "the stored datapoints are managed"
+        assetDatapointLifecycleService.manageDatapoints()
+
+        then: "only the recent datapoint should be kept"
+        def datapoints = assetDatapointService.getDatapoints(attributeRef)
+        datapoints.size() == 1
+        Values.getNumber(datapoints.get(0).value).orElse(null) == 20d
+
+        and: "the rollup of the deleted datapoint should be kept"
+        def aggregatedDatapoints = assetDatapointService.aggregateDatapoints(
+            assetStorageService.find(asset.id, true).getAttribute("temperature").get(),
+            DatapointInterval.WEEK,
+            getClockTimeOf(container) + HOURS.toMillis(1)
+        )
+        aggregatedDatapoints.count { it.number != null } == 2
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+}
@@ -6,6 +6,7 @@ import org.openremote.manager.server.datapoint.AssetDatapointService
 import org.openremote.manager.server.setup.SetupService
 import org.openremote.manager.server.setup.builtin.ManagerDemoSetup
 import org.openremote.model.attribute.AttributeRef
+import org.openremote.model.datapoint.AssetDatapoint
 import org.openremote.model.datapoint.DatapointInterval
 import org.openremote.model.value.Values
 import org.openremote.test.ManagerContainerTrait
@@ -13,6 +14,7 @@ import spock.lang.Specification
 import spock.util.concurrent.PollingConditions
 
 import static java.util.concurrent.TimeUnit.SECONDS
+import static org.openremote.manager.server.datapoint.AssetDatapointService.DATAPOINT_WRITE_INTERVAL_MILLIS
 
 class AssetDatapointTest extends Specification implements ManagerContainerTrait {
 
@@ -89,6 +91,8 @@ class AssetDatapointTest extends Specification implements ManagerContainerTrait
                     getClockTimeOf(container)
             )
             assert aggregatedDatapoints.size() == 61
+            assert aggregatedDatapoints.any { it.number != null }
+            assert aggregatedDatapoints.findAll { it.number != null }.every { it.number >= 12.345d && it.number <= 15.5d }
         }
 
         cleanup: "the server should be stopped"
@@ -173,4 +177,81 @@ class AssetDatapointTest extends Specification implements ManagerContainerTrait
         cleanup: "the server should be stopped"
         stopContainer(container)
     }
+
+    def "Receive number sensor values and store asset datapoints in batches"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, initialDelay: 1, delay: 1)
+
+        when: "the demo agent and thing have been deployed with batched datapoint storage"
+        def serverPort = findEphemeralPort()
+        def container = startContainerWithPseudoClock(
+            defaultConfig(serverPort) << [(DATAPOINT_WRITE_INTERVAL_MILLIS): "200"],
+            defaultServices()
+        )
+        def managerDemoSetup = container.getService(SetupService.class).getTaskOfType(ManagerDemoSetup.class)
+        def simulatorProtocol = container.getService(SimulatorProtocol.class)
+        def assetDatapointService = container.getService(AssetDatapointService.class)
+        def datapointWriter = assetDatapointService.getDatapointWriter()
+
+        then: "the simulator elements should have the initial state"
+        datapointWriter != null
+        conditions.eventually {
+            def state = simulatorProtocol.getValue(managerDemoSetup.thingId, "light1PowerConsumption")
+            assert Values.getNumber(state.orElse(null)).orElse(null) == 12.345d
+        }
+
+        when: "a simulated sensor receives several new values"
+        def queued = datapointWriter.getQueued()
+        (1..10).each {
+            advancePseudoClocks(10, SECONDS, container)
+            simulatorProtocol.putValue(managerDemoSetup.thingId, "light1PowerConsumption", Values.create(it))
+        }
+
+        then: "the datapoints should be stored in batches"
+        conditions.eventually {
+            def datapoints = assetDatapointService.getDatapoints(new AttributeRef(managerDemoSetup.thingId, "light1PowerConsumption"))
+            assert datapoints.size() > 10
+            assert Values.getNumber(datapoints.get(0).value).orElse(null) == 10d
+            assert datapointWriter.getQueued() >= queued + 10
+            assert datapointWriter.getFlushed() == datapointWriter.getQueued()
+            assert datapointWriter.getBatches() < datapointWriter.getFlushed()
+            assert datapointWriter.getDropped() == 0
+        }
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+
+    def "Ignore duplicate asset datapoints"() {
+
+        when: "the container is started"
+        def serverPort = findEphemeralPort()
+        def container = startContainerWithPseudoClock(defaultConfig(serverPort), defaultServices())
+        def managerDemoSetup = container.getService(SetupService.class).getTaskOfType(ManagerDemoSetup.class)
+        def assetDatapointService = container.getService(AssetDatapointService.class)
+        def attributeRef = new AttributeRef(managerDemoSetup.thingId, "light1PowerConsumption")
+        def timestamp = getClockTimeOf(container) + 1000
+
+        and: "datapoints are stored with a duplicate timestamp in the same batch"
+        assetDatapointService.storeDatapoints([
+            new AssetDatapoint(attributeRef, Values.create(1), timestamp),
+            new AssetDatapoint(attributeRef, Values.create(2), timestamp),
+            new AssetDatapoint(attributeRef, Values.create(3), timestamp + 1000)
+        ])
+
+        and: "a datapoint with an existing timestamp is stored again"
+        assetDatapointService.storeDatapoints([new AssetDatapoint(attributeRef, Values.create(4), timestamp + 1000)])
+
+        then: "the duplicates should be ignored without an error and the first stored values kept"
+        def datapoints = assetDatapointService.getDatapoints(attributeRef).findAll { it.timestamp >= timestamp }
+        datapoints.size() == 2
+        datapoints[0].timestamp == timestamp + 1000
+        Values.getNumber(datapoints[0].value).orElse(null) == 3d
+        datapoints[1].timestamp == timestamp
+        Values.getNumber(datapoints[1].value).orElse(null) == 1d
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
 }
@@ -4,8 +4,11 @@ import com.fasterxml.uuid.Generators
 import org.openremote.manager.server.setup.SetupService
 import org.openremote.manager.server.setup.builtin.KeycloakDemoSetup
 import org.openremote.manager.server.setup.builtin.ManagerDemoSetup
+import org.openremote.manager.shared.asset.AssetProcessingException
 import org.openremote.manager.shared.asset.AssetResource
 import org.openremote.model.asset.*
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeRef
 import org.openremote.model.attribute.AttributeType
 import org.openremote.model.attribute.Meta
 import org.openremote.model.attribute.MetaItem
@@ -226,6 +229,35 @@ class AssetPermissionsTest extends Specification implements ManagerContainerTrai
             assert asset.getAttribute("geoStreet").get().getValue().get().toJson() == Values.create("Teststreet 456").toJson()
         }
 
+        when: "several asset attributes are written in one request"
+        def writeResults = assetResource.writeAttributeValues(null, [
+            new AttributeEvent(managerDemoSetup.smartOfficeId, "geoStreet", Values.create("Teststreet 789")),
+            new AttributeEvent("doesnotexist", "geoStreet", Values.create("Teststreet 789")),
+            new AttributeEvent(managerDemoSetup.smartOfficeId, "doesnotexist", Values.create("Teststreet 789")),
+            new AttributeEvent(managerDemoSetup.smartHomeId, "geoStreet", Values.create("Teststreet 789"))
+        ] as AttributeEvent[])
+
+        then: "there should be a result for each event"
+        writeResults.length == 4
+        writeResults[0].success
+        writeResults[0].ref == new AttributeRef(managerDemoSetup.smartOfficeId, "geoStreet")
+        writeResults[1].failure == AssetProcessingException.Reason.ASSET_NOT_FOUND
+        writeResults[2].failure == AssetProcessingException.Reason.ATTRIBUTE_NOT_FOUND
+        writeResults[3].success
+
+        and: "the written values should be stored"
+        conditions.eventually {
+            assert assetResource.get(null, managerDemoSetup.smartOfficeId).getAttribute("geoStreet").get().getValue().get().toJson() == Values.create("Teststreet 789").toJson()
+            assert assetResource.get(null, managerDemoSetup.smartHomeId).getAttribute("geoStreet").get().getValue().get().toJson() == Values.create("Teststreet 789").toJson()
+        }
+
+        when: "no attributes are written"
+        assetResource.writeAttributeValues(null, new AttributeEvent[0])
+
+        then: "the request should be rejected"
+        ex = thrown()
+        ex.response.status == 400
+
         cleanup: "the server should be stopped"
         stopContainer(container)
     }
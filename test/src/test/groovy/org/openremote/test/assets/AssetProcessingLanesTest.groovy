@@ -0,0 +1,69 @@
+package org.openremote.test.assets
+
+import org.openremote.manager.server.asset.AssetProcessingService
+import org.openremote.manager.server.asset.AssetStorageService
+import org.openremote.manager.server.asset.ServerAsset
+import org.openremote.model.Constants
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import static org.openremote.manager.server.asset.AssetProcessingService.ASSET_PROCESSING_LANES
+
+class AssetProcessingLanesTest extends Specification implements ManagerContainerTrait {
+
+    def "Process attribute events of different assets in parallel lanes"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 1)
+
+        when: "the container is started with parallel processing lanes"
+        def serverPort = findEphemeralPort()
+        def container = startContainerNoDemoImport(
+            defaultConfig(serverPort) << [(ASSET_PROCESSING_LANES): "4"],
+            defaultServices()
+        )
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def assetProcessingService = container.getService(AssetProcessingService.class)
+
+        then: "the container should be running with four lanes"
+        assetProcessingService.getLanes().size() == 4
+        conditions.eventually {
+            assert noEventProcessedIn(assetProcessingService, 500)
+        }
+
+        when: "several assets are created"
+        def assets = (1..8).collect {
+            def asset = new ServerAsset("Lane Asset " + it, AssetType.THING, null, Constants.MASTER_REALM)
+            asset.setAttributes(
+                new AssetAttribute("counter", AttributeType.NUMBER, Values.create(0), getClockTimeOf(container))
+            )
+            assetStorageService.merge(asset)
+        }
+        def processed = assetProcessingService.getLanes().sum { it.getProcessed() }
+
+        and: "a sequence of attribute events is processed for each asset"
+        (1..20).each { counter ->
+            assets.each { asset ->
+                assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "counter", Values.create(counter)))
+            }
+        }
+
+        then: "the last value of each asset should be stored"
+        conditions.eventually {
+            assets.each { asset ->
+                assert assetStorageService.find(asset.id, true).getAttribute("counter").get().getValueAsNumber().get() == 20d
+            }
+            assert assetProcessingService.getLanes().sum { it.getProcessed() } == processed + 160
+            assert assetProcessingService.getLanes().every { it.getQueueDepth() == 0 }
+        }
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+}
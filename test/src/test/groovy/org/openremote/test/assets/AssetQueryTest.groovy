@@ -636,4 +636,116 @@ class AssetQueryTest extends Specification implements ManagerContainerTrait {
         assert asset.getAttribute("co2Level").get().valueAsNumber.get() == 350
 
     }
+
+    def "Query assets in pages"() {
+
+        when: "all assets of a tenant are queried"
+        def allAssets = assetStorageService.findAll(
+                new AssetQuery()
+                        .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                        .orderBy(new OrderBy(NAME))
+        )
+
+        then: "there should be several assets"
+        allAssets.size() > 3
+
+        when: "the same assets are queried in pages"
+        def pagedAssets = []
+        def page = assetStorageService.findAll(
+                new AssetQuery()
+                        .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                        .orderBy(new OrderBy(NAME))
+                        .limit(2)
+        )
+        while (page.size() > 0) {
+            assert page.size() <= 2
+            pagedAssets.addAll(page)
+            page = assetStorageService.findAll(
+                    new AssetQuery()
+                            .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                            .orderBy(new OrderBy(NAME))
+                            .limit(2)
+                            .after(page.last())
+            )
+        }
+
+        then: "the pages should contain all assets in the same order"
+        pagedAssets.collect { it.id } == allAssets.collect { it.id }
+
+        when: "assets are queried in descending order after a cursor without value"
+        def assets = assetStorageService.findAll(
+                new AssetQuery()
+                        .select(new Select(Include.ONLY_ID_AND_NAME))
+                        .parent(new ParentPredicate(managerDemoSetup.smartHomeId))
+                        .orderBy(new OrderBy(NAME, true))
+                        .cursor(new Cursor(managerDemoSetup.apartment3Id))
+        )
+
+        then: "result should match"
+        assets.size() == 2
+        assets.get(0).id == managerDemoSetup.apartment2Id
+        assets.get(1).id == managerDemoSetup.apartment1Id
+
+        when: "assets are ordered by parent in pages"
+        def parentOrderedAssets = []
+        def parentPage = assetStorageService.findAll(
+                new AssetQuery()
+                        .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                        .orderBy(new OrderBy(OrderBy.Property.PARENT_ID))
+                        .limit(3)
+        )
+        while (parentPage.size() > 0) {
+            parentOrderedAssets.addAll(parentPage)
+            parentPage = assetStorageService.findAll(
+                    new AssetQuery()
+                            .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                            .orderBy(new OrderBy(OrderBy.Property.PARENT_ID))
+                            .limit(3)
+                            .after(parentPage.last())
+            )
+        }
+
+        then: "root assets without parent should be included once"
+        parentOrderedAssets.collect { it.id }.toSet() == allAssets.collect { it.id }.toSet()
+        parentOrderedAssets.size() == allAssets.size()
+
+        when: "the assets of the tenant are streamed"
+        def streamedAssets = []
+        assetStorageService.streamAll(
+                new AssetQuery()
+                        .tenant(new TenantPredicate(keycloakDemoSetup.customerATenant.id))
+                        .orderBy(new OrderBy(NAME)),
+                { asset -> streamedAssets.add(asset) }
+        )
+
+        then: "the same assets should be consumed in the same order"
+        streamedAssets.collect { it.id } == allAssets.collect { it.id }
+    }
+
+    def "Reuse SQL of queries with the same shape"() {
+
+        when: "a query is executed"
+        def cacheHits = assetStorageService.getQueryCacheHits()
+        def assets = assetStorageService.findAll(
+                new AssetQuery()
+                        .parent(new ParentPredicate(managerDemoSetup.smartHomeId))
+                        .orderBy(new OrderBy(NAME))
+        )
+
+        then: "result should match"
+        assets.size() == 3
+        assets.get(0).id == managerDemoSetup.apartment1Id
+
+        when: "a query of the same shape with other values is executed"
+        assets = assetStorageService.findAll(
+                new AssetQuery()
+                        .parent(new ParentPredicate(managerDemoSetup.apartment1Id))
+                        .orderBy(new OrderBy(NAME))
+        )
+
+        then: "the SQL should be reused and the result should match the values"
+        assetStorageService.getQueryCacheHits() > cacheHits
+        assets.size() > 0
+        assets.every { it.parentId == managerDemoSetup.apartment1Id }
+    }
 }
@@ -0,0 +1,126 @@
+package org.openremote.test.assets
+
+import org.openremote.manager.server.asset.AssetProcessingService
+import org.openremote.manager.server.asset.AssetStateCache
+import org.openremote.manager.server.asset.AssetStorageService
+import org.openremote.manager.server.asset.ServerAsset
+import org.openremote.model.Constants
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.asset.AssetType
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class AssetStateCacheTest extends Specification implements ManagerContainerTrait {
+
+    def "Process attribute events with cached asset state"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 1)
+
+        when: "the container is started"
+        def serverPort = findEphemeralPort()
+        def container = startContainerNoDemoImport(defaultConfig(serverPort), defaultServices())
+        def assetStorageService = container.getService(AssetStorageService.class)
+        def assetProcessingService = container.getService(AssetProcessingService.class)
+        def assetStateCache = assetStorageService.getAssetStateCache()
+
+        then: "the container should be running and initialised"
+        conditions.eventually {
+            assert noEventProcessedIn(assetProcessingService, 500)
+        }
+
+        when: "an asset is created"
+        def asset = new ServerAsset("Cached Asset", AssetType.THING, null, Constants.MASTER_REALM)
+        asset.setAttributes(
+            new AssetAttribute("counter", AttributeType.NUMBER, Values.create(0), getClockTimeOf(container))
+        )
+        asset = assetStorageService.merge(asset)
+        def misses = assetStateCache.getMisses()
+        def hits = assetStateCache.getHits()
+
+        and: "several attribute events are processed"
+        (1..5).each {
+            assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "counter", Values.create(it)))
+            Thread.sleep(10)
+        }
+
+        then: "the asset should have been loaded from the database once and the last value stored"
+        conditions.eventually {
+            assert assetStorageService.find(asset.id, true).getAttribute("counter").get().getValueAsNumber().get() == 5d
+            assert assetStorageService.findCached(asset.id).getAttribute("counter").get().getValueAsNumber().get() == 5d
+            assert assetStateCache.getMisses() == misses + 1
+            assert assetStateCache.getHits() >= hits + 4
+        }
+
+        when: "the asset is modified outside of attribute event processing"
+        asset = assetStorageService.find(asset.id, true)
+        asset.addAttributes(new AssetAttribute("label", AttributeType.STRING, Values.create("foo"), getClockTimeOf(container)))
+        asset = assetStorageService.merge(asset)
+
+        and: "an attribute event for the new attribute is processed"
+        assetProcessingService.sendAttributeEvent(new AttributeEvent(asset.id, "label", Values.create("bar")))
+
+        then: "the cached asset state should have been invalidated and the new attribute value stored"
+        conditions.eventually {
+            assert assetStorageService.find(asset.id, true).getAttribute("label").get().getValueAsString().get() == "bar"
+            assert assetStorageService.findCached(asset.id).getAttribute("label").get().getValueAsString().get() == "bar"
+        }
+
+        when: "a cached asset copy is modified"
+        def cachedAsset = assetStorageService.findCached(asset.id)
+        cachedAsset.getAttribute("label").get().setValue(Values.create("baz"))
+
+        then: "the cached asset state should not change"
+        assetStorageService.findCached(asset.id).getAttribute("label").get().getValueAsString().get() == "bar"
+
+        when: "the asset is deleted"
+        assetStorageService.delete(asset.id)
+
+        then: "the asset should not be found"
+        assetStorageService.findCached(asset.id) == null
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+
+    def "Only discard loads of modified assets"() {
+
+        given: "a cache and a loader of asset state"
+        def assetStateCache = new AssetStateCache(10)
+        Closure onLoad = {}
+        def loader = { String assetId ->
+            def asset = new ServerAsset("Asset " + assetId, AssetType.THING)
+            asset.setId(assetId)
+            asset.setAttributes(new AssetAttribute("counter", AttributeType.NUMBER, Values.create(0), 1000))
+            onLoad(assetId)
+            return asset
+        }
+
+        when: "another asset is written while an asset is loaded"
+        onLoad = { assetStateCache.updateAttributeValue("asset2", "counter", Values.create(1), 2000) }
+        assetStateCache.get("asset1", loader)
+
+        then: "the loaded asset should be cached"
+        assetStateCache.getSize() == 1
+        assetStateCache.get("asset1", loader).getAttribute("counter").get().getValueAsNumber().get() == 0d
+        assetStateCache.getHits() == 1
+
+        when: "the same asset is written while it is loaded"
+        onLoad = { assetStateCache.updateAttributeValue("asset3", "counter", Values.create(1), 2000) }
+        assetStateCache.get("asset3", loader)
+
+        then: "the stale asset state should not be cached"
+        assetStateCache.getSize() == 1
+
+        when: "the asset is loaded again"
+        onLoad = {}
+        assetStateCache.get("asset3", loader)
+
+        then: "it should be cached"
+        assetStateCache.getSize() == 2
+    }
+}
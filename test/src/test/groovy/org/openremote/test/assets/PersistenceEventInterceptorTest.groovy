@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.assets
+
+import org.hibernate.Transaction
+import org.openremote.container.persistence.PersistenceEvent
+import org.openremote.container.persistence.PersistenceEventInterceptor
+import org.openremote.container.persistence.PersistenceEventPublisher
+import spock.lang.Specification
+
+import javax.transaction.Status
+import javax.transaction.Synchronization
+
+import static org.openremote.container.persistence.PersistenceEvent.Cause.*
+
+class PersistenceEventInterceptorTest extends Specification {
+
+    def "Coalesce persistence events of a transaction"() {
+
+        given: "a persistence event interceptor with a publisher"
+        List<List<PersistenceEvent>> published = []
+        def eventPublisher = new PersistenceEventPublisher(null) {
+            @Override
+            void publish(List<PersistenceEvent> persistenceEvents) {
+                published.add(persistenceEvents)
+            }
+        }
+        def interceptor = new PersistenceEventInterceptor()
+        interceptor.setEventPublisher(eventPublisher)
+        def propertyNames = ["name"] as String[]
+
+        and: "a transaction"
+        Synchronization synchronization = null
+        interceptor.afterTransactionBegin(
+            [registerSynchronization: { Synchronization s -> synchronization = s }] as Transaction
+        )
+
+        when: "entities are changed repeatedly in a transaction"
+        interceptor.onSave("A", "1", ["a0"] as Object[], propertyNames, null)
+        interceptor.onFlushDirty("A", "1", ["a1"] as Object[], ["a0"] as Object[], propertyNames, null)
+        interceptor.onFlushDirty("B", "2", ["b1"] as Object[], ["b0"] as Object[], propertyNames, null)
+        interceptor.onFlushDirty("B", "2", ["b2"] as Object[], ["b1"] as Object[], propertyNames, null)
+        interceptor.onSave("C", "3", ["c0"] as Object[], propertyNames, null)
+        interceptor.onDelete("C", "3", ["c0"] as Object[], propertyNames, null)
+        interceptor.onFlushDirty("D", "4", ["d1"] as Object[], ["d0"] as Object[], propertyNames, null)
+        interceptor.onDelete("D", "4", ["d1"] as Object[], propertyNames, null)
+        interceptor.onDelete("E", "5", ["e0"] as Object[], propertyNames, null)
+        interceptor.onSave("E", "5", ["e1"] as Object[], propertyNames, null)
+
+        and: "the transaction is committed"
+        synchronization.afterCompletion(Status.STATUS_COMMITTED)
+
+        then: "the events of the transaction should have been published once"
+        published.size() == 1
+        def events = published[0]
+
+        and: "an update after an insert should be an insert of the current state"
+        events[0].cause == INSERT
+        events[0].entity == "A"
+        events[0].getCurrentState("name") == "a1"
+
+        and: "an update after an update should be an update from the first previous state"
+        events[1].cause == UPDATE
+        events[1].entity == "B"
+        events[1].getCurrentState("name") == "b2"
+        events[1].getPreviousState("name") == "b0"
+
+        and: "a delete after an insert should cancel the insert"
+        !events.any { it.entity == "C" }
+
+        and: "a delete after an update should be a delete"
+        events[2].cause == DELETE
+        events[2].entity == "D"
+
+        and: "an insert after a delete should be kept"
+        events[3].cause == DELETE
+        events[3].entity == "E"
+        events[4].cause == INSERT
+        events[4].entity == "E"
+        events.size() == 5
+
+        when: "another transaction is rolled back"
+        interceptor.afterTransactionBegin(
+            [registerSynchronization: { Synchronization s -> synchronization = s }] as Transaction
+        )
+        interceptor.onSave("F", "6", ["f0"] as Object[], propertyNames, null)
+        synchronization.afterCompletion(Status.STATUS_ROLLEDBACK)
+
+        then: "no events should have been published"
+        published.size() == 1
+
+        cleanup: "the publisher should be closed"
+        eventPublisher?.close()
+    }
+}
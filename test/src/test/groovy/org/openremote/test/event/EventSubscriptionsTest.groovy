@@ -0,0 +1,57 @@
+package org.openremote.test.event
+
+import org.openremote.manager.server.event.ClientEventService
+import org.openremote.model.asset.AssetTreeModifiedEvent
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.event.shared.CancelEventSubscription
+import org.openremote.model.event.shared.EventSubscription
+import org.openremote.model.event.shared.TenantFilter
+import org.openremote.model.value.Values
+import org.openremote.test.ManagerContainerTrait
+import spock.lang.Specification
+
+class EventSubscriptionsTest extends Specification implements ManagerContainerTrait {
+
+    def "Match events against indexed subscriptions"() {
+
+        given: "the container is started"
+        def serverPort = findEphemeralPort()
+        def container = startContainerNoDemoImport(defaultConfig(serverPort), defaultServices())
+        def eventSubscriptions = container.getService(ClientEventService.class).eventSubscriptions
+
+        when: "sessions subscribe to attribute events of different assets"
+        eventSubscriptions.update("session1", new EventSubscription(AttributeEvent.class, new AttributeEvent.EntityIdFilter("asset1")))
+        eventSubscriptions.update("session2", new EventSubscription(AttributeEvent.class, new AttributeEvent.EntityIdFilter("asset1", "asset2")))
+        eventSubscriptions.update("session3", new EventSubscription(AttributeEvent.class))
+
+        and: "a session subscribes to tree modified events of a tenant"
+        eventSubscriptions.update("session4", new EventSubscription(AssetTreeModifiedEvent.class, new TenantFilter("tenant1")))
+
+        then: "attribute events should only match the sessions interested in the asset"
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset1", "foo", Values.create(1))) as Set == ["session1", "session2", "session3"] as Set
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset2", "foo", Values.create(1))) as Set == ["session2", "session3"] as Set
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset3", "foo", Values.create(1))) == ["session3"]
+
+        and: "other events should be matched with their filter"
+        eventSubscriptions.getSubscribedSessionKeys(new AssetTreeModifiedEvent(0, "tenant1", "asset1")) == ["session4"]
+        eventSubscriptions.getSubscribedSessionKeys(new AssetTreeModifiedEvent(0, "tenant2", "asset1")).isEmpty()
+
+        when: "a session changes its subscription"
+        eventSubscriptions.update("session1", new EventSubscription(AttributeEvent.class, new AttributeEvent.EntityIdFilter("asset3")))
+
+        then: "the index should be updated"
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset1", "foo", Values.create(1))) as Set == ["session2", "session3"] as Set
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset3", "foo", Values.create(1))) as Set == ["session1", "session3"] as Set
+
+        when: "subscriptions are cancelled"
+        eventSubscriptions.cancel("session3", new CancelEventSubscription(AttributeEvent.class))
+        eventSubscriptions.cancelAll("session2")
+
+        then: "the index should be updated"
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset1", "foo", Values.create(1))).isEmpty()
+        eventSubscriptions.getSubscribedSessionKeys(new AttributeEvent("asset3", "foo", Values.create(1))) == ["session1"]
+
+        cleanup: "the server should be stopped"
+        stopContainer(container)
+    }
+}
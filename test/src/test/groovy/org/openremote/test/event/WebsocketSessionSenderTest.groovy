@@ -0,0 +1,110 @@
+package org.openremote.test.event
+
+import org.openremote.container.web.socket.WebsocketSessionSender
+import spock.lang.Specification
+
+import javax.websocket.CloseReason
+import javax.websocket.RemoteEndpoint
+import javax.websocket.SendHandler
+import javax.websocket.SendResult
+import javax.websocket.Session
+
+import static org.openremote.container.web.socket.WebsocketSessionSender.OverflowPolicy.*
+
+class WebsocketSessionSenderTest extends Specification {
+
+    class StubSession {
+        boolean open = true
+        CloseReason closeReason
+        List<String> sentText = []
+        List<SendHandler> pendingHandlers = []
+
+        Session asSession() {
+            def asyncRemote = [
+                sendText: { String text, SendHandler handler ->
+                    sentText << text
+                    pendingHandlers << handler
+                }
+            ] as RemoteEndpoint.Async
+            [
+                getId         : { "session1" },
+                isOpen        : { open },
+                getAsyncRemote: { asyncRemote },
+                close         : { CloseReason reason -> closeReason = reason; open = false }
+            ] as Session
+        }
+
+        // Simulates the client receiving the message in flight
+        void completeSend() {
+            pendingHandlers.remove(0).onResult(new SendResult())
+        }
+    }
+
+    def "Drop the oldest messages of a slow client"() {
+
+        given: "a sender with a queue of two messages"
+        def stub = new StubSession()
+        def sender = new WebsocketSessionSender(stub.asSession(), 2, DROP_OLDEST)
+
+        when: "messages are sent faster than the client receives them"
+        (1..5).each { sender.send("message" + it, null) }
+
+        then: "the first message should be in flight and the oldest queued messages dropped"
+        stub.sentText == ["message1"]
+        sender.queueDepth == 2
+        sender.maxQueueDepth == 2
+        sender.droppedMessages == 2
+
+        when: "the client receives all messages"
+        3.times { stub.completeSend() }
+
+        then: "the newest messages should have been sent"
+        stub.sentText == ["message1", "message4", "message5"]
+        sender.sentMessages == 3
+        sender.queueDepth == 0
+    }
+
+    def "Conflate messages of the same attribute"() {
+
+        given: "a sender with a queue of two messages"
+        def stub = new StubSession()
+        def sender = new WebsocketSessionSender(stub.asSession(), 2, CONFLATE)
+
+        when: "several values of two attributes are sent to a slow client"
+        sender.send("a1", "a")
+        sender.send("a2", "a")
+        sender.send("b1", "b")
+        sender.send("a3", "a")
+        sender.send("b2", "b")
+
+        and: "the client receives all messages"
+        3.times { stub.completeSend() }
+
+        then: "only the latest value of each attribute should have been sent after the first"
+        stub.sentText == ["a1", "a3", "b2"]
+        sender.conflatedMessages == 2
+        sender.droppedMessages == 0
+    }
+
+    def "Disconnect a slow client"() {
+
+        given: "a sender with a queue of one message"
+        def stub = new StubSession()
+        def sender = new WebsocketSessionSender(stub.asSession(), 1, DISCONNECT)
+
+        when: "messages are sent faster than the client receives them"
+        (1..3).each { sender.send("message" + it, null) }
+
+        then: "the session should be closed"
+        stub.closeReason.closeCode == CloseReason.CloseCodes.VIOLATED_POLICY
+        sender.queueDepth == 0
+        sender.droppedMessages == 2
+
+        when: "more messages are sent"
+        sender.send("message4", null)
+
+        then: "they should be dropped"
+        stub.sentText == ["message1"]
+        sender.droppedMessages == 3
+    }
+}
@@ -0,0 +1,124 @@
+package org.openremote.test.model
+
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.attribute.MetaItem
+import org.openremote.model.value.Values
+import spock.lang.Specification
+
+import static org.openremote.model.asset.AssetMeta.*
+
+class AttributeMetaIndexTest extends Specification {
+
+    def "Rebuild meta index when meta items are modified"() {
+
+        given: "an attribute with meta items"
+        def attribute = new AssetAttribute("temperature", AttributeType.NUMBER, Values.create(0))
+        attribute.setMeta(
+            new MetaItem(LABEL, Values.create("Temperature")),
+            new MetaItem(RULE_STATE, Values.create(true)),
+            new MetaItem(READ_ONLY, Values.create(false))
+        )
+
+        expect: "the flags and items to be indexed"
+        attribute.isRuleState()
+        !attribute.isReadOnly()
+        !attribute.isStoreDatapoints()
+        attribute.isEnabled()
+        attribute.getLabel().get() == "Temperature"
+        attribute.hasMetaItem(LABEL)
+        !attribute.hasMetaItem(FORMAT)
+
+        and: "the index to be reused while the meta items are not modified"
+        def index = attribute.metaIndex
+        attribute.isRuleState()
+        attribute.metaIndex.is(index)
+
+        when: "the value of the attribute is modified"
+        attribute.setValue(Values.create(1))
+
+        then: "the index should be reused"
+        attribute.isRuleState()
+        attribute.metaIndex.is(index)
+
+        when: "meta items are added and removed"
+        attribute.setStoreDatapoints(true)
+        attribute.setRuleState(false)
+        attribute.setDisabled(true)
+
+        then: "the index should be rebuilt"
+        attribute.isStoreDatapoints()
+        !attribute.isRuleState()
+        !attribute.isEnabled()
+        !attribute.metaIndex.is(index)
+
+        when: "the value of an indexed meta item is modified"
+        attribute.getMetaItem(READ_ONLY).get().setValue(Values.create(true))
+
+        then: "the index should be rebuilt"
+        attribute.isReadOnly()
+
+        when: "the meta items are modified through the meta list"
+        attribute.getMeta().removeIf(MetaItem.isMetaNameEqualTo(READ_ONLY))
+        attribute.getMeta().add(new MetaItem(LABEL, Values.create("Other")))
+
+        then: "the index should be rebuilt and keep the order of items"
+        !attribute.isReadOnly()
+        attribute.getLabel().get() == "Temperature"
+        attribute.getMetaItems(LABEL.urn).length == 2
+
+        when: "the meta items are replaced"
+        attribute.setMeta(new MetaItem(EXECUTABLE, Values.create(true)))
+
+        then: "the index should be rebuilt"
+        attribute.isExecutable()
+        !attribute.hasMetaItem(LABEL)
+        attribute.getLabel().get() == "temperature"
+    }
+
+    def "Count modifications of nested values"() {
+
+        given: "an object containing an array containing an object"
+        def item = Values.createObject().put("a", 1)
+        def array = Values.createArray().add(item)
+        def object = Values.createObject().put("array", array)
+        def count = object.modificationCount
+
+        when: "the nested object is modified"
+        item.put("a", 2)
+
+        then: "the modification should be counted by all its containers"
+        array.modificationCount > 0
+        object.modificationCount > count
+
+        when: "the nested object is also added to another array and modified"
+        def otherArray = Values.createArray().add(item)
+        def otherCount = otherArray.modificationCount
+        count = object.modificationCount
+        item.put("a", 3)
+
+        then: "the modification should be counted by both containers"
+        object.modificationCount > count
+        otherArray.modificationCount > otherCount
+
+        when: "the nested object is removed from the first array and modified"
+        array.remove(0)
+        count = object.modificationCount
+        otherCount = otherArray.modificationCount
+        item.put("a", 4)
+
+        then: "the modification should only be counted by the other array"
+        object.modificationCount == count
+        otherArray.modificationCount > otherCount
+
+        when: "a deep copy is modified"
+        def copy = otherArray.deepCopy()
+        def copyCount = copy.modificationCount
+        otherCount = otherArray.modificationCount
+        copy.getObject(0).get().put("a", 5)
+
+        then: "the modification should only be counted by the copy"
+        copy.modificationCount > copyCount
+        otherArray.modificationCount == otherCount
+    }
+}
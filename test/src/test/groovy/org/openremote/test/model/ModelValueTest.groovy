@@ -1,11 +1,15 @@
 package org.openremote.test.model
 
+import org.openremote.container.json.ValueJsonReader
+import org.openremote.container.json.ValueJsonWriter
 import org.openremote.model.value.ArrayValue
 import org.openremote.model.value.ObjectValue
 import org.openremote.model.value.Value
 import org.openremote.model.value.Values
 import spock.lang.Specification
 
+import java.nio.charset.StandardCharsets
+
 class ModelValueTest extends Specification {
 
     def "Read and write JSON"() {
@@ -159,4 +163,60 @@ class ModelValueTest extends Specification {
         differentValues1.hashCode() != differentValues2.hashCode()
     }
 
+    def "Deep copy values"() {
+        given: "a nested object"
+        ObjectValue original = Values.<ObjectValue>parse('{"a":"AAA","b":123.45,"c":true,"d":null,"e":{"f":[1,{"g":"G"},[2,3]]}}').get()
+        String originalJson = original.toJson()
+
+        when: "the object is copied"
+        ObjectValue copy = original.deepCopy()
+
+        then: "the copy should be equal"
+        copy == original
+        copy.toJson() == original.toJson()
+        copy.keyContainsNull("d")
+
+        when: "nested values of the copy are modified"
+        copy.getObject("e").get().getArray("f").get().getObject(1).get().put("g", "Modified")
+        copy.getObject("e").get().getArray("f").get().add(Values.create(4))
+
+        then: "the original should not be modified"
+        original.toJson() == originalJson
+        copy != original
+        copy.getObject("e").get().getArray("f").get().length() == 4
+        copy.getObject("e").get().getArray("f").get().getObject(1).get().getString("g").get() == "Modified"
+    }
+
+    def "Stream JSON identical to model values"() {
+        given:
+        def sampleObject = Values.createObject()
+            .put("name", "urn:openremote:asset:meta:label")
+            .put("10", 1)
+            .put("2", "Two")
+            .put("text", "Quote \" backslash \\ tab \t control \u0001\u0085 unicode \u00e9\u20ac\ud83d\ude00")
+            .put("numbers", Values.createArray().add(Values.create(0)).add(Values.create(-0d)).add(Values.create(123.45)).add(Values.create(1e7)).add(Values.create(-9999999)).add(Values.create(Double.NaN)))
+            .put("nested", Values.createObject().put("on", true).put("off", false).put("empty", Values.createArray()).put("nothing", (Value) null))
+
+        expect: "the written JSON to be identical"
+        def json = sampleObject.toJson()
+        ValueJsonWriter.toJson(sampleObject) == json
+        ValueJsonWriter.toBytes(sampleObject) == json.getBytes(StandardCharsets.UTF_8)
+        def out = new ByteArrayOutputStream()
+        ValueJsonWriter.write(sampleObject, out)
+        out.toByteArray() == json.getBytes(StandardCharsets.UTF_8)
+        ValueJsonWriter.toJson(Values.create(123)) == Values.create(123).toJson()
+
+        and: "the parsed values to be equal"
+        def parsedValue = Values.<ObjectValue>parse(json).get()
+        ValueJsonReader.<ObjectValue>parse(json).get().toJson() == parsedValue.toJson()
+        ValueJsonReader.<ObjectValue>parse(json.getBytes(StandardCharsets.UTF_8)).get().toJson() == parsedValue.toJson()
+        ValueJsonReader.<ObjectValue>parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).get().toJson() == parsedValue.toJson()
+        !ValueJsonReader.parse("null").isPresent()
+
+        and: "repeated keys and short strings to be interned"
+        def first = ValueJsonReader.<ObjectValue>parse(json).get()
+        def second = ValueJsonReader.<ObjectValue>parse(json.getBytes(StandardCharsets.UTF_8)).get()
+        first.keys()[0].is(second.keys()[0])
+        first.getString("name").get().is(second.getString("name").get())
+    }
 }
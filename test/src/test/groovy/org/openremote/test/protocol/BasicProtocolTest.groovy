@@ -476,6 +476,13 @@ class BasicProtocolTest extends Specification implements ManagerContainerTrait,
             Values.getNumber(protocolWriteAttributeEvents[0].value.orElse(null)).orElse(0d) == 30d
         }
 
+        and: "the write should have been received on the actuator queue of the protocol"
+        conditions.eventually {
+            assert mockProtocol.actuatorWrites == 1
+            assert mockProtocol.actuatorQueueDepth == 0
+            assert mockProtocol.maxActuatorWriteLatencyMillis >= mockProtocol.averageActuatorWriteLatencyMillis
+        }
+
         when: "the protocol has finished processing the attribute write"
         def state = mockProtocol.protocolWriteAttributeEvents.last().getAttributeState()
         mockProtocol.updateReceived(state)
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol
+
+import org.openremote.agent.protocol.ProtocolTimer
+import org.openremote.container.concurrent.ContainerExecutor
+import org.openremote.container.concurrent.ContainerThreadFactory
+import org.quartz.CronExpression
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ProtocolTimerTest extends Specification {
+
+    def "Execute delayed and cron scheduled tasks"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 0.1)
+
+        and: "a protocol timer"
+        def dispatchExecutor = new ContainerExecutor("Test timer dispatch")
+        def timer = new ProtocolTimer(new ContainerThreadFactory("Test timer"), 10, 512, dispatchExecutor)
+        def executions = new CopyOnWriteArrayList<String>()
+
+        when: "two tasks are scheduled and one of them is cancelled"
+        timer.schedule({ executions.add(Thread.currentThread().name) }, 50)
+        def cancelled = timer.schedule({ executions.add("cancelled") }, 50)
+        cancelled.cancel()
+
+        then: "only the other task should be executed, not on the tick thread"
+        conditions.eventually {
+            assert executions.size() == 1
+            assert executions[0].startsWith("Test timer dispatch")
+        }
+
+        when: "a task is scheduled every second"
+        executions.clear()
+        def cronTimeout = timer.schedule({ executions.add("cron") }, new CronExpression("* * * ? * * *"))
+
+        then: "it should be executed repeatedly"
+        cronTimeout.nextFireTime != null
+        conditions.eventually {
+            assert executions.size() >= 2
+        }
+
+        when: "the cron task is cancelled"
+        cronTimeout.cancel()
+        def count = executions.size()
+        Thread.sleep(1500)
+
+        then: "it should not be executed again"
+        executions.size() == count
+
+        when: "a task is scheduled with a cron expression without future fire time"
+        def pastTimeout = timer.schedule({ executions.add("past") }, new CronExpression("0 0 0 1 1 ? 2000"))
+
+        then: "it should never be executed"
+        pastTimeout.nextFireTime == null
+
+        cleanup: "the timer should be stopped"
+        timer.stop()
+        dispatchExecutor.shutdownNow()
+    }
+}
@@ -97,6 +97,9 @@ class SocketMessageProcessorTest extends Specification implements ManagerContain
             assert connectionStatus == ConnectionStatus.CONNECTED
         }
 
+        and: "the connection should use the shared event loop group"
+        messageProcessor.workerGroup.is(protocolExecutorService.eventLoopGroup)
+
         when: "the server sends a message"
         socketServer.sendMessage("Hello world".getBytes(CharsetUtil.UTF_8))
 
@@ -113,6 +116,15 @@ class SocketMessageProcessorTest extends Specification implements ManagerContain
             assert lastMessage == "Test"
         }
 
+        and: "the sent and received messages should be counted"
+        conditions.eventually {
+            assert messageProcessor.messagesSent == 1
+            assert messageProcessor.bytesSent == 4
+            assert messageProcessor.messagesReceived == 2
+            assert messageProcessor.bytesReceived == 15
+            assert messageProcessor.backlog == 0
+        }
+
         when: "we request the message processor to disconnect"
         messageProcessor.disconnect()
 
@@ -122,6 +134,9 @@ class SocketMessageProcessorTest extends Specification implements ManagerContain
             assert connectionStatus == ConnectionStatus.DISCONNECTED
         }
 
+        and: "the shared event loop group should not be shut down"
+        !protocolExecutorService.eventLoopGroup.isShuttingDown()
+
         when: "we reconnect the same message processor"
         messageProcessor.connect()
 
@@ -156,6 +171,9 @@ class SocketMessageProcessorTest extends Specification implements ManagerContain
             assert connectionStatus == ConnectionStatus.WAITING
         }
 
+        and: "the reconnection attempt should be counted"
+        messageProcessor.reconnects > 0
+
         when: "the connection to the server is restored"
         socketServer.start()
 
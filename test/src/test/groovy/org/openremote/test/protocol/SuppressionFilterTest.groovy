@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol
+
+import org.apache.camel.ProducerTemplate
+import org.openremote.agent.protocol.AbstractProtocol
+import org.openremote.agent.protocol.Protocol
+import org.openremote.agent.protocol.filter.ChangeOnlyFilter
+import org.openremote.agent.protocol.filter.DeadbandFilter
+import org.openremote.agent.protocol.filter.MinIntervalFilter
+import org.openremote.agent.protocol.filter.SuppressionFilter
+import org.openremote.model.asset.AssetAttribute
+import org.openremote.model.attribute.AttributeEvent
+import org.openremote.model.attribute.AttributeRef
+import org.openremote.model.attribute.AttributeState
+import org.openremote.model.attribute.AttributeType
+import org.openremote.model.attribute.MetaItem
+import org.openremote.model.value.Value
+import org.openremote.model.value.Values
+import spock.lang.Specification
+
+class SuppressionFilterTest extends Specification {
+
+    static boolean passes(SuppressionFilter filter, Value value, long timestamp) {
+        if (filter.isSuppressed(value, timestamp))
+            return false
+        filter.passed(value, timestamp)
+        return true
+    }
+
+    def "Suppress redundant sensor values"() {
+
+        when: "an absolute deadband filter receives values"
+        def deadbandFilter = new DeadbandFilter(0.5, false)
+
+        then: "only values differing at least the deadband from the last passed value should pass"
+        passes(deadbandFilter, Values.create(20), 0)
+        !passes(deadbandFilter, Values.create(20.2), 0)
+        !passes(deadbandFilter, Values.create(20.4), 0)
+        passes(deadbandFilter, Values.create(20.5), 0)
+        !passes(deadbandFilter, Values.create(20.1), 0)
+        passes(deadbandFilter, Values.create(19.9), 0)
+
+        when: "a percentage deadband filter receives values"
+        deadbandFilter = new DeadbandFilter(10, true)
+
+        then: "only values differing at least the percentage from the last passed value should pass"
+        passes(deadbandFilter, Values.create(100), 0)
+        !passes(deadbandFilter, Values.create(109), 0)
+        passes(deadbandFilter, Values.create(110), 0)
+        !passes(deadbandFilter, Values.create(100), 0)
+
+        when: "a minimum interval filter receives values"
+        def minIntervalFilter = new MinIntervalFilter(1000)
+
+        then: "only values received after the interval should pass"
+        passes(minIntervalFilter, Values.create("a"), 1000)
+        !passes(minIntervalFilter, Values.create("b"), 1500)
+        passes(minIntervalFilter, Values.create("c"), 2000)
+        !passes(minIntervalFilter, Values.create("d"), 2999)
+
+        when: "a change only filter receives values"
+        def changeOnlyFilter = new ChangeOnlyFilter()
+
+        then: "only changed values should pass"
+        passes(changeOnlyFilter, Values.create(true), 0)
+        !passes(changeOnlyFilter, Values.create(true), 0)
+        passes(changeOnlyFilter, Values.create(false), 0)
+        passes(changeOnlyFilter, Values.create(true), 0)
+    }
+
+    def "Configure suppression filters with meta items"() {
+
+        when: "an attribute has suppression meta items"
+        def attribute = new AssetAttribute("temperature", AttributeType.TEMPERATURE_CELCIUS).addMeta(
+            new MetaItem(Protocol.META_PROTOCOL_CHANGE_ONLY, Values.create(true)),
+            new MetaItem(Protocol.META_PROTOCOL_DEADBAND, Values.create(0.5)),
+            new MetaItem(Protocol.META_PROTOCOL_MIN_INTERVAL_MILLIS, Values.create(1000))
+        )
+        def filters = Protocol.getLinkedAttributeSuppressionFilters(attribute).orElse(null)
+
+        then: "the suppression filters should be created"
+        filters.size() == 3
+        filters[0] instanceof ChangeOnlyFilter
+        filters[1] instanceof DeadbandFilter
+        ((DeadbandFilter) filters[1]).deadband == 0.5d
+        filters[2] instanceof MinIntervalFilter
+        ((MinIntervalFilter) filters[2]).intervalMillis == 1000
+
+        when: "a suppression filter is serialised as a message filter"
+        def filter = Protocol.deserialiseMessageFilter(new DeadbandFilter(5, true).toValue().get())
+
+        then: "it should be deserialised without its state"
+        filter instanceof DeadbandFilter
+        ((DeadbandFilter) filter).deadband == 5d
+        ((DeadbandFilter) filter).percent
+        ((DeadbandFilter) filter).lastNumber == null
+
+        when: "an attribute has no suppression meta items"
+        attribute = new AssetAttribute("plain", AttributeType.STRING)
+
+        then: "no suppression filters should be created"
+        !Protocol.getLinkedAttributeSuppressionFilters(attribute).isPresent()
+    }
+
+    def "Suppress sensor values with a chain of filters"() {
+
+        given: "a protocol with a linked attribute that has a deadband and a minimum interval filter"
+        def attributeRef = new AttributeRef("asset1", "temperature")
+        def attribute = new AssetAttribute("temperature", AttributeType.TEMPERATURE_CELCIUS).addMeta(
+            new MetaItem(Protocol.META_PROTOCOL_DEADBAND, Values.create(0.5)),
+            new MetaItem(Protocol.META_PROTOCOL_MIN_INTERVAL_MILLIS, Values.create(1000))
+        )
+        List<AttributeEvent> sentEvents = []
+        def protocol = new AbstractProtocol() {
+            @Override
+            protected void doLinkProtocolConfiguration(AssetAttribute protocolConfiguration) {
+            }
+
+            @Override
+            protected void doUnlinkProtocolConfiguration(AssetAttribute protocolConfiguration) {
+            }
+
+            @Override
+            protected void doLinkAttribute(AssetAttribute linkedAttribute, AssetAttribute protocolConfiguration) {
+            }
+
+            @Override
+            protected void doUnlinkAttribute(AssetAttribute linkedAttribute, AssetAttribute protocolConfiguration) {
+            }
+
+            @Override
+            protected void processLinkedAttributeWrite(AttributeEvent event, AssetAttribute protocolConfiguration) {
+            }
+
+            @Override
+            String getVersion() {
+                return "1.0"
+            }
+
+            @Override
+            String getProtocolName() {
+                return "urn:myCustom:suppressionProtocol"
+            }
+
+            @Override
+            String getProtocolDisplayName() {
+                return "Suppression"
+            }
+        }
+        protocol.producerTemplate = [
+            sendBodyAndHeader: { String endpointUri, Object body, String header, Object headerValue ->
+                sentEvents << (AttributeEvent) body
+            }
+        ] as ProducerTemplate
+        protocol.linkedAttributes.put(attributeRef, attribute)
+        protocol.linkedAttributeSuppressionFilters.put(attributeRef, Protocol.getLinkedAttributeSuppressionFilters(attribute).get())
+
+        when: "sensor values are received"
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(20)), 1000)
+        // Passes the deadband but not the minimum interval, the deadband must not remember it
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(20.6)), 1500)
+        // Only passes if compared with the last sent value
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(20.7)), 2100)
+        // Suppressed by the deadband
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(20.9)), 2200)
+        // Suppressed by the minimum interval
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(21.5)), 2600)
+        protocol.updateLinkedAttribute(new AttributeState(attributeRef, Values.create(21.5)), 3100)
+
+        then: "only the values passing all filters should be sent and the others counted as suppressed"
+        sentEvents.collect { it.value.flatMap { Values.getNumber(it) }.orElse(null) } == [20d, 20.7d, 21.5d]
+        sentEvents.collect { it.timestamp } == [1000L, 2100L, 3100L]
+        protocol.getSuppressedUpdates(attributeRef) == 3
+    }
+}
@@ -16,9 +16,6 @@ import org.openremote.model.attribute.AttributeRef
 import org.openremote.model.attribute.AttributeType
 import org.openremote.model.value.Values
 import org.openremote.test.ManagerContainerTrait
-import org.quartz.CronTrigger
-import org.quartz.JobKey
-import org.quartz.impl.matchers.GroupMatcher
 import spock.lang.Specification
 import spock.util.concurrent.PollingConditions
 
@@ -50,26 +47,20 @@ class TimerProtocolTest extends Specification implements ManagerContainerTrait {
             assert sceneAgent != null
         }
 
-        and: "the quartz scheduler is running and contains all the demo triggers with the correct cron expression"
+        and: "the cron scheduler contains all the demo jobs"
         conditions.eventually {
             assert timerProtocol.cronScheduler != null
-            assert timerProtocol.cronScheduler.scheduler != null
-            assert timerProtocol.cronScheduler.scheduler.isStarted()
-            assert timerProtocol.cronScheduler.scheduler.getJobKeys(GroupMatcher.anyJobGroup()).size() >= 28
+            assert timerProtocol.cronScheduler.jobs.size() >= 28
         }
 
-        and: "the quartz job has the correct time"
+        and: "the cron job has the correct time"
         conditions.eventually {
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail != null
-            assert triggers.size() == 1
-            assert triggers[0] instanceof CronTrigger
-            def cronTrigger = (CronTrigger)triggers[0]
-            assert cronTrigger.cronExpression == "0 30 8 ? * FRI *"
+            def job = timerProtocol.cronScheduler.getJob(timerId)
+            assert job != null
+            assert job.nextFireTime != null
+            assert job.cronExpression.cronExpression == "0 30 8 ? * FRI *"
         }
 
         and: "all protocol linked attributes should be linked"
@@ -85,11 +76,7 @@ class TimerProtocolTest extends Specification implements ManagerContainerTrait {
         conditions.eventually {
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail == null
-            assert triggers.isEmpty()
+            assert timerProtocol.cronScheduler.getJob(timerId) == null
         }
 
         and: "all protocol linked attributes should be re-linked"
@@ -101,36 +88,28 @@ class TimerProtocolTest extends Specification implements ManagerContainerTrait {
         def enableScene = new AttributeEvent(managerDemoSetup.apartment1Id, "awaySceneEnabledFRIDAY", Values.create(true))
         assetProcessingService.sendAttributeEvent(enableScene)
 
-        then: "the quartz job should be recreated and have the correct time"
+        then: "the cron job should be recreated and have the correct time"
         conditions.eventually {
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail != null
-            assert triggers.size() == 1
-            assert triggers[0] instanceof CronTrigger
-            def cronTrigger = (CronTrigger)triggers[0]
-            assert cronTrigger.cronExpression == "0 30 8 ? * FRI *"
+            def job = timerProtocol.cronScheduler.getJob(timerId)
+            assert job != null
+            assert job.nextFireTime != null
+            assert job.cronExpression.cronExpression == "0 30 8 ? * FRI *"
         }
 
         when: "a trigger time is modified"
         def modifyTime = new AttributeEvent(managerDemoSetup.apartment1Id, "awaySceneTimeFRIDAY", Values.create("04:00:00"))
         assetProcessingService.sendAttributeEvent(modifyTime)
 
-        then: "the quartz job should have the new trigger time"
+        then: "the cron job should have the new trigger time"
         conditions.eventually {
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail != null
-            assert triggers.size() == 1
-            assert triggers[0] instanceof CronTrigger
-            def cronTrigger = (CronTrigger)triggers[0]
-            assert cronTrigger.cronExpression == "0 0 4 ? * FRI *"
+            def job = timerProtocol.cronScheduler.getJob(timerId)
+            assert job != null
+            assert job.nextFireTime != null
+            assert job.cronExpression.cronExpression == "0 0 4 ? * FRI *"
         }
 
         when: "an attribute is added that links to a timers cron expression"
@@ -153,18 +132,14 @@ class TimerProtocolTest extends Specification implements ManagerContainerTrait {
         def modifyCron = new AttributeEvent(managerDemoSetup.apartment1Id, "awaySceneCronFRIDAY", Values.create("0 0 4 ? * MON,FRI *"))
         assetProcessingService.sendAttributeEvent(modifyCron)
 
-        then: "the quartz job should have the new cron expression"
+        then: "the cron job should have the new cron expression"
         conditions.eventually {
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail != null
-            assert triggers.size() == 1
-            assert triggers[0] instanceof CronTrigger
-            def cronTrigger = (CronTrigger)triggers[0]
-            assert cronTrigger.cronExpression == "0 0 4 ? * MON,FRI *"
+            def job = timerProtocol.cronScheduler.getJob(timerId)
+            assert job != null
+            assert job.nextFireTime != null
+            assert job.cronExpression.cronExpression == "0 0 4 ? * MON,FRI *"
         }
 
         when: "a timer action is executed"
@@ -187,11 +162,7 @@ class TimerProtocolTest extends Specification implements ManagerContainerTrait {
             assert !sceneAgent.getAttribute("awaySceneFriday").isPresent()
             def awaySceneFridayRef = new AttributeRef(sceneAgent.id, "awaySceneFriday")
             def timerId = timerProtocol.getTimerId(awaySceneFridayRef)
-            def jobKey = JobKey.jobKey("cronJob1", timerId)
-            def jobDetail = timerProtocol.cronScheduler.scheduler.getJobDetail(jobKey)
-            def triggers = timerProtocol.cronScheduler.scheduler.getTriggersOfJob(jobKey)
-            assert jobDetail == null
-            assert triggers.isEmpty()
+            assert timerProtocol.cronScheduler.getJob(timerId) == null
         }
 
         cleanup: "the server should be stopped"
@@ -19,12 +19,15 @@
  */
 package org.openremote.test.protocol.http
 
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder
 import org.jboss.resteasy.spi.ResteasyUriInfo
 import org.jboss.resteasy.util.BasicAuthHelper
 import org.openremote.agent.protocol.Protocol
+import org.openremote.agent.protocol.ProtocolExecutorService
 import org.openremote.agent.protocol.filter.RegexFilter
 import org.openremote.agent.protocol.http.*
 import org.openremote.container.Container
+import org.openremote.container.concurrent.ContainerExecutor
 import org.openremote.manager.server.agent.AgentService
 import org.openremote.manager.server.asset.AssetProcessingService
 import org.openremote.manager.server.asset.AssetStorageService
@@ -50,7 +53,12 @@ import javax.ws.rs.HttpMethod
 import javax.ws.rs.client.ClientRequestContext
 import javax.ws.rs.client.ClientRequestFilter
 import javax.ws.rs.core.*
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.Semaphore
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 import static org.openremote.model.asset.agent.ProtocolConfiguration.initProtocolConfiguration
 
@@ -535,6 +543,10 @@ class HttpClientProtocolTest extends Specification implements ManagerContainerTr
             assert asset.getAttribute("getPollFast").flatMap({it.getValueAsInteger()}).orElse(null) == 60
         }
 
+        and: "no polling requests should have been skipped or timed out"
+        httpClientProtocol.skippedPolls == 0
+        httpClientProtocol.timedOutPolls == 0
+
         when: "a linked attribute value is updated"
         def attributeEvent = new AttributeEvent(asset.id,
             "putRequestWithHeaders",
@@ -774,4 +786,78 @@ class HttpClientProtocolTest extends Specification implements ManagerContainerTr
         cleanup: "the server should be stopped"
         stopContainer(container)
     }
-}
\ No newline at end of file
+
+    def "Coalesce and skip polling requests"() {
+
+        given: "expected conditions"
+        def conditions = new PollingConditions(timeout: 10, delay: 0.1)
+
+        and: "a protocol with a slow server that allows one polling request in flight"
+        def responseLatch = new CountDownLatch(1)
+        def sentRequests = new AtomicInteger()
+        def protocol = new HttpClientProtocol() {
+            @Override
+            protected HttpClientProtocol.HttpClientResponse readPollingResponse(HttpClientProtocol.HttpClientRequest clientRequest) {
+                sentRequests.incrementAndGet()
+                responseLatch.await()
+                return new HttpClientProtocol.HttpClientResponse(200, "OK")
+            }
+        }
+        def scheduler = Executors.newSingleThreadScheduledExecutor()
+        protocol.executorService = [
+            schedule: { Runnable runnable, long delayMillis -> scheduler.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS) }
+        ] as ProtocolExecutorService
+        protocol.inFlightPermits = new Semaphore(1)
+        protocol.pollingExecutor = new ContainerExecutor("Test HTTP client polling", 1, 1, 60, 1)
+        protocol.requestTimeoutMillis = 10000
+
+        and: "two different polling requests"
+        def client = new ResteasyClientBuilder().build().target("https://mockapi")
+        def request = protocol.buildClientRequest(client, "value", HttpMethod.GET, null, null, null, false, null, null)
+        def otherRequest = protocol.buildClientRequest(client, "other", HttpMethod.GET, null, null, null, false, null, null)
+        def responses = new CopyOnWriteArrayList()
+
+        when: "the same request is polled twice and another request is polled while the first is in flight"
+        protocol.executePollingRequest(request, { responses.add(it) })
+        protocol.executePollingRequest(request, { responses.add(it) })
+        protocol.executePollingRequest(otherRequest, { responses.add(it) })
+
+        then: "only the first request should be sent, the second poll coalesced and the other request skipped"
+        conditions.eventually {
+            assert sentRequests.get() == 1
+        }
+        protocol.coalescedPolls == 1
+        protocol.skippedPolls == 1
+        responses.isEmpty()
+
+        when: "the response is received"
+        responseLatch.countDown()
+
+        then: "both consumers of the coalesced polls should receive it"
+        conditions.eventually {
+            assert responses.size() == 2
+            assert responses.every { it.status == 200 }
+        }
+
+        when: "requests are polled one after the other, each while the polling thread is still busy with the last"
+        20.times {
+            def done = new CountDownLatch(1)
+            protocol.executePollingRequest(it % 2 == 0 ? request : otherRequest, {
+                done.countDown()
+                Thread.sleep(20)
+            })
+            done.await(10, TimeUnit.SECONDS)
+        }
+
+        then: "no poll should be skipped and the permit should be released again"
+        conditions.eventually {
+            assert sentRequests.get() == 21
+            assert protocol.inFlightPermits.availablePermits() == 1
+        }
+        protocol.skippedPolls == 1
+
+        cleanup: "the executors should be stopped"
+        protocol.pollingExecutor.shutdownNow()
+        scheduler.shutdownNow()
+    }
+}
@@ -838,7 +838,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
     def cleanup() {
         def counter = 0
-        while(network.messageQueue.size() > 0 && counter < 100) {
+        while(network.queueDepth > 0 && counter < 100) {
             Thread.sleep(20)
             counter++
         }
@@ -1023,7 +1023,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
         and: "eventually the message queue should become empty"
         conditions.eventually {
-            assert network.messageQueue.size() == 0
+            assert network.queueDepth == 0
         }
 
         when: "a button press is written to the device"
@@ -1084,7 +1084,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
         and: "eventually the message queue should become empty"
         conditions.eventually {
-            assert network.messageQueue.size() == 0
+            assert network.queueDepth == 0
         }
 
         when: "a channel LED is set to on"
@@ -1223,7 +1223,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
         and: "eventually the message queue should become empty"
         conditions.eventually {
-            assert network.messageQueue.size() == 0
+            assert network.queueDepth == 0
         }
 
         when: "a button press is written to the device"
@@ -1684,7 +1684,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
         and: "eventually the message queue should become empty"
         conditions.eventually {
-            assert network.messageQueue.size() == 0
+            assert network.queueDepth == 0
         }
 
         when: "some memo text is sent to the device"
@@ -2296,7 +2296,7 @@ class VelbusBasicTest extends Specification implements ManagerContainerTrait {
 
         and: "eventually the message queue should become empty"
         conditions.eventually {
-            assert network.messageQueue.size() == 0
+            assert network.queueDepth == 0
         }
 
         then: "the dimmer should switch off again"
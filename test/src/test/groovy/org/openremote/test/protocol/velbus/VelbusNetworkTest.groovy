@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017, OpenRemote Inc.
+ *
+ * See the CONTRIBUTORS.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openremote.test.protocol.velbus
+
+import org.openremote.agent.protocol.velbus.VelbusNetwork
+import org.openremote.agent.protocol.velbus.VelbusPacket
+import org.openremote.manager.server.concurrent.ManagerExecutorService
+import org.openremote.model.asset.agent.ConnectionStatus
+import org.openremote.test.MockMessageProcessor
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledFuture
+
+import static org.openremote.agent.protocol.velbus.VelbusNetwork.SendPriority.*
+import static org.openremote.agent.protocol.velbus.VelbusPacket.OutboundCommand.*
+
+class VelbusNetworkTest extends Specification {
+
+    def messageProcessor = new MockMessageProcessor()
+    // Scheduled send tasks are run by the test
+    def scheduledTasks = []
+    def scheduledDelays = []
+    def executorService = new ManagerExecutorService() {
+        @Override
+        ScheduledFuture schedule(Runnable runnable, long delayMillis) {
+            scheduledTasks.add(runnable)
+            scheduledDelays.add(delayMillis)
+            return [cancel: { boolean mayInterrupt -> scheduledTasks.remove(runnable) }] as ScheduledFuture
+        }
+    }
+    VelbusNetwork network
+
+    def setup() {
+        network = new VelbusNetwork(messageProcessor, executorService, null)
+        messageProcessor.connect()
+    }
+
+    def cleanup() {
+        network.close()
+    }
+
+    def runScheduledTask() {
+        assert scheduledTasks.size() == 1
+        Runnable task = scheduledTasks.remove(0)
+        scheduledDelays.remove(0)
+        task.run()
+    }
+
+    def "Send packets in order of priority"() {
+
+        when: "packets of all priorities are queued, lowest priority first"
+        def timePacket = new VelbusPacket(0, REALTIME_CLOCK_SET.code, 1 as byte, 12 as byte, 0 as byte)
+        def statusPacket = new VelbusPacket(1, MODULE_STATUS.code, 0xFF as byte)
+        def writePacket = new VelbusPacket(1, RELAY_ON.code, 0x01 as byte)
+        network.sendPackets(TIME_INJECTION, null, timePacket)
+        network.sendPackets(STATUS, null, statusPacket)
+        network.sendPackets(WRITE, "1:CH1", writePacket)
+
+        then: "all packets should be queued and sending should be scheduled once"
+        network.queueDepth == 3
+        network.getQueueDepth(WRITE) == 1
+        network.getQueueDepth(STATUS) == 1
+        network.getQueueDepth(TIME_INJECTION) == 1
+        scheduledTasks.size() == 1
+
+        when: "the queued packets are sent"
+        runScheduledTask()
+
+        then: "the packets should have been sent highest priority first"
+        messageProcessor.sentMessages == [writePacket, statusPacket, timePacket]
+        network.queueDepth == 0
+        network.packetsSent == 3
+    }
+
+    def "Coalesce repeated writes of the same device property"() {
+
+        when: "the same property is written several times"
+        def firstWrite = new VelbusPacket(1, RELAY_ON.code, 0x01 as byte)
+        def secondWrite = new VelbusPacket(1, RELAY_OFF.code, 0x01 as byte)
+        def otherWrite = new VelbusPacket(1, RELAY_ON.code, 0x02 as byte)
+        network.sendPackets(WRITE, "1:CH1", firstWrite)
+        network.sendPackets(WRITE, "1:CH2", otherWrite)
+        network.sendPackets(WRITE, "1:CH1", secondWrite)
+
+        then: "only the last write of the property should be queued"
+        network.getQueueDepth(WRITE) == 2
+        network.packetsCoalesced == 1
+
+        when: "button events of the same property are written"
+        def press = new VelbusPacket(1, BUTTON_STATUS.code, 0x01 as byte, 0x00 as byte, 0x00 as byte)
+        def release = new VelbusPacket(1, BUTTON_STATUS.code, 0x00 as byte, 0x01 as byte, 0x00 as byte)
+        network.sendPackets(WRITE, "1:BUTTON1", press)
+        network.sendPackets(WRITE, "1:BUTTON1", release)
+
+        and: "the same status request is queued twice"
+        def statusPacket = new VelbusPacket(1, MODULE_STATUS.code, 0xFF as byte)
+        network.sendPackets(STATUS, null, statusPacket)
+        network.sendPackets(STATUS, null, new VelbusPacket(1, MODULE_STATUS.code, 0xFF as byte))
+
+        then: "button events should never be replaced and the status request only be queued once"
+        network.getQueueDepth(WRITE) == 4
+        network.getQueueDepth(STATUS) == 1
+        network.packetsCoalesced == 2
+
+        when: "the queued packets are sent"
+        runScheduledTask()
+        network.sendTokensRefillMillis -= 1000
+        runScheduledTask()
+
+        then: "the packets should have been sent in order of queueing"
+        messageProcessor.sentMessages == [otherWrite, secondWrite, press, release, statusPacket]
+        scheduledTasks.isEmpty()
+    }
+
+    def "Limit bursts and pace sending of packets"() {
+
+        when: "more packets are queued than can be sent in a burst"
+        def packets = (1..10).collect { new VelbusPacket(1, RELAY_ON.code, it as byte) }
+        packets.each { network.sendPackets(WRITE, null, it) }
+
+        and: "the packets are sent immediately"
+        runScheduledTask()
+
+        then: "only a burst of packets should have been sent"
+        messageProcessor.sentMessages == packets.subList(0, 3)
+        network.queueDepth == 7
+
+        and: "sending the next packet should be delayed until a token is available"
+        scheduledTasks.size() == 1
+        scheduledDelays[0] > 0
+        scheduledDelays[0] <= 100
+
+        when: "the next task runs before a token is available"
+        runScheduledTask()
+
+        then: "no packet should have been sent"
+        messageProcessor.sentMessages.size() == 3
+        scheduledTasks.size() == 1
+
+        when: "the bus has been idle for a while"
+        network.sendTokensRefillMillis -= 1000
+        runScheduledTask()
+
+        then: "again only a burst of packets should have been sent"
+        messageProcessor.sentMessages == packets.subList(0, 6)
+        network.queueDepth == 4
+    }
+
+    def "Don't send packets when disconnected"() {
+
+        when: "packets are queued and the connection is lost"
+        network.sendPackets(WRITE, null, new VelbusPacket(1, RELAY_ON.code, 0x01 as byte))
+        messageProcessor.disconnect()
+        runScheduledTask()
+
+        then: "no packets should have been sent"
+        messageProcessor.sentMessages.isEmpty()
+
+        when: "the connection is restored"
+        messageProcessor.connect()
+
+        then: "stale packets should have been discarded"
+        network.queueDepth == 0
+    }
+}
@@ -0,0 +1,124 @@
+package org.openremote.test.user
+
+import org.openremote.manager.server.security.AuthorizationCache
+import org.openremote.manager.shared.security.Tenant
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class AuthorizationCacheTest extends Specification {
+
+    def "Cache authorization decisions until they expire or are invalidated"() {
+
+        given: "a cache with a controllable clock"
+        long now = 1000
+        def cache = new AuthorizationCache(100, 60000, { now } as LongSupplier)
+        int loads = 0
+        boolean restricted = true
+
+        when: "a user is checked twice"
+        def first = cache.isRestrictedUser("user1", { loads++; restricted })
+        def second = cache.isRestrictedUser("user1", { loads++; restricted })
+
+        then: "the second check should be answered from the cache"
+        first && second
+        loads == 1
+        cache.hits == 1
+        cache.misses == 1
+        cache.restrictedUserHitRate == 0.5d
+
+        when: "the user is invalidated"
+        restricted = false
+        cache.invalidateRestrictedUser("user1")
+
+        then: "the next check should load the new decision"
+        !cache.isRestrictedUser("user1", { loads++; restricted })
+        loads == 2
+
+        when: "the time to live passes"
+        now += 60000
+
+        then: "the decision should be loaded again"
+        !cache.isRestrictedUser("user1", { loads++; restricted })
+        loads == 3
+
+        when: "user asset links are checked and the user is invalidated"
+        cache.isUserAsset("user1", "asset1", { userId, assetId -> loads++; true })
+        cache.isUserAsset("user1", "asset2", { userId, assetId -> loads++; false })
+        cache.isUserAsset("user2", "asset1", { userId, assetId -> loads++; true })
+        cache.invalidateUserAssets("user1")
+
+        then: "only the links of the user should be loaded again"
+        cache.isUserAsset("user1", "asset1", { userId, assetId -> loads++; true })
+        cache.isUserAsset("user2", "asset1", { userId, assetId -> loads++; false })
+        loads == 7
+
+        when: "the asset is invalidated"
+        cache.invalidateAsset("asset1")
+
+        then: "the links of all users to the asset should be loaded again"
+        !cache.isUserAsset("user2", "asset1", { userId, assetId -> loads++; false })
+        loads == 8
+    }
+
+    def "Evaluate tenant activity on every check"() {
+
+        given: "a cache and a tenant that is active in the future"
+        long now = 1000
+        def cache = new AuthorizationCache(100, 60000, { now } as LongSupplier)
+        def tenant = new Tenant(id: "realm1", realm: "realm1", enabled: true, notBefore: 10)
+        int loads = 0
+
+        expect: "the tenant to be inactive"
+        !cache.isActiveTenant("realm1", { loads++; tenant })
+
+        when: "the tenant becomes active"
+        now = 10000
+
+        then: "the cached tenant should be active"
+        cache.isActiveTenant("realm1", { loads++; tenant })
+        loads == 1
+
+        and: "a missing tenant should never be active"
+        !cache.isActiveTenant("missing", { loads++; null })
+        !cache.isActiveTenant("missing", { loads++; null })
+        loads == 2
+    }
+
+    def "Don't cache decisions loaded during an invalidation"() {
+
+        given: "a cache"
+        def cache = new AuthorizationCache(100, 60000, { 1000L } as LongSupplier)
+        int loads = 0
+
+        when: "the user is invalidated while the decision is loaded"
+        cache.isRestrictedUser("user1", { loads++; cache.invalidateRestrictedUser("user1"); true })
+
+        then: "the decision should not be cached"
+        !cache.isRestrictedUser("user1", { loads++; false })
+        loads == 2
+    }
+
+    def "Evict decisions when the cache is full"() {
+
+        given: "a small cache"
+        def cache = new AuthorizationCache(2, 60000, { 1000L } as LongSupplier)
+
+        when: "more users are checked than fit into the cache"
+        (1..3).each { i -> cache.isRestrictedUser("user" + i, { false }) }
+
+        then: "decisions should have been evicted"
+        cache.evictions == 2
+        cache.size == 1
+
+        when: "the cache is disabled"
+        cache = new AuthorizationCache(0, 60000, { 1000L } as LongSupplier)
+        int loads = 0
+        cache.isRestrictedUser("user1", { loads++; false })
+        cache.isRestrictedUser("user1", { loads++; false })
+
+        then: "every check should be loaded"
+        loads == 2
+        cache.size == 0
+    }
+}